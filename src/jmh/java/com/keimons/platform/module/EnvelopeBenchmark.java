@@ -0,0 +1,106 @@
+package com.keimons.platform.module;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.player.IRepeatedPlayerData;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import com.keimons.platform.unit.CodeUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模块数据信封基准测试
+ * <p>
+ * 对比同一份编码后的元素通过{@link BytesModuleSerialize}（列表编码 + 外层编码）和{@link EnvelopeWriter}
+ * （直接写入可复用的缓冲区）序列化，以及对应的反序列化。不压缩的模块只包含编码和复制的开销。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvelopeBenchmark {
+
+	@APlayerData(moduleName = "envelope_item")
+	public static class Item implements IRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 0)
+		public int id;
+
+		@Protobuf(order = 1)
+		public int count;
+
+		@Protobuf(order = 2)
+		public String name;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+
+		@Override
+		public int getVersion() {
+			return 0;
+		}
+	}
+
+	/**
+	 * 模块中的元素数量
+	 */
+	@Param({"16", "256"})
+	public int items;
+
+	private ModuleDescriptor descriptor;
+
+	private List<byte[]> elements;
+
+	private byte[] legacy;
+
+	private byte[] envelope;
+
+	@Setup
+	public void setup() throws IOException {
+		ModuleRegistry.register(Item.class);
+		descriptor = ModuleRegistry.get(Item.class);
+		elements = new ArrayList<>(items);
+		for (int i = 0; i < items; i++) {
+			Item item = new Item();
+			item.id = i;
+			item.count = i * 3;
+			item.name = "item-" + i;
+			elements.add(CodeUtil.encode(item));
+		}
+		legacy = new BytesModuleSerialize().serialize(elements, descriptor);
+		envelope = EnvelopeWriter.write(elements, descriptor);
+	}
+
+	@Benchmark
+	public byte[] writeLegacy() throws IOException {
+		return new BytesModuleSerialize().serialize(elements, descriptor);
+	}
+
+	@Benchmark
+	public byte[] writeEnvelope() throws IOException {
+		return EnvelopeWriter.write(elements, descriptor);
+	}
+
+	@Benchmark
+	public List<Item> readLegacy() throws IOException {
+		return CodeUtil.decode(BytesModuleSerialize.class, legacy).deserialize(Item.class);
+	}
+
+	@Benchmark
+	public List<Item> readEnvelope() throws IOException {
+		return new EnvelopeReader(descriptor.getName(), envelope).deserialize(Item.class);
+	}
+}
\ No newline at end of file
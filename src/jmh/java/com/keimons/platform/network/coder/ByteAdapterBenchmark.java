@@ -0,0 +1,91 @@
+package com.keimons.platform.network.coder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字节适配器基准测试
+ * <p>
+ * 使用{@link EmbeddedChannel}在本地驱动{@link DefaultByteAdapter}，不经过网络。解码时每次写入
+ * 包含{@link #FRAMES}个完整消息的缓冲区，编码时每次写出{@link #FRAMES}个消息，结果按照单个
+ * 消息计算。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ByteAdapterBenchmark {
+
+	/**
+	 * 每次调用处理的消息数量
+	 */
+	private static final int FRAMES = 64;
+
+	/**
+	 * 消息体长度
+	 */
+	@Param({"16", "256", "4096"})
+	public int length;
+
+	private EmbeddedChannel channel;
+
+	private byte[] body;
+
+	/**
+	 * 包含{@link #FRAMES}个完整消息的缓冲区
+	 */
+	private ByteBuf frames;
+
+	@Setup
+	public void setup() {
+		channel = new EmbeddedChannel(new DefaultByteAdapter());
+		body = new byte[length];
+		frames = Unpooled.buffer(FRAMES * (5 + length));
+		for (int i = 0; i < FRAMES; i++) {
+			frames.writeByte(0);
+			frames.writeInt(length);
+			frames.writeBytes(body);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+		frames.release();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public void decode(Blackhole blackhole) {
+		channel.writeInbound(frames.retainedDuplicate());
+		Object packet;
+		while ((packet = channel.readInbound()) != null) {
+			blackhole.consume(packet);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(FRAMES)
+	public void encode(Blackhole blackhole) {
+		for (int i = 0; i < FRAMES; i++) {
+			channel.write(body);
+		}
+		channel.flush();
+		ByteBuf buf;
+		while ((buf = channel.readOutbound()) != null) {
+			blackhole.consume(buf.readableBytes());
+			buf.release();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.keimons.platform.network.coder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息适配器基准测试
+ * <p>
+ * 使用{@link EmbeddedChannel}组装与{@link KeimonsServiceInitializer}相同顺序的字节适配器和
+ * 消息适配器，一次完整的往返包括：消息编码、字节编码、字节解码以及消息解码。消息适配器使用一个
+ * 最简单的实现，只写入消息号和消息体，测量的是框架本身的开销，而不是某一种序列化方式的开销。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecAdapterBenchmark {
+
+	/**
+	 * 基准测试使用的消息
+	 */
+	public static class Packet {
+
+		final int msgCode;
+
+		final byte[] body;
+
+		Packet(int msgCode, byte[] body) {
+			this.msgCode = msgCode;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * 基准测试使用的消息适配器
+	 */
+	public static class PacketAdapter extends CodecAdapter<Packet> {
+
+		@Override
+		public byte[] encode(Packet msg) {
+			return ByteBuffer.allocate(4 + msg.body.length).putInt(msg.msgCode).put(msg.body).array();
+		}
+
+		@Override
+		public Packet decode(byte[] msg) {
+			ByteBuffer buffer = ByteBuffer.wrap(msg);
+			int msgCode = buffer.getInt();
+			byte[] body = new byte[buffer.remaining()];
+			buffer.get(body);
+			return new Packet(msgCode, body);
+		}
+
+		@Override
+		public int getMsgCode(Object msg) {
+			return ((Packet) msg).msgCode;
+		}
+	}
+
+	/**
+	 * 消息体长度
+	 */
+	@Param({"16", "256", "4096"})
+	public int length;
+
+	private EmbeddedChannel channel;
+
+	private Packet packet;
+
+	@Setup
+	public void setup() {
+		channel = new EmbeddedChannel(new DefaultByteAdapter(), new PacketAdapter());
+		packet = new Packet(1, new byte[length]);
+	}
+
+	@TearDown
+	public void tearDown() {
+		channel.finishAndReleaseAll();
+	}
+
+	@Benchmark
+	public Packet roundTrip() {
+		channel.writeOutbound(packet);
+		ByteBuf buf = channel.readOutbound();
+		channel.writeInbound(buf);
+		return channel.readInbound();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,248 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.module.IModule;
+import com.keimons.platform.unit.ClassIntrospector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 玩家内存占用基准测试
+ * <p>
+ * 缓存中的玩家长期占用堆内存，玩家和模块的容器开销随玩家数量线性增长。这里构造相同数据的玩家，
+ * 对比两种布局：{@code legacy}按照模块名称在{@link ConcurrentHashMap}中存储模块，模块名称存储在
+ * {@link CopyOnWriteArraySet}中，可重复模块的元素存储在{@link ConcurrentHashMap}中；{@code compact}
+ * 是{@link DefaultPlayer}的布局，按照模块序号在数组中存储模块，可重复模块的整数数据ID存储在开放寻址
+ * 的哈希表中。
+ * <p>
+ * 初始化时通过{@link ClassIntrospector}计算每个玩家占用的堆内存并打印，基准测试测量获取可重复
+ * 模块元素的吞吐量。玩家数据对象在两种布局中完全相同，只有容器不同。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerFootprintBenchmark {
+
+	/**
+	 * 玩家数量
+	 */
+	private static final int PLAYERS = 1000;
+
+	/**
+	 * 非重复模块数量
+	 */
+	private static final int SINGULARS = 8;
+
+	@APlayerData(moduleName = "footprint_item")
+	public static class Item implements IRepeatedPlayerData<Integer> {
+
+		private final int id;
+
+		private int count;
+
+		public Item(int id) {
+			this.id = id;
+			this.count = id;
+		}
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+
+		@Override
+		public int getVersion() {
+			return 0;
+		}
+	}
+
+	/**
+	 * 非重复模块 每个模块使用不同的子类注册
+	 */
+	public static class Singular implements ISingularPlayerData {
+
+		private long value;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+
+		@Override
+		public int getVersion() {
+			return 0;
+		}
+	}
+
+	@APlayerData(moduleName = "footprint_0")
+	public static class Singular0 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_1")
+	public static class Singular1 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_2")
+	public static class Singular2 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_3")
+	public static class Singular3 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_4")
+	public static class Singular4 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_5")
+	public static class Singular5 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_6")
+	public static class Singular6 extends Singular {
+	}
+
+	@APlayerData(moduleName = "footprint_7")
+	public static class Singular7 extends Singular {
+	}
+
+	/**
+	 * 改为数组存储之前的玩家布局
+	 */
+	private static class LegacyPlayer {
+
+		private final String identifier;
+
+		private boolean loaded;
+
+		private final ConcurrentHashMap<String, IModule<? extends IPlayerData>> modules = new ConcurrentHashMap<>();
+
+		private final CopyOnWriteArraySet<String> moduleNames = new CopyOnWriteArraySet<>();
+
+		private volatile long activeTime;
+
+		private volatile long estimatedSize;
+
+		private Object session;
+
+		LegacyPlayer(String identifier) {
+			this.identifier = identifier;
+		}
+	}
+
+	/**
+	 * 改为开放寻址存储之前的可重复模块布局
+	 */
+	private static class LegacyRepeatedModule implements IModule<Item> {
+
+		private final ConcurrentHashMap<Object, Item> repeated = new ConcurrentHashMap<>();
+
+		private final Map<Object, Long> fingerprints = new HashMap<>();
+
+		@Override
+		public List<Item> toCollection() {
+			return new ArrayList<>(repeated.values());
+		}
+	}
+
+	private static class LegacySingularModule extends BaseSingularModule<ISingularPlayerData> {
+
+		LegacySingularModule(ISingularPlayerData singular) {
+			super(singular);
+		}
+	}
+
+	/**
+	 * 玩家布局
+	 */
+	@Param({"legacy", "compact"})
+	public String layout;
+
+	/**
+	 * 每个玩家可重复模块中的元素数量
+	 */
+	@Param({"16", "256"})
+	public int items;
+
+	private LegacyPlayer[] legacy;
+
+	private DefaultPlayer[] compact;
+
+	@Setup
+	public void setup() {
+		Class<?>[] singulars = {Singular0.class, Singular1.class, Singular2.class, Singular3.class,
+				Singular4.class, Singular5.class, Singular6.class, Singular7.class};
+		Object players;
+		if ("legacy".equals(layout)) {
+			legacy = new LegacyPlayer[PLAYERS];
+			for (int i = 0; i < PLAYERS; i++) {
+				LegacyPlayer player = new LegacyPlayer(String.valueOf(i));
+				for (int j = 0; j < SINGULARS; j++) {
+					String moduleName = "footprint_" + j;
+					player.modules.put(moduleName, new LegacySingularModule(newSingular(singulars[j])));
+					player.moduleNames.add(moduleName);
+				}
+				LegacyRepeatedModule module = new LegacyRepeatedModule();
+				for (int j = 0; j < items; j++) {
+					module.repeated.put(j, new Item(j));
+				}
+				player.modules.put("footprint_item", module);
+				player.moduleNames.add("footprint_item");
+				legacy[i] = player;
+			}
+			players = legacy;
+		} else {
+			compact = new DefaultPlayer[PLAYERS];
+			for (int i = 0; i < PLAYERS; i++) {
+				DefaultPlayer player = new DefaultPlayer(String.valueOf(i));
+				for (int j = 0; j < SINGULARS; j++) {
+					player.addSingularData(newSingular(singulars[j]));
+				}
+				for (int j = 0; j < items; j++) {
+					player.addRepeatedData(new Item(j));
+				}
+				compact[i] = player;
+			}
+			players = compact;
+		}
+		ClassIntrospector introspector = new ClassIntrospector();
+		long total = introspector.sizeOf(players);
+		System.out.println();
+		System.out.println("layout=" + layout + ", items=" + items + ", bytes/player=" + total / PLAYERS);
+	}
+
+	private static ISingularPlayerData newSingular(Class<?> clazz) {
+		try {
+			return (ISingularPlayerData) clazz.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Benchmark
+	public Object get() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int player = random.nextInt(PLAYERS);
+		int dataId = random.nextInt(items);
+		if (legacy != null) {
+			LegacyRepeatedModule module = (LegacyRepeatedModule) legacy[player].modules.get("footprint_item");
+			return module.repeated.get(dataId);
+		}
+		return compact[player].get(Item.class, dataId);
+	}
+}
\ No newline at end of file
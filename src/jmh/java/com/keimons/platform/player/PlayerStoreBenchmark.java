@@ -0,0 +1,156 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 玩家数据存储基准测试
+ * <p>
+ * 不需要Redis，测量{@link DefaultPlayer}的存储和加载在不同{@link IPlayerStore}上的吞吐量：{@code memory}
+ * 只包含序列化、压缩和存储框架本身的开销；{@code local}在此基础上增加本地日志的追加和同步到磁盘。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayerStoreBenchmark {
+
+	/**
+	 * 玩家数量
+	 */
+	private static final int PLAYERS = 1000;
+
+	@APlayerData(moduleName = "store_bag")
+	public static class Bag implements ISingularPlayerData {
+
+		@Protobuf(order = 0)
+		public long gold;
+
+		@Protobuf(order = 1)
+		public String note;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+
+		@Override
+		public int getVersion() {
+			return 0;
+		}
+	}
+
+	@APlayerData(moduleName = "store_item", isIncremental = true)
+	public static class Item implements IRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 0)
+		public int id;
+
+		@Protobuf(order = 1)
+		public int count;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+
+		@Override
+		public int getVersion() {
+			return 0;
+		}
+	}
+
+	/**
+	 * 存储类型
+	 */
+	@Param({StoreManager.MEMORY, StoreManager.LOCAL})
+	public String store;
+
+	/**
+	 * 每个玩家可重复模块中的元素数量
+	 */
+	@Param({"16", "256"})
+	public int items;
+
+	private Path directory;
+
+	private IPlayerStore previous;
+
+	private DefaultPlayer[] players;
+
+	@Setup
+	public void setup() throws IOException {
+		ModuleRegistry.register(Bag.class);
+		ModuleRegistry.register(Item.class);
+		directory = Files.createTempDirectory("keimons-store");
+		IPlayerStore store = StoreManager.create(this.store, directory, 64L * 1024 * 1024);
+		store.open();
+		previous = StoreManager.getStore();
+		StoreManager.setStore(store);
+		players = new DefaultPlayer[PLAYERS];
+		for (int i = 0; i < PLAYERS; i++) {
+			DefaultPlayer player = new DefaultPlayer("store:" + i);
+			Bag bag = new Bag();
+			bag.gold = i;
+			bag.note = "player-" + i;
+			player.addSingularData(bag);
+			for (int j = 0; j < items; j++) {
+				Item item = new Item();
+				item.id = j;
+				item.count = j;
+				player.addRepeatedData(item);
+			}
+			player.save(true);
+			players[i] = player;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		StoreManager.getStore().close();
+		StoreManager.setStore(previous);
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public void save() {
+		players[ThreadLocalRandom.current().nextInt(PLAYERS)].save(true);
+	}
+
+	@Benchmark
+	public Object load() {
+		DefaultPlayer player = new DefaultPlayer("store:" + ThreadLocalRandom.current().nextInt(PLAYERS));
+		player.load(modules());
+		return player;
+	}
+
+	/**
+	 * 需要加载的模块 为空时加载所有模块
+	 *
+	 * @param modules 模块
+	 * @return 模块
+	 */
+	@SafeVarargs
+	private static Class<? extends IPlayerData>[] modules(Class<? extends IPlayerData>... modules) {
+		return modules;
+	}
+}
\ No newline at end of file
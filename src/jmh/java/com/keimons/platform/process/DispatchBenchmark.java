@@ -0,0 +1,88 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.session.Session;
+import com.keimons.platform.thread.DefaultExecutorConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 消息分发基准测试
+ * <p>
+ * 测量一个消息从{@link HandlerManager#handler(Session, Object)}到消息处理器执行完成的分发开销，
+ * 消息处理器本身不做任何事情。每次调用分发{@link #BATCH}个消息，然后等待执行线程处理完成，
+ * 避免队列无限增长，结果按照单个消息计算。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatchBenchmark {
+
+	/**
+	 * 每次调用分发的消息数量
+	 */
+	private static final int BATCH = 1024;
+
+	/**
+	 * 已经处理的消息数量
+	 */
+	private static final AtomicLong processed = new AtomicLong();
+
+	@AProcessor(MsgCode = 1, ExecutorConfig = DefaultExecutorConfig.FAST)
+	public static class RouteProcessor extends BaseProcessor<int[]> {
+
+		@Override
+		public void processor(Session session, int[] packet) {
+			processed.incrementAndGet();
+		}
+	}
+
+	@AProcessor(MsgCode = 2, ExecutorConfig = DefaultExecutorConfig.AUTO)
+	public static class AutoProcessor extends BaseProcessor<int[]> {
+
+		@Override
+		public void processor(Session session, int[] packet) {
+			processed.incrementAndGet();
+		}
+	}
+
+	private Session session;
+
+	private long dispatched;
+
+	@Param({"1", "2"})
+	public int msgCode;
+
+	private int[] packet;
+
+	@Setup
+	public void setup() {
+		new HandlerManager(int[].class, packet -> ((int[]) packet)[0]);
+		HandlerManager.register(new RouteProcessor());
+		HandlerManager.register(new AutoProcessor());
+		session = new Session(null);
+		packet = new int[]{msgCode};
+		processed.set(0);
+		dispatched = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void dispatch() {
+		for (int i = 0; i < BATCH; i++) {
+			HandlerManager.handler(session, packet);
+		}
+		dispatched += BATCH;
+		while (processed.get() < dispatched) {
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.keimons.platform.session;
+
+import com.keimons.platform.process.AProcessor;
+import com.keimons.platform.process.BaseProcessor;
+import com.keimons.platform.process.BatchProcessor;
+import com.keimons.platform.process.HandlerManager;
+import com.keimons.platform.thread.DefaultExecutorConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 会话消息队列基准测试
+ * <p>
+ * 测量消息从{@link Session#commit(Object)}进入会话消息队列，到消息处理器执行完成的吞吐量。
+ * 同一个会话的消息串行执行，每个消息都要经过一次入队、分发和线程间的交接。批量消息处理器
+ * 会将连续的同一消息号的消息一并取出，可以与普通消息处理器对比。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionBenchmark {
+
+	/**
+	 * 每次调用提交的消息数量
+	 */
+	private static final int BATCH = 1024;
+
+	/**
+	 * 已经处理的消息数量
+	 */
+	private static final AtomicLong processed = new AtomicLong();
+
+	@AProcessor(MsgCode = 1, ExecutorConfig = DefaultExecutorConfig.FAST)
+	public static class SingleProcessor extends BaseProcessor<int[]> {
+
+		@Override
+		public void processor(Session session, int[] packet) {
+			processed.incrementAndGet();
+		}
+	}
+
+	@AProcessor(MsgCode = 2, ExecutorConfig = DefaultExecutorConfig.FAST)
+	public static class MultiProcessor extends BatchProcessor<int[]> {
+
+		@Override
+		public void processor(Session session, List<int[]> packets) {
+			processed.addAndGet(packets.size());
+		}
+	}
+
+	/**
+	 * 消息号 1.普通消息处理器 2.批量消息处理器
+	 */
+	@Param({"1", "2"})
+	public int msgCode;
+
+	private Session session;
+
+	private int[] packet;
+
+	private long committed;
+
+	@Setup
+	public void setup() {
+		new HandlerManager(int[].class, packet -> ((int[]) packet)[0]);
+		HandlerManager.register(new SingleProcessor());
+		HandlerManager.register(new MultiProcessor());
+		session = new Session(null);
+		packet = new int[]{msgCode};
+		processed.set(0);
+		committed = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void commit() {
+		for (int i = 0; i < BATCH; i++) {
+			session.commit(packet);
+		}
+		committed += BATCH;
+		while (processed.get() < committed) {
+			Thread.yield();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.keimons.platform.thread;
+
+import com.keimons.platform.process.BaseProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程池交接基准测试
+ * <p>
+ * 测量一个空任务从提交到{@link KeimonsExecutor}到执行完成的开销，包括排队、唤醒以及统计。
+ * <ul>
+ *     <li>lane 所有任务提交到可路由线程池的同一个线程</li>
+ *     <li>lanes 任务依次提交到可路由线程池的所有线程</li>
+ *     <li>pool 任务提交到不可路由的线程池</li>
+ * </ul>
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+
+	/**
+	 * 每次调用提交的任务数量
+	 */
+	private static final int BATCH = 1024;
+
+	/**
+	 * 已经执行的任务数量
+	 */
+	private static final AtomicLong processed = new AtomicLong();
+
+	private static final Runnable TASK = processed::incrementAndGet;
+
+	@Param({"lane", "lanes", "pool"})
+	public String mode;
+
+	private KeimonsExecutor executor;
+
+	private int lanes;
+
+	private long submitted;
+
+	@Setup
+	public void setup() {
+		executor = BaseProcessor.getExecutor();
+		lanes = DefaultExecutorConfig.FAST.getThreadNumb();
+		processed.set(0);
+		submitted = 0;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void handOff() {
+		switch (mode) {
+			case "lane":
+				for (int i = 0; i < BATCH; i++) {
+					executor.execute(DefaultExecutorConfig.FAST, 0, TASK);
+				}
+				break;
+			case "lanes":
+				for (int i = 0; i < BATCH; i++) {
+					executor.execute(DefaultExecutorConfig.FAST, i % lanes, TASK);
+				}
+				break;
+			default:
+				for (int i = 0; i < BATCH; i++) {
+					executor.execute(DefaultExecutorConfig.RULE, TASK);
+				}
+				break;
+		}
+		submitted += BATCH;
+		while (processed.get() < submitted) {
+			Thread.yield();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+package com.keimons.platform.unit;
+
+import sun.misc.Unsafe;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象内存布局分析
+ * <p>
+ * 通过{@link Unsafe}读取字段的偏移量和数组的布局，生成对象的{@link ObjectInfo}树，用于估算
+ * 对象图占用的堆内存。同一个对象只计算一次，{@link Class}和{@link ClassLoader}等共享的对象不
+ * 展开。字段的值通过{@link Unsafe}读取，不需要访问权限。
+ * <p>
+ * 注意：分析期间对象不应该被修改，这个工具只用于基准测试，依赖{@link Unsafe}，不放在生产代码中。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class ClassIntrospector {
+
+	private static final Unsafe unsafe;
+
+	/**
+	 * 引用的大小 开启指针压缩时为4
+	 */
+	private static final int REFERENCE_SIZE;
+
+	static {
+		try {
+			Field field = Unsafe.class.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = (Unsafe) field.get(null);
+			REFERENCE_SIZE = unsafe.arrayIndexScale(Object[].class);
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * 每个类型的非静态字段 包括父类的字段
+	 */
+	private static final Map<Class<?>, List<Field>> fields = new ConcurrentHashMap<>();
+
+	/**
+	 * 已经分析过的对象
+	 */
+	private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * 不展开的对象
+	 */
+	private final Set<Object> excludes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * 不展开一个对象，用于排除多个对象图之间共享的对象
+	 *
+	 * @param object 对象
+	 * @return 分析工具
+	 */
+	public ClassIntrospector exclude(Object object) {
+		excludes.add(object);
+		return this;
+	}
+
+	/**
+	 * 分析对象
+	 *
+	 * @param object 对象
+	 * @return 对象的内存布局
+	 */
+	public ObjectInfo introspect(Object object) {
+		try {
+			return introspect(object, null);
+		} finally {
+			visited.clear();
+		}
+	}
+
+	/**
+	 * 估算对象图占用的堆内存
+	 *
+	 * @param object 对象
+	 * @return 占用的堆内存 字节
+	 */
+	public long sizeOf(Object object) {
+		return introspect(object).getDeepSize();
+	}
+
+	private ObjectInfo introspect(Object object, Field field) {
+		Class<?> type = field == null || (object != null && !field.getType().isPrimitive()) ?
+				object.getClass() : field.getType();
+		boolean expand = object != null && !type.isPrimitive() && visited.add(object) && !isShared(object);
+		int arraySize = 0;
+		int arrayBase = 0;
+		int arrayElementSize = 0;
+		if (expand && type.isArray()) {
+			arrayBase = unsafe.arrayBaseOffset(type);
+			arrayElementSize = unsafe.arrayIndexScale(type);
+			arraySize = arrayBase + arrayElementSize * Array.getLength(object);
+		}
+		String name = field == null ? "" : field.getName();
+		int offset = field == null ? 0 : (int) unsafe.objectFieldOffset(field);
+		ObjectInfo root = new ObjectInfo(name, type.getName(), offset, sizeOf(field, type),
+				arraySize, arrayBase, arrayElementSize);
+		if (expand) {
+			if (type.isArray()) {
+				if (!type.getComponentType().isPrimitive()) {
+					for (Object element : (Object[]) object) {
+						if (element != null) {
+							root.addChild(introspect(element, null));
+						}
+					}
+				}
+			} else {
+				for (Field child : fields(type)) {
+					root.addChild(introspect(value(object, child), child));
+				}
+			}
+		}
+		root.sort();
+		return root;
+	}
+
+	/**
+	 * 是否为共享的对象
+	 */
+	private boolean isShared(Object object) {
+		return excludes.contains(object) || object instanceof Class || object instanceof ClassLoader ||
+				object instanceof Thread || object instanceof Enum;
+	}
+
+	/**
+	 * 字段占用的内存
+	 */
+	private static int sizeOf(Field field, Class<?> type) {
+		Class<?> declared = field == null ? type : field.getType();
+		if (declared == long.class || declared == double.class) {
+			return 8;
+		}
+		if (declared == int.class || declared == float.class) {
+			return 4;
+		}
+		if (declared == short.class || declared == char.class) {
+			return 2;
+		}
+		if (declared == byte.class || declared == boolean.class) {
+			return 1;
+		}
+		return REFERENCE_SIZE;
+	}
+
+	/**
+	 * 读取字段的值 基本类型返回{@code null}
+	 */
+	private static Object value(Object object, Field field) {
+		if (field.getType().isPrimitive()) {
+			return null;
+		}
+		return unsafe.getObject(object, unsafe.objectFieldOffset(field));
+	}
+
+	private static List<Field> fields(Class<?> type) {
+		return fields.computeIfAbsent(type, key -> {
+			List<Field> result = new ArrayList<>();
+			for (Class<?> clazz = key; clazz != null; clazz = clazz.getSuperclass()) {
+				for (Field field : clazz.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						result.add(field);
+					}
+				}
+			}
+			return result;
+		});
+	}
+}
\ No newline at end of file
@@ -10,11 +10,14 @@ import com.keimons.platform.iface.IEventHandler;
 import com.keimons.platform.iface.IManager;
 import com.keimons.platform.iface.IService;
 import com.keimons.platform.log.LogService;
+import com.keimons.platform.player.PersistenceService;
 import com.keimons.platform.player.PlayerManager;
 import com.keimons.platform.network.KeimonsTcpService;
 import com.keimons.platform.network.coder.CodecAdapter;
 import com.keimons.platform.process.HandlerManager;
+import com.keimons.platform.process.ProcessorMetrics;
 import com.keimons.platform.quartz.SchedulerService;
+import com.keimons.platform.thread.ExecutorMonitor;
 import com.keimons.platform.unit.ClassUtil;
 import com.keimons.platform.unit.TimeUtil;
 
@@ -63,9 +66,12 @@ public class Keimons<T> {
 			System.out.println("禁用控制台输出重定向！");
 		}
 		LogService.init();
+		ProcessorMetrics.init(config.getMetricsInterval());
+		ExecutorMonitor.init(config.getMetricsInterval(), config.getExecutorStall());
 		SchedulerService.init();
 		EventService.init();
-		PlayerManager.init();
+		PlayerManager.init(config);
+		PersistenceService.init(config.getPlayerFlushInterval(), config.getPlayerFlushLag(), config.getPlayerFlushBatch());
 		List<Package> packages = new ArrayList<>();
 		for (Package pkg : ClassUtil.getPackages("")) {
 			AModular modular = pkg.getAnnotation(AModular.class);
@@ -114,6 +120,11 @@ public class Keimons<T> {
 		for (IService service : services.values()) {
 			service.shutdown();
 		}
+		PlayerManager.stop();
+		ProcessorMetrics.dump();
+		ProcessorMetrics.shutdown();
+		ExecutorMonitor.dump();
+		ExecutorMonitor.shutdown();
 		System.out.println("服务器关闭耗时：" + (TimeUtil.currentTimeMillis() - time));
 	}
 
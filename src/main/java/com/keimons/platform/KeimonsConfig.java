@@ -96,6 +96,286 @@ public class KeimonsConfig {
 	 */
 	public static final String DEFAULT_NET_THREAD_SIMPLE = "";
 
+	/**
+	 * 消息处理器统计输出间隔 秒
+	 */
+	public static final String METRICS_INTERVAL = "keimons.metrics.interval";
+
+	/**
+	 * 默认消息处理器统计输出间隔 秒
+	 */
+	public static final String DEFAULT_METRICS_INTERVAL = "60";
+
+	/**
+	 * 线程卡顿阈值 毫秒
+	 */
+	public static final String EXECUTOR_STALL = "keimons.executor.stall";
+
+	/**
+	 * 默认线程卡顿阈值 毫秒
+	 */
+	public static final String DEFAULT_EXECUTOR_STALL = "5000";
+
+	/**
+	 * 玩家数据写入间隔 毫秒
+	 */
+	public static final String PLAYER_FLUSH_INTERVAL = "keimons.player.flush.interval";
+
+	/**
+	 * 默认玩家数据写入间隔 毫秒
+	 */
+	public static final String DEFAULT_PLAYER_FLUSH_INTERVAL = "1000";
+
+	/**
+	 * 玩家数据最大写入延迟 毫秒
+	 */
+	public static final String PLAYER_FLUSH_LAG = "keimons.player.flush.lag";
+
+	/**
+	 * 默认玩家数据最大写入延迟 毫秒
+	 */
+	public static final String DEFAULT_PLAYER_FLUSH_LAG = "30000";
+
+	/**
+	 * 玩家数据单次最多写入的玩家数量
+	 */
+	public static final String PLAYER_FLUSH_BATCH = "keimons.player.flush.batch";
+
+	/**
+	 * 默认玩家数据单次最多写入的玩家数量
+	 */
+	public static final String DEFAULT_PLAYER_FLUSH_BATCH = "256";
+
+	/**
+	 * 批量存储时每个管道中的写入数量
+	 */
+	public static final String PLAYER_SAVE_BATCH = "keimons.player.save.batch";
+
+	/**
+	 * 默认批量存储时每个管道中的写入数量
+	 */
+	public static final String DEFAULT_PLAYER_SAVE_BATCH = "128";
+
+	/**
+	 * 批量存储时最多同时执行的管道数量
+	 */
+	public static final String PLAYER_SAVE_INFLIGHT = "keimons.player.save.inflight";
+
+	/**
+	 * 默认批量存储时最多同时执行的管道数量
+	 */
+	public static final String DEFAULT_PLAYER_SAVE_INFLIGHT = "4";
+
+	/**
+	 * 批量存储时的分片数量 允许的特殊字符 "cpu"
+	 */
+	public static final String PLAYER_SAVE_WORKERS = "keimons.player.save.workers";
+
+	/**
+	 * 默认批量存储时的分片数量
+	 */
+	public static final String DEFAULT_PLAYER_SAVE_WORKERS = "cpu";
+
+	/**
+	 * 停服存储的最长时间 毫秒
+	 */
+	public static final String PLAYER_SAVE_DEADLINE = "keimons.player.save.deadline";
+
+	/**
+	 * 默认停服存储的最长时间 毫秒
+	 */
+	public static final String DEFAULT_PLAYER_SAVE_DEADLINE = "0";
+
+	/**
+	 * 快照存储线程数量 允许的特殊字符 "cpu" 配置为0则关闭快照存储
+	 */
+	public static final String PLAYER_SNAPSHOT_THREADS = "keimons.player.snapshot.threads";
+
+	/**
+	 * 默认快照存储线程数量
+	 */
+	public static final String DEFAULT_PLAYER_SNAPSHOT_THREADS = "cpu";
+
+	/**
+	 * 玩家数据存储 允许的值 "redis" "local" "memory"
+	 */
+	public static final String PLAYER_STORE = "keimons.player.store";
+
+	/**
+	 * 默认玩家数据存储
+	 */
+	public static final String DEFAULT_PLAYER_STORE = "redis";
+
+	/**
+	 * 本地存储目录
+	 */
+	public static final String PLAYER_STORE_PATH = "keimons.player.store.path";
+
+	/**
+	 * 默认本地存储目录
+	 */
+	public static final String DEFAULT_PLAYER_STORE_PATH = "store";
+
+	/**
+	 * 本地存储的日志每个分段的最大长度 MB
+	 */
+	public static final String PLAYER_STORE_SEGMENT = "keimons.player.store.segment";
+
+	/**
+	 * 默认本地存储的日志每个分段的最大长度 MB
+	 */
+	public static final String DEFAULT_PLAYER_STORE_SEGMENT = "64";
+
+	/**
+	 * 模块压缩字典的最大长度 KB 为0则不训练字典
+	 */
+	public static final String PLAYER_DICTIONARY_SIZE = "keimons.player.dictionary.size";
+
+	/**
+	 * 默认模块压缩字典的最大长度 KB
+	 */
+	public static final String DEFAULT_PLAYER_DICTIONARY_SIZE = "16";
+
+	/**
+	 * 预写日志目录 为空则不开启预写日志
+	 */
+	public static final String PLAYER_WAL_PATH = "keimons.player.wal.path";
+
+	/**
+	 * 默认预写日志目录
+	 */
+	public static final String DEFAULT_PLAYER_WAL_PATH = "";
+
+	/**
+	 * 预写日志每个分段的最大长度 MB
+	 */
+	public static final String PLAYER_WAL_SEGMENT = "keimons.player.wal.segment";
+
+	/**
+	 * 默认预写日志每个分段的最大长度 MB
+	 */
+	public static final String DEFAULT_PLAYER_WAL_SEGMENT = "64";
+
+	/**
+	 * 开启预写日志时全量存储的间隔 秒 0则只在停服时全量存储
+	 */
+	public static final String PLAYER_WAL_CHECKPOINT = "keimons.player.wal.checkpoint";
+
+	/**
+	 * 默认开启预写日志时全量存储的间隔 秒
+	 */
+	public static final String DEFAULT_PLAYER_WAL_CHECKPOINT = "300";
+
+	/**
+	 * 玩家超过这个天数没有活跃时迁移到冷数据存储 0则不开启
+	 */
+	public static final String PLAYER_TIER_DAYS = "keimons.player.tier.days";
+
+	/**
+	 * 默认玩家迁移到冷数据存储的天数
+	 */
+	public static final String DEFAULT_PLAYER_TIER_DAYS = "0";
+
+	/**
+	 * 每秒最多迁移到冷数据存储的玩家数量
+	 */
+	public static final String PLAYER_TIER_RATE = "keimons.player.tier.rate";
+
+	/**
+	 * 默认每秒最多迁移到冷数据存储的玩家数量
+	 */
+	public static final String DEFAULT_PLAYER_TIER_RATE = "100";
+
+	/**
+	 * 冷数据存储目录
+	 */
+	public static final String PLAYER_TIER_PATH = "keimons.player.tier.path";
+
+	/**
+	 * 默认冷数据存储目录
+	 */
+	public static final String DEFAULT_PLAYER_TIER_PATH = "tier";
+
+	/**
+	 * 冷数据存储每个分段的最大长度 MB
+	 */
+	public static final String PLAYER_TIER_SEGMENT = "keimons.player.tier.segment";
+
+	/**
+	 * 默认冷数据存储每个分段的最大长度 MB
+	 */
+	public static final String DEFAULT_PLAYER_TIER_SEGMENT = "256";
+
+	/**
+	 * 需要回填活跃时间的玩家数据的键 为空则不回填
+	 */
+	public static final String PLAYER_TIER_PATTERN = "keimons.player.tier.pattern";
+
+	/**
+	 * 默认需要回填活跃时间的玩家数据的键
+	 */
+	public static final String DEFAULT_PLAYER_TIER_PATTERN = "";
+
+	/**
+	 * 玩家数据加载线程数量 允许的特殊字符 "cpu"
+	 */
+	public static final String PLAYER_LOAD_THREADS = "keimons.player.load.threads";
+
+	/**
+	 * 默认玩家数据加载线程数量
+	 */
+	public static final String DEFAULT_PLAYER_LOAD_THREADS = "cpu";
+
+	/**
+	 * 玩家数据最多同时执行的加载数量 允许的特殊字符 "cpu"
+	 */
+	public static final String PLAYER_LOAD_PARALLELISM = "keimons.player.load.parallelism";
+
+	/**
+	 * 默认玩家数据最多同时执行的加载数量
+	 */
+	public static final String DEFAULT_PLAYER_LOAD_PARALLELISM = "cpu*8";
+
+	/**
+	 * 玩家缓存检查间隔 毫秒
+	 */
+	public static final String PLAYER_CACHE_INTERVAL = "keimons.player.cache.interval";
+
+	/**
+	 * 默认玩家缓存检查间隔 毫秒
+	 */
+	public static final String DEFAULT_PLAYER_CACHE_INTERVAL = "60000";
+
+	/**
+	 * 玩家缓存最大空闲时间 毫秒
+	 */
+	public static final String PLAYER_CACHE_IDLE = "keimons.player.cache.idle";
+
+	/**
+	 * 默认玩家缓存最大空闲时间 毫秒
+	 */
+	public static final String DEFAULT_PLAYER_CACHE_IDLE = "1800000";
+
+	/**
+	 * 玩家缓存内存预算 MB
+	 */
+	public static final String PLAYER_CACHE_BUDGET = "keimons.player.cache.budget";
+
+	/**
+	 * 默认玩家缓存内存预算 MB
+	 */
+	public static final String DEFAULT_PLAYER_CACHE_BUDGET = "0";
+
+	/**
+	 * 是否懒加载玩家模块
+	 */
+	public static final String PLAYER_LAZY = "keimons.player.lazy";
+
+	/**
+	 * 默认是否懒加载玩家模块
+	 */
+	public static final String DEFAULT_PLAYER_LAZY = "false";
+
 	/**
 	 * 是否启用Debug模式运行
 	 */
@@ -136,6 +416,146 @@ public class KeimonsConfig {
 	 */
 	private String[] netThreadNames;
 
+	/**
+	 * 消息处理器统计输出间隔 秒
+	 */
+	private int metricsInterval;
+
+	/**
+	 * 线程卡顿阈值 毫秒
+	 */
+	private int executorStall;
+
+	/**
+	 * 玩家数据写入间隔 毫秒
+	 */
+	private int playerFlushInterval;
+
+	/**
+	 * 玩家数据最大写入延迟 毫秒
+	 */
+	private int playerFlushLag;
+
+	/**
+	 * 玩家数据单次最多写入的玩家数量
+	 */
+	private int playerFlushBatch;
+
+	/**
+	 * 批量存储时每个管道中的写入数量
+	 */
+	private int playerSaveBatch;
+
+	/**
+	 * 批量存储时最多同时执行的管道数量
+	 */
+	private int playerSaveInflight;
+
+	/**
+	 * 批量存储时的分片数量
+	 */
+	private int playerSaveWorkers;
+
+	/**
+	 * 停服存储的最长时间 毫秒
+	 */
+	private long playerSaveDeadline;
+
+	/**
+	 * 快照存储线程数量
+	 */
+	private int playerSnapshotThreads;
+
+	/**
+	 * 玩家数据存储
+	 */
+	private String playerStore;
+
+	/**
+	 * 本地存储目录
+	 */
+	private String playerStorePath;
+
+	/**
+	 * 本地存储的日志每个分段的最大长度 MB
+	 */
+	private long playerStoreSegment;
+
+	/**
+	 * 模块压缩字典的最大长度 KB
+	 */
+	private int playerDictionarySize;
+
+	/**
+	 * 预写日志目录
+	 */
+	private String playerWalPath;
+
+	/**
+	 * 预写日志每个分段的最大长度 MB
+	 */
+	private long playerWalSegment;
+
+	/**
+	 * 开启预写日志时全量存储的间隔 秒
+	 */
+	private int playerWalCheckpoint;
+
+	/**
+	 * 玩家超过这个天数没有活跃时迁移到冷数据存储
+	 */
+	private int playerTierDays;
+
+	/**
+	 * 每秒最多迁移到冷数据存储的玩家数量
+	 */
+	private int playerTierRate;
+
+	/**
+	 * 冷数据存储目录
+	 */
+	private String playerTierPath;
+
+	/**
+	 * 冷数据存储每个分段的最大长度 MB
+	 */
+	private long playerTierSegment;
+
+	/**
+	 * 需要回填活跃时间的玩家数据的键
+	 */
+	private String playerTierPattern;
+
+	/**
+	 * 玩家数据加载线程数量
+	 */
+	private int playerLoadThreads;
+
+	/**
+	 * 玩家数据最多同时执行的加载数量
+	 */
+	private int playerLoadParallelism;
+
+	/**
+	 * 玩家缓存检查间隔 毫秒
+	 */
+	private int playerCacheInterval;
+
+	/**
+	 * 玩家缓存最大空闲时间 毫秒
+	 */
+	private long playerCacheIdle;
+
+	/**
+	 * 玩家缓存内存预算 MB
+	 */
+	private long playerCacheBudget;
+
+	/**
+	 * 是否懒加载玩家模块
+	 */
+	private boolean playerLazy;
+
 	/**
 	 * 配置文件
 	 *
@@ -189,6 +609,81 @@ public class KeimonsConfig {
 		// 端口号
 		property = config.getProperty(NET_POTR, DEFAULT_NET_POTR);
 		this.port = Integer.parseInt(property);
+
+		// 统计输出间隔
+		property = config.getProperty(METRICS_INTERVAL, DEFAULT_METRICS_INTERVAL);
+		this.metricsInterval = Integer.parseInt(property);
+
+		// 线程卡顿阈值
+		property = config.getProperty(EXECUTOR_STALL, DEFAULT_EXECUTOR_STALL);
+		this.executorStall = Integer.parseInt(property);
+
+		// 玩家数据延迟写入
+		property = config.getProperty(PLAYER_FLUSH_INTERVAL, DEFAULT_PLAYER_FLUSH_INTERVAL);
+		this.playerFlushInterval = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_FLUSH_LAG, DEFAULT_PLAYER_FLUSH_LAG);
+		this.playerFlushLag = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_FLUSH_BATCH, DEFAULT_PLAYER_FLUSH_BATCH);
+		this.playerFlushBatch = Integer.parseInt(property);
+
+		// 玩家数据批量存储
+		property = config.getProperty(PLAYER_SAVE_BATCH, DEFAULT_PLAYER_SAVE_BATCH);
+		this.playerSaveBatch = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_SAVE_INFLIGHT, DEFAULT_PLAYER_SAVE_INFLIGHT);
+		this.playerSaveInflight = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_SAVE_WORKERS, DEFAULT_PLAYER_SAVE_WORKERS);
+		this.playerSaveWorkers = getThreadCount(property);
+		property = config.getProperty(PLAYER_SAVE_DEADLINE, DEFAULT_PLAYER_SAVE_DEADLINE);
+		this.playerSaveDeadline = Long.parseLong(property);
+
+		// 快照存储
+		property = config.getProperty(PLAYER_SNAPSHOT_THREADS, DEFAULT_PLAYER_SNAPSHOT_THREADS);
+		this.playerSnapshotThreads = getThreadCount(property);
+
+		// 玩家数据存储
+		this.playerStore = config.getProperty(PLAYER_STORE, DEFAULT_PLAYER_STORE).trim();
+		this.playerStorePath = config.getProperty(PLAYER_STORE_PATH, DEFAULT_PLAYER_STORE_PATH).trim();
+		property = config.getProperty(PLAYER_STORE_SEGMENT, DEFAULT_PLAYER_STORE_SEGMENT);
+		this.playerStoreSegment = Long.parseLong(property);
+
+		// 模块压缩
+		property = config.getProperty(PLAYER_DICTIONARY_SIZE, DEFAULT_PLAYER_DICTIONARY_SIZE);
+		this.playerDictionarySize = Integer.parseInt(property.trim());
+
+		// 预写日志
+		this.playerWalPath = config.getProperty(PLAYER_WAL_PATH, DEFAULT_PLAYER_WAL_PATH).trim();
+		property = config.getProperty(PLAYER_WAL_SEGMENT, DEFAULT_PLAYER_WAL_SEGMENT);
+		this.playerWalSegment = Long.parseLong(property);
+		property = config.getProperty(PLAYER_WAL_CHECKPOINT, DEFAULT_PLAYER_WAL_CHECKPOINT);
+		this.playerWalCheckpoint = Integer.parseInt(property.trim());
+
+		// 冷数据
+		property = config.getProperty(PLAYER_TIER_DAYS, DEFAULT_PLAYER_TIER_DAYS);
+		this.playerTierDays = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_TIER_RATE, DEFAULT_PLAYER_TIER_RATE);
+		this.playerTierRate = Integer.parseInt(property);
+		this.playerTierPath = config.getProperty(PLAYER_TIER_PATH, DEFAULT_PLAYER_TIER_PATH).trim();
+		property = config.getProperty(PLAYER_TIER_SEGMENT, DEFAULT_PLAYER_TIER_SEGMENT);
+		this.playerTierSegment = Long.parseLong(property);
+		this.playerTierPattern = config.getProperty(PLAYER_TIER_PATTERN, DEFAULT_PLAYER_TIER_PATTERN).trim();
+
+		// 玩家数据加载
+		property = config.getProperty(PLAYER_LOAD_THREADS, DEFAULT_PLAYER_LOAD_THREADS);
+		this.playerLoadThreads = getThreadCount(property);
+		property = config.getProperty(PLAYER_LOAD_PARALLELISM, DEFAULT_PLAYER_LOAD_PARALLELISM);
+		this.playerLoadParallelism = getThreadCount(property);
+
+		// 玩家缓存
+		property = config.getProperty(PLAYER_CACHE_INTERVAL, DEFAULT_PLAYER_CACHE_INTERVAL);
+		this.playerCacheInterval = Integer.parseInt(property);
+		property = config.getProperty(PLAYER_CACHE_IDLE, DEFAULT_PLAYER_CACHE_IDLE);
+		this.playerCacheIdle = Long.parseLong(property);
+		property = config.getProperty(PLAYER_CACHE_BUDGET, DEFAULT_PLAYER_CACHE_BUDGET);
+		this.playerCacheBudget = Long.parseLong(property);
+
+		// 玩家模块懒加载
+		property = config.getProperty(PLAYER_LAZY, DEFAULT_PLAYER_LAZY);
+		this.playerLazy = Boolean.parseBoolean(property);
 	}
 
 	/**
@@ -296,4 +791,116 @@ public class KeimonsConfig {
 	public String[] getNetThreadNames() {
 		return netThreadNames;
 	}
+
+	public int getMetricsInterval() {
+		return metricsInterval;
+	}
+
+	public int getExecutorStall() {
+		return executorStall;
+	}
+
+	public int getPlayerFlushInterval() {
+		return playerFlushInterval;
+	}
+
+	public int getPlayerFlushLag() {
+		return playerFlushLag;
+	}
+
+	public int getPlayerFlushBatch() {
+		return playerFlushBatch;
+	}
+
+	public int getPlayerSaveBatch() {
+		return playerSaveBatch;
+	}
+
+	public int getPlayerSaveInflight() {
+		return playerSaveInflight;
+	}
+
+	public int getPlayerSaveWorkers() {
+		return playerSaveWorkers;
+	}
+
+	public long getPlayerSaveDeadline() {
+		return playerSaveDeadline;
+	}
+
+	public int getPlayerSnapshotThreads() {
+		return playerSnapshotThreads;
+	}
+
+	public String getPlayerStore() {
+		return playerStore;
+	}
+
+	public String getPlayerStorePath() {
+		return playerStorePath;
+	}
+
+	public long getPlayerStoreSegment() {
+		return playerStoreSegment;
+	}
+
+	public int getPlayerDictionarySize() {
+		return playerDictionarySize;
+	}
+
+	public String getPlayerWalPath() {
+		return playerWalPath;
+	}
+
+	public long getPlayerWalSegment() {
+		return playerWalSegment;
+	}
+
+	public int getPlayerWalCheckpoint() {
+		return playerWalCheckpoint;
+	}
+
+	public int getPlayerTierDays() {
+		return playerTierDays;
+	}
+
+	public int getPlayerTierRate() {
+		return playerTierRate;
+	}
+
+	public String getPlayerTierPath() {
+		return playerTierPath;
+	}
+
+	public long getPlayerTierSegment() {
+		return playerTierSegment;
+	}
+
+	public String getPlayerTierPattern() {
+		return playerTierPattern;
+	}
+
+	public int getPlayerLoadThreads() {
+		return playerLoadThreads;
+	}
+
+	public int getPlayerLoadParallelism() {
+		return playerLoadParallelism;
+	}
+
+	public int getPlayerCacheInterval() {
+		return playerCacheInterval;
+	}
+
+	public long getPlayerCacheIdle() {
+		return playerCacheIdle;
+	}
+
+	public long getPlayerCacheBudget() {
+		return playerCacheBudget;
+	}
+
+	public boolean isPlayerLazy() {
+		return playerLazy;
+	}
 }
\ No newline at end of file
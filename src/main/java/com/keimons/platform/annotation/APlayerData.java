@@ -34,4 +34,24 @@ public @interface APlayerData {
 	 * @return 是否压缩
 	 */
 	boolean isCompress() default false;
+
+	/**
+	 * 是否按元素增量存储
+	 * <p>
+	 * 仅对可重复的数据生效。开启后，模块中的每一个元素单独存储，存储时只写入新增和变化的元素，
+	 * 删除已经被移除的元素，适用于元素数量较多、每次只有少量元素发生变化的模块，例如：背包、装备。
+	 *
+	 * @return 是否按元素增量存储
+	 */
+	boolean isIncremental() default false;
+
+	/**
+	 * 数据版本
+	 * <p>
+	 * 数据结构发生不兼容的变化时增加版本，并通过{@link com.keimons.platform.player.MigrationService}注册
+	 * 从上一个版本升级的方法。加载低版本的数据时逐个版本升级，升级后的模块在后台重新存储。
+	 *
+	 * @return 数据版本
+	 */
+	int version() default 0;
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.log.LogService;
+import org.redisson.api.RBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 批量写入
+ * <p>
+ * 将大量的{@link MapWrite}按照{@code batchSize}合并为一次{@link IPlayerStore#writeAsync(List)}异步执行，
+ * Redis存储中是一个{@link RBatch}管道，同时最多有
+ * {@code maxInFlight}个管道在执行中，超过时{@link #write(MapWrite)}会阻塞，直到有管道执行完成。
+ * 写入数万玩家时，往返次数从玩家数量降低到管道数量，同时不会因为一次提交所有的数据而耗尽内存。
+ * <p>
+ * 一个管道执行失败时，管道中的所有写入都被认为失败，可以通过{@link #flush()}获取。
+ * <p>
+ * 注意：这个类不是线程安全的，每个写入线程应该使用自己的实例。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class BatchWriter {
+
+	/**
+	 * 存储
+	 */
+	private final IPlayerStore store;
+
+	/**
+	 * 每个管道中的写入数量
+	 */
+	private final int batchSize;
+
+	/**
+	 * 执行中的管道
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * 等待提交的写入
+	 */
+	private List<MapWrite> pending;
+
+	/**
+	 * 所有已经提交的管道
+	 */
+	private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+	/**
+	 * 执行失败的写入
+	 */
+	private final ConcurrentLinkedQueue<MapWrite> failed = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 执行成功的写入数量
+	 */
+	private final LongAdder written = new LongAdder();
+
+	/**
+	 * 构造方法
+	 *
+	 * @param store       存储
+	 * @param batchSize   每个管道中的写入数量
+	 * @param maxInFlight 最多同时执行的管道数量
+	 */
+	public BatchWriter(IPlayerStore store, int batchSize, int maxInFlight) {
+		this.store = store;
+		this.batchSize = Math.max(1, batchSize);
+		this.permits = new Semaphore(Math.max(1, maxInFlight));
+		this.pending = new ArrayList<>(this.batchSize);
+	}
+
+	/**
+	 * 写入
+	 * <p>
+	 * 写入被缓存，达到管道容量时提交
+	 *
+	 * @param write 写入操作
+	 */
+	public void write(MapWrite write) {
+		if (write.isEmpty()) {
+			write.success();
+			return;
+		}
+		pending.add(write);
+		if (pending.size() >= batchSize) {
+			submit();
+		}
+	}
+
+	/**
+	 * 写入多个
+	 *
+	 * @param writes 写入操作
+	 */
+	public void write(List<MapWrite> writes) {
+		for (MapWrite write : writes) {
+			write(write);
+		}
+	}
+
+	/**
+	 * 提交缓存中的所有写入
+	 *
+	 * @return 所有管道执行完成，结果为执行失败的写入
+	 */
+	public CompletableFuture<List<MapWrite>> flush() {
+		if (!pending.isEmpty()) {
+			submit();
+		}
+		CompletableFuture<?>[] array = futures.toArray(new CompletableFuture<?>[0]);
+		return CompletableFuture.allOf(array).thenApply(v -> new ArrayList<>(failed));
+	}
+
+	/**
+	 * 获取执行成功的写入数量
+	 *
+	 * @return 执行成功的写入数量
+	 */
+	public long getWritten() {
+		return written.sum();
+	}
+
+	/**
+	 * 提交一个管道
+	 */
+	private void submit() {
+		List<MapWrite> batch = pending;
+		pending = new ArrayList<>(batchSize);
+		permits.acquireUninterruptibly();
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		futures.add(future);
+		CompletableFuture<Void> writing;
+		try {
+			writing = store.writeAsync(batch);
+		} catch (Throwable e) {
+			writing = new CompletableFuture<>();
+			writing.completeExceptionally(e);
+		}
+		writing.whenComplete((v, e) -> {
+			permits.release();
+			complete(batch, e);
+			future.complete(null);
+		});
+	}
+
+	/**
+	 * 管道执行完成
+	 * <p>
+	 * 写入成功的回调已经由存储执行
+	 *
+	 * @param batch 管道中的写入
+	 * @param e     异常 {@code null}则表示执行成功
+	 */
+	private void complete(List<MapWrite> batch, Throwable e) {
+		if (e != null) {
+			LogService.error(e, "批量写入失败，写入数量：" + batch.size());
+			failed.addAll(batch);
+			return;
+		}
+		written.add(batch.size());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.keimons.platform.datebase;
+
+import java.io.IOException;
+
+/**
+ * 冷数据存储
+ * <p>
+ * 长期不活跃的玩家数据从数据库迁移到冷数据存储中，玩家再次加载时迁移回数据库。冷数据存储只保存
+ * 已经编码好的数据，键为玩家数据在数据库中的键。
+ * <p>
+ * 系统中提供了一个本地文件的实现{@link SegmentColdStore}，也可以实现这个接口，将冷数据存储到其他
+ * 位置，例如：对象存储、嵌入式数据库。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface IColdStore {
+
+	/**
+	 * 打开存储
+	 *
+	 * @throws IOException 打开错误
+	 */
+	void open() throws IOException;
+
+	/**
+	 * 写入数据
+	 * <p>
+	 * 返回时数据已经持久化，调用者随后会删除数据库中的数据
+	 *
+	 * @param key   键
+	 * @param value 数据
+	 * @throws IOException 写入错误
+	 */
+	void put(String key, byte[] value) throws IOException;
+
+	/**
+	 * 读取数据
+	 *
+	 * @param key 键
+	 * @return 数据 不存在时返回{@code null}
+	 * @throws IOException 读取错误
+	 */
+	byte[] get(String key) throws IOException;
+
+	/**
+	 * 删除数据
+	 *
+	 * @param key 键
+	 * @throws IOException 写入错误
+	 */
+	void remove(String key) throws IOException;
+
+	/**
+	 * 是否包含数据
+	 * <p>
+	 * 每一次加载玩家时都会调用，实现应该是一个内存中的查询
+	 *
+	 * @param key 键
+	 * @return 是否包含
+	 */
+	boolean contains(String key);
+
+	/**
+	 * 获取数据数量
+	 *
+	 * @return 数据数量
+	 */
+	int size();
+
+	/**
+	 * 整理存储空间
+	 * <p>
+	 * 定期调用，回收已经删除的数据占用的空间，不需要整理的实现可以为空
+	 *
+	 * @throws IOException 整理错误
+	 */
+	void compact() throws IOException;
+
+	/**
+	 * 关闭存储
+	 */
+	void close();
+}
\ No newline at end of file
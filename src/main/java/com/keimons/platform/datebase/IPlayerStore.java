@@ -0,0 +1,211 @@
+package com.keimons.platform.datebase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 玩家数据存储
+ * <p>
+ * 玩家数据以哈希桶的形式存储，每个哈希桶有一个键，字段是模块名称或元素的唯一标识，值是序列化后的数据，
+ * 字段和值都是{@code byte[]}。所有的读写都有异步接口，异步接口可能在存储的网络线程中完成，后续耗时的
+ * 操作应该切换到其他线程执行。同步接口等待异步接口完成。
+ * <p>
+ * 系统中提供了三个实现：
+ * <ul>
+ *     <li>{@link RedisPlayerStore}：存储在Redis中，多个服务器共享，默认的实现；</li>
+ *     <li>{@link LocalPlayerStore}：存储在本地文件中，用于单服部署和测试；</li>
+ *     <li>{@link MemoryPlayerStore}：只存储在内存中，用于基准测试。</li>
+ * </ul>
+ * 当前使用的存储通过{@link StoreManager}获取。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface IPlayerStore {
+
+	/**
+	 * 存储的能力
+	 */
+	enum Capability {
+
+		/**
+		 * 进程退出后数据依然存在
+		 */
+		DURABLE,
+
+		/**
+		 * 多个进程共享同一份数据
+		 */
+		SHARED,
+
+		/**
+		 * 可以通过{@link #keys(String)}遍历所有的键
+		 */
+		SCAN,
+
+		/**
+		 * 多个写入合并为一次往返执行，{@link BatchWriter}的批量大小有意义
+		 */
+		PIPELINE
+	}
+
+	/**
+	 * 获取存储的能力
+	 *
+	 * @return 存储的能力
+	 */
+	Set<Capability> getCapabilities();
+
+	/**
+	 * 是否具有某个能力
+	 *
+	 * @param capability 能力
+	 * @return 是否具有
+	 */
+	default boolean hasCapability(Capability capability) {
+		return getCapabilities().contains(capability);
+	}
+
+	/**
+	 * 打开存储
+	 *
+	 * @throws IOException 打开错误
+	 */
+	void open() throws IOException;
+
+	/**
+	 * 异步读取哈希桶的所有字段
+	 *
+	 * @param key 键
+	 * @return 所有字段 哈希桶不存在时为空
+	 */
+	CompletableFuture<Set<byte[]>> getFieldsAsync(String key);
+
+	/**
+	 * 异步读取哈希桶的所有字段和值
+	 *
+	 * @param key 键
+	 * @return 所有字段和值 哈希桶不存在时为空
+	 */
+	CompletableFuture<Map<byte[], byte[]>> getAllAsync(String key);
+
+	/**
+	 * 异步读取哈希桶中指定字段的值
+	 *
+	 * @param key    键
+	 * @param fields 字段
+	 * @return 值 顺序与{@code fields}相同，不存在的字段为{@code null}
+	 */
+	CompletableFuture<List<byte[]>> getAsync(String key, List<byte[]> fields);
+
+	/**
+	 * 异步读取哈希桶的所有字段和指定字段的值
+	 * <p>
+	 * 默认分别读取字段和值，两个结果可能不是同一时刻的数据，能够一次读取的存储应该重写这个方法。
+	 *
+	 * @param key    键
+	 * @param fields 需要读取值的字段
+	 * @return 第一个元素是所有字段，第二个元素是指定字段的值，顺序与{@code fields}相同，不存在的字段为{@code null}
+	 */
+	default CompletableFuture<List<List<byte[]>>> getFieldsAndValuesAsync(String key, List<byte[]> fields) {
+		CompletableFuture<Set<byte[]>> keys = getFieldsAsync(key);
+		CompletableFuture<List<byte[]>> values = getAsync(key, fields);
+		return keys.thenCombine(values, (keys0, values0) -> {
+			List<List<byte[]>> result = new ArrayList<>(2);
+			result.add(new ArrayList<>(keys0));
+			result.add(values0);
+			return result;
+		});
+	}
+
+	/**
+	 * 异步执行多个哈希桶的写入
+	 * <p>
+	 * 所有写入成功后执行每个写入的回调，然后完成，任何一个写入失败时以异常完成。
+	 * 除{@link RedisPlayerStore}外，只支持{@link org.redisson.client.codec.ByteArrayCodec}编码的写入。
+	 *
+	 * @param writes 写入操作
+	 * @return 写入完成
+	 */
+	CompletableFuture<Void> writeAsync(List<MapWrite> writes);
+
+	/**
+	 * 异步删除哈希桶
+	 *
+	 * @param keys 键
+	 * @return 删除完成
+	 */
+	CompletableFuture<Void> deleteAsync(Collection<String> keys);
+
+	/**
+	 * 遍历所有匹配的键
+	 * <p>
+	 * 需要{@link Capability#SCAN}能力，遍历的过程中不会阻塞存储，可能遗漏或重复遍历期间修改的键
+	 *
+	 * @param pattern 匹配规则 {@code *}匹配任意字符，{@code ?}匹配一个字符
+	 * @return 所有匹配的键
+	 */
+	Iterable<String> keys(String pattern);
+
+	/**
+	 * 获取不记录预写日志的存储
+	 * <p>
+	 * 全量存储成功后执行检查点，写入的数据已经在数据库中，再记录到预写日志只会让日志不断增长。
+	 * 只有延迟写入和直接写入需要记录预写日志，没有预写日志的存储返回自身。
+	 *
+	 * @return 不记录预写日志的存储
+	 */
+	default IPlayerStore direct() {
+		return this;
+	}
+
+	/**
+	 * 读取哈希桶的所有字段和值
+	 *
+	 * @param key 键
+	 * @return 所有字段和值
+	 */
+	default Map<byte[], byte[]> getAll(String key) {
+		return getAllAsync(key).join();
+	}
+
+	/**
+	 * 读取哈希桶中指定字段的值
+	 *
+	 * @param key    键
+	 * @param fields 字段
+	 * @return 值 顺序与{@code fields}相同，不存在的字段为{@code null}
+	 */
+	default List<byte[]> get(String key, List<byte[]> fields) {
+		return getAsync(key, fields).join();
+	}
+
+	/**
+	 * 执行多个哈希桶的写入
+	 *
+	 * @param writes 写入操作
+	 */
+	default void write(List<MapWrite> writes) {
+		writeAsync(writes).join();
+	}
+
+	/**
+	 * 删除哈希桶
+	 *
+	 * @param keys 键
+	 */
+	default void delete(Collection<String> keys) {
+		deleteAsync(keys).join();
+	}
+
+	/**
+	 * 关闭存储
+	 */
+	void close();
+}
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.ByteKey;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 本地玩家数据存储
+ * <p>
+ * 用于单服部署和测试，不需要Redis。所有的哈希桶保存在内存中，每次写入同时追加到本地的
+ * {@link WriteAheadLog}，记录同步到磁盘后写入才完成。打开时重放日志，在内存中重建所有的哈希桶。
+ * <p>
+ * 日志只追加，同一个字段的多次写入都保留在日志中。追加的数据超过上一次整理后的数据量和分段长度中
+ * 较大的一个时，整理日志：将内存中所有的哈希桶作为新的记录追加到日志，同步到磁盘后删除之前的分段。
+ * 日志的长度保持在有效数据的两倍左右。
+ * <p>
+ * 注意：所有的数据都在内存中，适合数据量不超过内存的部署。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class LocalPlayerStore extends MemoryPlayerStore {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "store";
+
+	/**
+	 * 整理时每条记录中的哈希桶数量
+	 */
+	private static final int COMPACT_BATCH = 256;
+
+	/**
+	 * 存储的能力
+	 */
+	private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.DURABLE, Capability.SCAN));
+
+	/**
+	 * 存储目录
+	 */
+	private final Path directory;
+
+	/**
+	 * 日志每个分段的最大长度 字节
+	 */
+	private final long segmentSize;
+
+	/**
+	 * 日志
+	 */
+	private final WriteAheadLog wal;
+
+	/**
+	 * 上一次整理之后追加的数据量 字节
+	 */
+	private long appended;
+
+	/**
+	 * 上一次整理时的数据量 字节
+	 */
+	private long compacted;
+
+	/**
+	 * 构造方法
+	 *
+	 * @param directory   存储目录
+	 * @param segmentSize 日志每个分段的最大长度 字节
+	 */
+	public LocalPlayerStore(Path directory, long segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.wal = new WriteAheadLog(directory, segmentSize);
+	}
+
+	@Override
+	public Set<Capability> getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		wal.replay(writes -> {
+			for (MapWrite write : writes) {
+				apply(write);
+				appended += sizeOf(write);
+			}
+		});
+		wal.open();
+		LogService.log(LOG_NAME, "本地存储打开完成：" + directory + "，" + this);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeAsync(List<MapWrite> writes) {
+		CompletableFuture<Long> future;
+		synchronized (this) {
+			try {
+				for (MapWrite write : writes) {
+					apply(write);
+					appended += sizeOf(write);
+				}
+			} catch (RuntimeException e) {
+				CompletableFuture<Void> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+			// 在锁中追加，日志中记录的顺序与内存中执行的顺序相同
+			future = wal.append(writes);
+			if (appended > Math.max(segmentSize, compacted)) {
+				compact();
+			}
+		}
+		return future.thenRun(() -> success(writes));
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAsync(Collection<String> keys) {
+		List<MapWrite> writes = new ArrayList<>(keys.size());
+		synchronized (this) {
+			for (String key : keys) {
+				Map<ByteKey, byte[]> hash = hashes.remove(key);
+				if (hash == null) {
+					continue;
+				}
+				MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, key);
+				for (ByteKey field : hash.keySet()) {
+					write.remove(field.getBytes());
+				}
+				writes.add(write);
+			}
+			if (writes.isEmpty()) {
+				return CompletableFuture.completedFuture(null);
+			}
+			return wal.append(writes).thenApply(lsn -> null);
+		}
+	}
+
+	/**
+	 * 整理日志
+	 * <p>
+	 * 在持有锁时调用，所有的哈希桶作为新的记录追加到日志。之前的记录中的数据都已经包含在新的记录中，
+	 * 新的记录同步到磁盘后，删除只包含之前的记录的分段。
+	 */
+	private void compact() {
+		List<CompletableFuture<Long>> futures = new ArrayList<>();
+		List<MapWrite> batch = new ArrayList<>(COMPACT_BATCH);
+		long size = 0;
+		for (Map.Entry<String, Map<ByteKey, byte[]>> entry : hashes.entrySet()) {
+			MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, entry.getKey());
+			for (Map.Entry<ByteKey, byte[]> field : entry.getValue().entrySet()) {
+				write.put(field.getKey().getBytes(), field.getValue());
+			}
+			size += sizeOf(write);
+			batch.add(write);
+			if (batch.size() >= COMPACT_BATCH) {
+				futures.add(wal.append(batch));
+				batch = new ArrayList<>(COMPACT_BATCH);
+			}
+		}
+		if (!batch.isEmpty() || futures.isEmpty()) {
+			futures.add(wal.append(batch));
+		}
+		appended = 0;
+		compacted = size;
+		CompletableFuture<Long> first = futures.get(0);
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((v, e) -> {
+			if (e != null) {
+				LogService.error(e, "本地存储整理失败：" + directory);
+				return;
+			}
+			wal.checkpoint(first.join() - 1);
+			LogService.log(LOG_NAME, "本地存储整理完成：" + directory + "，数据量：" + compacted);
+		});
+	}
+
+	/**
+	 * 估算一个写入在日志中的长度
+	 *
+	 * @param write 写入操作
+	 * @return 长度 字节
+	 */
+	private static long sizeOf(MapWrite write) {
+		long size = write.getKey().length();
+		for (Map.Entry<Object, Object> entry : write.getPuts().entrySet()) {
+			size += ((byte[]) entry.getKey()).length + ((byte[]) entry.getValue()).length;
+		}
+		for (Object field : write.getRemoves()) {
+			size += ((byte[]) field).length;
+		}
+		return size;
+	}
+
+	@Override
+	public synchronized void close() {
+		wal.close();
+	}
+
+	@Override
+	public String toString() {
+		return "local, keys=" + hashes.size() + ", appended=" + appended + ", compacted=" + compacted;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,178 @@
+package com.keimons.platform.datebase;
+
+import org.redisson.client.codec.Codec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一个哈希桶的写入操作
+ * <p>
+ * 记录一个哈希桶中需要写入和删除的字段，不会立即执行，由{@link BatchWriter}合并到管道中批量执行，
+ * 或者通过{@link IPlayerStore#write(List)}执行。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class MapWrite {
+
+	/**
+	 * 编码解码器
+	 */
+	private final Codec codec;
+
+	/**
+	 * 键
+	 */
+	private final String key;
+
+	/**
+	 * 需要写入的字段
+	 */
+	private final Map<Object, Object> puts = new HashMap<>();
+
+	/**
+	 * 需要删除的字段
+	 */
+	private final List<Object> removes = new ArrayList<>();
+
+	/**
+	 * 写入之前是否删除整个哈希桶
+	 */
+	private boolean clear;
+
+	/**
+	 * 写入成功后执行
+	 */
+	private Runnable callback;
+
+	/**
+	 * 构造方法
+	 *
+	 * @param codec 编码解码器
+	 * @param key   键
+	 */
+	public MapWrite(Codec codec, String key) {
+		this.codec = codec;
+		this.key = key;
+	}
+
+	/**
+	 * 写入字段
+	 *
+	 * @param field 字段
+	 * @param value 值
+	 * @return 写入操作
+	 */
+	public MapWrite put(Object field, Object value) {
+		puts.put(field, value);
+		return this;
+	}
+
+	/**
+	 * 写入多个字段
+	 *
+	 * @param values 字段和值
+	 * @return 写入操作
+	 */
+	public MapWrite putAll(Map<?, ?> values) {
+		puts.putAll(values);
+		return this;
+	}
+
+	/**
+	 * 删除字段
+	 *
+	 * @param field 字段
+	 * @return 写入操作
+	 */
+	public MapWrite remove(Object field) {
+		removes.add(field);
+		return this;
+	}
+
+	/**
+	 * 删除多个字段
+	 *
+	 * @param fields 字段
+	 * @return 写入操作
+	 */
+	public MapWrite removeAll(List<?> fields) {
+		removes.addAll(fields);
+		return this;
+	}
+
+	/**
+	 * 写入之前删除整个哈希桶
+	 * <p>
+	 * 与写入在同一次执行中完成，用于整体替换一个哈希桶，不会留下之前的字段
+	 *
+	 * @return 写入操作
+	 */
+	public MapWrite clear() {
+		this.clear = true;
+		return this;
+	}
+
+	/**
+	 * 增加写入成功后执行的操作
+	 * <p>
+	 * 多次调用时，按照增加的顺序执行
+	 *
+	 * @param callback 写入成功后执行
+	 * @return 写入操作
+	 */
+	public MapWrite onSuccess(Runnable callback) {
+		Runnable before = this.callback;
+		if (before == null) {
+			this.callback = callback;
+		} else {
+			this.callback = () -> {
+				before.run();
+				callback.run();
+			};
+		}
+		return this;
+	}
+
+	/**
+	 * 写入成功
+	 */
+	void success() {
+		if (callback != null) {
+			callback.run();
+		}
+	}
+
+	/**
+	 * 是否没有需要写入或删除的字段
+	 *
+	 * @return {@code true}没有需要执行的操作
+	 */
+	public boolean isEmpty() {
+		return !clear && puts.isEmpty() && removes.isEmpty();
+	}
+
+	public boolean isClear() {
+		return clear;
+	}
+
+	public Codec getCodec() {
+		return codec;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public Map<Object, Object> getPuts() {
+		return puts;
+	}
+
+	public List<Object> getRemoves() {
+		return removes;
+	}
+}
\ No newline at end of file
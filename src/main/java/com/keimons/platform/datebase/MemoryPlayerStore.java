@@ -0,0 +1,202 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.ByteKey;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * 内存玩家数据存储
+ * <p>
+ * 所有的哈希桶保存在进程的内存中，读写直接在调用线程中完成，进程退出后数据丢失。用于基准测试和
+ * 不需要数据库的测试，测量的是序列化和存储框架本身的开销。
+ * <p>
+ * 读取返回的集合是副本，其中的值是存储中的数组，调用者不应该修改。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class MemoryPlayerStore implements IPlayerStore {
+
+	/**
+	 * 存储的能力
+	 */
+	private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.of(Capability.SCAN));
+
+	/**
+	 * 所有的哈希桶 Key:键 Value:哈希桶
+	 */
+	protected final Map<String, Map<ByteKey, byte[]>> hashes = new ConcurrentHashMap<>();
+
+	@Override
+	public Set<Capability> getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	@Override
+	public void open() throws IOException {
+
+	}
+
+	@Override
+	public CompletableFuture<Set<byte[]>> getFieldsAsync(String key) {
+		Map<ByteKey, byte[]> hash = hashes.get(key);
+		Set<byte[]> fields = new HashSet<>();
+		if (hash != null) {
+			for (ByteKey field : hash.keySet()) {
+				fields.add(field.getBytes());
+			}
+		}
+		return CompletableFuture.completedFuture(fields);
+	}
+
+	@Override
+	public CompletableFuture<Map<byte[], byte[]>> getAllAsync(String key) {
+		Map<ByteKey, byte[]> hash = hashes.get(key);
+		Map<byte[], byte[]> values = new HashMap<>();
+		if (hash != null) {
+			for (Map.Entry<ByteKey, byte[]> entry : hash.entrySet()) {
+				values.put(entry.getKey().getBytes(), entry.getValue());
+			}
+		}
+		return CompletableFuture.completedFuture(values);
+	}
+
+	@Override
+	public CompletableFuture<List<byte[]>> getAsync(String key, List<byte[]> fields) {
+		Map<ByteKey, byte[]> hash = hashes.get(key);
+		List<byte[]> values = new ArrayList<>(fields.size());
+		for (byte[] field : fields) {
+			values.add(hash == null ? null : hash.get(ByteKey.wrap(field)));
+		}
+		return CompletableFuture.completedFuture(values);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeAsync(List<MapWrite> writes) {
+		try {
+			for (MapWrite write : writes) {
+				apply(write);
+			}
+		} catch (RuntimeException e) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+			return future;
+		}
+		success(writes);
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAsync(Collection<String> keys) {
+		for (String key : keys) {
+			hashes.remove(key);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	@Override
+	public Iterable<String> keys(String pattern) {
+		Pattern regex = compile(pattern);
+		List<String> keys = new ArrayList<>();
+		for (String key : hashes.keySet()) {
+			if (regex.matcher(key).matches()) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public void close() {
+
+	}
+
+	/**
+	 * 在内存中执行一个写入
+	 * <p>
+	 * 与Redis相同，哈希桶中没有字段时删除这个哈希桶
+	 *
+	 * @param write 写入操作
+	 */
+	protected void apply(MapWrite write) {
+		if (write.getCodec() != ByteArrayCodec.INSTANCE) {
+			throw new IllegalArgumentException("只支持ByteArrayCodec编码的写入：" + write.getKey());
+		}
+		if (write.isEmpty()) {
+			return;
+		}
+		hashes.compute(write.getKey(), (key, hash) -> {
+			if (hash == null || write.isClear()) {
+				hash = new ConcurrentHashMap<>();
+			}
+			for (Map.Entry<Object, Object> entry : write.getPuts().entrySet()) {
+				hash.put(ByteKey.wrap((byte[]) entry.getKey()), (byte[]) entry.getValue());
+			}
+			for (Object field : write.getRemoves()) {
+				hash.remove(ByteKey.wrap((byte[]) field));
+			}
+			return hash.isEmpty() ? null : hash;
+		});
+	}
+
+	/**
+	 * 执行每个写入的回调
+	 *
+	 * @param writes 写入操作
+	 */
+	protected static void success(List<MapWrite> writes) {
+		for (MapWrite write : writes) {
+			try {
+				write.success();
+			} catch (Throwable e) {
+				LogService.error(e);
+			}
+		}
+	}
+
+	/**
+	 * 将匹配规则转换为正则表达式
+	 *
+	 * @param pattern 匹配规则 {@code *}匹配任意字符，{@code ?}匹配一个字符
+	 * @return 正则表达式
+	 */
+	private static Pattern compile(String pattern) {
+		StringBuilder regex = new StringBuilder(pattern.length() + 8);
+		StringBuilder literal = new StringBuilder();
+		for (char c : pattern.toCharArray()) {
+			if (c == '*' || c == '?') {
+				if (literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if (literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString(), Pattern.DOTALL);
+	}
+
+	@Override
+	public String toString() {
+		return "memory, keys=" + hashes.size();
+	}
+}
\ No newline at end of file
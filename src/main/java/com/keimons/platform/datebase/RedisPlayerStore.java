@@ -0,0 +1,118 @@
+package com.keimons.platform.datebase;
+
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Redis玩家数据存储
+ * <p>
+ * 所有的读写通过{@link RedissonManager}执行，连接的创建和关闭由{@link RedissonManager}管理。开启了
+ * 预写日志时，写入先记录到预写日志，{@link #direct()}返回的存储不记录。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class RedisPlayerStore implements IPlayerStore {
+
+	/**
+	 * 遍历键时每次扫描的数量
+	 */
+	private static final int SCAN_COUNT = 1000;
+
+	/**
+	 * 存储的能力
+	 */
+	private static final Set<Capability> CAPABILITIES = Collections.unmodifiableSet(EnumSet.allOf(Capability.class));
+
+	/**
+	 * 不记录预写日志的存储
+	 */
+	private static final RedisPlayerStore DIRECT = new RedisPlayerStore(false);
+
+	/**
+	 * 写入时是否记录预写日志
+	 */
+	private final boolean journal;
+
+	public RedisPlayerStore() {
+		this(true);
+	}
+
+	/**
+	 * Redis玩家数据存储
+	 *
+	 * @param journal 写入时是否记录预写日志
+	 */
+	public RedisPlayerStore(boolean journal) {
+		this.journal = journal;
+	}
+
+	@Override
+	public Set<Capability> getCapabilities() {
+		return CAPABILITIES;
+	}
+
+	@Override
+	public void open() {
+
+	}
+
+	@Override
+	public CompletableFuture<Set<byte[]>> getFieldsAsync(String key) {
+		return RedissonManager.getMapKeysAsync(ByteArrayCodec.INSTANCE, key);
+	}
+
+	@Override
+	public CompletableFuture<Map<byte[], byte[]>> getAllAsync(String key) {
+		return RedissonManager.getMapValuesAsync(ByteArrayCodec.INSTANCE, key);
+	}
+
+	@Override
+	public CompletableFuture<List<byte[]>> getAsync(String key, List<byte[]> fields) {
+		return RedissonManager.getMapValuesAsync(ByteArrayCodec.INSTANCE, key, fields);
+	}
+
+	@Override
+	public CompletableFuture<List<List<byte[]>>> getFieldsAndValuesAsync(String key, List<byte[]> fields) {
+		// 一次往返，两个结果来自同一时刻的数据
+		return RedissonManager.getMapKeysAndValuesAsync(ByteArrayCodec.INSTANCE, key, fields);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeAsync(List<MapWrite> writes) {
+		return RedissonManager.setMapValuesAsync(writes, journal);
+	}
+
+	@Override
+	public CompletableFuture<Void> deleteAsync(Collection<String> keys) {
+		return RedissonManager.delAsync(keys.toArray(new String[0])).thenApply(count -> null);
+	}
+
+	@Override
+	public Iterable<String> keys(String pattern) {
+		return RedissonManager.getRedisson().getKeys().getKeysByPattern(pattern, SCAN_COUNT);
+	}
+
+	@Override
+	public IPlayerStore direct() {
+		return journal ? DIRECT : this;
+	}
+
+	@Override
+	public void close() {
+
+	}
+
+	@Override
+	public String toString() {
+		return "redis";
+	}
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.keimons.platform.datebase;
 
+import com.keimons.platform.log.LogService;
 import org.redisson.Redisson;
 import org.redisson.api.*;
 import org.redisson.client.codec.Codec;
@@ -9,6 +10,7 @@ import org.redisson.config.Config;
 import org.redisson.config.SingleServerConfig;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -22,6 +24,66 @@ public class RedissonManager {
 	 */
 	private static RedissonClient redisson;
 
+	/**
+	 * 预写日志 {@code null}则表示没有开启
+	 */
+	private static volatile WriteAheadLog wal;
+
+	/**
+	 * 读取哈希桶的所有字段和指定字段的值
+	 * <p>
+	 * 没有指定字段时{@code HMGET}会报错，直接返回空的结果
+	 */
+	private static final String MAP_KEYS_AND_VALUES = "local keys = redis.call('HKEYS', KEYS[1]); " +
+			"if #ARGV == 0 then return {keys, {}}; end; " +
+			"return {keys, redis.call('HMGET', KEYS[1], unpack(ARGV))};";
+
+	/**
+	 * 按照顺序读取哈希桶中指定字段的值
+	 */
+	private static final String MAP_VALUES = "return redis.call('HMGET', KEYS[1], unpack(ARGV));";
+
+	/**
+	 * 设置预写日志
+	 * <p>
+	 * 设置之后，所有通过{@link #setMapValues(List)}和{@link BatchWriter}执行的写入，都先记录到预写日志
+	 *
+	 * @param wal 预写日志 {@code null}则表示关闭
+	 */
+	public static void setWriteAheadLog(WriteAheadLog wal) {
+		RedissonManager.wal = wal;
+	}
+
+	/**
+	 * 获取预写日志
+	 *
+	 * @return 预写日志 {@code null}则表示没有开启
+	 */
+	public static WriteAheadLog getWriteAheadLog() {
+		return wal;
+	}
+
+	/**
+	 * 记录写入到预写日志
+	 * <p>
+	 * 数据库才是最终的存储，记录失败时不影响写入数据库，失败的次数记录在{@link WriteAheadLog#getFailures()}中
+	 *
+	 * @param writes 写入操作
+	 * @return 记录完成
+	 */
+	static CompletableFuture<Void> journal(List<MapWrite> writes) {
+		WriteAheadLog wal = RedissonManager.wal;
+		if (wal == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return wal.append(writes).handle((lsn, e) -> {
+			if (e != null) {
+				LogService.error(e, "预写日志记录失败，写入数量：" + writes.size() + "，累计失败：" + wal.getFailures());
+			}
+			return null;
+		});
+	}
+
 	/**
 	 * 获取redisson实例
 	 *
@@ -146,6 +208,120 @@ public class RedissonManager {
 		return map.getAll(field);
 	}
 
+	/**
+	 * 异步获取Redis中哈希桶的所有字段
+	 *
+	 * @param codec 解码方式
+	 * @param key   键
+	 * @param <F>   返回键类型
+	 * @param <V>   返回值类型
+	 * @return 所有field
+	 */
+	public static <F, V> CompletableFuture<Set<F>> getMapKeysAsync(Codec codec, String key) {
+		RMap<F, V> map = redisson.getMap(key, codec);
+		return toFuture(map.readAllKeySetAsync());
+	}
+
+	/**
+	 * 异步获取Redis中的哈希桶
+	 *
+	 * @param codec 解码方式
+	 * @param key   键
+	 * @param <F>   返回键类型
+	 * @param <V>   返回值类型
+	 * @return 所有field-value
+	 */
+	public static <F, V> CompletableFuture<Map<F, V>> getMapValuesAsync(Codec codec, String key) {
+		RMap<F, V> map = redisson.getMap(key, codec);
+		return toFuture(map.readAllMapAsync());
+	}
+
+	/**
+	 * 异步获取Redis中的哈希桶
+	 *
+	 * @param codec 解码方式
+	 * @param key   键
+	 * @param field 字段
+	 * @param <F>   返回键类型
+	 * @param <V>   返回值类型
+	 * @return 所有field-value
+	 */
+	public static <F, V> CompletableFuture<Map<F, V>> getMapValuesAsync(Codec codec, String key, Set<F> field) {
+		RMap<F, V> map = redisson.getMap(key, codec);
+		return toFuture(map.getAllAsync(field));
+	}
+
+	/**
+	 * 异步获取Redis中哈希桶的所有字段和指定字段的值
+	 * <p>
+	 * 通过Lua脚本执行{@code HKEYS}和{@code HMGET}，只需要一次往返，并且两个结果来自同一时刻的数据。
+	 * 脚本的返回值使用同一个解码方式，字段和值的类型相同。
+	 *
+	 * @param codec  解码方式
+	 * @param key    键
+	 * @param fields 需要读取值的字段
+	 * @param <V>    返回值类型
+	 * @return 第一个元素是所有字段，第二个元素是指定字段的值，顺序与{@code fields}相同，不存在的字段为{@code null}
+	 */
+	public static <V> CompletableFuture<List<List<V>>> getMapKeysAndValuesAsync(Codec codec, String key, List<?> fields) {
+		RScript script = redisson.getScript();
+		RFuture<List<List<V>>> future = script.evalAsync(key,
+				RScript.Mode.READ_ONLY,
+				codec,
+				MAP_KEYS_AND_VALUES,
+				RScript.ReturnType.MULTI,
+				Collections.singletonList(key),
+				fields.toArray());
+		return toFuture(future);
+	}
+
+	/**
+	 * 异步获取Redis中哈希桶指定字段的值
+	 * <p>
+	 * 通过Lua脚本执行{@code HMGET}，返回值的顺序与字段相同
+	 *
+	 * @param codec  解码方式
+	 * @param key    键
+	 * @param fields 字段
+	 * @param <V>    返回值类型
+	 * @return 值 顺序与{@code fields}相同，不存在的字段为{@code null}
+	 */
+	public static <V> CompletableFuture<List<V>> getMapValuesAsync(Codec codec, String key, List<?> fields) {
+		if (fields.isEmpty()) {
+			return CompletableFuture.completedFuture(new ArrayList<>());
+		}
+		RScript script = redisson.getScript();
+		RFuture<List<V>> future = script.evalAsync(key,
+				RScript.Mode.READ_ONLY,
+				codec,
+				MAP_VALUES,
+				RScript.ReturnType.MULTI,
+				Collections.singletonList(key),
+				fields.toArray());
+		return toFuture(future);
+	}
+
+	/**
+	 * 转换为{@link CompletableFuture}
+	 * <p>
+	 * 结果在Redisson的网络线程中完成，后续耗时的操作应该切换到其他线程执行
+	 *
+	 * @param future 异步结果
+	 * @param <V>    结果类型
+	 * @return 异步结果
+	 */
+	private static <V> CompletableFuture<V> toFuture(RFuture<V> future) {
+		CompletableFuture<V> result = new CompletableFuture<>();
+		future.whenComplete((value, e) -> {
+			if (e == null) {
+				result.complete(value);
+			} else {
+				result.completeExceptionally(e);
+			}
+		});
+		return result;
+	}
+
 	/**
 	 * 获取Map中某一个字段的值
 	 *
@@ -467,6 +643,107 @@ public class RedissonManager {
 		map.putAll(values);
 	}
 
+	/**
+	 * 在一次往返中执行多个哈希桶的写入
+	 * <p>
+	 * 所有写入合并为一个管道，执行失败时抛出异常，执行成功后调用每个写入的回调。开启了预写日志时，
+	 * 先记录到预写日志。
+	 *
+	 * @param writes 写入操作
+	 */
+	public static void setMapValues(List<MapWrite> writes) {
+		journal(writes).join();
+		RBatch batch = redisson.createBatch(BatchOptions.defaults());
+		int size = 0;
+		for (MapWrite write : writes) {
+			if (!write.isEmpty()) {
+				append(batch, write);
+				size++;
+			}
+		}
+		if (size > 0) {
+			batch.execute();
+		}
+		for (MapWrite write : writes) {
+			write.success();
+		}
+	}
+
+	/**
+	 * 异步在一次往返中执行多个哈希桶的写入
+	 * <p>
+	 * 开启了预写日志时，记录完成后再执行管道，执行成功后调用每个写入的回调
+	 *
+	 * @param writes 写入操作
+	 * @return 执行完成
+	 */
+	public static CompletableFuture<Void> setMapValuesAsync(List<MapWrite> writes) {
+		return setMapValuesAsync(writes, true);
+	}
+
+	/**
+	 * 异步在一次往返中执行多个哈希桶的写入
+	 *
+	 * @param writes  写入操作
+	 * @param journal 是否记录到预写日志
+	 * @return 执行完成
+	 */
+	public static CompletableFuture<Void> setMapValuesAsync(List<MapWrite> writes, boolean journal) {
+		CompletableFuture<Void> future = journal ? journal(writes) : CompletableFuture.completedFuture(null);
+		return future.thenCompose(v -> {
+			RBatch batch = redisson.createBatch(BatchOptions.defaults());
+			int size = 0;
+			for (MapWrite write : writes) {
+				if (!write.isEmpty()) {
+					append(batch, write);
+					size++;
+				}
+			}
+			if (size == 0) {
+				return CompletableFuture.<Void>completedFuture(null);
+			}
+			return toFuture(batch.executeAsync()).thenApply(result -> (Void) null);
+		}).thenRun(() -> {
+			for (MapWrite write : writes) {
+				try {
+					write.success();
+				} catch (Throwable e) {
+					LogService.error(e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 创建批量写入
+	 *
+	 * @param batchSize   每个管道中的写入数量
+	 * @param maxInFlight 最多同时执行的管道数量
+	 * @return 批量写入
+	 */
+	public static BatchWriter createBatchWriter(int batchSize, int maxInFlight) {
+		return new BatchWriter(new RedisPlayerStore(), batchSize, maxInFlight);
+	}
+
+	/**
+	 * 将一个写入加入管道
+	 *
+	 * @param batch 管道
+	 * @param write 写入操作
+	 */
+	static void append(RBatch batch, MapWrite write) {
+		RMapAsync<Object, Object> map = batch.getMap(write.getKey(), write.getCodec());
+		if (write.isClear()) {
+			map.deleteAsync();
+		}
+		if (!write.getPuts().isEmpty()) {
+			map.putAllAsync(write.getPuts());
+		}
+		if (!write.getRemoves().isEmpty()) {
+			map.fastRemoveAsync(write.getRemoves().toArray());
+		}
+	}
+
 	/**
 	 * 为指定Set下添加值
 	 *
@@ -493,6 +770,67 @@ public class RedissonManager {
 	}
 
 
+	/**
+	 * 异步新增指定计分排序集中元素
+	 *
+	 * @param codec 编码解码器
+	 * @param key   键
+	 * @param score 分数
+	 * @param value 值
+	 * @param <V>   值类型
+	 * @return 是否新增
+	 */
+	public static <V> CompletableFuture<Boolean> addScoredSortedSetValueAsync(Codec codec, String key, double score, V value) {
+		RScoredSortedSet<V> set = redisson.getScoredSortedSet(key, codec);
+		return toFuture(set.addAsync(score, value));
+	}
+
+	/**
+	 * 元素不存在时新增指定计分排序集中元素
+	 *
+	 * @param codec 编码解码器
+	 * @param key   键
+	 * @param score 分数
+	 * @param value 值
+	 * @param <V>   值类型
+	 * @return 是否新增
+	 */
+	public static <V> boolean addScoredSortedSetValueIfAbsent(Codec codec, String key, double score, V value) {
+		RScoredSortedSet<V> set = redisson.getScoredSortedSet(key, codec);
+		return set.tryAdd(score, value);
+	}
+
+	/**
+	 * 获取分数在指定范围内的元素 按照分数升序
+	 *
+	 * @param codec      编码解码器
+	 * @param key        键
+	 * @param startScore 最低分
+	 * @param endScore   最高分
+	 * @param offset     跳过的元素数量
+	 * @param count      最多获取的元素数量
+	 * @param <V>        值类型
+	 * @return 元素
+	 */
+	public static <V> Collection<V> getScoredSortedSetValues(Codec codec, String key, double startScore, double endScore, int offset, int count) {
+		RScoredSortedSet<V> set = redisson.getScoredSortedSet(key, codec);
+		return set.valueRange(startScore, true, endScore, true, offset, count);
+	}
+
+	/**
+	 * 删除指定计分排序集中元素
+	 *
+	 * @param codec 编码解码器
+	 * @param key   键
+	 * @param value 值
+	 * @param <V>   值类型
+	 * @return 是否删除
+	 */
+	public static <V> boolean removeScoredSortedSetValue(Codec codec, String key, V value) {
+		RScoredSortedSet<V> set = redisson.getScoredSortedSet(key, codec);
+		return set.remove(value);
+	}
+
 	/**
 	 * 新增指定计分排序集中元素，过期时间
 	 *
@@ -623,6 +961,19 @@ public class RedissonManager {
 		}
 	}
 
+	/**
+	 * 异步删除键
+	 *
+	 * @param keys 键
+	 * @return 删除的键数量
+	 */
+	public static CompletableFuture<Long> delAsync(String... keys) {
+		if (keys.length == 0) {
+			return CompletableFuture.completedFuture(0L);
+		}
+		return toFuture(redisson.getKeys().deleteAsync(keys));
+	}
+
 	/**
 	 * Redis中的哈希桶
 	 *
@@ -654,6 +1005,18 @@ public class RedissonManager {
 		map.remove(field);
 	}
 
+	/**
+	 * Redis中的哈希桶 批量删除字段
+	 *
+	 * @param codec  编码解码器
+	 * @param key    键
+	 * @param fields 字段
+	 */
+	public static void delMapValues(Codec codec, String key, Object... fields) {
+		RMap<Object, Object> map = redisson.getMap(key, codec);
+		map.fastRemove(fields);
+	}
+
 	/**
 	 * 获取数据
 	 *
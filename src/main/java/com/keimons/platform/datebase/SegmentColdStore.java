@@ -0,0 +1,408 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.log.LogService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * 分段文件冷数据存储
+ * <p>
+ * 所有数据追加到本地的分段文件中，每个分段超过{@code segmentSize}后切换到新的分段，文件名是分段的序号。
+ * 每条记录的格式：4字节长度 + 4字节CRC32 + 1字节类型 + 4字节键长度 + 键 + 数据，删除数据时追加一条
+ * 删除记录。打开时按照顺序读取所有分段，在内存中重建每个键最后一条记录的位置，读取数据只需要一次
+ * 随机读。
+ * <p>
+ * 玩家回到数据库后，冷数据中的记录成为垃圾。{@link #compact()}从最旧的分段开始，有效数据不足一半时，
+ * 将有效数据复制到当前分段，然后删除这个分段。只整理最旧的分段，被删除的删除记录不会再遮挡更旧的记录。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SegmentColdStore implements IColdStore {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "cold";
+
+	/**
+	 * 分段文件的后缀
+	 */
+	private static final String SUFFIX = ".seg";
+
+	/**
+	 * 记录头的长度 长度 + CRC32
+	 */
+	private static final int HEADER = 8;
+
+	/**
+	 * 写入记录
+	 */
+	private static final byte PUT = 1;
+
+	/**
+	 * 删除记录
+	 */
+	private static final byte REMOVE = 2;
+
+	/**
+	 * 存储目录
+	 */
+	private final Path directory;
+
+	/**
+	 * 每个分段的最大长度 字节
+	 */
+	private final long segmentSize;
+
+	/**
+	 * 每个键最后一条写入记录的位置
+	 * <p>
+	 * 只在持有存储的锁时修改，{@link #contains(String)}不加锁读取
+	 */
+	private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+	/**
+	 * 所有分段 Key:分段序号
+	 */
+	private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+	/**
+	 * 当前分段
+	 */
+	private FileChannel channel;
+
+	/**
+	 * 当前分段的序号
+	 */
+	private long current = -1;
+
+	/**
+	 * 构造方法
+	 *
+	 * @param directory   存储目录
+	 * @param segmentSize 每个分段的最大长度 字节
+	 */
+	public SegmentColdStore(Path directory, long segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				try {
+					long id = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+					segments.put(id, new Segment(path));
+				} catch (NumberFormatException e) {
+					LogService.log(LOG_NAME, "忽略无法识别的文件：" + path);
+				}
+			}
+		}
+		for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+			load(entry.getKey(), entry.getValue(), entry.getKey().equals(segments.lastKey()));
+		}
+		// 每次打开都写入新的分段，不会追加到可能被截断过的分段
+		rotate(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+		LogService.log(LOG_NAME, "冷数据存储打开完成：" + directory + "，" + this);
+	}
+
+	/**
+	 * 读取一个分段中的所有记录
+	 *
+	 * @param id      分段序号
+	 * @param segment 分段
+	 * @param last    是否为最后一个分段
+	 * @throws IOException 读取错误
+	 */
+	private void load(long id, Segment segment, boolean last) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			long position = 0;
+			long size = channel.size();
+			while (position + HEADER <= size) {
+				header.clear();
+				readFully(channel, header, position);
+				header.flip();
+				int length = header.getInt();
+				int crc = header.getInt();
+				if (length < 5 || position + HEADER + length > size) {
+					break;
+				}
+				ByteBuffer body = ByteBuffer.allocate(length);
+				readFully(channel, body, position + HEADER);
+				if (crc != crc32(body.array(), 0, length)) {
+					break;
+				}
+				body.flip();
+				byte type = body.get();
+				byte[] key = new byte[body.getInt()];
+				body.get(key);
+				apply(type, new String(key, StandardCharsets.UTF_8), new Location(id, position, HEADER + length));
+				position += HEADER + length;
+			}
+			if (position < size) {
+				LogService.log(LOG_NAME, "分段" + segment.path + "在" + position + "字节处不完整，丢弃之后的" +
+						(size - position) + "字节");
+				if (last) {
+					channel.truncate(position);
+				}
+			}
+			segment.size = position;
+		}
+	}
+
+	/**
+	 * 更新索引
+	 *
+	 * @param type     记录类型
+	 * @param key      键
+	 * @param location 记录的位置
+	 */
+	private void apply(byte type, String key, Location location) {
+		Location before = type == PUT ? index.put(key, location) : index.remove(key);
+		if (before != null) {
+			segments.get(before.segment).live -= before.length;
+		}
+		if (type == PUT) {
+			segments.get(location.segment).live += location.length;
+		}
+	}
+
+	@Override
+	public synchronized void put(String key, byte[] value) throws IOException {
+		append(PUT, key, value);
+		channel.force(false);
+	}
+
+	@Override
+	public synchronized byte[] get(String key) throws IOException {
+		Location location = index.get(key);
+		if (location == null) {
+			return null;
+		}
+		ByteBuffer record = ByteBuffer.allocate(location.length);
+		if (location.segment == current) {
+			readFully(channel, record, location.position);
+		} else {
+			try (FileChannel channel = FileChannel.open(segments.get(location.segment).path, StandardOpenOption.READ)) {
+				readFully(channel, record, location.position);
+			}
+		}
+		record.flip();
+		record.getInt();
+		int crc = record.getInt();
+		if (crc != crc32(record.array(), HEADER, location.length - HEADER)) {
+			throw new IOException("冷数据校验失败：" + key);
+		}
+		record.get();
+		record.position(record.position() + 4 + record.getInt(HEADER + 1));
+		byte[] value = new byte[record.remaining()];
+		record.get(value);
+		return value;
+	}
+
+	@Override
+	public synchronized void remove(String key) throws IOException {
+		if (!index.containsKey(key)) {
+			return;
+		}
+		append(REMOVE, key, new byte[0]);
+		channel.force(false);
+	}
+
+	@Override
+	public boolean contains(String key) {
+		return index.containsKey(key);
+	}
+
+	@Override
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * 整理最旧的分段
+	 * <p>
+	 * 有效数据不足一半的分段，将有效数据复制到当前分段后删除
+	 *
+	 * @throws IOException 读写错误
+	 */
+	@Override
+	public synchronized void compact() throws IOException {
+		while (segments.firstKey() != current) {
+			long id = segments.firstKey();
+			Segment segment = segments.get(id);
+			if (segment.live * 2 > segment.size) {
+				return;
+			}
+			List<String> keys = new ArrayList<>();
+			for (Map.Entry<String, Location> entry : index.entrySet()) {
+				if (entry.getValue().segment == id) {
+					keys.add(entry.getKey());
+				}
+			}
+			for (String key : keys) {
+				append(PUT, key, get(key));
+			}
+			channel.force(false);
+			segments.remove(id);
+			Files.deleteIfExists(segment.path);
+			LogService.log(LOG_NAME, "整理分段：" + segment.path + "，复制数量：" + keys.size());
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.force(false);
+			channel.close();
+		} catch (IOException e) {
+			LogService.error(e);
+		}
+		channel = null;
+		LogService.log(LOG_NAME, "冷数据存储关闭：" + this);
+	}
+
+	/**
+	 * 追加一条记录
+	 *
+	 * @param type  记录类型
+	 * @param key   键
+	 * @param value 数据
+	 * @throws IOException 写入错误
+	 */
+	private void append(byte type, String key, byte[] value) throws IOException {
+		if (channel.position() >= segmentSize) {
+			channel.force(false);
+			rotate(current + 1);
+		}
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		int length = 1 + 4 + bytes.length + value.length;
+		ByteBuffer record = ByteBuffer.allocate(HEADER + length);
+		record.putInt(length).putInt(0).put(type).putInt(bytes.length).put(bytes).put(value);
+		record.putInt(4, crc32(record.array(), HEADER, length));
+		record.flip();
+		long position = channel.position();
+		while (record.hasRemaining()) {
+			channel.write(record);
+		}
+		Segment segment = segments.get(current);
+		segment.size = channel.position();
+		apply(type, key, new Location(current, position, HEADER + length));
+	}
+
+	/**
+	 * 切换到新的分段
+	 *
+	 * @param id 分段序号
+	 * @throws IOException 创建分段错误
+	 */
+	private void rotate(long id) throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		Path path = directory.resolve(String.format("%020d%s", id, SUFFIX));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		segments.put(id, new Segment(path));
+		current = id;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("冷数据意外结束");
+			}
+		}
+	}
+
+	private static int crc32(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+	@Override
+	public synchronized String toString() {
+		long size = 0;
+		long live = 0;
+		for (Segment segment : segments.values()) {
+			size += segment.size;
+			live += segment.live;
+		}
+		return "keys=" + index.size() + ", segments=" + segments.size() + ", size=" + size + ", live=" + live;
+	}
+
+	/**
+	 * 记录的位置
+	 */
+	private static class Location {
+
+		/**
+		 * 分段序号
+		 */
+		private final long segment;
+
+		/**
+		 * 记录在分段中的位置
+		 */
+		private final long position;
+
+		/**
+		 * 记录的长度 包括记录头
+		 */
+		private final int length;
+
+		Location(long segment, long position, int length) {
+			this.segment = segment;
+			this.position = position;
+			this.length = length;
+		}
+	}
+
+	/**
+	 * 一个分段
+	 */
+	private static class Segment {
+
+		/**
+		 * 文件
+		 */
+		private final Path path;
+
+		/**
+		 * 文件长度
+		 */
+		private long size;
+
+		/**
+		 * 有效数据的长度
+		 */
+		private long live;
+
+		Segment(Path path) {
+			this.path = path;
+		}
+	}
+}
\ No newline at end of file
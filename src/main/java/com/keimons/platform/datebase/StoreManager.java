@@ -0,0 +1,75 @@
+package com.keimons.platform.datebase;
+
+import java.nio.file.Path;
+
+/**
+ * 玩家数据存储管理
+ * <p>
+ * 保存当前使用的{@link IPlayerStore}，默认使用{@link RedisPlayerStore}。在加载任何玩家之前设置，
+ * 运行中不应该切换存储。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class StoreManager {
+
+	/**
+	 * Redis存储
+	 */
+	public static final String REDIS = "redis";
+
+	/**
+	 * 本地存储
+	 */
+	public static final String LOCAL = "local";
+
+	/**
+	 * 内存存储
+	 */
+	public static final String MEMORY = "memory";
+
+	/**
+	 * 当前使用的存储
+	 */
+	private static volatile IPlayerStore store = new RedisPlayerStore();
+
+	/**
+	 * 获取当前使用的存储
+	 *
+	 * @return 存储
+	 */
+	public static IPlayerStore getStore() {
+		return store;
+	}
+
+	/**
+	 * 设置当前使用的存储
+	 *
+	 * @param store 存储
+	 */
+	public static void setStore(IPlayerStore store) {
+		StoreManager.store = store;
+	}
+
+	/**
+	 * 创建存储
+	 *
+	 * @param type        存储类型 {@link #REDIS} {@link #LOCAL} {@link #MEMORY}
+	 * @param directory   本地存储的目录
+	 * @param segmentSize 本地存储的日志每个分段的最大长度 字节
+	 * @return 存储 没有打开
+	 */
+	public static IPlayerStore create(String type, Path directory, long segmentSize) {
+		switch (type) {
+			case REDIS:
+				return new RedisPlayerStore();
+			case LOCAL:
+				return new LocalPlayerStore(directory, segmentSize);
+			case MEMORY:
+				return new MemoryPlayerStore();
+			default:
+				throw new IllegalArgumentException("无法识别的存储类型：" + type);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,530 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.Histogram;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 预写日志
+ * <p>
+ * 写入数据库之前，先把{@link MapWrite}追加到本地的日志文件中。进程异常退出后，启动时按照顺序把日志
+ * 重放到数据库，日志中的写入都是完整的写入，按照顺序重放后数据库中是最后一次记录的数据。
+ * <p>
+ * 日志由多个分段文件组成，文件名是第一条记录的序号，每个分段超过{@code segmentSize}后切换到新的分段。
+ * 每条记录的格式：4字节长度 + 4字节CRC32 + 8字节序号 + 写入数据，重放时遇到不完整或者校验失败的
+ * 记录，认为日志在这里结束。
+ * <p>
+ * 所有的追加由一个线程写入文件，这个线程每次取出所有等待中的记录，写入后只调用一次
+ * {@link FileChannel#force(boolean)}（组提交），同时追加的记录越多，每条记录分摊的同步开销越小。
+ * 数据库中已经包含了某个序号之前的所有数据时，通过{@link #checkpoint(long)}删除这些分段。
+ * <p>
+ * 只能记录{@link ByteArrayCodec}编码的写入，字段和值都必须是{@code byte[]}。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class WriteAheadLog {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "wal";
+
+	/**
+	 * 分段文件的后缀
+	 */
+	private static final String SUFFIX = ".wal";
+
+	/**
+	 * 记录头的长度 长度 + CRC32 + 序号
+	 */
+	private static final int HEADER = 16;
+
+	/**
+	 * 日志目录
+	 */
+	private final Path directory;
+
+	/**
+	 * 每个分段的最大长度 字节
+	 */
+	private final long segmentSize;
+
+	/**
+	 * 所有分段 Key:第一条记录的序号 Value:文件
+	 */
+	private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+
+	/**
+	 * 等待写入的记录
+	 */
+	private final LinkedBlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+
+	/**
+	 * 追加的记录数量
+	 */
+	private final LongAdder appends = new LongAdder();
+
+	/**
+	 * 追加失败的记录数量
+	 */
+	private final LongAdder failures = new LongAdder();
+
+	/**
+	 * 同步的次数
+	 */
+	private final LongAdder syncs = new LongAdder();
+
+	/**
+	 * 写入的字节数
+	 */
+	private final LongAdder bytes = new LongAdder();
+
+	/**
+	 * 每次组提交的耗时 微秒
+	 */
+	private final Histogram syncTimes = new Histogram();
+
+	/**
+	 * 当前分段
+	 */
+	private FileChannel channel;
+
+	/**
+	 * 当前分段第一条记录的序号
+	 */
+	private volatile long current = -1;
+
+	/**
+	 * 最后一条已经同步到磁盘的记录的序号
+	 */
+	private volatile long lastLsn;
+
+	/**
+	 * 写入线程
+	 */
+	private Thread writer;
+
+	/**
+	 * 是否运行中
+	 */
+	private volatile boolean running;
+
+	/**
+	 * 构造方法
+	 *
+	 * @param directory   日志目录
+	 * @param segmentSize 每个分段的最大长度 字节
+	 */
+	public WriteAheadLog(Path directory, long segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * 重放日志
+	 * <p>
+	 * 在{@link #open()}之前调用，按照序号的顺序读取所有分段中的记录。重放完成并且数据已经写入数据库后，
+	 * 通过{@link #checkpoint(long)}删除这些分段。
+	 *
+	 * @param consumer 处理一条记录中的所有写入
+	 * @return 最后一条记录的序号
+	 * @throws IOException 读取错误
+	 */
+	public long replay(Consumer<List<MapWrite>> consumer) throws IOException {
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for (Path path : stream) {
+				String name = path.getFileName().toString();
+				try {
+					segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), path);
+				} catch (NumberFormatException e) {
+					LogService.log(LOG_NAME, "忽略无法识别的日志文件：" + path);
+				}
+			}
+		}
+		long lsn = 0;
+		for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+			lsn = Math.max(lsn, replay(entry.getValue(), consumer, entry.getKey() == segments.lastKey()));
+		}
+		lastLsn = lsn;
+		return lsn;
+	}
+
+	/**
+	 * 重放一个分段
+	 *
+	 * @param path     分段文件
+	 * @param consumer 处理一条记录中的所有写入
+	 * @param last     是否为最后一个分段
+	 * @return 分段中最后一条记录的序号
+	 * @throws IOException 读取错误
+	 */
+	private long replay(Path path, Consumer<List<MapWrite>> consumer, boolean last) throws IOException {
+		long lsn = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			long position = 0;
+			long size = channel.size();
+			while (position + HEADER <= size) {
+				header.clear();
+				readFully(channel, header, position);
+				header.flip();
+				int length = header.getInt();
+				int crc = header.getInt();
+				long sequence = header.getLong();
+				if (length < 0 || position + HEADER + length > size) {
+					break;
+				}
+				ByteBuffer payload = ByteBuffer.allocate(length);
+				readFully(channel, payload, position + HEADER);
+				if (crc != crc32(payload.array())) {
+					break;
+				}
+				payload.flip();
+				consumer.accept(decode(payload));
+				lsn = sequence;
+				position += HEADER + length;
+			}
+			if (position < size) {
+				LogService.log(LOG_NAME, "日志在" + path + "的" + position + "字节处不完整，丢弃之后的" +
+						(size - position) + "字节");
+				if (last) {
+					channel.truncate(position);
+				}
+			}
+		}
+		return lsn;
+	}
+
+	/**
+	 * 打开日志，开始追加记录
+	 *
+	 * @throws IOException 创建分段错误
+	 */
+	public synchronized void open() throws IOException {
+		if (running) {
+			return;
+		}
+		Files.createDirectories(directory);
+		rotate(lastLsn + 1);
+		running = true;
+		writer = new Thread(this::run, "PLAYER-WAL");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * 追加一条记录
+	 * <p>
+	 * 在调用线程中编码，由写入线程写入文件并同步到磁盘
+	 *
+	 * @param writes 写入操作
+	 * @return 记录同步到磁盘后完成，结果为记录的序号
+	 */
+	public CompletableFuture<Long> append(List<MapWrite> writes) {
+		CompletableFuture<Long> future = new CompletableFuture<>();
+		if (!running) {
+			failures.increment();
+			future.completeExceptionally(new IllegalStateException("预写日志没有打开"));
+			return future;
+		}
+		try {
+			queue.offer(new Append(encode(writes), future));
+		} catch (IOException | RuntimeException e) {
+			failures.increment();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	/**
+	 * 获取最后一条已经同步到磁盘的记录的序号
+	 *
+	 * @return 序号
+	 */
+	public long getLastLsn() {
+		return lastLsn;
+	}
+
+	/**
+	 * 获取追加失败的记录数量
+	 *
+	 * @return 追加失败的记录数量
+	 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * 删除数据库中已经包含的记录
+	 * <p>
+	 * 删除所有记录的序号都不大于{@code lsn}的分段，当前分段不会被删除
+	 *
+	 * @param lsn 数据库中已经包含了这个序号及之前的所有记录
+	 */
+	public void checkpoint(long lsn) {
+		for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+			Long next = segments.higherKey(entry.getKey());
+			// 下一个分段的第一条记录之前，都是这个分段的记录
+			if (entry.getKey() == current || next == null || next - 1 > lsn) {
+				break;
+			}
+			try {
+				Files.deleteIfExists(entry.getValue());
+				segments.remove(entry.getKey());
+			} catch (IOException e) {
+				LogService.error(e, "删除预写日志失败：" + entry.getValue());
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 关闭日志
+	 * <p>
+	 * 写入所有等待中的记录后返回
+	 */
+	public synchronized void close() {
+		if (!running) {
+			return;
+		}
+		running = false;
+		try {
+			writer.join(TimeUnit.MINUTES.toMillis(1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} catch (IOException e) {
+			LogService.error(e);
+		}
+		dump();
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public void dump() {
+		long syncs = this.syncs.sum();
+		LogService.log(LOG_NAME, "segments=" + segments.size() + ", lsn=" + lastLsn +
+				", appends=" + appends.sum() + ", failures=" + failures.sum() + ", syncs=" + syncs + ", bytes=" + bytes.sum() +
+				", sync(us)=" + syncTimes.snapshot());
+	}
+
+	/**
+	 * 写入线程
+	 */
+	private void run() {
+		List<Append> group = new ArrayList<>();
+		while (running || !queue.isEmpty()) {
+			try {
+				Append first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				group.add(first);
+				queue.drainTo(group);
+				commit(group);
+			} catch (InterruptedException e) {
+				// 关闭时写入剩余的记录
+			} finally {
+				group.clear();
+			}
+		}
+	}
+
+	/**
+	 * 组提交
+	 *
+	 * @param group 等待写入的记录
+	 */
+	private void commit(List<Append> group) {
+		long startTime = System.nanoTime();
+		long lsn = lastLsn;
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			for (Append append : group) {
+				if (channel.position() >= segmentSize) {
+					channel.force(false);
+					rotate(lsn + 1);
+				}
+				header.clear();
+				header.putInt(append.payload.length).putInt(crc32(append.payload)).putLong(++lsn).flip();
+				ByteBuffer payload = ByteBuffer.wrap(append.payload);
+				while (header.hasRemaining() || payload.hasRemaining()) {
+					channel.write(new ByteBuffer[]{header, payload});
+				}
+				bytes.add(HEADER + append.payload.length);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			LogService.error(e, "预写日志写入失败");
+			failures.add(group.size());
+			for (Append append : group) {
+				append.future.completeExceptionally(e);
+			}
+			// 写入了一部分的分段不再使用，之后的记录写入新的分段
+			try {
+				rotate(lsn + 1);
+			} catch (IOException ex) {
+				LogService.error(ex, "预写日志切换分段失败");
+			}
+			lastLsn = lsn;
+			return;
+		}
+		lastLsn = lsn;
+		appends.add(group.size());
+		syncs.increment();
+		syncTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+		lsn -= group.size();
+		for (Append append : group) {
+			append.future.complete(++lsn);
+		}
+	}
+
+	/**
+	 * 切换到新的分段
+	 *
+	 * @param lsn 新分段第一条记录的序号
+	 * @throws IOException 创建分段错误
+	 */
+	private void rotate(long lsn) throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+		Path path = directory.resolve(String.format("%020d%s", lsn, SUFFIX));
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		segments.put(lsn, path);
+		current = lsn;
+	}
+
+	/**
+	 * 编码一条记录
+	 *
+	 * @param writes 写入操作
+	 * @return 记录数据
+	 * @throws IOException 编码错误
+	 */
+	private static byte[] encode(List<MapWrite> writes) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeInt(writes.size());
+		for (MapWrite write : writes) {
+			if (!(write.getCodec() instanceof ByteArrayCodec)) {
+				throw new IllegalArgumentException("预写日志只能记录字节数组的写入：" + write.getKey());
+			}
+			writeBytes(output, write.getKey().getBytes(StandardCharsets.UTF_8));
+			output.writeInt(write.getPuts().size());
+			for (Map.Entry<Object, Object> entry : write.getPuts().entrySet()) {
+				writeBytes(output, (byte[]) entry.getKey());
+				writeBytes(output, (byte[]) entry.getValue());
+			}
+			// 删除整个哈希桶时，删除字段的数量记为负数，兼容之前的记录
+			int removes = write.getRemoves().size();
+			output.writeInt(write.isClear() ? -removes - 1 : removes);
+			for (Object field : write.getRemoves()) {
+				writeBytes(output, (byte[]) field);
+			}
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * 解码一条记录
+	 *
+	 * @param payload 记录数据
+	 * @return 写入操作
+	 */
+	private static List<MapWrite> decode(ByteBuffer payload) {
+		int size = payload.getInt();
+		List<MapWrite> writes = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, new String(readBytes(payload), StandardCharsets.UTF_8));
+			int puts = payload.getInt();
+			for (int j = 0; j < puts; j++) {
+				write.put(readBytes(payload), readBytes(payload));
+			}
+			int removes = payload.getInt();
+			if (removes < 0) {
+				write.clear();
+				removes = -removes - 1;
+			}
+			for (int j = 0; j < removes; j++) {
+				write.remove(readBytes(payload));
+			}
+			writes.add(write);
+		}
+		return writes;
+	}
+
+	private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("预写日志意外结束");
+			}
+		}
+	}
+
+	private static int crc32(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * 一条等待写入的记录
+	 */
+	private static class Append {
+
+		/**
+		 * 记录数据
+		 */
+		private final byte[] payload;
+
+		/**
+		 * 同步到磁盘后完成
+		 */
+		private final CompletableFuture<Long> future;
+
+		Append(byte[] payload, CompletableFuture<Long> future) {
+			this.payload = payload;
+			this.future = future;
+		}
+	}
+}
\ No newline at end of file
@@ -1,11 +1,16 @@
 package com.keimons.platform.game;
 
 import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.StoreManager;
 import com.keimons.platform.iface.IGameData;
+import com.keimons.platform.unit.CharsetUtil;
 import com.keimons.platform.unit.ClassUtil;
 import com.keimons.platform.unit.CodeUtil;
+import org.redisson.client.codec.ByteArrayCodec;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +24,11 @@ import java.util.Map;
  */
 public class GameDataManager {
 
+	/**
+	 * 公共数据在存储中的键 字段为模块名称
+	 */
+	public static final String KEY = "keimons:game";
+
 	/**
 	 * 玩家数据模块
 	 */
@@ -41,22 +51,39 @@ public class GameDataManager {
 	}
 
 	/**
-	 * 加载一个玩家的数据
+	 * 从存储中加载一个公共数据
 	 *
 	 * @param moduleName 模块
 	 * @param <T>        模块类型
-	 * @return 玩家数据
+	 * @return 公共数据 存储中不存在时返回{@code null}
 	 * @throws IOException 反序列化异常
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T extends IGameData> T loadGameData(String moduleName) throws IOException {
-		byte[] data = null; //RedissonManager.getMapValue(ByteArrayCodec.INSTANCE, RedisKeys.keyOfPlayerData(playerId), CharsetUtil.getUTF8(moduleType.toString()));
+		List<byte[]> values = StoreManager.getStore().get(KEY, Collections.singletonList(CharsetUtil.getUTF8(moduleName)));
+		byte[] data = values.get(0);
+		if (data == null) {
+			return null;
+		}
 		// 反序列化
 		Class<? extends IGameData> clazz = modules.get(moduleName);
 		IGameData module = CodeUtil.decode(clazz, data);
 		return (T) module;
 	}
 
+	/**
+	 * 存储一个公共数据
+	 *
+	 * @param moduleName 模块
+	 * @param gameData   公共数据
+	 * @throws IOException 序列化异常
+	 */
+	public static void saveGameData(String moduleName, IGameData gameData) throws IOException {
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, KEY);
+		write.put(CharsetUtil.getUTF8(moduleName), CodeUtil.encode(gameData));
+		StoreManager.getStore().write(Collections.singletonList(write));
+	}
+
 	/**
 	 * 增加游戏模块
 	 *
@@ -1,24 +1,41 @@
 package com.keimons.platform.keimons;
 
 import com.keimons.platform.KeimonsServer;
-import com.keimons.platform.annotation.APlayerData;
-import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
 import com.keimons.platform.player.IPlayerData;
 import com.keimons.platform.player.IRepeatedPlayerData;
+import com.keimons.platform.player.LongRepeatedModule;
+import com.keimons.platform.player.MigrationService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
 import com.keimons.platform.player.ISingularPlayerData;
 import com.keimons.platform.log.LogService;
 import com.keimons.platform.module.BytesModuleSerialize;
+import com.keimons.platform.module.ElementModuleSerialize;
+import com.keimons.platform.module.EnvelopeReader;
+import com.keimons.platform.module.EnvelopeWriter;
 import com.keimons.platform.module.IModule;
 import com.keimons.platform.player.BasePlayer;
+import com.keimons.platform.player.BaseRepeatedModule;
+import com.keimons.platform.player.BaseSingularModule;
+import com.keimons.platform.player.IAsyncPersistence;
+import com.keimons.platform.player.IBatchPersistence;
+import com.keimons.platform.player.IPlayerSnapshot;
+import com.keimons.platform.player.ISnapshotPersistence;
 import com.keimons.platform.player.PlayerManager;
+import com.keimons.platform.unit.ByteKey;
 import com.keimons.platform.unit.CodeUtil;
 import com.keimons.platform.unit.SerializeUtil;
 import org.redisson.client.codec.ByteArrayCodec;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * 玩家类的一个默认实现
@@ -27,7 +44,27 @@ import java.util.*;
  * @version 1.0
  * @since 1.8
  **/
-public class DefaultPlayer extends BasePlayer<String> {
+public class DefaultPlayer extends BasePlayer<String> implements IBatchPersistence, IAsyncPersistence, ISnapshotPersistence {
+
+	/**
+	 * 按元素增量存储的模块标记
+	 */
+	private static final byte[] INCREMENTAL = new byte[0];
+
+	/**
+	 * 反序列化后的对象相对于序列化数据的膨胀倍数，用于估算内存占用
+	 */
+	private static final int EXPANSION = 4;
+
+	/**
+	 * 没有记录任何模块大小的玩家共享的空数组
+	 */
+	private static final int[] EMPTY_SIZES = new int[0];
+
+	/**
+	 * 每个模块的数据大小 下标:模块序号 Value:数据大小 字节
+	 */
+	private volatile int[] moduleSizes = EMPTY_SIZES;
 
 	public DefaultPlayer(String identifier) {
 		this.identifier = identifier;
@@ -45,78 +82,503 @@ public class DefaultPlayer extends BasePlayer<String> {
 
 	@Override
 	public void addRepeatedData(IRepeatedPlayerData<?> data) {
-		APlayerData annotation = data.getClass().getAnnotation(APlayerData.class);
-		String moduleName = annotation.moduleName();
-		DefaultRepeatedModule<IRepeatedPlayerData<?>> module = computeIfAbsent(moduleName, v -> new DefaultRepeatedModule<>());
-		module.add(data);
+		repeatedModule(descriptor(data.getClass())).add(data);
+		if (data instanceof DefaultRepeatedPlayerData) {
+			((DefaultRepeatedPlayerData<?>) data).attach(this);
+		}
+	}
+
+	/**
+	 * 获取可重复的模块，没有这个模块时创建
+	 *
+	 * @param descriptor 模块
+	 * @return 模块
+	 */
+	private BaseRepeatedModule<IRepeatedPlayerData<?>> repeatedModule(ModuleDescriptor descriptor) {
+		return computeIfAbsent(descriptor, v -> v.isLongKey() ? new LongRepeatedModule<>() : new DefaultRepeatedModule<>());
 	}
 
 	@Override
 	public void addSingularData(ISingularPlayerData data) {
-		APlayerData annotation = data.getClass().getAnnotation(APlayerData.class);
-		String moduleName = annotation.moduleName();
-		computeIfAbsent(moduleName, v -> new DefaultSingularModule<>(data));
-		moduleNames.add(moduleName);
+		ModuleDescriptor descriptor = descriptor(data.getClass());
+		computeIfAbsent(descriptor, v -> new DefaultSingularModule<>(data));
+		moduleNames.add(descriptor);
+		if (data instanceof DefaultSingularPlayerData) {
+			((DefaultSingularPlayerData) data).attach(this);
+		}
 	}
 
 	@Override
 	public void save(boolean coercive) {
-		Map<byte[], byte[]> bytes = new HashMap<>(modules.size());
-		for (Map.Entry<String, IModule<? extends IPlayerData>> entry : modules.entrySet()) {
-			byte[] moduleName = entry.getKey().getBytes(StandardCharsets.UTF_8);
-			try {
-				byte[] serialize = SerializeUtil.serialize(BytesModuleSerialize.class, entry.getValue(), coercive);
-				bytes.put(moduleName, serialize);
-			} catch (IOException | IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-				e.printStackTrace();
+		StoreManager.getStore().write(serialize(coercive));
+	}
+
+	@Override
+	public void save(Set<String> moduleNames) {
+		StoreManager.getStore().write(snapshot(moduleNames).serialize());
+	}
+
+	@Override
+	public List<MapWrite> serialize(boolean coercive) {
+		return snapshot(coercive).serialize();
+	}
+
+	@Override
+	public IPlayerSnapshot snapshot(boolean coercive) {
+		Snapshot snapshot = new Snapshot();
+		forEachModule((descriptor, module) -> snapshot.capture(descriptor, module, coercive));
+		return snapshot;
+	}
+
+	@Override
+	public IPlayerSnapshot snapshot(Set<String> moduleNames) {
+		Snapshot snapshot = new Snapshot();
+		for (String moduleName : moduleNames) {
+			ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+			IModule<? extends IPlayerData> module = descriptor == null ? null : getModule(descriptor);
+			// 模块已经被卸载
+			if (module != null) {
+				snapshot.capture(descriptor, module, true);
 			}
 		}
-		if (bytes.size() > 0) {
-			RedissonManager.setMapValues(ByteArrayCodec.INSTANCE, identifier, bytes);
-		}
+		return snapshot;
 	}
 
 	@Override
 	public void load(Class<? extends IPlayerData>[] modules) {
+		// 加载失败时抛出异常，由调用者决定是否重试，不能当作玩家没有这些模块
 		try {
-			Set<byte[]> moduleNames = RedissonManager.getMapKeys(ByteArrayCodec.INSTANCE, identifier);
-			for (byte[] moduleName : moduleNames) {
-				this.moduleNames.add(new String(moduleName));
-			}
-			if (modules.length != 0) {
-				moduleNames = new HashSet<>();
-				for (Class<? extends IPlayerData> clazz : modules) {
-					APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-					if (annotation == null) {
-						continue;
+			apply(fetch(modules).join());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("玩家数据加载失败，玩家ID：" + identifier, e);
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> loadAsync(Class<? extends IPlayerData>[] modules, Executor executor) {
+		return fetch(modules).thenAcceptAsync(bytes -> {
+			try {
+				apply(bytes);
+			} catch (Exception e) {
+				throw new CompletionException(e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * 读取玩家数据
+	 * <p>
+	 * 所有的读取都通过异步接口发出，不等待网络，也不反序列化。加载指定模块时，模块名称和模块数据
+	 * 在一次往返中读取。
+	 *
+	 * @param modules 要加载的模块 为空时加载所有模块
+	 * @return 玩家数据
+	 */
+	private CompletableFuture<ModuleBytes> fetch(Class<? extends IPlayerData>[] modules) {
+		IPlayerStore store = StoreManager.getStore();
+		CompletableFuture<ModuleBytes> future;
+		if (modules.length == 0 && PlayerManager.isLazy()) {
+			// 懒加载模式只读取模块名称，模块在第一次访问时加载
+			CompletableFuture<Set<byte[]>> keys = store.getFieldsAsync(identifier);
+			future = keys.thenApply(keys0 -> new ModuleBytes(keys0, Collections.emptyMap()));
+		} else if (modules.length == 0) {
+			CompletableFuture<Map<byte[], byte[]>> values = store.getAllAsync(identifier);
+			future = values.thenApply(values0 -> new ModuleBytes(values0.keySet(), values0));
+		} else {
+			List<byte[]> moduleNames = new ArrayList<>(modules.length);
+			for (Class<? extends IPlayerData> clazz : modules) {
+				ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+				if (descriptor == null) {
+					continue;
+				}
+				moduleNames.add(descriptor.getNameBytes());
+			}
+			CompletableFuture<List<List<byte[]>>> result = store.getFieldsAndValuesAsync(identifier, moduleNames);
+			future = result.thenApply(result0 -> {
+				List<byte[]> values = result0.get(1);
+				Map<byte[], byte[]> values0 = new HashMap<>(values.size());
+				for (int i = 0; i < values.size(); i++) {
+					// 数据库中不存在的模块
+					if (values.get(i) != null) {
+						values0.put(moduleNames.get(i), values.get(i));
 					}
-					moduleNames.add(annotation.moduleName().getBytes());
+				}
+				return new ModuleBytes(result0.get(0), values0);
+			});
+		}
+		return future.thenCompose(bytes -> {
+			List<CompletableFuture<?>> futures = new ArrayList<>();
+			for (Map.Entry<ByteKey, byte[]> entry : bytes.values.entrySet()) {
+				// 按元素增量存储的模块，读取存储元素的哈希桶
+				if (entry.getValue().length == 0) {
+					String moduleName = entry.getKey().toString();
+					String key = ElementModuleSerialize.getKey(identifier, moduleName);
+					CompletableFuture<Map<byte[], byte[]>> values = store.getAllAsync(key);
+					futures.add(values.thenAccept(values0 -> bytes.elements.put(moduleName, values0)));
 				}
 			}
-			int size = 0;
-			if (moduleNames.size() > 0) {
-				Map<byte[], byte[]> moduleBytes = RedissonManager.getMapValues(ByteArrayCodec.INSTANCE, identifier, moduleNames);
-				if (moduleBytes != null) {
-					for (Map.Entry<byte[], byte[]> entry : moduleBytes.entrySet()) {
-						String moduleName = new String(entry.getKey(), StandardCharsets.UTF_8);
-						Class<? extends IPlayerData> clazz = PlayerManager.classes.get(moduleName);
-						BytesModuleSerialize serialize = CodeUtil.decode(BytesModuleSerialize.class, entry.getValue());
-
-						List<? extends IPlayerData> deserialize = SerializeUtil.deserialize(serialize, clazz);
-						for (IPlayerData playerData : deserialize) {
-							if (playerData == null) {
-								continue;
-							}
-							add(playerData);
+			if (futures.isEmpty()) {
+				return CompletableFuture.completedFuture(bytes);
+			}
+			return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(v -> bytes);
+		});
+	}
+
+	/**
+	 * 反序列化玩家数据
+	 * <p>
+	 * 已经加载的模块不会被再次加载，同一个模块同时被懒加载和预加载时，只保留先完成的一次。
+	 * 低于当前版本的模块在反序列化时升级，加载完成后交给{@link MigrationService}重新存储。
+	 *
+	 * @param bytes 玩家数据
+	 * @throws Exception 反序列化错误
+	 */
+	private synchronized void apply(ModuleBytes bytes) throws Exception {
+		for (ByteKey moduleName : bytes.keys) {
+			this.moduleNames.add(moduleName.toString());
+		}
+		int size = 0;
+		Set<String> migrated = null;
+		for (Map.Entry<ByteKey, byte[]> entry : bytes.values.entrySet()) {
+			String moduleName = entry.getKey().toString();
+			ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+			if (descriptor == null) {
+				LogService.warn("玩家数据模块没有注册，跳过加载，玩家ID：" + identifier + "，模块：" + moduleName);
+				continue;
+			}
+			if (getModule(descriptor) != null) {
+				continue;
+			}
+			Class<? extends IPlayerData> clazz = descriptor.getType();
+			if (entry.getValue().length == 0) {
+				Map<byte[], byte[]> elements = bytes.elements.get(moduleName);
+				int length = 0;
+				for (byte[] element : elements.values()) {
+					length += element.length;
+				}
+				setModuleSize(descriptor, length);
+				size += length;
+				if (loadElements(descriptor, elements)) {
+					migrated = migrated == null ? new HashSet<>() : migrated;
+					migrated.add(moduleName);
+				}
+				loadEmpty(descriptor);
+				continue;
+			}
+			setModuleSize(descriptor, entry.getValue().length);
+			size += entry.getValue().length;
+			List<? extends IPlayerData> deserialize;
+			if (EnvelopeReader.isEnvelope(entry.getValue())) {
+				EnvelopeReader reader = new EnvelopeReader(moduleName, entry.getValue());
+				if (reader.isOutdated(clazz)) {
+					migrated = migrated == null ? new HashSet<>() : migrated;
+					migrated.add(moduleName);
+				}
+				deserialize = reader.deserialize(clazz);
+			} else {
+				// 之前存储的数据，下次存储时写为信封
+				BytesModuleSerialize serialize = CodeUtil.decode(BytesModuleSerialize.class, entry.getValue());
+				if (serialize.isOutdated(clazz)) {
+					migrated = migrated == null ? new HashSet<>() : migrated;
+					migrated.add(moduleName);
+				}
+				deserialize = SerializeUtil.deserialize(serialize, clazz);
+			}
+			for (IPlayerData playerData : deserialize) {
+				if (playerData == null) {
+					continue;
+				}
+				addData(playerData);
+			}
+			loadEmpty(descriptor);
+		}
+		updateEstimatedSize();
+		if (migrated != null) {
+			MigrationService.migrated(this, migrated);
+		}
+		if (KeimonsServer.KeimonsConfig.isDebug()) {
+			LogService.debug("玩家ID：" + identifier + "，数据模块共计：" + size + "字节！各模块：" + getModuleSizes());
+		}
+	}
+
+	/**
+	 * 创建加载后没有任何数据的模块
+	 * <p>
+	 * 数据库中存在的模块已经记录在{@link #moduleNames}中，加载后没有模块会被当作没有加载，不能再增加数据
+	 *
+	 * @param descriptor 模块
+	 */
+	private void loadEmpty(ModuleDescriptor descriptor) {
+		if (getModule(descriptor) != null) {
+			return;
+		}
+		if (IRepeatedPlayerData.class.isAssignableFrom(descriptor.getType())) {
+			repeatedModule(descriptor);
+		} else {
+			createSingularData(descriptor);
+		}
+	}
+
+	/**
+	 * 获取每个模块的数据大小
+	 * <p>
+	 * 记录的是模块最近一次加载或整体存储时的序列化数据大小，按元素增量存储的模块记录的是加载时
+	 * 所有元素的大小。
+	 *
+	 * @return Key:模块名称 Value:数据大小 字节
+	 */
+	public Map<String, Integer> getModuleSizes() {
+		int[] moduleSizes = this.moduleSizes;
+		Map<String, Integer> result = new LinkedHashMap<>();
+		for (int i = 0; i < moduleSizes.length; i++) {
+			if (moduleSizes[i] > 0) {
+				result.put(ModuleRegistry.get(i).getName(), moduleSizes[i]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * 记录一个模块的数据大小
+	 *
+	 * @param descriptor 模块
+	 * @param size       数据大小 字节
+	 */
+	private synchronized void setModuleSize(ModuleDescriptor descriptor, int size) {
+		int ordinal = descriptor.getOrdinal();
+		int[] moduleSizes = this.moduleSizes;
+		if (ordinal >= moduleSizes.length) {
+			moduleSizes = Arrays.copyOf(moduleSizes, Math.max(ordinal + 1, ModuleRegistry.size()));
+		}
+		moduleSizes[ordinal] = size;
+		this.moduleSizes = moduleSizes;
+	}
+
+	/**
+	 * 根据每个模块的数据大小更新估算的内存占用
+	 */
+	private void updateEstimatedSize() {
+		long size = 0;
+		for (int length : moduleSizes) {
+			size += length;
+		}
+		estimatedSize = size * EXPANSION;
+	}
+
+	/**
+	 * 加载按元素增量存储的模块
+	 *
+	 * @param descriptor 模块
+	 * @param values     所有元素数据
+	 * @return 是否有元素被升级
+	 * @throws IOException 反序列化错误
+	 */
+	private boolean loadElements(ModuleDescriptor descriptor, Map<byte[], byte[]> values) throws IOException {
+		Map<Object, Long> fingerprints = new HashMap<>(values.size());
+		List<? extends IPlayerData> elements = ElementModuleSerialize.deserialize(values, descriptor.getType(), fingerprints);
+		for (IPlayerData playerData : elements) {
+			addData(playerData);
+		}
+		IModule<? extends IPlayerData> module = getModule(descriptor);
+		if (module instanceof BaseRepeatedModule) {
+			synchronized (module) {
+				((BaseRepeatedModule<?>) module).getFingerprints().putAll(fingerprints);
+			}
+		}
+		// 升级过的元素没有记录指纹
+		return fingerprints.size() < elements.size();
+	}
+
+	/**
+	 * 玩家数据快照
+	 * <p>
+	 * 生成快照时只编码数据对象，{@link #serialize()}中合并、压缩和对比指纹，不再读取数据对象。
+	 * 按元素增量存储的模块，对比的是指纹的副本，不持有模块的锁，写入成功后才更新模块中的指纹。
+	 */
+	private class Snapshot implements IPlayerSnapshot {
+
+		/**
+		 * 所有模块的快照
+		 */
+		private final List<ModuleSnapshot> modules = new ArrayList<>();
+
+		/**
+		 * 编码一个模块
+		 *
+		 * @param descriptor 模块
+		 * @param module     模块数据
+		 * @param coercive   是否强制序列化
+		 */
+		void capture(ModuleDescriptor descriptor, IModule<? extends IPlayerData> module, boolean coercive) {
+			try {
+				if (module instanceof BaseRepeatedModule && descriptor.isIncremental()) {
+					modules.add(new ModuleSnapshot(descriptor, (BaseRepeatedModule<?>) module,
+							null, ElementModuleSerialize.encode(module), null));
+					return;
+				}
+				// 写入成功后才更新数据的修改次数或者指纹
+				if (module instanceof BaseSingularModule &&
+						((BaseSingularModule<?>) module).get() instanceof DefaultSingularPlayerData) {
+					DefaultSingularPlayerData data = (DefaultSingularPlayerData) ((BaseSingularModule<?>) module).get();
+					DefaultSingularPlayerData.Encoded encoded = data.encode(coercive);
+					if (encoded != null) {
+						modules.add(new ModuleSnapshot(descriptor, null,
+								Collections.singletonList(encoded.bytes), null, encoded));
+					}
+					return;
+				}
+				List<byte[]> elements = BytesModuleSerialize.encode(module, coercive);
+				// 数据没有变化，不覆盖数据库中的模块
+				if (elements != null) {
+					modules.add(new ModuleSnapshot(descriptor, null, elements, null, null));
+				}
+			} catch (IOException e) {
+				// 不能丢弃这个模块，快照失败后由存储服务重新标记为脏数据
+				throw new IllegalStateException("玩家数据序列化失败，玩家ID：" + identifier + "，模块：" + descriptor.getName(), e);
+			}
+		}
+
+		@Override
+		public Object getIdentifier() {
+			return identifier;
+		}
+
+		@Override
+		public List<MapWrite> serialize() {
+			List<MapWrite> writes = new ArrayList<>(2);
+			MapWrite main = new MapWrite(ByteArrayCodec.INSTANCE, identifier);
+			writes.add(main);
+			for (ModuleSnapshot module : modules) {
+				ModuleDescriptor descriptor = module.descriptor;
+				try {
+					if (module.elements == null) {
+						serializeElements(module, main, writes);
+					} else {
+						byte[] serialize = EnvelopeWriter.write(module.elements, descriptor);
+						main.put(descriptor.getNameBytes(), serialize);
+						setModuleSize(descriptor, serialize.length);
+						if (module.singular != null) {
+							main.onSuccess(module.singular::commit);
 						}
 					}
+				} catch (IOException e) {
+					throw new IllegalStateException("玩家数据序列化失败，玩家ID：" + identifier + "，模块：" + descriptor.getName(), e);
 				}
 			}
-			if (KeimonsServer.KeimonsConfig.isDebug()) {
-				LogService.debug("玩家ID：" + identifier + "，数据模块共计：" + size + "字节！");
+			updateEstimatedSize();
+			return writes;
+		}
+
+		/**
+		 * 按元素增量序列化一个模块
+		 * <p>
+		 * 元素存储在单独的哈希桶中，玩家数据中只保留一个空的模块标记，用于加载时识别存储方式。
+		 * 写入成功后才更新元素的指纹，写入失败时，下次存储会重新写入这些元素。
+		 *
+		 * @param snapshot 模块快照
+		 * @param main     玩家数据的写入
+		 * @param writes   所有的写入
+		 * @throws IOException 序列化错误
+		 */
+		private void serializeElements(ModuleSnapshot snapshot, MapWrite main, List<MapWrite> writes) throws IOException {
+			ModuleDescriptor descriptor = snapshot.descriptor;
+			BaseRepeatedModule<?> module = snapshot.module;
+			Map<Object, Long> persisted;
+			synchronized (module) {
+				persisted = new HashMap<>(module.getFingerprints());
+			}
+			ElementModuleSerialize serialize = new ElementModuleSerialize();
+			serialize.serialize(snapshot.encoded, persisted, descriptor);
+			if (serialize.isEmpty()) {
+				return;
+			}
+			// 第一次增量存储，写入模块标记，同时覆盖之前整体存储的数据
+			if (persisted.isEmpty()) {
+				main.put(descriptor.getNameBytes(), INCREMENTAL);
+			}
+			MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, ElementModuleSerialize.getKey(identifier, descriptor.getName()));
+			write.putAll(serialize.getPuts());
+			write.removeAll(serialize.getRemoves());
+			write.onSuccess(() -> {
+				synchronized (module) {
+					serialize.commit(module.getFingerprints());
+				}
+			});
+			writes.add(write);
+		}
+	}
+
+	/**
+	 * 一个模块的快照
+	 */
+	private static class ModuleSnapshot {
+
+		/**
+		 * 模块
+		 */
+		private final ModuleDescriptor descriptor;
+
+		/**
+		 * 按元素增量存储的模块 用于读取和更新指纹
+		 */
+		private final BaseRepeatedModule<?> module;
+
+		/**
+		 * 整体存储的模块中所有数据
+		 */
+		private final List<byte[]> elements;
+
+		/**
+		 * 按元素增量存储的模块中所有元素 Key:数据ID Value:元素数据
+		 */
+		private final Map<Object, byte[]> encoded;
+
+		/**
+		 * 单数据模块编码后的数据 写入成功后提交
+		 */
+		private final DefaultSingularPlayerData.Encoded singular;
+
+		ModuleSnapshot(ModuleDescriptor descriptor, BaseRepeatedModule<?> module,
+					   List<byte[]> elements, Map<Object, byte[]> encoded, DefaultSingularPlayerData.Encoded singular) {
+			this.descriptor = descriptor;
+			this.module = module;
+			this.elements = elements;
+			this.encoded = encoded;
+			this.singular = singular;
+		}
+	}
+
+	/**
+	 * 从数据库中读取的玩家数据
+	 */
+	private static class ModuleBytes {
+
+		/**
+		 * 玩家所有模块的名称
+		 */
+		private final Set<ByteKey> keys;
+
+		/**
+		 * 需要加载的模块 Key:模块名称 Value:模块数据
+		 */
+		private final Map<ByteKey, byte[]> values;
+
+		/**
+		 * 按元素增量存储的模块 Key:模块名称 Value:所有元素数据
+		 */
+		private final Map<String, Map<byte[], byte[]>> elements = new ConcurrentHashMap<>();
+
+		ModuleBytes(Collection<byte[]> keys, Map<byte[], byte[]> values) {
+			this.keys = new HashSet<>(keys.size());
+			for (byte[] key : keys) {
+				this.keys.add(ByteKey.wrap(key));
+			}
+			this.values = new HashMap<>(values.size());
+			for (Map.Entry<byte[], byte[]> entry : values.entrySet()) {
+				this.values.put(ByteKey.wrap(entry.getKey()), entry.getValue());
 			}
-		} catch (Exception e) {
-			LogService.error(e);
 		}
 	}
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.keimons.platform.keimons;
 
 import com.keimons.platform.KeimonsServer;
+import com.keimons.platform.player.IPlayer;
 import com.keimons.platform.player.IRepeatedPlayerData;
 import com.keimons.platform.module.IGameDataSerialize;
 import com.keimons.platform.unit.CodeUtil;
@@ -11,6 +12,9 @@ import java.io.IOException;
  * 玩家数据
  * <p>
  * 玩家数据的一个抽象实现，实现了数据比对，数据版本记录
+ * <p>
+ * 增加和删除元素时，模块自动被标记为脏数据。修改已有的元素时，子类在修改方法中调用{@link #modify()}，
+ * 或者由调用者通过{@link IPlayer#markDirty(Class)}标记元素所在的模块。
  *
  * @author monkey1993
  * @version 1.0
@@ -26,11 +30,37 @@ public abstract class DefaultRepeatedPlayerData<T> implements IRepeatedPlayerDat
 	 */
 	private volatile transient int version = KeimonsServer.VERSION;
 
+	/**
+	 * 数据所属的玩家
+	 */
+	private transient volatile IPlayer<?> owner;
+
 	@Override
 	public byte[] serialize(boolean notnull) throws IOException {
 		return CodeUtil.encode(this);
 	}
 
+	/**
+	 * 标记数据被修改
+	 * <p>
+	 * 子类在修改数据的方法中调用，将模块标记为所属玩家的脏数据
+	 */
+	protected void modify() {
+		IPlayer<?> owner = this.owner;
+		if (owner != null) {
+			owner.markDirty(getClass());
+		}
+	}
+
+	/**
+	 * 设置数据所属的玩家
+	 *
+	 * @param owner 玩家
+	 */
+	void attach(IPlayer<?> owner) {
+		this.owner = owner;
+	}
+
 	@Override
 	public int getVersion() {
 		return version;
@@ -1,17 +1,31 @@
 package com.keimons.platform.keimons;
 
 import com.keimons.platform.KeimonsServer;
+import com.keimons.platform.player.IPlayer;
 import com.keimons.platform.player.ISingularPlayerData;
 import com.keimons.platform.module.IGameDataSerialize;
 import com.keimons.platform.unit.CodeUtil;
-import com.keimons.platform.unit.MD5Util;
+import com.keimons.platform.unit.HashUtil;
 
 import java.io.IOException;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
 
 /**
  * 玩家数据
  * <p>
  * 玩家数据的一个抽象实现，实现了数据比对，数据版本记录
+ * <p>
+ * 数据比对有两种方式：
+ * <ul>
+ *     <li>默认对序列化后的数据计算指纹，指纹相同则不存储。指纹算法默认为xxHash64，可以通过
+ *     {@link #setFingerprint(ToLongFunction)}替换。</li>
+ *     <li>子类在所有修改数据的方法中调用{@link #modify()}，并重写{@link #isModifyTracked()}
+ *     返回{@code true}，数据没有被修改过时，连序列化也不需要进行。</li>
+ * </ul>
+ * 放入{@link DefaultPlayer}之后，{@link #modify()}同时将模块标记为脏数据，由
+ * {@link com.keimons.platform.player.PersistenceService}延迟写入。没有调用{@link #modify()}的修改，
+ * 需要通过{@link IPlayer#markDirty(Class)}标记。
  *
  * @author monkey1993
  * @version 1.0
@@ -20,11 +34,33 @@ import java.io.IOException;
 public abstract class DefaultSingularPlayerData implements ISingularPlayerData, IGameDataSerialize {
 
 	/**
-	 * 计算上次的MD5
+	 * 数据指纹算法
+	 */
+	private static volatile ToLongFunction<byte[]> fingerprint = HashUtil::xxHash64;
+
+	/**
+	 * 上次存储时的数据指纹
 	 * <p>
-	 * 比较两次的MD5值是否相等，如果相等，则不对这个数据进行存数，不相等则存储该模块
+	 * 比较两次的数据指纹是否相等，如果相等，则不对这个数据进行存储，不相等则存储该模块
 	 */
-	private transient String lastMd5;
+	private transient long lastFingerprint;
+
+	/**
+	 * 是否已经计算过数据指纹
+	 */
+	private transient boolean fingerprinted;
+
+	/**
+	 * 修改次数
+	 * <p>
+	 * 数据每次被修改时增加，仅在{@link #isModifyTracked()}时使用
+	 */
+	private transient volatile int modCount;
+
+	/**
+	 * 上次存储时的修改次数
+	 */
+	private transient int savedModCount = -1;
 
 	/**
 	 * 当前数据版本
@@ -34,20 +70,134 @@ public abstract class DefaultSingularPlayerData implements ISingularPlayerData,
 	 */
 	private volatile transient int version = KeimonsServer.VERSION;
 
+	/**
+	 * 数据所属的玩家
+	 */
+	private transient volatile IPlayer<?> owner;
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * 这里不更新上次存储时的修改次数和数据指纹，数据在写入成功之前一直被认为发生了变化。
+	 * 需要跳过没有变化的数据时，使用{@link #encode(boolean)}，并在写入成功后提交。
+	 */
 	@Override
 	public byte[] serialize(boolean notnull) throws IOException {
+		Encoded encoded = encode(notnull);
+		return encoded == null ? null : encoded.bytes;
+	}
+
+	/**
+	 * 编码数据
+	 * <p>
+	 * 和上次写入成功的数据对比，写入成功后调用{@link Encoded#commit()}，写入失败时下次存储重新写入。
+	 *
+	 * @param notnull 是否强制编码
+	 * @return 编码后的数据 {@code null}则表示数据没有变化
+	 * @throws IOException 序列化错误
+	 */
+	Encoded encode(boolean notnull) throws IOException {
+		// 先读取修改次数，序列化期间发生的修改会在下次存储
+		int modCount = this.modCount;
+		boolean tracked = isModifyTracked();
+		if (!notnull && tracked && modCount == savedModCount) {
+			return null;
+		}
 		byte[] bytes = CodeUtil.encode(this);
-		String thisMd5 = MD5Util.md5(bytes);
-		if (!notnull && lastMd5 != null && lastMd5.equals(thisMd5)) {
+		if (tracked) {
+			return new Encoded(this, bytes, modCount);
+		}
+		long thisFingerprint = fingerprint.applyAsLong(bytes);
+		if (!notnull && fingerprinted && lastFingerprint == thisFingerprint) {
 			return null;
 		}
-		// 可能lastMd5所指向的对象已经进入老年代，所以仅在需要更新对象时才进行更新
-		lastMd5 = thisMd5;
-		return bytes;
+		return new Encoded(this, bytes, thisFingerprint);
+	}
+
+	/**
+	 * 标记数据被修改
+	 * <p>
+	 * 子类在修改数据的方法中调用，增加修改次数，并将模块标记为所属玩家的脏数据
+	 */
+	protected void modify() {
+		modCount++;
+		IPlayer<?> owner = this.owner;
+		if (owner != null) {
+			owner.markDirty(getClass());
+		}
+	}
+
+	/**
+	 * 设置数据所属的玩家
+	 *
+	 * @param owner 玩家
+	 */
+	void attach(IPlayer<?> owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * 是否通过修改次数判断数据是否被修改
+	 * <p>
+	 * 重写此方法返回{@code true}的子类，必须在每一个修改数据的方法中调用{@link #modify()}，
+	 * 否则修改不会被存储。
+	 *
+	 * @return {@code true}使用修改次数 {@code false}使用数据指纹
+	 */
+	protected boolean isModifyTracked() {
+		return false;
+	}
+
+	/**
+	 * 设置数据指纹算法
+	 *
+	 * @param fingerprint 数据指纹算法
+	 */
+	public static void setFingerprint(ToLongFunction<byte[]> fingerprint) {
+		DefaultSingularPlayerData.fingerprint = Objects.requireNonNull(fingerprint);
 	}
 
 	@Override
 	public int getVersion() {
 		return version;
 	}
+
+	/**
+	 * 编码后的数据
+	 */
+	static class Encoded {
+
+		/**
+		 * 数据
+		 */
+		private final DefaultSingularPlayerData data;
+
+		/**
+		 * 编码后的数据
+		 */
+		final byte[] bytes;
+
+		/**
+		 * 编码时的修改次数或者数据指纹
+		 */
+		private final long marker;
+
+		Encoded(DefaultSingularPlayerData data, byte[] bytes, long marker) {
+			this.data = data;
+			this.bytes = bytes;
+			this.marker = marker;
+		}
+
+		/**
+		 * 写入成功，更新上次存储时的修改次数或者数据指纹
+		 */
+		void commit() {
+			if (data.isModifyTracked()) {
+				data.savedModCount = (int) marker;
+			} else {
+				data.lastFingerprint = marker;
+				data.fingerprinted = true;
+			}
+		}
+	}
 }
\ No newline at end of file
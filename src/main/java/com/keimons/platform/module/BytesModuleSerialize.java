@@ -1,20 +1,23 @@
 package com.keimons.platform.module;
 
 import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
-import com.keimons.platform.annotation.APlayerData;
 import com.keimons.platform.iface.IGameData;
 import com.keimons.platform.player.IRepeatedPlayerData;
+import com.keimons.platform.player.MigrationService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
 import com.keimons.platform.unit.CodeUtil;
 import org.xerial.snappy.Snappy;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * 字节数组持久化方案
  * <p>
- * 系统中提供的一种持久化方案
+ * 系统中提供的一种持久化方案。玩家存储已经使用{@link EnvelopeWriter}写入，这个方案用于读取之前存储的数据。
  *
  * @author monkey1993
  * @version 1.0
@@ -31,31 +34,111 @@ public class BytesModuleSerialize implements IModuleSerializable<byte[]> {
 	 * 是否压缩
 	 * <p>
 	 * 为了标识数据是否被压缩过，所以，此数据时和存库数据平级关系，根据这个字段，{@link #bytes}
-	 * 从数据库中读出的数据是否解压。
+	 * 从数据库中读出的数据是否解压。只有Snappy压缩的数据设置这个字段，和之前存储的数据格式相同。
 	 */
 	@Protobuf(order = 1, description = "是否压缩")
 	private boolean compress;
 
+	/**
+	 * 数据版本
+	 * <p>
+	 * 反序列化时，低于模块当前版本的数据通过{@link MigrationService}升级。没有记录版本的数据为0版本。
+	 */
+	@Protobuf(order = 2, description = "数据版本")
+	private int version;
+
+	/**
+	 * 压缩方式
+	 * <p>
+	 * {@link Compression}的序号，之前存储的数据没有这个字段，通过{@link #compress}判断是否为Snappy压缩。
+	 */
+	@Protobuf(order = 3, description = "压缩方式")
+	private int codec;
+
+	/**
+	 * 压缩字典ID
+	 * <p>
+	 * 使用字典压缩时，记录字典的ID，没有使用字典时为0
+	 */
+	@Protobuf(order = 4, description = "压缩字典ID")
+	private int dictionary;
+
 	@Override
 	public byte[] serialize(IModule<? extends IGameData> module, boolean coercive) throws IOException {
 		BytesSerializeModule serializable = new BytesSerializeModule();
 		serializable.serialize(module, coercive);
-		bytes = CodeUtil.encode(serializable);
-		compress = serializable.isCompress();
-		if (compress) {
-			bytes = Snappy.compress(bytes);
+		ModuleDescriptor descriptor = serializable.getDescriptor();
+		if (descriptor == null) {
+			// 模块中没有数据
+			bytes = CodeUtil.encode(serializable);
+			return CodeUtil.encode(this);
 		}
+		return serialize(serializable.getElements(), descriptor);
+	}
+
+	/**
+	 * 合并已经编码的数据
+	 * <p>
+	 * 数据通过{@link #encode(IModule, boolean)}编码，压缩方式由{@link CompressionService}根据数据大小选择。
+	 *
+	 * @param elements   编码后的数据
+	 * @param descriptor 模块
+	 * @return 序列化后的数据
+	 * @throws IOException 序列化错误
+	 */
+	public byte[] serialize(List<byte[]> elements, ModuleDescriptor descriptor) throws IOException {
+		BytesSerializeModule serializable = new BytesSerializeModule();
+		serializable.setElements(elements);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, CodeUtil.encode(serializable));
+		bytes = compressed.getBytes();
+		compress = compressed.getCompression() == Compression.SNAPPY;
+		codec = compress ? 0 : compressed.getCompression().getId();
+		dictionary = compressed.getDictionary();
+		version = descriptor.getVersion();
 		return CodeUtil.encode(this);
 	}
 
+	/**
+	 * 编码模块中的所有数据
+	 *
+	 * @param module   模块
+	 * @param coercive 是否强制序列化
+	 * @return 编码后的数据 {@code null}则表示模块不为空，但是所有数据都没有变化
+	 * @throws IOException 序列化错误
+	 */
+	public static List<byte[]> encode(IModule<? extends IGameData> module, boolean coercive) throws IOException {
+		Collection<? extends IGameData> collection = module.toCollection();
+		List<byte[]> elements = new ArrayList<>(collection.size());
+		boolean unchanged = false;
+		for (IGameData data : collection) {
+			if (data instanceof IGameDataSerialize) {
+				byte[] persistence = ((IGameDataSerialize) data).serialize(coercive);
+				if (persistence == null) {
+					unchanged = true;
+				} else {
+					elements.add(persistence);
+				}
+			}
+		}
+		return unchanged && elements.isEmpty() ? null : elements;
+	}
+
 	@Override
 	public <V extends IGameData> List<V> deserialize(Class<V> clazz) throws IOException {
 		if (compress) {
 			bytes = Snappy.uncompress(bytes);
+		} else if (codec != 0) {
+			ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+			String moduleName = descriptor == null ? clazz.getName() : descriptor.getName();
+			bytes = CompressionService.decompress(moduleName, Compression.of(codec), dictionary, bytes);
 		}
 		BytesSerializeModule serializable = CodeUtil.decode(BytesSerializeModule.class, bytes);
 		List<V> elements = new ArrayList<>(serializable.getElements().size());
+		boolean outdated = isOutdated(clazz);
 		for (byte[] bytes : serializable.getElements()) {
+			if (outdated) {
+				bytes = MigrationService.upgrade(clazz, version, bytes);
+			}
 			V data = CodeUtil.decode(clazz, bytes);
 			if (data == null) {
 				continue;
@@ -65,13 +148,30 @@ public class BytesModuleSerialize implements IModuleSerializable<byte[]> {
 		return elements;
 	}
 
+	/**
+	 * 数据是否低于模块的当前版本
+	 * <p>
+	 * 低于当前版本的数据在反序列化时升级，加载后需要重新存储
+	 *
+	 * @param clazz 数据类型
+	 * @return 是否低于当前版本
+	 */
+	public boolean isOutdated(Class<?> clazz) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		return descriptor != null && version < descriptor.getVersion();
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
 	/**
 	 * 序列化为byte字符串的模块
 	 *
 	 * @author monkey1993
 	 * @version 1.0
 	 */
-	class BytesSerializeModule implements ISerializeModule<byte[]> {
+	public static class BytesSerializeModule implements ISerializeModule<byte[]> {
 
 		/**
 		 * 模块数据
@@ -87,6 +187,16 @@ public class BytesModuleSerialize implements IModuleSerializable<byte[]> {
 		 */
 		private transient boolean compress;
 
+		/**
+		 * 数据版本
+		 */
+		private transient int version;
+
+		/**
+		 * 模块 模块中没有数据时为{@code null}
+		 */
+		private transient ModuleDescriptor descriptor;
+
 		@Override
 		public void serialize(IModule<? extends IGameData> module, boolean coercive) throws IOException {
 			if (module instanceof IRepeatedPlayerData) {
@@ -95,8 +205,9 @@ public class BytesModuleSerialize implements IModuleSerializable<byte[]> {
 			for (IGameData data : module.toCollection()) {
 				if (data instanceof IGameDataSerialize) {
 					IGameDataSerialize serializable = (IGameDataSerialize) data;
-					APlayerData annotation = data.getClass().getAnnotation(APlayerData.class);
-					compress = annotation.isCompress();
+					descriptor = ModuleRegistry.get(data.getClass());
+					compress = descriptor.isCompress();
+					version = descriptor.getVersion();
 					byte[] persistence = serializable.serialize(coercive);
 					if (persistence != null) {
 						this.elements.add(persistence);
@@ -114,6 +225,14 @@ public class BytesModuleSerialize implements IModuleSerializable<byte[]> {
 			this.compress = compress;
 		}
 
+		public int getVersion() {
+			return version;
+		}
+
+		public ModuleDescriptor getDescriptor() {
+			return descriptor;
+		}
+
 		@Override
 		public List<byte[]> getElements() {
 			return elements;
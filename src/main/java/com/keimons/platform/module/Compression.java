@@ -0,0 +1,65 @@
+package com.keimons.platform.module;
+
+/**
+ * 压缩方式
+ * <p>
+ * 序号随数据一起存储，已经使用的序号不能修改。{@link #NONE}和{@link #SNAPPY}与之前存储的数据格式相同。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public enum Compression {
+
+	/**
+	 * 未压缩
+	 */
+	NONE(0),
+
+	/**
+	 * Snappy压缩 速度快，用于较大的数据
+	 */
+	SNAPPY(1),
+
+	/**
+	 * Deflate压缩 压缩率高，用于较小的数据
+	 */
+	DEFLATE(2),
+
+	/**
+	 * 使用预置字典的Deflate压缩 用于较小的数据，字典由同一个模块的数据训练
+	 */
+	DICTIONARY(3);
+
+	/**
+	 * 所有的压缩方式 下标:序号
+	 */
+	private static final Compression[] VALUES = values();
+
+	/**
+	 * 序号
+	 */
+	private final int id;
+
+	Compression(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * 通过序号获取压缩方式
+	 *
+	 * @param id 序号
+	 * @return 压缩方式
+	 * @throws IllegalArgumentException 无法识别的序号
+	 */
+	public static Compression of(int id) {
+		if (id < 0 || id >= VALUES.length) {
+			throw new IllegalArgumentException("无法识别的压缩方式：" + id);
+		}
+		return VALUES[id];
+	}
+}
\ No newline at end of file
@@ -0,0 +1,722 @@
+package com.keimons.platform.module;
+
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.unit.ByteUtil;
+import com.keimons.platform.unit.HashUtil;
+import com.keimons.platform.unit.TimeUtil;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 模块数据压缩服务
+ * <p>
+ * 声明了{@link com.keimons.platform.annotation.APlayerData#isCompress()}的模块，按照数据大小自动选择
+ * 压缩方式：小于{@link #MIN_SIZE}的数据不压缩；不超过{@link #DICTIONARY_LIMIT}的数据使用Deflate压缩，
+ * 模块有训练好的字典时使用字典；更大的数据使用Snappy压缩。压缩后没有变小的数据不压缩。
+ * <p>
+ * 开启字典训练后，每个模块采集压缩前的数据作为样本，样本足够时在后台线程中训练字典（见
+ * {@link DictionaryTrainer}），新的字典比当前的压缩方式节省超过{@link #GAIN}时启用。字典以内容的哈希
+ * 作为唯一标识，启用之前写入存储，多个服务器共享同一个存储时，其他服务器训练的字典在第一次遇到时读取。
+ * 字典永远不会被删除，使用旧字典压缩的数据依然可以解压。
+ * <p>
+ * 每个模块统计压缩前后的大小和压缩、解压的耗时，通过{@link #dump()}输出到日志。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class CompressionService {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "compression";
+
+	/**
+	 * 存储字典的哈希桶 字段为"模块名称:字典ID"，"模块名称:current"的值为当前字典的ID
+	 */
+	public static final String DICTIONARY_KEY = "keimons:dictionary";
+
+	/**
+	 * 当前字典的字段后缀
+	 */
+	public static final String CURRENT = "current";
+
+	/**
+	 * 小于这个长度的数据不压缩
+	 */
+	public static final int MIN_SIZE = 32;
+
+	/**
+	 * 不超过这个长度的数据使用Deflate压缩，更大的数据使用Snappy压缩
+	 */
+	public static final int DICTIONARY_LIMIT = 8 * 1024;
+
+	/**
+	 * 新的字典至少节省的比例
+	 */
+	private static final double GAIN = 0.05;
+
+	/**
+	 * 每次训练的最大样本数量
+	 */
+	private static final int SAMPLES = 1000;
+
+	/**
+	 * 样本总长度达到字典长度的倍数时训练
+	 */
+	private static final int SAMPLE_RATIO = 100;
+
+	/**
+	 * 两次训练的最小间隔 毫秒
+	 */
+	private static final long RETRAIN_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * 每个线程的压缩器
+	 */
+	private static final ThreadLocal<Deflater> deflaters =
+			ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+	/**
+	 * 每个线程的解压器
+	 */
+	private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	/**
+	 * 所有模块的压缩状态 Key:模块名称
+	 */
+	private static final Map<String, ModuleCompression> modules = new ConcurrentHashMap<>();
+
+	/**
+	 * 字典的最大长度 字节 0则表示不训练字典
+	 */
+	private static volatile int dictionarySize;
+
+	/**
+	 * 训练线程
+	 */
+	private static ExecutorService trainer;
+
+	/**
+	 * 压缩模块数据
+	 *
+	 * @param descriptor 模块
+	 * @param raw        压缩前的数据
+	 * @return 压缩后的数据
+	 * @throws IOException 压缩错误
+	 */
+	public static Compressed compress(ModuleDescriptor descriptor, byte[] raw) throws IOException {
+		return compress(descriptor, raw, 0, raw.length);
+	}
+
+	/**
+	 * 压缩模块数据
+	 * <p>
+	 * 不压缩时，返回的数据引用{@code raw}中的这一段，不复制数据。
+	 *
+	 * @param descriptor 模块
+	 * @param raw        压缩前的数据
+	 * @param offset     起始位置
+	 * @param length     长度
+	 * @return 压缩后的数据
+	 * @throws IOException 压缩错误
+	 */
+	public static Compressed compress(ModuleDescriptor descriptor, byte[] raw, int offset, int length) throws IOException {
+		Compressed none = new Compressed(Compression.NONE, 0, raw, offset, length);
+		if (!descriptor.isCompress()) {
+			return none;
+		}
+		ModuleCompression module = module(descriptor.getName());
+		if (length < MIN_SIZE) {
+			module.record(Compression.NONE, length, length, 0);
+			return none;
+		}
+		long startTime = System.nanoTime();
+		Compressed compressed;
+		Dictionary dictionary = module.current;
+		if (length > DICTIONARY_LIMIT) {
+			byte[] buffer = new byte[Snappy.maxCompressedLength(length)];
+			int size = Snappy.compress(raw, offset, length, buffer, 0);
+			compressed = new Compressed(Compression.SNAPPY, 0, buffer, 0, size);
+		} else {
+			module.sample(raw, offset, length);
+			if (dictionary == null) {
+				compressed = new Compressed(Compression.DEFLATE, 0, deflate(raw, offset, length, null));
+			} else {
+				compressed = new Compressed(Compression.DICTIONARY, dictionary.id,
+						deflate(raw, offset, length, dictionary.bytes));
+			}
+		}
+		if (compressed.length >= length) {
+			compressed = none;
+		}
+		module.record(compressed.compression, length, compressed.length, System.nanoTime() - startTime);
+		return compressed;
+	}
+
+	/**
+	 * 解压模块数据
+	 *
+	 * @param moduleName  模块名称
+	 * @param compression 压缩方式
+	 * @param dictionary  字典ID
+	 * @param bytes       压缩后的数据
+	 * @return 压缩前的数据
+	 * @throws IOException 解压错误
+	 */
+	public static byte[] decompress(String moduleName, Compression compression, int dictionary, byte[] bytes) throws IOException {
+		return decompress(moduleName, compression, dictionary, bytes, 0, bytes.length);
+	}
+
+	/**
+	 * 解压模块数据
+	 *
+	 * @param moduleName  模块名称
+	 * @param compression 压缩方式
+	 * @param dictionary  字典ID
+	 * @param bytes       压缩后的数据
+	 * @param offset      起始位置
+	 * @param length      长度
+	 * @return 压缩前的数据
+	 * @throws IOException 解压错误
+	 */
+	public static byte[] decompress(String moduleName, Compression compression, int dictionary,
+									byte[] bytes, int offset, int length) throws IOException {
+		if (compression == Compression.NONE) {
+			return offset == 0 && length == bytes.length ? bytes : Arrays.copyOfRange(bytes, offset, offset + length);
+		}
+		long startTime = System.nanoTime();
+		byte[] raw;
+		switch (compression) {
+			case SNAPPY:
+				raw = new byte[Snappy.uncompressedLength(bytes, offset, length)];
+				Snappy.uncompress(bytes, offset, length, raw, 0);
+				break;
+			case DEFLATE:
+				raw = inflate(bytes, offset, length, null);
+				break;
+			case DICTIONARY:
+				raw = inflate(bytes, offset, length, module(moduleName).getDictionary(moduleName, dictionary));
+				break;
+			default:
+				throw new IOException("无法识别的压缩方式：" + compression);
+		}
+		ModuleCompression module = modules.get(moduleName);
+		if (module != null) {
+			module.decompressions.increment();
+			module.decompressNanos.add(System.nanoTime() - startTime);
+		}
+		return raw;
+	}
+
+	private static ModuleCompression module(String moduleName) {
+		return modules.computeIfAbsent(moduleName, ModuleCompression::new);
+	}
+
+	/**
+	 * 使用Deflate压缩
+	 * <p>
+	 * 数据格式：变长整数的原始长度 + 不带头部的Deflate数据
+	 *
+	 * @param raw        压缩前的数据
+	 * @param offset     起始位置
+	 * @param length     长度
+	 * @param dictionary 预置字典 {@code null}则表示不使用字典
+	 * @return 压缩后的数据
+	 */
+	static byte[] deflate(byte[] raw, int offset, int length, byte[] dictionary) {
+		Deflater deflater = deflaters.get();
+		deflater.reset();
+		if (dictionary != null) {
+			deflater.setDictionary(dictionary);
+		}
+		deflater.setInput(raw, offset, length);
+		deflater.finish();
+		byte[] buffer = new byte[length + 16];
+		int position = ByteUtil.writeVarint(buffer, 0, length);
+		while (!deflater.finished()) {
+			if (position == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			position += deflater.deflate(buffer, position, buffer.length - position);
+		}
+		return Arrays.copyOf(buffer, position);
+	}
+
+	/**
+	 * 使用Deflate解压
+	 *
+	 * @param bytes      压缩后的数据
+	 * @param offset     起始位置
+	 * @param size       长度
+	 * @param dictionary 预置字典 {@code null}则表示不使用字典
+	 * @return 压缩前的数据
+	 * @throws IOException 数据错误
+	 */
+	static byte[] inflate(byte[] bytes, int offset, int size, byte[] dictionary) throws IOException {
+		int limit = offset + size;
+		int length = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (offset >= limit || shift > 28) {
+				throw new IOException("压缩数据的长度错误");
+			}
+			byte b = bytes[offset++];
+			length |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				break;
+			}
+		}
+		Inflater inflater = inflaters.get();
+		inflater.reset();
+		if (dictionary != null) {
+			inflater.setDictionary(dictionary);
+		}
+		inflater.setInput(bytes, offset, limit - offset);
+		byte[] raw = new byte[length];
+		int position = 0;
+		try {
+			while (position < length) {
+				int count = inflater.inflate(raw, position, length - position);
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				position += count;
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("压缩数据错误", e);
+		}
+		if (position != length) {
+			throw new IOException("压缩数据不完整，长度：" + position + "/" + length);
+		}
+		return raw;
+	}
+
+	/**
+	 * 训练一个模块的字典
+	 *
+	 * @param module  模块
+	 * @param samples 样本
+	 */
+	private static void train(ModuleCompression module, List<byte[]> samples) {
+		try {
+			long startTime = System.nanoTime();
+			byte[] bytes = DictionaryTrainer.train(samples, dictionarySize);
+			if (bytes == null) {
+				return;
+			}
+			Dictionary current = module.current;
+			long before = 0;
+			long after = 0;
+			for (byte[] sample : samples) {
+				before += deflate(sample, 0, sample.length, current == null ? null : current.bytes).length;
+				after += deflate(sample, 0, sample.length, bytes).length;
+			}
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+			if (after > before * (1 - GAIN)) {
+				LogService.log(LOG_NAME, "字典没有明显改善，模块：" + module.name + "，样本：" + samples.size() +
+						"，压缩后：" + before + " -> " + after + "，耗时：" + elapsed + "ms");
+				return;
+			}
+			int id = (int) HashUtil.xxHash64(bytes) & 0x7FFFFFFF;
+			Dictionary dictionary = new Dictionary(id, bytes);
+			// 先写入存储，其他服务器和重启后才能解压
+			MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, DICTIONARY_KEY);
+			write.put(field(module.name, id), bytes);
+			write.put(field(module.name, CURRENT), String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+			StoreManager.getStore().write(Collections.singletonList(write));
+			module.dictionaries.put(id, dictionary);
+			module.current = dictionary;
+			LogService.log(LOG_NAME, "启用字典，模块：" + module.name + "，字典：" + id + "，长度：" + bytes.length +
+					"，样本：" + samples.size() + "，压缩后：" + before + " -> " + after + "，耗时：" + elapsed + "ms");
+		} catch (Throwable e) {
+			LogService.error(e, "字典训练失败，模块：" + module.name);
+		} finally {
+			module.training = false;
+		}
+	}
+
+	private static byte[] field(String moduleName, int id) {
+		return field(moduleName, String.valueOf(id));
+	}
+
+	private static byte[] field(String moduleName, String suffix) {
+		return (moduleName + ":" + suffix).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 输出所有模块的压缩统计到日志
+	 */
+	public static void dump() {
+		List<String> names = new ArrayList<>(modules.keySet());
+		Collections.sort(names);
+		for (String name : names) {
+			LogService.log(LOG_NAME, modules.get(name).toString());
+		}
+	}
+
+	/**
+	 * 获取模块的压缩率
+	 *
+	 * @param moduleName 模块名称
+	 * @return 压缩后的大小 / 压缩前的大小 没有压缩过时为1
+	 */
+	public static double getRatio(String moduleName) {
+		ModuleCompression module = modules.get(moduleName);
+		return module == null ? 1 : module.getRatio();
+	}
+
+	/**
+	 * 初始化
+	 * <p>
+	 * 从存储中读取所有的字典，每个模块使用记录的当前字典，之前的状态被丢弃
+	 *
+	 * @param dictionarySize 字典的最大长度 字节 0则表示不训练字典
+	 */
+	public static synchronized void init(int dictionarySize) {
+		IPlayerStore store = StoreManager.getStore();
+		Map<byte[], byte[]> values = store.getAll(DICTIONARY_KEY);
+		modules.clear();
+		Map<ModuleCompression, Integer> currents = new HashMap<>();
+		for (Map.Entry<byte[], byte[]> entry : values.entrySet()) {
+			String field = new String(entry.getKey(), StandardCharsets.UTF_8);
+			int index = field.lastIndexOf(':');
+			ModuleCompression module = module(field.substring(0, index));
+			String suffix = field.substring(index + 1);
+			if (suffix.equals(CURRENT)) {
+				currents.put(module, Integer.parseInt(new String(entry.getValue(), StandardCharsets.UTF_8)));
+			} else {
+				int id = Integer.parseInt(suffix);
+				module.dictionaries.put(id, new Dictionary(id, entry.getValue()));
+			}
+		}
+		for (Map.Entry<ModuleCompression, Integer> entry : currents.entrySet()) {
+			ModuleCompression module = entry.getKey();
+			module.current = module.dictionaries.get(entry.getValue());
+			if (module.current == null) {
+				LogService.error("当前字典不存在，模块：" + module.name + "，字典：" + entry.getValue());
+			} else {
+				// 重启后不立即采集样本
+				module.trainTime = TimeUtil.currentTimeMillis();
+			}
+		}
+		CompressionService.dictionarySize = dictionarySize;
+		if (dictionarySize > 0) {
+			trainer = Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "MODULE-DICTIONARY");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		LogService.log(LOG_NAME, "字典数量：" + (values.size() - currents.size()) + "，字典长度：" + dictionarySize);
+	}
+
+	/**
+	 * 关闭
+	 * <p>
+	 * 停止训练，输出压缩统计
+	 */
+	public static synchronized void shutdown() {
+		dictionarySize = 0;
+		if (trainer != null) {
+			trainer.shutdownNow();
+			trainer = null;
+		}
+		dump();
+	}
+
+	/**
+	 * 压缩后的数据
+	 */
+	public static class Compressed {
+
+		/**
+		 * 压缩方式
+		 */
+		private final Compression compression;
+
+		/**
+		 * 字典ID 没有使用字典时为0
+		 */
+		private final int dictionary;
+
+		/**
+		 * 压缩后的数据
+		 */
+		private final byte[] bytes;
+
+		/**
+		 * 数据在{@link #bytes}中的起始位置
+		 */
+		private final int offset;
+
+		/**
+		 * 数据长度
+		 */
+		private final int length;
+
+		Compressed(Compression compression, int dictionary, byte[] bytes) {
+			this(compression, dictionary, bytes, 0, bytes.length);
+		}
+
+		Compressed(Compression compression, int dictionary, byte[] bytes, int offset, int length) {
+			this.compression = compression;
+			this.dictionary = dictionary;
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		public Compression getCompression() {
+			return compression;
+		}
+
+		public int getDictionary() {
+			return dictionary;
+		}
+
+		/**
+		 * 获取压缩后的数据
+		 * <p>
+		 * 数据是其中从{@link #getOffset()}开始的{@link #getLength()}个字节，压缩整个数组时就是整个数组
+		 *
+		 * @return 压缩后的数据
+		 */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		public int getOffset() {
+			return offset;
+		}
+
+		public int getLength() {
+			return length;
+		}
+	}
+
+	/**
+	 * 字典
+	 */
+	private static class Dictionary {
+
+		/**
+		 * 字典ID 内容的哈希
+		 */
+		private final int id;
+
+		/**
+		 * 字典内容
+		 */
+		private final byte[] bytes;
+
+		Dictionary(int id, byte[] bytes) {
+			this.id = id;
+			this.bytes = bytes;
+		}
+	}
+
+	/**
+	 * 一个模块的压缩状态
+	 */
+	private static class ModuleCompression {
+
+		/**
+		 * 模块名称
+		 */
+		private final String name;
+
+		/**
+		 * 所有的字典 Key:字典ID
+		 */
+		private final Map<Integer, Dictionary> dictionaries = new ConcurrentHashMap<>();
+
+		/**
+		 * 当前使用的字典
+		 */
+		private volatile Dictionary current;
+
+		/**
+		 * 采集的样本
+		 */
+		private final List<byte[]> samples = new ArrayList<>();
+
+		/**
+		 * 样本的总长度
+		 */
+		private long sampleBytes;
+
+		/**
+		 * 是否正在训练
+		 */
+		private volatile boolean training;
+
+		/**
+		 * 上一次训练的时间
+		 */
+		private volatile long trainTime;
+
+		/**
+		 * 每种压缩方式的次数 下标:压缩方式的序号
+		 */
+		private final LongAdder[] counts = new LongAdder[Compression.values().length];
+
+		/**
+		 * 压缩前的总大小
+		 */
+		private final LongAdder rawBytes = new LongAdder();
+
+		/**
+		 * 压缩后的总大小
+		 */
+		private final LongAdder storedBytes = new LongAdder();
+
+		/**
+		 * 压缩的总耗时 纳秒
+		 */
+		private final LongAdder compressNanos = new LongAdder();
+
+		/**
+		 * 解压次数
+		 */
+		private final LongAdder decompressions = new LongAdder();
+
+		/**
+		 * 解压的总耗时 纳秒
+		 */
+		private final LongAdder decompressNanos = new LongAdder();
+
+		ModuleCompression(String name) {
+			this.name = name;
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = new LongAdder();
+			}
+		}
+
+		void record(Compression compression, int raw, int stored, long nanos) {
+			counts[compression.getId()].increment();
+			rawBytes.add(raw);
+			storedBytes.add(stored);
+			compressNanos.add(nanos);
+		}
+
+		/**
+		 * 采集样本
+		 * <p>
+		 * 样本足够并且距离上一次训练超过{@link #RETRAIN_INTERVAL}时，提交训练。正在训练或者还不能再次
+		 * 训练时，不复制样本，也不获取锁。
+		 *
+		 * @param raw    压缩前的数据
+		 * @param offset 起始位置
+		 * @param length 长度
+		 */
+		void sample(byte[] raw, int offset, int length) {
+			int size = dictionarySize;
+			if (size <= 0 || training) {
+				return;
+			}
+			long now = TimeUtil.currentTimeMillis();
+			if (current != null && now - trainTime < RETRAIN_INTERVAL) {
+				return;
+			}
+			List<byte[]> batch;
+			synchronized (samples) {
+				if (training) {
+					return;
+				}
+				// 数据可能在可复用的缓冲区中，复制一份
+				samples.add(Arrays.copyOfRange(raw, offset, offset + length));
+				sampleBytes += length;
+				if (samples.size() < SAMPLES && sampleBytes < (long) size * SAMPLE_RATIO) {
+					return;
+				}
+				batch = new ArrayList<>(samples);
+				samples.clear();
+				sampleBytes = 0;
+				trainTime = now;
+				training = true;
+			}
+			ExecutorService executor = trainer;
+			if (executor == null) {
+				training = false;
+				return;
+			}
+			try {
+				executor.execute(() -> train(this, batch));
+			} catch (RuntimeException e) {
+				// 已经关闭
+				training = false;
+			}
+		}
+
+		/**
+		 * 获取字典
+		 * <p>
+		 * 不在内存中的字典可能是其他服务器训练的，从存储中读取
+		 *
+		 * @param moduleName 模块名称
+		 * @param id         字典ID
+		 * @return 字典内容
+		 * @throws IOException 字典不存在
+		 */
+		byte[] getDictionary(String moduleName, int id) throws IOException {
+			Dictionary dictionary = dictionaries.get(id);
+			if (dictionary == null) {
+				List<byte[]> values = StoreManager.getStore().get(DICTIONARY_KEY,
+						Collections.singletonList(field(moduleName, id)));
+				if (values.get(0) == null) {
+					throw new IOException("压缩字典不存在，模块：" + moduleName + "，字典：" + id);
+				}
+				dictionary = new Dictionary(id, values.get(0));
+				dictionaries.put(id, dictionary);
+			}
+			return dictionary.bytes;
+		}
+
+		double getRatio() {
+			long raw = rawBytes.sum();
+			return raw == 0 ? 1 : (double) storedBytes.sum() / raw;
+		}
+
+		@Override
+		public String toString() {
+			long compressions = 0;
+			StringBuilder codecs = new StringBuilder();
+			for (Compression compression : Compression.values()) {
+				long count = counts[compression.getId()].sum();
+				compressions += count;
+				codecs.append(codecs.length() == 0 ? "" : ", ").append(compression.name().toLowerCase())
+						.append('=').append(count);
+			}
+			long decompressions = this.decompressions.sum();
+			Dictionary current = this.current;
+			return "module=" + name + ", raw=" + rawBytes.sum() + ", stored=" + storedBytes.sum() +
+					", ratio=" + String.format("%.3f", getRatio()) +
+					", compress(us)=" + (compressions == 0 ? 0 : compressNanos.sum() / compressions / 1000) +
+					", decompress(us)=" + (decompressions == 0 ? 0 : decompressNanos.sum() / decompressions / 1000) +
+					", codecs=[" + codecs + "], dictionary=" + (current == null ? "none" : current.id) +
+					", dictionaries=" + dictionaries.size();
+		}
+	}
+}
\ No newline at end of file
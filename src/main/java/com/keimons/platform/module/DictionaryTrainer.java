@@ -0,0 +1,151 @@
+package com.keimons.platform.module;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * 压缩字典训练
+ * <p>
+ * 同一个模块的数据结构相同，不同玩家的数据中有大量相同的片段（字段标记、默认值、相同的字符串），但是
+ * 每一份数据都很小，单独压缩时压缩器还没有见过这些片段。预置字典把这些片段放在数据之前，压缩时可以
+ * 直接引用字典中的片段。
+ * <p>
+ * 训练方法：统计每一个8字节片段出现在多少份样本中，将样本切分为32字节的段，段的得分是其中还没有被
+ * 字典覆盖的片段的出现次数之和。贪心地选择得分最高的段加入字典，并将段中的片段标记为已覆盖，直到字典
+ * 达到指定的大小。得分越高的段在字典中越靠后，距离数据越近，引用的编码越短。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class DictionaryTrainer {
+
+	/**
+	 * 片段长度
+	 */
+	private static final int GRAM = 8;
+
+	/**
+	 * 段长度
+	 */
+	private static final int SEGMENT = 32;
+
+	/**
+	 * 训练字典
+	 *
+	 * @param samples 样本
+	 * @param size    字典的最大长度
+	 * @return 字典 没有出现在多份样本中的片段时返回{@code null}
+	 */
+	public static byte[] train(List<byte[]> samples, int size) {
+		// 每一个片段出现在多少份样本中
+		Map<Long, Integer> frequencies = new HashMap<>();
+		for (byte[] sample : samples) {
+			Set<Long> grams = new HashSet<>();
+			for (int i = 0; i + GRAM <= sample.length; i++) {
+				grams.add(gram(sample, i));
+			}
+			for (Long gram : grams) {
+				frequencies.merge(gram, 1, Integer::sum);
+			}
+		}
+		PriorityQueue<Segment> queue = new PriorityQueue<>((a, b) -> Long.compare(b.score, a.score));
+		for (byte[] sample : samples) {
+			for (int i = 0; i + GRAM <= sample.length; i += SEGMENT / 2) {
+				Segment segment = new Segment(sample, i, Math.min(SEGMENT, sample.length - i));
+				segment.score = score(segment, frequencies);
+				if (segment.score > 0) {
+					queue.add(segment);
+				}
+			}
+		}
+		List<Segment> selected = new ArrayList<>();
+		int length = 0;
+		while (!queue.isEmpty() && length < size) {
+			Segment segment = queue.poll();
+			// 得分可能因为其他段的选择而降低，重新计算后仍然最高时才选择
+			long score = score(segment, frequencies);
+			if (score <= 0) {
+				continue;
+			}
+			if (!queue.isEmpty() && score < queue.peek().score) {
+				segment.score = score;
+				queue.add(segment);
+				continue;
+			}
+			selected.add(segment);
+			length += segment.length;
+			for (int i = segment.offset; i + GRAM <= segment.offset + segment.length; i++) {
+				frequencies.put(gram(segment.sample, i), 0);
+			}
+		}
+		if (selected.isEmpty()) {
+			return null;
+		}
+		// 得分最高的段放在最后
+		byte[] dictionary = new byte[Math.min(length, size)];
+		int position = dictionary.length;
+		for (Segment segment : selected) {
+			int copy = Math.min(segment.length, position);
+			position -= copy;
+			System.arraycopy(segment.sample, segment.offset + segment.length - copy, dictionary, position, copy);
+			if (position == 0) {
+				break;
+			}
+		}
+		return dictionary;
+	}
+
+	/**
+	 * 段中还没有被覆盖的片段的出现次数之和
+	 * <p>
+	 * 只出现在一份样本中的片段没有意义，不计入得分
+	 *
+	 * @param segment     段
+	 * @param frequencies 片段的出现次数
+	 * @return 得分
+	 */
+	private static long score(Segment segment, Map<Long, Integer> frequencies) {
+		long score = 0;
+		for (int i = segment.offset; i + GRAM <= segment.offset + segment.length; i++) {
+			int frequency = frequencies.getOrDefault(gram(segment.sample, i), 0);
+			if (frequency > 1) {
+				score += frequency;
+			}
+		}
+		return score;
+	}
+
+	private static long gram(byte[] bytes, int offset) {
+		long gram = 0;
+		for (int i = 0; i < GRAM; i++) {
+			gram = gram << 8 | (bytes[offset + i] & 0xFF);
+		}
+		return gram;
+	}
+
+	/**
+	 * 样本中的一段
+	 */
+	private static class Segment {
+
+		private final byte[] sample;
+
+		private final int offset;
+
+		private final int length;
+
+		private long score;
+
+		Segment(byte[] sample, int offset, int length) {
+			this.sample = sample;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,253 @@
+package com.keimons.platform.module;
+
+import com.keimons.platform.iface.IGameData;
+import com.keimons.platform.iface.IRepeatedGameData;
+import com.keimons.platform.player.MigrationService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import com.keimons.platform.unit.ByteUtil;
+import com.keimons.platform.unit.CodeUtil;
+import com.keimons.platform.unit.HashUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按元素增量存储的持久化方案
+ * <p>
+ * {@link BytesModuleSerialize}将一个模块的所有数据合并为一个整体存储，可重复的数据中任何一个
+ * 元素发生变化，都需要重新存储整个模块。这个方案将可重复数据的每一个元素单独存储在
+ * {@link #getKey(Object, String)}哈希桶中，以{@link IRepeatedGameData#getDataId()}为字段，
+ * 存储时对比每一个元素上次存储时的指纹，只写入新增和变化的元素，删除已经被移除的元素。
+ * <p>
+ * 每一个元素的数据格式：1字节压缩方式 + [4字节数据版本] + [4字节字典ID] + 元素数据。压缩方式的最高位
+ * 表示是否记录了数据版本，0版本的元素不记录版本，和之前存储的数据格式相同；低位是{@link Compression}的
+ * 序号，使用字典压缩时记录字典ID。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ElementModuleSerialize {
+
+	/**
+	 * 记录了数据版本
+	 */
+	private static final byte VERSIONED = (byte) 0x80;
+
+	/**
+	 * 压缩方式的掩码
+	 */
+	private static final byte COMPRESSION = 0x7F;
+
+	/**
+	 * 需要写入的元素 Key:字段 Value:元素数据
+	 */
+	private final Map<byte[], byte[]> puts = new HashMap<>();
+
+	/**
+	 * 需要删除的元素字段
+	 */
+	private final List<byte[]> removes = new ArrayList<>();
+
+	/**
+	 * 本次存储后所有元素的指纹 Key:数据ID Value:指纹
+	 */
+	private final Map<Object, Long> fingerprints = new HashMap<>();
+
+	/**
+	 * 对比模块中的所有元素
+	 *
+	 * @param module     模块
+	 * @param persisted  上次存储时所有元素的指纹
+	 * @param descriptor 模块描述
+	 * @throws IOException 序列化错误
+	 */
+	public void serialize(IModule<? extends IGameData> module, Map<Object, Long> persisted, ModuleDescriptor descriptor) throws IOException {
+		serialize(encode(module), persisted, descriptor);
+	}
+
+	/**
+	 * 对比已经编码的元素
+	 * <p>
+	 * 快照存储时，元素在玩家的安全点通过{@link #encode(IModule)}编码，对比指纹和压缩在存储线程中完成。
+	 * 每一个元素的压缩方式由{@link CompressionService}根据元素大小选择。
+	 *
+	 * @param elements   编码后的元素 Key:数据ID Value:元素数据
+	 * @param persisted  上次存储时所有元素的指纹
+	 * @param descriptor 模块描述
+	 * @throws IOException 序列化错误
+	 */
+	public void serialize(Map<Object, byte[]> elements, Map<Object, Long> persisted, ModuleDescriptor descriptor) throws IOException {
+		for (Map.Entry<Object, byte[]> entry : elements.entrySet()) {
+			Object dataId = entry.getKey();
+			byte[] bytes = entry.getValue();
+			long fingerprint = HashUtil.xxHash64(bytes);
+			fingerprints.put(dataId, fingerprint);
+			Long last = persisted.get(dataId);
+			if (last == null || last != fingerprint) {
+				puts.put(getField(dataId), wrap(CompressionService.compress(descriptor, bytes), descriptor.getVersion()));
+			}
+		}
+		for (Object dataId : persisted.keySet()) {
+			if (!fingerprints.containsKey(dataId)) {
+				removes.add(getField(dataId));
+			}
+		}
+	}
+
+	/**
+	 * 编码模块中的所有元素
+	 *
+	 * @param module 模块
+	 * @return 编码后的元素 Key:数据ID Value:元素数据
+	 * @throws IOException 序列化错误
+	 */
+	public static Map<Object, byte[]> encode(IModule<? extends IGameData> module) throws IOException {
+		Collection<? extends IGameData> collection = module.toCollection();
+		Map<Object, byte[]> elements = new HashMap<>(collection.size() * 4 / 3 + 1);
+		for (IGameData data : collection) {
+			if (data instanceof IRepeatedGameData && data instanceof IGameDataSerialize) {
+				Object dataId = ((IRepeatedGameData<?>) data).getDataId();
+				elements.put(dataId, ((IGameDataSerialize) data).serialize(true));
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * 写入成功后，更新存储的指纹
+	 *
+	 * @param persisted 上次存储时所有元素的指纹
+	 */
+	public void commit(Map<Object, Long> persisted) {
+		persisted.clear();
+		persisted.putAll(fingerprints);
+	}
+
+	/**
+	 * 是否没有需要写入或删除的元素
+	 *
+	 * @return {@code true}没有发生变化
+	 */
+	public boolean isEmpty() {
+		return puts.isEmpty() && removes.isEmpty();
+	}
+
+	public Map<byte[], byte[]> getPuts() {
+		return puts;
+	}
+
+	public List<byte[]> getRemoves() {
+		return removes;
+	}
+
+	/**
+	 * 反序列化所有元素
+	 * <p>
+	 * 低于模块当前版本的元素通过{@link MigrationService}升级，升级过的元素不记录指纹，下次存储时重新写入。
+	 *
+	 * @param values    所有元素数据
+	 * @param clazz     数据类型
+	 * @param persisted 记录所有元素的指纹
+	 * @param <V>       数据类型
+	 * @return 所有元素
+	 * @throws IOException 反序列化错误
+	 */
+	public static <V extends IGameData> List<V> deserialize(
+			Map<byte[], byte[]> values, Class<V> clazz, Map<Object, Long> persisted) throws IOException {
+		List<V> elements = new ArrayList<>(values.size());
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		int current = descriptor == null ? 0 : descriptor.getVersion();
+		String moduleName = descriptor == null ? clazz.getName() : descriptor.getName();
+		for (byte[] value : values.values()) {
+			byte[] bytes = unwrap(moduleName, value);
+			int version = getVersion(value);
+			if (version < current) {
+				bytes = MigrationService.upgrade(clazz, version, bytes);
+			}
+			V data = CodeUtil.decode(clazz, bytes);
+			if (data == null) {
+				continue;
+			}
+			if (data instanceof IRepeatedGameData && version >= current) {
+				persisted.put(((IRepeatedGameData<?>) data).getDataId(), HashUtil.xxHash64(bytes));
+			}
+			elements.add(data);
+		}
+		return elements;
+	}
+
+	/**
+	 * 获取存储元素的哈希桶
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @param moduleName 模块名称
+	 * @return 哈希桶
+	 */
+	public static String getKey(Object identifier, String moduleName) {
+		return identifier + ":" + moduleName;
+	}
+
+	/**
+	 * 获取元素的字段
+	 *
+	 * @param dataId 数据ID
+	 * @return 字段
+	 */
+	private static byte[] getField(Object dataId) {
+		return String.valueOf(dataId).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] wrap(CompressionService.Compressed compressed, int version) {
+		Compression compression = compressed.getCompression();
+		int offset = version == 0 ? 1 : 5;
+		int header = compression == Compression.DICTIONARY ? offset + 4 : offset;
+		byte[] value = new byte[compressed.getLength() + header];
+		value[0] = version == 0 ? (byte) compression.getId() : (byte) (compression.getId() | VERSIONED);
+		if (version != 0) {
+			ByteUtil.writeInt(value, 1, version);
+		}
+		if (compression == Compression.DICTIONARY) {
+			ByteUtil.writeInt(value, offset, compressed.getDictionary());
+		}
+		System.arraycopy(compressed.getBytes(), compressed.getOffset(), value, header, compressed.getLength());
+		return value;
+	}
+
+	private static byte[] unwrap(String moduleName, byte[] value) throws IOException {
+		int offset = (value[0] & VERSIONED) == 0 ? 1 : 5;
+		Compression compression;
+		try {
+			compression = Compression.of(value[0] & COMPRESSION);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		int dictionary = 0;
+		if (compression == Compression.DICTIONARY) {
+			dictionary = ByteUtil.readInt(value, offset);
+			offset += 4;
+		}
+		byte[] bytes = new byte[value.length - offset];
+		System.arraycopy(value, offset, bytes, 0, bytes.length);
+		return CompressionService.decompress(moduleName, compression, dictionary, bytes);
+	}
+
+	/**
+	 * 获取元素的数据版本
+	 *
+	 * @param value 元素数据
+	 * @return 数据版本 没有记录版本时为0
+	 */
+	private static int getVersion(byte[] value) {
+		if ((value[0] & VERSIONED) == 0) {
+			return 0;
+		}
+		return ByteUtil.readInt(value, 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.keimons.platform.module;
+
+import com.keimons.platform.iface.IGameData;
+import com.keimons.platform.player.MigrationService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import com.keimons.platform.unit.ByteUtil;
+import com.keimons.platform.unit.CodeUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 模块数据信封读取
+ * <p>
+ * 读取{@link EnvelopeWriter}写入的数据。没有压缩的数据直接在原数组中解码每一个元素，不复制数据；压缩的
+ * 数据只解压一次。低于模块当前版本的元素需要复制后交给{@link MigrationService}升级。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class EnvelopeReader {
+
+	/**
+	 * 数据版本
+	 */
+	private final int version;
+
+	/**
+	 * 数据体所在的数组
+	 */
+	private byte[] bytes;
+
+	/**
+	 * 读取位置
+	 */
+	private int position;
+
+	/**
+	 * 数据体的结束位置
+	 */
+	private int limit;
+
+	/**
+	 * 解析信封的头部，解压数据体
+	 *
+	 * @param moduleName 模块名称
+	 * @param value      存储的数据
+	 * @throws IOException 数据错误
+	 */
+	public EnvelopeReader(String moduleName, byte[] value) throws IOException {
+		if (!isEnvelope(value)) {
+			throw new IOException("不是模块数据信封，模块：" + moduleName);
+		}
+		Compression compression;
+		try {
+			compression = Compression.of(value[1]);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		this.bytes = value;
+		this.position = 2;
+		this.limit = value.length;
+		this.version = readVarint();
+		int dictionary = 0;
+		if (compression == Compression.DICTIONARY) {
+			if (position + 4 > limit) {
+				throw new IOException("模块数据信封不完整，模块：" + moduleName);
+			}
+			dictionary = ByteUtil.readInt(value, position);
+			position += 4;
+		}
+		if (compression == Compression.NONE) {
+			return;
+		}
+		byte[] raw = CompressionService.decompress(moduleName, compression, dictionary, value, position, limit - position);
+		// 解压后的数据体代替原数组
+		this.bytes = raw;
+		this.position = 0;
+		this.limit = raw.length;
+	}
+
+	/**
+	 * 是否为{@link EnvelopeWriter}写入的数据
+	 *
+	 * @param value 存储的数据
+	 * @return {@code true}信封数据 {@code false}之前存储的{@link BytesModuleSerialize}
+	 */
+	public static boolean isEnvelope(byte[] value) {
+		return value.length >= 3 && value[0] == EnvelopeWriter.MAGIC;
+	}
+
+	/**
+	 * 反序列化所有元素
+	 *
+	 * @param clazz 数据类型
+	 * @param <V>   数据类型
+	 * @return 所有元素
+	 * @throws IOException 反序列化错误
+	 */
+	public <V extends IGameData> List<V> deserialize(Class<V> clazz) throws IOException {
+		List<V> elements = new ArrayList<>();
+		boolean outdated = isOutdated(clazz);
+		while (position < limit) {
+			int length = readVarint();
+			if (length < 0 || length > limit - position) {
+				throw new IOException("模块数据元素长度错误：" + length);
+			}
+			V data;
+			if (outdated) {
+				byte[] element = Arrays.copyOfRange(bytes, position, position + length);
+				data = CodeUtil.decode(clazz, MigrationService.upgrade(clazz, version, element));
+			} else {
+				data = CodeUtil.decode(clazz, bytes, position, length);
+			}
+			position += length;
+			if (data != null) {
+				elements.add(data);
+			}
+		}
+		return elements;
+	}
+
+	/**
+	 * 数据是否低于模块的当前版本
+	 * <p>
+	 * 低于当前版本的数据在反序列化时升级，加载后需要重新存储
+	 *
+	 * @param clazz 数据类型
+	 * @return 是否低于当前版本
+	 */
+	public boolean isOutdated(Class<?> clazz) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		return descriptor != null && version < descriptor.getVersion();
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (position >= limit) {
+				break;
+			}
+			byte b = bytes[position++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("模块数据变长整型错误");
+	}
+}
\ No newline at end of file
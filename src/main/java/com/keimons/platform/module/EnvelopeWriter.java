@@ -0,0 +1,149 @@
+package com.keimons.platform.module;
+
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.unit.ByteUtil;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 模块数据信封写入
+ * <p>
+ * {@link BytesModuleSerialize}将编码后的元素放入列表再编码一次，压缩后放入外层对象再编码一次，一个模块
+ * 需要三次编码和多次完整的复制。这里将元素直接写入一个可复用的缓冲区，压缩后加上头部，只在生成最终数据时
+ * 复制一次。
+ * <p>
+ * 数据格式：1字节{@link #MAGIC} + 1字节{@link Compression}的序号 + 变长整型的数据版本 + [4字节字典ID] +
+ * 数据体，使用字典压缩时记录字典ID。数据体压缩前是连续的元素，每个元素为变长整型的长度 + 元素数据。
+ * {@link #MAGIC}在ProtoBuf中是不存在的字段类型，不会与之前存储的{@link BytesModuleSerialize}混淆，
+ * 读取见{@link EnvelopeReader}。
+ * <p>
+ * 线程不安全，每个线程使用{@link #write(List, ModuleDescriptor)}中的缓冲区，或者自行创建。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class EnvelopeWriter {
+
+	/**
+	 * 信封的第一个字节
+	 */
+	public static final byte MAGIC = (byte) 0xFF;
+
+	/**
+	 * 头部的最大长度 数据体从这个位置开始写入
+	 */
+	private static final int HEADER = 1 + 1 + 5 + 4;
+
+	/**
+	 * 缓冲区的初始长度
+	 */
+	private static final int INITIAL_CAPACITY = 4 * 1024;
+
+	/**
+	 * 缓冲区超过这个长度时，写入完成后释放，避免每个线程长期持有一个大缓冲区
+	 */
+	private static final int RETAINED_CAPACITY = 1024 * 1024;
+
+	/**
+	 * 每个线程的写入器
+	 */
+	private static final ThreadLocal<EnvelopeWriter> writers = ThreadLocal.withInitial(EnvelopeWriter::new);
+
+	/**
+	 * 缓冲区
+	 */
+	private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+	/**
+	 * 写入位置
+	 */
+	private int position = HEADER;
+
+	/**
+	 * 使用当前线程的缓冲区写入模块数据
+	 *
+	 * @param elements   编码后的元素
+	 * @param descriptor 模块
+	 * @return 序列化后的数据
+	 * @throws IOException 压缩错误
+	 */
+	public static byte[] write(List<byte[]> elements, ModuleDescriptor descriptor) throws IOException {
+		EnvelopeWriter writer = writers.get();
+		try {
+			for (byte[] element : elements) {
+				writer.write(element);
+			}
+			return writer.finish(descriptor);
+		} finally {
+			writer.reset();
+		}
+	}
+
+	/**
+	 * 写入一个元素
+	 *
+	 * @param element 编码后的元素
+	 */
+	public void write(byte[] element) {
+		write(element, 0, element.length);
+	}
+
+	/**
+	 * 写入一个元素
+	 *
+	 * @param element 编码后的元素
+	 * @param offset  起始位置
+	 * @param length  长度
+	 */
+	public void write(byte[] element, int offset, int length) {
+		ensureCapacity(ByteUtil.varintSize(length) + length);
+		position = ByteUtil.writeVarint(buffer, position, length);
+		System.arraycopy(element, offset, buffer, position, length);
+		position += length;
+	}
+
+	/**
+	 * 压缩已经写入的元素，生成最终数据
+	 * <p>
+	 * 压缩方式由{@link CompressionService}根据数据大小选择
+	 *
+	 * @param descriptor 模块
+	 * @return 序列化后的数据
+	 * @throws IOException 压缩错误
+	 */
+	public byte[] finish(ModuleDescriptor descriptor) throws IOException {
+		CompressionService.Compressed compressed =
+				CompressionService.compress(descriptor, buffer, HEADER, position - HEADER);
+		Compression compression = compressed.getCompression();
+		int version = descriptor.getVersion();
+		int header = 2 + ByteUtil.varintSize(version) + (compression == Compression.DICTIONARY ? 4 : 0);
+		byte[] value = new byte[header + compressed.getLength()];
+		value[0] = MAGIC;
+		value[1] = (byte) compression.getId();
+		int offset = ByteUtil.writeVarint(value, 2, version);
+		if (compression == Compression.DICTIONARY) {
+			ByteUtil.writeInt(value, offset, compressed.getDictionary());
+		}
+		System.arraycopy(compressed.getBytes(), compressed.getOffset(), value, header, compressed.getLength());
+		return value;
+	}
+
+	/**
+	 * 清空已经写入的元素
+	 */
+	public void reset() {
+		position = HEADER;
+		if (buffer.length > RETAINED_CAPACITY) {
+			buffer = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+	private void ensureCapacity(int length) {
+		if (position + length > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+		}
+	}
+}
\ No newline at end of file
@@ -38,4 +38,28 @@ public interface IRepeatedModule<T extends IRepeatedPlayerData<?>> extends IModu
 	 * @return 数据
 	 */
 	T remove(Object dataId);
+
+	/**
+	 * 通过整数数据ID获取数据
+	 * <p>
+	 * 数据ID为整数的模块应该覆盖这个方法，避免装箱。默认实现按照{@link Long}查找。
+	 *
+	 * @param dataId 数据ID
+	 * @return 数据
+	 */
+	default T get(long dataId) {
+		return get((Object) dataId);
+	}
+
+	/**
+	 * 通过整数数据ID移除数据
+	 * <p>
+	 * 数据ID为整数的模块应该覆盖这个方法，避免装箱。默认实现按照{@link Long}查找。
+	 *
+	 * @param dataId 数据ID
+	 * @return 数据
+	 */
+	default T remove(long dataId) {
+		return remove((Object) dataId);
+	}
 }
\ No newline at end of file
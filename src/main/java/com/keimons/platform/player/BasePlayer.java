@@ -9,11 +9,14 @@ import com.keimons.platform.session.Session;
 import com.keimons.platform.unit.TimeUtil;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 /**
@@ -43,9 +46,17 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	private boolean loaded;
 
 	/**
-	 * 玩家数据 Key:数据名称 Value:数据
+	 * 没有任何模块的玩家共享的空数组
 	 */
-	protected final ConcurrentHashMap<String, IModule<? extends IPlayerData>> modules = new ConcurrentHashMap<>();
+	private static final IModule<?>[] EMPTY_MODULES = new IModule<?>[0];
+
+	/**
+	 * 玩家数据 下标:模块序号 Value:数据
+	 * <p>
+	 * 写时复制，读取模块不加锁，增加和移除模块时持有玩家的锁。增加和移除模块只发生在加载和第一次
+	 * 访问模块时，复制的代价可以忽略。
+	 */
+	private volatile IModule<?>[] modules = EMPTY_MODULES;
 
 	/**
 	 * 已经初始化过的模块名称
@@ -55,13 +66,18 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	 * <p>
 	 * 警告：如果模块已经初始化，再次初始化模块，会导致数据被覆盖。
 	 */
-	protected final CopyOnWriteArraySet<String> moduleNames = new CopyOnWriteArraySet<>();
+	protected final ModuleSet moduleNames = new ModuleSet();
 
 	/**
 	 * 最后活跃时间
 	 */
 	protected volatile long activeTime = TimeUtil.currentTimeMillis();
 
+	/**
+	 * 估算的内存占用 字节
+	 */
+	protected volatile long estimatedSize;
+
 	/**
 	 * 客户端-服务器会话
 	 * <p>
@@ -86,6 +102,27 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 
 	@Override
 	public void add(IPlayerData data) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(data.getClass());
+		if (descriptor == null) {
+			addData(data);
+			return;
+		}
+		// 向没有加载的模块中增加数据，存储时会覆盖数据库中的模块
+		if (lazyLoad(descriptor) == null) {
+			checkAbsent(descriptor);
+		}
+		addData(data);
+		markDirty(descriptor.getName());
+	}
+
+	/**
+	 * 增加一个模块数据，不检查模块是否已经加载
+	 * <p>
+	 * 用于加载时，将反序列化的数据放入玩家
+	 *
+	 * @param data 数据
+	 */
+	protected void addData(IPlayerData data) {
 		if (data instanceof ISingularPlayerData) {
 			addSingularData((ISingularPlayerData) data);
 		}
@@ -106,23 +143,21 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <V extends ISingularPlayerData> V get(Class<V> clazz) {
-		APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-		String moduleName = annotation.moduleName();
-		ISingularModule<?> module = (ISingularModule<?>) modules.get(moduleName);
-		if (module == null && !modules.containsKey(moduleName)) {
+		ModuleDescriptor descriptor = descriptor(clazz);
+		ISingularModule<?> module = (ISingularModule<?>) getModule(descriptor);
+		if (module == null) {
+			module = (ISingularModule<?>) lazyLoad(descriptor);
+		}
+		if (module == null) {
 			synchronized (this) {
-				if (!modules.containsKey(moduleName)) {
-					try {
-						ISingularPlayerData data = clazz.getDeclaredConstructor().newInstance();
-						data.init(this);
-						addSingularData(data);
-						moduleNames.add(moduleName);
-					} catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-						LogService.error(e);
+				if (getModule(descriptor) == null) {
+					checkAbsent(descriptor);
+					if (createSingularData(descriptor)) {
+						markDirty(descriptor.getName());
 					}
 				}
 			}
-			module = (ISingularModule<?>) modules.get(moduleName);
+			module = (ISingularModule<?>) getModule(descriptor);
 		}
 		if (module == null) {
 			return null;
@@ -130,6 +165,39 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 		return (V) module.get();
 	}
 
+	/**
+	 * 创建一个非重复的模块数据
+	 *
+	 * @param descriptor 模块
+	 * @return 是否创建成功
+	 */
+	protected boolean createSingularData(ModuleDescriptor descriptor) {
+		try {
+			ISingularPlayerData data = (ISingularPlayerData) descriptor.getType().getDeclaredConstructor().newInstance();
+			data.init(this);
+			addSingularData(data);
+			moduleNames.add(descriptor);
+			return true;
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+			LogService.error(e);
+			return false;
+		}
+	}
+
+	/**
+	 * 检查模块是否可以新建
+	 * <p>
+	 * 数据库中存在但是没有加载的模块不能新建，存储时空的模块会覆盖数据库中的数据
+	 *
+	 * @param descriptor 模块
+	 * @throws IllegalStateException 模块存在于数据库中，但是没有加载
+	 */
+	private void checkAbsent(ModuleDescriptor descriptor) {
+		if (moduleNames.contains(descriptor)) {
+			throw new IllegalStateException("玩家数据模块没有加载，玩家ID：" + identifier + "，模块：" + descriptor.getName());
+		}
+	}
+
 	/**
 	 * 获取玩家的一个模块
 	 *
@@ -141,13 +209,15 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <V extends IRepeatedPlayerData<?>> V get(Class<V> clazz, Object dataId) {
-		APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-		String moduleName = annotation.moduleName();
-		IRepeatedModule<?> module = (IRepeatedModule<?>) modules.get(moduleName);
-		if (module == null) {
-			return null;
-		}
-		return (V) module.get(dataId);
+		IRepeatedModule<?> module = getRepeatedModule(descriptor(clazz));
+		return module == null ? null : (V) module.get(dataId);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends IRepeatedPlayerData<?>> V get(Class<V> clazz, long dataId) {
+		IRepeatedModule<?> module = getRepeatedModule(descriptor(clazz));
+		return module == null ? null : (V) module.get(dataId);
 	}
 
 	/**
@@ -161,25 +231,210 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <V extends IRepeatedPlayerData<?>> V remove(Class<V> clazz, Object dataId) {
-		APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-		String moduleName = annotation.moduleName();
-		IRepeatedModule<?> module = (IRepeatedModule<?>) modules.get(moduleName);
-		return (V) module.remove(dataId);
+		ModuleDescriptor descriptor = descriptor(clazz);
+		IRepeatedModule<?> module = getRepeatedModule(descriptor);
+		if (module == null) {
+			return null;
+		}
+		V data = (V) module.remove(dataId);
+		if (data != null) {
+			markDirty(descriptor.getName());
+		}
+		return data;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V extends IRepeatedPlayerData<?>> V remove(Class<V> clazz, long dataId) {
+		ModuleDescriptor descriptor = descriptor(clazz);
+		IRepeatedModule<?> module = getRepeatedModule(descriptor);
+		if (module == null) {
+			return null;
+		}
+		V data = (V) module.remove(dataId);
+		if (data != null) {
+			markDirty(descriptor.getName());
+		}
+		return data;
+	}
+
+	/**
+	 * 获取可重复的模块，懒加载模式下加载还没有加载的模块
+	 *
+	 * @param descriptor 模块
+	 * @return 模块 没有这个模块时返回{@code null}
+	 */
+	private IRepeatedModule<?> getRepeatedModule(ModuleDescriptor descriptor) {
+		IRepeatedModule<?> module = (IRepeatedModule<?>) getModule(descriptor);
+		if (module == null) {
+			module = (IRepeatedModule<?>) lazyLoad(descriptor);
+		}
+		return module;
+	}
+
+	/**
+	 * 懒加载一个模块
+	 * <p>
+	 * 懒加载模式下，数据库中存在但是还没有加载的模块，在第一次访问时同步加载。调用线程需要等待
+	 * 数据库，经常访问的模块应该通过{@link #prefetch(Class[])}提前加载。
+	 * <p>
+	 * 加载失败时抛出异常，不能当作模块不存在处理，否则调用者新建的空模块会覆盖数据库中的数据。
+	 *
+	 * @param descriptor 模块
+	 * @return 模块 没有这个模块时返回{@code null}
+	 * @throws RuntimeException 加载失败
+	 */
+	@SuppressWarnings("unchecked")
+	protected IModule<? extends IPlayerData> lazyLoad(ModuleDescriptor descriptor) {
+		IModule<? extends IPlayerData> module = getModule(descriptor);
+		if (module != null || !PlayerManager.isLazy() || !moduleNames.contains(descriptor)) {
+			return module;
+		}
+		synchronized (this) {
+			if (getModule(descriptor) == null) {
+				load((Class<? extends IPlayerData>[]) new Class<?>[]{descriptor.getType()});
+			}
+		}
+		return getModule(descriptor);
+	}
+
+	@Override
+	@SafeVarargs
+	public final CompletableFuture<Void> prefetch(Class<? extends IPlayerData>... classes) {
+		List<Class<? extends IPlayerData>> missing = new ArrayList<>(classes.length);
+		for (Class<? extends IPlayerData> clazz : classes) {
+			ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+			if (descriptor != null && moduleNames.contains(descriptor) && getModule(descriptor) == null) {
+				missing.add(clazz);
+			}
+		}
+		if (missing.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		@SuppressWarnings("unchecked")
+		Class<? extends IPlayerData>[] array = missing.toArray((Class<? extends IPlayerData>[]) new Class<?>[0]);
+		if (this instanceof IAsyncPersistence) {
+			return ((IAsyncPersistence) this).loadAsync(array, PlayerLoader.getExecutor());
+		}
+		return CompletableFuture.runAsync(() -> load(array), PlayerLoader.getExecutor());
+	}
+
+	/**
+	 * 获取模块的描述
+	 *
+	 * @param clazz 数据类型
+	 * @return 描述
+	 * @throws IllegalArgumentException 数据类型没有{@link APlayerData}注解
+	 */
+	protected static ModuleDescriptor descriptor(Class<?> clazz) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		if (descriptor == null) {
+			throw new IllegalArgumentException("玩家数据模块缺少注解：" + clazz.getName());
+		}
+		return descriptor;
 	}
 
 	/**
 	 * 获取数据模块
 	 *
-	 * @param moduleName 模块名字
+	 * @param descriptor 模块
+	 * @return 模块 没有这个模块时返回{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	protected IModule<? extends IPlayerData> getModule(ModuleDescriptor descriptor) {
+		IModule<?>[] modules = this.modules;
+		int ordinal = descriptor.getOrdinal();
+		return ordinal < modules.length ? (IModule<? extends IPlayerData>) modules[ordinal] : null;
+	}
+
+	/**
+	 * 获取数据模块
+	 *
+	 * @param moduleName 模块名称
+	 * @return 模块 没有这个模块时返回{@code null}
+	 */
+	protected IModule<? extends IPlayerData> getModule(String moduleName) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+		return descriptor == null ? null : getModule(descriptor);
+	}
+
+	/**
+	 * 获取数据模块，没有这个模块时创建
+	 *
+	 * @param descriptor 模块
 	 * @param function   新建模块
 	 * @param <V>        模块类型
 	 * @return 模块
 	 */
 	@SuppressWarnings("unchecked")
 	protected <V extends IModule<? extends IPlayerData>> V computeIfAbsent(
-			String moduleName, Function<String, V> function) {
+			ModuleDescriptor descriptor, Function<ModuleDescriptor, V> function) {
 		Objects.requireNonNull(function);
-		return (V) modules.computeIfAbsent(moduleName, function);
+		IModule<? extends IPlayerData> module = getModule(descriptor);
+		if (module != null) {
+			return (V) module;
+		}
+		synchronized (this) {
+			module = getModule(descriptor);
+			if (module == null) {
+				module = function.apply(descriptor);
+				int ordinal = descriptor.getOrdinal();
+				// 数组的长度按照注册的模块数量分配，之后注册的模块再扩大
+				IModule<?>[] modules = Arrays.copyOf(this.modules, Math.max(this.modules.length,
+						Math.max(ordinal + 1, ModuleRegistry.size())));
+				modules[ordinal] = module;
+				this.modules = modules;
+			}
+			return (V) module;
+		}
+	}
+
+	/**
+	 * 获取数据模块，没有这个模块时创建
+	 *
+	 * @param moduleName 模块名字
+	 * @param function   新建模块
+	 * @param <V>        模块类型
+	 * @return 模块
+	 */
+	protected <V extends IModule<? extends IPlayerData>> V computeIfAbsent(
+			String moduleName, Function<String, V> function) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+		if (descriptor == null) {
+			throw new IllegalArgumentException("玩家数据模块没有注册：" + moduleName);
+		}
+		return computeIfAbsent(descriptor, v -> function.apply(moduleName));
+	}
+
+	/**
+	 * 移除数据模块
+	 *
+	 * @param descriptor 模块
+	 * @return 移除的模块 没有这个模块时返回{@code null}
+	 */
+	protected synchronized IModule<? extends IPlayerData> removeModule(ModuleDescriptor descriptor) {
+		IModule<? extends IPlayerData> module = getModule(descriptor);
+		if (module != null) {
+			IModule<?>[] modules = this.modules.clone();
+			modules[descriptor.getOrdinal()] = null;
+			this.modules = modules;
+		}
+		return module;
+	}
+
+	/**
+	 * 按照序号遍历所有模块
+	 *
+	 * @param action 执行的操作
+	 */
+	@SuppressWarnings("unchecked")
+	protected void forEachModule(BiConsumer<ModuleDescriptor, IModule<? extends IPlayerData>> action) {
+		IModule<?>[] modules = this.modules;
+		for (int i = 0; i < modules.length; i++) {
+			if (modules[i] != null) {
+				action.accept(ModuleRegistry.get(i), (IModule<? extends IPlayerData>) modules[i]);
+			}
+		}
 	}
 
 	/**
@@ -199,11 +454,8 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	@Override
 	public boolean hasModules(Class<? extends IPlayerData>[] classes) {
 		for (Class<? extends IPlayerData> clazz : classes) {
-			APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-			if (annotation == null) {
-				return false;
-			}
-			if (!modules.containsKey(annotation.moduleName())) {
+			ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+			if (descriptor == null || getModule(descriptor) == null) {
 				return false;
 			}
 		}
@@ -212,19 +464,28 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 
 	@Override
 	public void clearIfNot(Class<? extends IPlayerData>[] classes) {
-		Set<String> moduleNames = new HashSet<>(classes.length);
+		Set<ModuleDescriptor> retains = new HashSet<>(classes.length);
 		for (Class<? extends IPlayerData> clazz : classes) {
-			APlayerData annotation = clazz.getAnnotation(APlayerData.class);
-			if (annotation == null) {
-				continue;
+			ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+			if (descriptor != null) {
+				retains.add(descriptor);
 			}
-			moduleNames.add(annotation.moduleName());
 		}
-		for (String moduleName : modules.keySet()) {
-			if (!moduleNames.contains(moduleName)) {
-				modules.remove(moduleName);
+		forEachModule((descriptor, module) -> {
+			if (!retains.contains(descriptor)) {
+				removeModule(descriptor);
 			}
-		}
+		});
+	}
+
+	@Override
+	public void markDirty(Class<? extends IPlayerData> clazz) {
+		markDirty(descriptor(clazz).getName());
+	}
+
+	@Override
+	public void markDirty(String moduleName) {
+		PersistenceService.markDirty(this, moduleName);
 	}
 
 	@Override
@@ -261,4 +522,9 @@ public abstract class BasePlayer<T> implements IPlayer<T> {
 	public long getActiveTime() {
 		return activeTime;
 	}
+
+	@Override
+	public long getEstimatedSize() {
+		return estimatedSize;
+	}
 }
\ No newline at end of file
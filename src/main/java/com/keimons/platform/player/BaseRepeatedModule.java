@@ -1,37 +1,144 @@
 package com.keimons.platform.player;
 
 import com.keimons.platform.module.IRepeatedModule;
+import com.keimons.platform.unit.LongObjectMap;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 可重复的数据实现
+ * <p>
+ * 数据ID为整数（{@code int}、{@code long}、{@code short}、{@code byte}）的元素存储在{@link LongObjectMap}中，
+ * 不装箱键，也没有节点对象；其他类型的数据ID存储在{@link HashMap}中。两个集合都在第一次使用时创建。
+ * 不同整数类型的相同数值视为同一个数据ID。
+ * <p>
+ * 模块不加锁，只能在玩家所在的线程中访问。玩家的消息在会话中串行执行，其他线程需要读取模块时，通过
+ * {@link SnapshotService#capture}在玩家的安全点生成快照，{@link #toCollection()}返回元素的副本。
+ * 模块的锁只保护{@link #fingerprints}，按元素增量存储时，存储线程在写入成功后更新指纹。
+ * <p>
+ * 数据ID的类型为{@code int}或{@code long}的模块，注册时选择{@link LongRepeatedModule}。
  *
  * @author monkey1993
  * @version 1.0
  **/
 public abstract class BaseRepeatedModule<T extends IRepeatedPlayerData<?>> implements IRepeatedModule<T> {
 
-	protected ConcurrentHashMap<Object, T> repeated = new ConcurrentHashMap<>();
+	/**
+	 * 数据ID为整数的元素 Key:数据ID Value:数据
+	 */
+	protected LongObjectMap<T> primitives;
+
+	/**
+	 * 数据ID不是整数的元素 Key:数据ID Value:数据
+	 */
+	private Map<Object, T> objects;
+
+	/**
+	 * 上次存储时所有元素的指纹 Key:数据ID Value:指纹
+	 * <p>
+	 * 按元素增量存储时使用，仅在持有模块的锁时访问，第一次访问时创建
+	 */
+	protected Map<Object, Long> fingerprints;
 
 	@Override
 	public void add(T data) {
-		repeated.put(data.getDataId(), data);
+		Object dataId = data.getDataId();
+		if (isIntegral(dataId)) {
+			if (primitives == null) {
+				primitives = new LongObjectMap<>();
+			}
+			primitives.put(((Number) dataId).longValue(), data);
+		} else {
+			if (objects == null) {
+				objects = new HashMap<>();
+			}
+			objects.put(dataId, data);
+		}
 	}
 
 	@Override
 	public T get(Object dataId) {
-		return repeated.get(dataId);
+		if (isIntegral(dataId)) {
+			return primitives == null ? null : primitives.get(((Number) dataId).longValue());
+		}
+		return objects == null ? null : objects.get(dataId);
 	}
 
 	@Override
 	public T remove(Object dataId) {
-		return repeated.remove(dataId);
+		if (isIntegral(dataId)) {
+			return primitives == null ? null : primitives.remove(((Number) dataId).longValue());
+		}
+		return objects == null ? null : objects.remove(dataId);
+	}
+
+	@Override
+	public T get(long dataId) {
+		return primitives == null ? null : primitives.get(dataId);
+	}
+
+	@Override
+	public T remove(long dataId) {
+		return primitives == null ? null : primitives.remove(dataId);
 	}
 
+	/**
+	 * 获取模块中所有数据的快照
+	 *
+	 * @return 模块所有数据
+	 */
 	@Override
 	public Collection<T> toCollection() {
-		return repeated.values();
+		int size = size();
+		if (size == 0) {
+			return Collections.emptyList();
+		}
+		List<T> result = new ArrayList<>(size);
+		if (primitives != null) {
+			primitives.forEach(result::add);
+		}
+		if (objects != null) {
+			result.addAll(objects.values());
+		}
+		return result;
+	}
+
+	/**
+	 * 获取元素数量
+	 *
+	 * @return 元素数量
+	 */
+	public int size() {
+		return (primitives == null ? 0 : primitives.size()) + (objects == null ? 0 : objects.size());
+	}
+
+	/**
+	 * 获取上次存储时所有元素的指纹
+	 * <p>
+	 * 调用者需要持有模块的锁
+	 *
+	 * @return 指纹 Key:数据ID Value:指纹
+	 */
+	public Map<Object, Long> getFingerprints() {
+		if (fingerprints == null) {
+			fingerprints = new HashMap<>();
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * 数据ID是否为整数
+	 *
+	 * @param dataId 数据ID
+	 * @return 是否为整数
+	 */
+	static boolean isIntegral(Object dataId) {
+		return dataId instanceof Integer || dataId instanceof Long ||
+				dataId instanceof Short || dataId instanceof Byte;
 	}
 }
\ No newline at end of file
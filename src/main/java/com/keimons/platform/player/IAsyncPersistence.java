@@ -0,0 +1,28 @@
+package com.keimons.platform.player;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * 异步加载
+ * <p>
+ * 通过数据库的异步接口读取玩家数据，等待网络的过程中不占用任何线程，读取完成后在{@code executor}
+ * 中反序列化。没有实现这个接口的玩家，依然在加载线程中通过{@link IPersistence#load(Class[])}加载。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface IAsyncPersistence {
+
+	/**
+	 * 异步加载
+	 * <p>
+	 * 加载失败时，返回的结果以异常完成
+	 *
+	 * @param classes  要加载的数据模块
+	 * @param executor 反序列化线程
+	 * @return 加载完成
+	 */
+	CompletableFuture<Void> loadAsync(Class<? extends IPlayerData>[] classes, Executor executor);
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.BatchWriter;
+import com.keimons.platform.datebase.MapWrite;
+
+import java.util.List;
+
+/**
+ * 批量持久化
+ * <p>
+ * 将玩家数据序列化为写入操作，但是不立即执行，由{@link BatchWriter}将大量玩家的写入合并到管道中
+ * 批量执行。没有实现这个接口的玩家，依然通过{@link IPersistence#save(boolean)}逐个存储。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface IBatchPersistence {
+
+	/**
+	 * 序列化为写入操作
+	 *
+	 * @param coercive 是否强制存储
+	 * @return 写入操作
+	 */
+	List<MapWrite> serialize(boolean coercive);
+}
\ No newline at end of file
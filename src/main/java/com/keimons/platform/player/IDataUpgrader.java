@@ -0,0 +1,29 @@
+package com.keimons.platform.player;
+
+import java.io.IOException;
+
+/**
+ * 数据升级
+ * <p>
+ * 将一个数据从版本{@code N}升级到版本{@code N + 1}。升级在二进制上进行，升级前的数据按照版本{@code N}的
+ * 结构编码，升级后的数据按照版本{@code N + 1}的结构编码，通常的做法是使用旧版本的类解码，转换为新版本的
+ * 类之后再编码（见{@link MigrationService#register(Class, int, Class, java.util.function.Function)}）。
+ * <p>
+ * 可重复的数据中，每一个元素单独升级。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+@FunctionalInterface
+public interface IDataUpgrader {
+
+	/**
+	 * 升级一个数据
+	 *
+	 * @param bytes 版本{@code N}的数据
+	 * @return 版本{@code N + 1}的数据
+	 * @throws IOException 编码解码错误
+	 */
+	byte[] upgrade(byte[] bytes) throws IOException;
+}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.keimons.platform.player;
 
+import java.util.Set;
+
 /**
  * 数据持久化方案
  * <p>
@@ -21,6 +23,16 @@ public interface IPersistence<T> {
 	 */
 	void save(boolean coercive);
 
+	/**
+	 * 存储部分模块
+	 * <p>
+	 * 只对指定的数据模块进行存储，不再比对模块是否发生变化。用于{@link PersistenceService}
+	 * 写入被标记为脏数据的模块，存储失败时应该抛出异常，以便重新写入。
+	 *
+	 * @param moduleNames 要存储的模块名称
+	 */
+	void save(Set<String> moduleNames);
+
 	/**
 	 * 加载
 	 *
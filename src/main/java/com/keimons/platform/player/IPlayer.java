@@ -2,6 +2,8 @@ package com.keimons.platform.player;
 
 import com.keimons.platform.session.Session;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 玩家的接口
  *
@@ -50,6 +52,18 @@ public interface IPlayer<T> extends IPersistence<T> {
 	@SuppressWarnings("unchecked")
 	void clearIfNot(Class<? extends IPlayerData>... classes);
 
+	/**
+	 * 预加载模块
+	 * <p>
+	 * 懒加载模式下，模块在第一次访问时同步加载。在访问之前调用这个方法异步加载，访问时不再等待
+	 * 数据库。已经加载的模块和数据库中不存在的模块会被忽略。
+	 *
+	 * @param classes 模块
+	 * @return 加载完成
+	 */
+	@SuppressWarnings("unchecked")
+	CompletableFuture<Void> prefetch(Class<? extends IPlayerData>... classes);
+
 	/**
 	 * 增加一个模块数据
 	 *
@@ -86,6 +100,53 @@ public interface IPlayer<T> extends IPersistence<T> {
 	 */
 	<V extends IRepeatedPlayerData<?>> V remove(Class<V> clazz, Object dataId);
 
+	/**
+	 * 通过整数数据ID获取玩家的一个数据
+	 * <p>
+	 * 数据ID为{@code int}或{@code long}的模块不装箱数据ID
+	 *
+	 * @param clazz  模块
+	 * @param dataId 唯一ID
+	 * @param <V>    模块类型
+	 * @return 模块
+	 */
+	<V extends IRepeatedPlayerData<?>> V get(Class<V> clazz, long dataId);
+
+	/**
+	 * 通过整数数据ID移除玩家的一个数据
+	 * <p>
+	 * 数据ID为{@code int}或{@code long}的模块不装箱数据ID
+	 *
+	 * @param clazz  模块
+	 * @param dataId 唯一ID
+	 * @param <V>    模块类型
+	 * @return 模块
+	 */
+	<V extends IRepeatedPlayerData<?>> V remove(Class<V> clazz, long dataId);
+
+	/**
+	 * 标记一个模块为脏数据
+	 * <p>
+	 * 玩家数据发生变化后调用，由{@link PersistenceService}延迟写入数据库
+	 * <p>
+	 * 注意：只有增加、删除元素和第一次创建模块会自动标记，直接修改数据中的字段不会被发现。
+	 * 默认的数据实现在修改方法中调用{@code modify()}时自动标记，其他修改必须调用这个方法，
+	 * 否则修改只在停服或者检查点的全量存储时写入，进程异常退出时丢失。
+	 *
+	 * @param clazz 模块
+	 */
+	void markDirty(Class<? extends IPlayerData> clazz);
+
+	/**
+	 * 标记一个模块为脏数据
+	 * <p>
+	 * 玩家数据发生变化后调用，由{@link PersistenceService}延迟写入数据库
+	 *
+	 * @param moduleName 模块名称
+	 * @see #markDirty(Class)
+	 */
+	void markDirty(String moduleName);
+
 	/**
 	 * 设置是否已加载
 	 *
@@ -127,4 +188,13 @@ public interface IPlayer<T> extends IPersistence<T> {
 	 * @return 活跃时间
 	 */
 	long getActiveTime();
+
+	/**
+	 * 获取估算的内存占用
+	 * <p>
+	 * 用于{@link PlayerCache}按照内存预算淘汰玩家，返回0则不计入内存预算
+	 *
+	 * @return 估算的内存占用 字节
+	 */
+	long getEstimatedSize();
 }
\ No newline at end of file
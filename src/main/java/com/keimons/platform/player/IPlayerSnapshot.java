@@ -0,0 +1,32 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.MapWrite;
+
+import java.util.List;
+
+/**
+ * 玩家数据快照
+ * <p>
+ * 在玩家的安全点生成，生成之后不再读取玩家的数据对象，可以在任意线程中序列化为写入操作。
+ * 压缩、合并模块数据、对比指纹等耗时的工作都在{@link #serialize()}中完成。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface IPlayerSnapshot {
+
+	/**
+	 * 获取玩家唯一标识
+	 *
+	 * @return 玩家唯一标识
+	 */
+	Object getIdentifier();
+
+	/**
+	 * 序列化为写入操作
+	 *
+	 * @return 写入操作
+	 */
+	List<MapWrite> serialize();
+}
\ No newline at end of file
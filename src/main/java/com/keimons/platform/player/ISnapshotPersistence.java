@@ -0,0 +1,37 @@
+package com.keimons.platform.player;
+
+import java.util.Set;
+
+/**
+ * 快照持久化
+ * <p>
+ * 存储分为两步：在玩家的安全点生成不可变的快照，再由存储线程序列化快照并写入数据库。生成快照时
+ * 只编码数据对象，这是唯一需要和业务线程互斥的步骤；压缩和数据库的读写不占用业务线程，存储线程
+ * 也不会读到正在被修改的数据。安全点由{@link SnapshotService}选择。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public interface ISnapshotPersistence {
+
+	/**
+	 * 生成所有模块的快照
+	 * <p>
+	 * 调用者需要保证此时没有线程在修改玩家数据
+	 *
+	 * @param coercive 是否强制存储
+	 * @return 快照
+	 */
+	IPlayerSnapshot snapshot(boolean coercive);
+
+	/**
+	 * 生成部分模块的快照
+	 * <p>
+	 * 调用者需要保证此时没有线程在修改玩家数据
+	 *
+	 * @param moduleNames 模块名称
+	 * @return 快照
+	 */
+	IPlayerSnapshot snapshot(Set<String> moduleNames);
+}
\ No newline at end of file
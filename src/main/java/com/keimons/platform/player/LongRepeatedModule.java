@@ -0,0 +1,50 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.unit.LongObjectMap;
+
+/**
+ * 数据ID为整数的可重复模块
+ * <p>
+ * 注册时从{@link com.keimons.platform.iface.IRepeatedGameData}的泛型参数解析出数据ID为{@code int}或
+ * {@code long}的模块使用这个实现。所有元素存储在{@link LongObjectMap}中，通过{@link #get(long)}和
+ * {@link #remove(long)}访问时不装箱数据ID，也不需要判断数据ID的类型。{@code int}类型的数据ID扩展为
+ * {@code long}存储。
+ * <p>
+ * 和{@link BaseRepeatedModule}一样，只能在玩家所在的线程中访问，不加锁。
+ *
+ * @param <T> 数据类型
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class LongRepeatedModule<T extends IRepeatedPlayerData<?>> extends BaseRepeatedModule<T> {
+
+	public LongRepeatedModule() {
+		primitives = new LongObjectMap<>();
+	}
+
+	@Override
+	public void add(T data) {
+		primitives.put(((Number) data.getDataId()).longValue(), data);
+	}
+
+	@Override
+	public T get(Object dataId) {
+		return isIntegral(dataId) ? get(((Number) dataId).longValue()) : null;
+	}
+
+	@Override
+	public T remove(Object dataId) {
+		return isIntegral(dataId) ? remove(((Number) dataId).longValue()) : null;
+	}
+
+	@Override
+	public T get(long dataId) {
+		return primitives.get(dataId);
+	}
+
+	@Override
+	public T remove(long dataId) {
+		return primitives.remove(dataId);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,364 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.exception.ModuleException;
+import com.keimons.platform.iface.ISerializable;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.module.ElementModuleSerialize;
+import com.keimons.platform.unit.CodeUtil;
+import com.keimons.platform.unit.TimeUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 玩家数据迁移服务
+ * <p>
+ * 模块的数据版本通过{@link com.keimons.platform.annotation.APlayerData#version()}声明，存储时随数据
+ * 写入数据库。数据结构发生不兼容的变化时，增加模块的版本，并注册从上一个版本升级的{@link IDataUpgrader}。
+ * <p>
+ * 迁移是懒惰的：玩家加载时，低于当前版本的数据在反序列化之前逐个版本升级，升级过的模块通过
+ * {@link PersistenceService}在后台重新存储，不需要停服重写整个数据库。没有注册升级方法的版本视为
+ * 兼容的变化，数据不做修改，只在重新存储时更新版本。
+ * <p>
+ * 需要在新版本上线前完成迁移时，使用{@link #migrateAll(String, Function, int)}离线迁移所有玩家。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class MigrationService {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "migration";
+
+	/**
+	 * 离线迁移时每个线程最多同时迁移的玩家数量
+	 */
+	private static final int INFLIGHT = 8;
+
+	/**
+	 * 离线迁移的进度打印间隔 玩家数量
+	 */
+	private static final int PROGRESS = 10000;
+
+	/**
+	 * 所有模块的升级方法 Key:数据类型 Value:下标为升级前的版本
+	 */
+	private static final Map<Class<?>, IDataUpgrader[]> upgraders = new ConcurrentHashMap<>();
+
+	/**
+	 * 离线迁移中的玩家 Key:玩家唯一标识 Value:升级过的模块
+	 */
+	private static final Map<Object, Set<String>> offline = new ConcurrentHashMap<>();
+
+	/**
+	 * 升级的数据数量
+	 */
+	private static final LongAdder upgrades = new LongAdder();
+
+	/**
+	 * 升级的玩家数量
+	 */
+	private static final LongAdder players = new LongAdder();
+
+	/**
+	 * 注册升级方法
+	 *
+	 * @param clazz    数据类型
+	 * @param version  升级前的版本 升级后为{@code version + 1}
+	 * @param upgrader 升级方法
+	 */
+	public static synchronized void register(Class<? extends IPlayerData> clazz, int version, IDataUpgrader upgrader) {
+		if (version < 0) {
+			throw new ModuleException("数据版本不能为负数：" + clazz.getName() + "，版本：" + version);
+		}
+		IDataUpgrader[] array = upgraders.getOrDefault(clazz, new IDataUpgrader[0]);
+		if (version < array.length && array[version] != null) {
+			throw new ModuleException("重复注册升级方法：" + clazz.getName() + "，版本：" + version);
+		}
+		array = Arrays.copyOf(array, Math.max(array.length, version + 1));
+		array[version] = upgrader;
+		upgraders.put(clazz, array);
+	}
+
+	/**
+	 * 注册升级方法
+	 * <p>
+	 * 使用版本{@code version}的类解码数据，转换为版本{@code version + 1}的类之后再编码
+	 *
+	 * @param clazz     数据类型
+	 * @param version   升级前的版本 升级后为{@code version + 1}
+	 * @param previous  升级前的类
+	 * @param converter 转换方法 返回升级后的类
+	 * @param <O>       升级前的类型
+	 */
+	public static <O extends ISerializable> void register(Class<? extends IPlayerData> clazz, int version,
+														  Class<O> previous, Function<O, ? extends ISerializable> converter) {
+		register(clazz, version, bytes -> CodeUtil.encode(converter.apply(CodeUtil.decode(previous, bytes))));
+	}
+
+	/**
+	 * 将数据升级到模块的当前版本
+	 *
+	 * @param clazz   数据类型
+	 * @param version 数据的版本
+	 * @param bytes   数据
+	 * @return 当前版本的数据
+	 * @throws IOException 编码解码错误
+	 */
+	public static byte[] upgrade(Class<?> clazz, int version, byte[] bytes) throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		int current = descriptor == null ? 0 : descriptor.getVersion();
+		IDataUpgrader[] array = upgraders.get(clazz);
+		for (int i = version; i < current; i++) {
+			if (array != null && i < array.length && array[i] != null) {
+				bytes = array[i].upgrade(bytes);
+			}
+		}
+		upgrades.increment();
+		return bytes;
+	}
+
+	/**
+	 * 玩家加载时升级了一些模块
+	 * <p>
+	 * 标记为脏数据，在后台重新存储。离线迁移中的玩家由迁移线程存储。
+	 *
+	 * @param player      玩家
+	 * @param moduleNames 升级过的模块
+	 */
+	public static void migrated(IPlayer<?> player, Set<String> moduleNames) {
+		players.increment();
+		Set<String> migrated = offline.get(player.getIdentifier());
+		if (migrated != null) {
+			migrated.addAll(moduleNames);
+			return;
+		}
+		for (String moduleName : moduleNames) {
+			player.markDirty(moduleName);
+		}
+	}
+
+	/**
+	 * 离线迁移所有玩家
+	 * <p>
+	 * 通过{@link IPlayerStore#keys(String)}遍历存储中所有匹配{@code pattern}的键，每一个键作为一个玩家加载
+	 * 所有已经注册的模块，只存储升级过的模块。键的遍历不会阻塞存储，加载和存储在{@code workers}个线程中并行执行。
+	 * 按元素增量存储的哈希桶和内存中的玩家会被跳过，内存中的玩家在存储时写入新版本。
+	 * <p>
+	 * 注意：{@code pattern}应该只匹配玩家数据，无法加载的键记录在{@link MigrationReport#getFailed()}中。
+	 *
+	 * @param pattern 玩家数据的键
+	 * @param create  创建玩家
+	 * @param workers 线程数量
+	 * @return 迁移结果
+	 */
+	@SuppressWarnings("unchecked")
+	public static MigrationReport migrateAll(String pattern, Function<String, ? extends IPlayer<?>> create, int workers) {
+		IPlayerStore store = StoreManager.getStore();
+		if (!store.hasCapability(IPlayerStore.Capability.SCAN)) {
+			throw new ModuleException("存储不支持遍历，无法离线迁移：" + store);
+		}
+		long startTime = TimeUtil.currentTimeMillis();
+		Class<? extends IPlayerData>[] modules = (Class<? extends IPlayerData>[]) new Class<?>[ModuleRegistry.size()];
+		for (int i = 0; i < modules.length; i++) {
+			modules[i] = ModuleRegistry.get(i).getType();
+		}
+		MigrationReport report = new MigrationReport();
+		AtomicInteger index = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-MIGRATION-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		int permits = workers * INFLIGHT;
+		Semaphore inflight = new Semaphore(permits);
+		try {
+			for (String key : store.keys(pattern)) {
+				if (isElementKey(key) || PlayerManager.isCached(key)) {
+					report.skipped.incrementAndGet();
+					continue;
+				}
+				inflight.acquireUninterruptibly();
+				migrate(key, create, modules, executor, report).whenComplete((v, e) -> inflight.release());
+				if (report.scanned.incrementAndGet() % PROGRESS == 0) {
+					LogService.log(LOG_NAME, "迁移进度：" + report);
+				}
+			}
+			// 等待所有迁移中的玩家完成
+			inflight.acquireUninterruptibly(permits);
+		} finally {
+			executor.shutdown();
+		}
+		report.elapsed = TimeUtil.currentTimeMillis() - startTime;
+		LogService.log(LOG_NAME, "迁移完成：" + report);
+		return report;
+	}
+
+	/**
+	 * 迁移一个玩家
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @param create     创建玩家
+	 * @param modules    所有模块
+	 * @param executor   反序列化和存储线程
+	 * @param report     迁移结果
+	 * @return 迁移完成
+	 */
+	private static CompletableFuture<Void> migrate(String identifier, Function<String, ? extends IPlayer<?>> create,
+												   Class<? extends IPlayerData>[] modules, ExecutorService executor,
+												   MigrationReport report) {
+		Set<String> migrated = ConcurrentHashMap.newKeySet();
+		offline.put(identifier, migrated);
+		CompletableFuture<Void> future;
+		try {
+			IPlayer<?> player = create.apply(identifier);
+			CompletableFuture<Void> loading;
+			if (player instanceof IAsyncPersistence) {
+				loading = ((IAsyncPersistence) player).loadAsync(modules, executor);
+			} else {
+				loading = CompletableFuture.runAsync(() -> player.load(modules), executor);
+			}
+			future = loading.thenRunAsync(() -> {
+				if (!migrated.isEmpty()) {
+					player.save(migrated);
+					report.migrated.incrementAndGet();
+				}
+			}, executor);
+		} catch (RuntimeException e) {
+			future = new CompletableFuture<>();
+			future.completeExceptionally(e);
+		}
+		return future.whenComplete((v, e) -> {
+			offline.remove(identifier);
+			if (e != null) {
+				report.failed.add(identifier);
+				LogService.error(e, "玩家数据迁移失败，玩家ID：" + identifier);
+			}
+		});
+	}
+
+	/**
+	 * 是否为按元素增量存储的哈希桶
+	 *
+	 * @param key 键
+	 * @return 是否为哈希桶
+	 * @see ElementModuleSerialize#getKey(Object, String)
+	 */
+	static boolean isElementKey(String key) {
+		int index = key.lastIndexOf(':');
+		if (index <= 0) {
+			return false;
+		}
+		ModuleDescriptor descriptor = ModuleRegistry.get(key.substring(index + 1));
+		return descriptor != null && descriptor.isIncremental();
+	}
+
+	/**
+	 * 获取升级的数据数量
+	 *
+	 * @return 数据数量
+	 */
+	public static long getUpgrades() {
+		return upgrades.sum();
+	}
+
+	/**
+	 * 获取升级的玩家数量
+	 *
+	 * @return 玩家数量
+	 */
+	public static long getPlayers() {
+		return players.sum();
+	}
+
+	/**
+	 * 打印迁移统计
+	 */
+	public static void dump() {
+		LogService.log(LOG_NAME, "upgrades=" + getUpgrades() + ", players=" + getPlayers());
+	}
+
+	/**
+	 * 离线迁移的结果
+	 */
+	public static class MigrationReport {
+
+		/**
+		 * 扫描的玩家数量
+		 */
+		private final AtomicInteger scanned = new AtomicInteger();
+
+		/**
+		 * 跳过的键数量
+		 */
+		private final AtomicInteger skipped = new AtomicInteger();
+
+		/**
+		 * 升级并重新存储的玩家数量
+		 */
+		private final AtomicInteger migrated = new AtomicInteger();
+
+		/**
+		 * 迁移失败的玩家
+		 */
+		private final List<Object> failed = Collections.synchronizedList(new ArrayList<>());
+
+		/**
+		 * 耗时 毫秒
+		 */
+		private long elapsed;
+
+		/**
+		 * 是否所有玩家都迁移成功
+		 *
+		 * @return {@code true}所有玩家都迁移成功
+		 */
+		public boolean isSuccess() {
+			return failed.isEmpty();
+		}
+
+		public int getScanned() {
+			return scanned.get();
+		}
+
+		public int getSkipped() {
+			return skipped.get();
+		}
+
+		public int getMigrated() {
+			return migrated.get();
+		}
+
+		public List<Object> getFailed() {
+			return failed;
+		}
+
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		@Override
+		public String toString() {
+			return "scanned=" + scanned + ", skipped=" + skipped + ", migrated=" + migrated +
+					", failed=" + failed.size() + ", elapsed=" + elapsed + "ms";
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,183 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.iface.IRepeatedGameData;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 玩家数据模块的描述
+ * <p>
+ * 模块的注解在注册时解析一次，之后访问模块不再读取注解。每个模块分配一个从0开始的连续序号，
+ * 玩家按照序号在数组中存储模块。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public final class ModuleDescriptor {
+
+	/**
+	 * 模块序号
+	 */
+	private final int ordinal;
+
+	/**
+	 * 模块名称
+	 */
+	private final String name;
+
+	/**
+	 * 模块名称的UTF-8编码 数据库中的字段名称
+	 */
+	private final byte[] nameBytes;
+
+	/**
+	 * 数据类型
+	 */
+	private final Class<? extends IPlayerData> type;
+
+	/**
+	 * 是否可重复
+	 */
+	private final boolean repeated;
+
+	/**
+	 * 数据ID的类型 非重复的模块或者无法解析泛型参数时为{@code null}
+	 */
+	private final Class<?> dataIdType;
+
+	/**
+	 * 是否压缩
+	 */
+	private final boolean compress;
+
+	/**
+	 * 是否按元素增量存储
+	 */
+	private final boolean incremental;
+
+	/**
+	 * 数据版本
+	 */
+	private final int version;
+
+	ModuleDescriptor(int ordinal, Class<? extends IPlayerData> type, APlayerData annotation) {
+		this.ordinal = ordinal;
+		this.name = annotation.moduleName();
+		this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		this.type = type;
+		this.repeated = IRepeatedPlayerData.class.isAssignableFrom(type);
+		this.dataIdType = repeated ? resolveDataIdType(type, Collections.emptyMap()) : null;
+		this.compress = annotation.isCompress();
+		this.incremental = repeated && annotation.isIncremental();
+		this.version = annotation.version();
+	}
+
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 获取模块名称的UTF-8编码
+	 * <p>
+	 * 返回的是共享的数组，不能修改
+	 *
+	 * @return 模块名称的UTF-8编码
+	 */
+	public byte[] getNameBytes() {
+		return nameBytes;
+	}
+
+	public Class<? extends IPlayerData> getType() {
+		return type;
+	}
+
+	public boolean isRepeated() {
+		return repeated;
+	}
+
+	public Class<?> getDataIdType() {
+		return dataIdType;
+	}
+
+	/**
+	 * 数据ID是否为整数
+	 * <p>
+	 * 数据ID为{@code int}或{@code long}的可重复模块使用{@link LongRepeatedModule}存储
+	 *
+	 * @return 是否为整数
+	 */
+	public boolean isLongKey() {
+		return dataIdType == Integer.class || dataIdType == Long.class;
+	}
+
+	public boolean isCompress() {
+		return compress;
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * 解析{@link IRepeatedGameData}的泛型参数
+	 * <p>
+	 * 沿着父类和接口查找，子类中确定的类型变量传递给父类和接口
+	 *
+	 * @param type     类型
+	 * @param bindings 类型变量的实际类型
+	 * @return 数据ID的类型 无法解析时返回{@code null}
+	 */
+	private static Class<?> resolveDataIdType(Type type, Map<TypeVariable<?>, Type> bindings) {
+		Class<?> raw;
+		if (type instanceof ParameterizedType) {
+			ParameterizedType parameterized = (ParameterizedType) type;
+			raw = (Class<?>) parameterized.getRawType();
+			TypeVariable<?>[] variables = raw.getTypeParameters();
+			Type[] arguments = parameterized.getActualTypeArguments();
+			Map<TypeVariable<?>, Type> resolved = new HashMap<>(variables.length);
+			for (int i = 0; i < variables.length; i++) {
+				Type argument = arguments[i];
+				resolved.put(variables[i], bindings.getOrDefault(argument, argument));
+			}
+			if (raw == IRepeatedGameData.class) {
+				Type argument = resolved.get(variables[0]);
+				return argument instanceof Class ? (Class<?>) argument : null;
+			}
+			bindings = resolved;
+		} else if (type instanceof Class) {
+			raw = (Class<?>) type;
+			bindings = Collections.emptyMap();
+		} else {
+			return null;
+		}
+		for (Type parent : raw.getGenericInterfaces()) {
+			Class<?> result = resolveDataIdType(parent, bindings);
+			if (result != null) {
+				return result;
+			}
+		}
+		Type parent = raw.getGenericSuperclass();
+		return parent == null ? null : resolveDataIdType(parent, bindings);
+	}
+
+	@Override
+	public String toString() {
+		return name + "#" + ordinal;
+	}
+}
\ No newline at end of file
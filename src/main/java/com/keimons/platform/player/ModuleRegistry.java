@@ -0,0 +1,110 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.annotation.APlayerData;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家数据模块注册表
+ * <p>
+ * {@link PlayerManager#addGameData(String)}扫描到的模块在启动时注册。没有扫描到的模块在第一次
+ * 访问时注册，序号排在已有模块之后。通过类型查找描述使用{@link ClassValue}，不需要哈希查找，
+ * 也不读取注解。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class ModuleRegistry {
+
+	/**
+	 * 按照类型查找描述 没有{@link APlayerData}注解的类型为{@code null}
+	 */
+	private static final ClassValue<ModuleDescriptor> types = new ClassValue<ModuleDescriptor>() {
+		@Override
+		@SuppressWarnings("unchecked")
+		protected ModuleDescriptor computeValue(Class<?> type) {
+			if (!IPlayerData.class.isAssignableFrom(type) || type.getAnnotation(APlayerData.class) == null) {
+				return null;
+			}
+			return register((Class<? extends IPlayerData>) type);
+		}
+	};
+
+	/**
+	 * 按照名称查找描述 Key:模块名称 Value:描述
+	 */
+	private static final Map<String, ModuleDescriptor> names = new ConcurrentHashMap<>();
+
+	/**
+	 * 按照序号排列的描述
+	 */
+	private static volatile ModuleDescriptor[] ordinals = new ModuleDescriptor[0];
+
+	/**
+	 * 注册一个模块
+	 * <p>
+	 * 同名的模块只注册一次，通过继承获得注解的子类共享父类的描述
+	 *
+	 * @param type 数据类型
+	 * @return 描述
+	 */
+	public static synchronized ModuleDescriptor register(Class<? extends IPlayerData> type) {
+		APlayerData annotation = type.getAnnotation(APlayerData.class);
+		if (annotation == null) {
+			throw new IllegalArgumentException("玩家数据模块缺少注解：" + type.getName());
+		}
+		ModuleDescriptor descriptor = names.get(annotation.moduleName());
+		if (descriptor != null) {
+			return descriptor;
+		}
+		ModuleDescriptor[] before = ordinals;
+		descriptor = new ModuleDescriptor(before.length, type, annotation);
+		ModuleDescriptor[] after = Arrays.copyOf(before, before.length + 1);
+		after[descriptor.getOrdinal()] = descriptor;
+		names.put(descriptor.getName(), descriptor);
+		ordinals = after;
+		return descriptor;
+	}
+
+	/**
+	 * 通过类型获取描述
+	 *
+	 * @param type 数据类型
+	 * @return 描述 没有{@link APlayerData}注解时返回{@code null}
+	 */
+	public static ModuleDescriptor get(Class<?> type) {
+		return types.get(type);
+	}
+
+	/**
+	 * 通过名称获取描述
+	 *
+	 * @param name 模块名称
+	 * @return 描述 没有注册时返回{@code null}
+	 */
+	public static ModuleDescriptor get(String name) {
+		return names.get(name);
+	}
+
+	/**
+	 * 通过序号获取描述
+	 *
+	 * @param ordinal 序号
+	 * @return 描述
+	 */
+	public static ModuleDescriptor get(int ordinal) {
+		return ordinals[ordinal];
+	}
+
+	/**
+	 * 获取注册的模块数量
+	 *
+	 * @return 模块数量
+	 */
+	public static int size() {
+		return ordinals.length;
+	}
+}
\ No newline at end of file
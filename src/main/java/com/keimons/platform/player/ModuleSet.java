@@ -0,0 +1,128 @@
+package com.keimons.platform.player;
+
+import java.util.Arrays;
+
+/**
+ * 模块名称集合
+ * <p>
+ * 已经注册的模块按照{@link ModuleDescriptor#getOrdinal()}记录在位图中，每个模块只占用一位。
+ * 数据库中存在但是还没有注册的模块按照名称单独记录，模块注册之后依然能够查找到，避免懒加载时
+ * 把数据库中已有的模块当作新模块覆盖。
+ * <p>
+ * 写时复制，读取不加锁。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class ModuleSet {
+
+	private static final long[] EMPTY_WORDS = new long[0];
+
+	private static final String[] EMPTY_NAMES = new String[0];
+
+	/**
+	 * 已经注册的模块 位图
+	 */
+	private volatile long[] words = EMPTY_WORDS;
+
+	/**
+	 * 没有注册的模块
+	 */
+	private volatile String[] names = EMPTY_NAMES;
+
+	/**
+	 * 增加一个模块
+	 *
+	 * @param descriptor 模块
+	 * @return 是否增加
+	 */
+	public synchronized boolean add(ModuleDescriptor descriptor) {
+		int ordinal = descriptor.getOrdinal();
+		int index = ordinal >>> 6;
+		long bit = 1L << ordinal;
+		long[] words = this.words;
+		if (index < words.length && (words[index] & bit) != 0) {
+			return false;
+		}
+		words = Arrays.copyOf(words, Math.max(words.length, index + 1));
+		words[index] |= bit;
+		this.words = words;
+		return true;
+	}
+
+	/**
+	 * 增加一个模块
+	 *
+	 * @param moduleName 模块名称
+	 * @return 是否增加
+	 */
+	public synchronized boolean add(String moduleName) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+		if (descriptor != null) {
+			return add(descriptor);
+		}
+		String[] names = this.names;
+		for (String name : names) {
+			if (name.equals(moduleName)) {
+				return false;
+			}
+		}
+		names = Arrays.copyOf(names, names.length + 1);
+		names[names.length - 1] = moduleName;
+		this.names = names;
+		return true;
+	}
+
+	/**
+	 * 是否包含模块
+	 *
+	 * @param descriptor 模块
+	 * @return 是否包含
+	 */
+	public boolean contains(ModuleDescriptor descriptor) {
+		int ordinal = descriptor.getOrdinal();
+		int index = ordinal >>> 6;
+		long[] words = this.words;
+		if (index < words.length && (words[index] & (1L << ordinal)) != 0) {
+			return true;
+		}
+		return containsName(descriptor.getName());
+	}
+
+	/**
+	 * 是否包含模块
+	 *
+	 * @param moduleName 模块名称
+	 * @return 是否包含
+	 */
+	public boolean contains(String moduleName) {
+		ModuleDescriptor descriptor = ModuleRegistry.get(moduleName);
+		return descriptor != null ? contains(descriptor) : containsName(moduleName);
+	}
+
+	private boolean containsName(String moduleName) {
+		for (String name : names) {
+			if (name.equals(moduleName)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("[");
+		long[] words = this.words;
+		for (int i = 0; i < words.length; i++) {
+			for (long word = words[i]; word != 0; word &= word - 1) {
+				int ordinal = (i << 6) + Long.numberOfTrailingZeros(word);
+				builder.append(builder.length() > 1 ? ", " : "").append(ModuleRegistry.get(ordinal).getName());
+			}
+		}
+		for (String name : names) {
+			builder.append(builder.length() > 1 ? ", " : "").append(name);
+		}
+		return builder.append(']').toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,375 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.Histogram;
+import com.keimons.platform.unit.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 玩家数据延迟写入服务
+ * <p>
+ * 玩家数据发生变化时，通过{@link IPlayer#markDirty(String)}将（玩家，模块）标记为脏数据，
+ * 后台线程按照固定的间隔，将脏数据批量写入数据库。每次只序列化和存储发生过变化的模块，存储的
+ * 开销取决于数据的变化频率，而不是在线玩家的数量。
+ * <p>
+ * 同一个玩家在两次写入之间的多次修改会被合并为一次写入。每次写入时，按照玩家第一次被标记的
+ * 先后顺序写入，单次最多写入{@code batch}个玩家，超过最大延迟的玩家不受这个数量的限制，以此
+ * 保证任何一个修改都会在最大延迟内写入数据库。
+ * <p>
+ * 开启快照存储时，脏模块在玩家的安全点生成快照，序列化和写入在{@link SnapshotService}的线程池中执行。
+ * 开启预写日志时，脏模块只记录到预写日志，由{@link PlayerManager}按照{@code keimons.player.wal.checkpoint}
+ * 定期全量存储到数据库，写入间隔不再决定进程异常退出时丢失的数据。
+ * <p>
+ * 注意：写入失败的模块会被重新标记为脏数据，等待下一次写入。
+ * <p>
+ * 注意：这里只写入被标记的模块。增加、删除元素、第一次创建模块和默认数据实现的{@code modify()}
+ * 会自动标记，直接修改数据中的字段后，必须调用{@link IPlayer#markDirty(Class)}。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class PersistenceService {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "persistence";
+
+	/**
+	 * 脏数据 Key:玩家唯一标识 Value:脏数据
+	 */
+	private static final ConcurrentHashMap<Object, DirtyPlayer> dirty = new ConcurrentHashMap<>();
+
+	/**
+	 * 按照第一次标记的先后顺序排列的脏数据
+	 */
+	private static final ConcurrentLinkedQueue<DirtyPlayer> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 写入的玩家数量
+	 */
+	private static final LongAdder players = new LongAdder();
+
+	/**
+	 * 写入的模块数量
+	 */
+	private static final LongAdder modules = new LongAdder();
+
+	/**
+	 * 写入失败的次数
+	 */
+	private static final LongAdder failures = new LongAdder();
+
+	/**
+	 * 从第一次标记到写入数据库的延迟 毫秒
+	 */
+	private static final Histogram lag = new Histogram();
+
+	/**
+	 * 等待一次写入完成的最长时间 纳秒
+	 */
+	private static final long MAX_WAIT = TimeUnit.MINUTES.toNanos(1);
+
+	/**
+	 * 最大延迟 毫秒
+	 */
+	private static volatile long maxLag = Long.MAX_VALUE;
+
+	/**
+	 * 单次最多写入的玩家数量
+	 */
+	private static volatile int batch = Integer.MAX_VALUE;
+
+	/**
+	 * 定时写入
+	 */
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 标记玩家的一个模块为脏数据
+	 *
+	 * @param player     玩家
+	 * @param moduleName 模块名称
+	 */
+	public static void markDirty(IPlayer<?> player, String moduleName) {
+		dirty.compute(player.getIdentifier(), (identifier, value) -> {
+			if (value == null) {
+				value = new DirtyPlayer(identifier, player);
+				queue.offer(value);
+			}
+			// 玩家重新加载后，使用最新的玩家对象
+			value.player = player;
+			value.modules.add(moduleName);
+			return value;
+		});
+	}
+
+	/**
+	 * 标记玩家的多个模块为脏数据
+	 *
+	 * @param player      玩家
+	 * @param moduleNames 模块名称
+	 */
+	public static void markDirty(IPlayer<?> player, Set<String> moduleNames) {
+		for (String moduleName : moduleNames) {
+			markDirty(player, moduleName);
+		}
+	}
+
+	/**
+	 * 移除一个玩家的脏数据
+	 * <p>
+	 * 玩家被移出缓存之前调用，由调用者负责存储这些模块，存储失败时重新标记。
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @return 被标记为脏数据的模块
+	 */
+	public static Set<String> discard(Object identifier) {
+		// 队列中的脏数据在写入时跳过
+		DirtyPlayer value = dirty.remove(identifier);
+		return value == null ? Collections.emptySet() : value.modules;
+	}
+
+	/**
+	 * 写入脏数据
+	 * <p>
+	 * 按照第一次标记的先后顺序写入，最多写入{@code limit}个玩家，超过最大延迟的玩家不受数量的限制。
+	 *
+	 * @param limit 最多写入的玩家数量
+	 * @return 写入的玩家数量
+	 */
+	public static int flush(int limit) {
+		int count = 0;
+		long now = TimeUtil.currentTimeMillis();
+		List<DirtyPlayer> flushing = new ArrayList<>();
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (; ; ) {
+			DirtyPlayer head = queue.peek();
+			if (head == null) {
+				break;
+			}
+			if (count >= limit && now - head.dirtyTime < maxLag) {
+				break;
+			}
+			queue.poll();
+			// 移除后的标记会生成新的脏数据，本次写入的模块不会再发生变化
+			if (!dirty.remove(head.identifier, head)) {
+				continue;
+			}
+			flushing.add(head);
+			// 已经移出内存的玩家不参与检查点之前的完整存储，直接写入数据库
+			futures.add(RedissonManager.getWriteAheadLog() == null || !PlayerManager.isCurrent(head.player) ?
+					SnapshotService.save(head.player, head.modules) :
+					SnapshotService.journal(head.player, head.modules));
+			count++;
+		}
+		// 所有玩家的快照都提交之后再等待，序列化和写入在存储线程池中并行执行
+		List<DirtyPlayer> failed = null;
+		long deadline = System.nanoTime() + MAX_WAIT;
+		for (int i = 0; i < flushing.size(); i++) {
+			if (!await(flushing.get(i), futures.get(i), now, deadline)) {
+				if (failed == null) {
+					failed = new ArrayList<>();
+				}
+				failed.add(flushing.get(i));
+			}
+		}
+		// 写入失败的玩家等待下一次写入，避免数据库不可用时反复重试
+		if (failed != null) {
+			for (DirtyPlayer value : failed) {
+				markDirty(value.player, value.modules);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 写入所有脏数据
+	 *
+	 * @return 写入的玩家数量
+	 */
+	public static int flushAll() {
+		return flush(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * 等待一个玩家的脏数据写入完成
+	 *
+	 * @param value    脏数据
+	 * @param future   写入完成
+	 * @param now      当前时间
+	 * @param deadline 等待的截止时间 纳秒
+	 * @return 是否写入成功
+	 */
+	private static boolean await(DirtyPlayer value, CompletableFuture<Void> future, long now, long deadline) {
+		try {
+			future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			players.increment();
+			modules.add(value.modules.size());
+			lag.record(now - value.dirtyTime);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failures.increment();
+			return false;
+		} catch (ExecutionException e) {
+			failures.increment();
+			LogService.error(e.getCause(), "玩家数据写入失败，玩家ID：" + value.identifier + "，模块：" + value.modules);
+			return false;
+		} catch (TimeoutException e) {
+			failures.increment();
+			LogService.error("玩家数据写入超时，玩家ID：" + value.identifier + "，模块：" + value.modules);
+			return false;
+		}
+	}
+
+	/**
+	 * 获取等待写入的玩家数量
+	 *
+	 * @return 等待写入的玩家数量
+	 */
+	public static int getDirtySize() {
+		return dirty.size();
+	}
+
+	/**
+	 * 获取写入的玩家数量
+	 *
+	 * @return 写入的玩家数量
+	 */
+	public static long getPlayers() {
+		return players.sum();
+	}
+
+	/**
+	 * 获取写入的模块数量
+	 *
+	 * @return 写入的模块数量
+	 */
+	public static long getModules() {
+		return modules.sum();
+	}
+
+	/**
+	 * 获取写入失败的次数
+	 *
+	 * @return 写入失败的次数
+	 */
+	public static long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * 获取写入延迟的统计快照
+	 *
+	 * @return 从第一次标记到写入数据库的延迟 毫秒
+	 */
+	public static Histogram.Snapshot getLag() {
+		return lag.snapshot();
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		LogService.log(LOG_NAME, "dirty=" + getDirtySize() + ", players=" + getPlayers() +
+				", modules=" + getModules() + ", failures=" + getFailures() + ", lag(ms)=" + getLag());
+	}
+
+	/**
+	 * 初始化延迟写入
+	 *
+	 * @param interval 写入间隔 毫秒 小于等于0则不启动后台写入
+	 * @param maxLag   最大延迟 毫秒
+	 * @param batch    单次最多写入的玩家数量
+	 */
+	public static synchronized void init(int interval, int maxLag, int batch) {
+		PersistenceService.maxLag = maxLag <= 0 ? Long.MAX_VALUE : maxLag;
+		PersistenceService.batch = batch <= 0 ? Integer.MAX_VALUE : batch;
+		if (interval <= 0 || scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-PERSISTENCE");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				flush(PersistenceService.batch);
+			} catch (Throwable e) {
+				LogService.error(e);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 关闭延迟写入，并写入所有脏数据
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			try {
+				scheduler.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			scheduler = null;
+		}
+		flushAll();
+		dump();
+	}
+
+	/**
+	 * 一个玩家的脏数据
+	 * <p>
+	 * 只在{@link ConcurrentHashMap#compute}中修改，从{@link #dirty}中移除之后不会再被修改。
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	private static class DirtyPlayer {
+
+		/**
+		 * 玩家唯一标识
+		 */
+		final Object identifier;
+
+		/**
+		 * 第一次被标记的时间
+		 */
+		final long dirtyTime = TimeUtil.currentTimeMillis();
+
+		/**
+		 * 脏模块
+		 */
+		final Set<String> modules = new HashSet<>();
+
+		/**
+		 * 玩家
+		 */
+		IPlayer<?> player;
+
+		DirtyPlayer(Object identifier, IPlayer<?> player) {
+			this.identifier = identifier;
+			this.player = player;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,243 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.session.Session;
+import com.keimons.platform.unit.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 玩家缓存
+ * <p>
+ * 查找过的玩家都会留在{@link PlayerManager}中，长期运行的服务器会积累所有被查找过的玩家。这里
+ * 定时检查所有玩家，按照最后活跃时间从早到晚淘汰离线玩家：超过最大空闲时间的玩家被淘汰；估算的
+ * 内存占用超过预算时，继续淘汰最久未活跃的玩家，直到回到预算之内。
+ * <p>
+ * 会话仍然连接中的玩家不会被淘汰。淘汰之前先存储玩家，存储失败的玩家留在缓存中，等待下一次淘汰。
+ * 从缓存中获取玩家时更新玩家的活跃时间。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class PlayerCache {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "cache";
+
+	/**
+	 * 命中次数
+	 */
+	private static final LongAdder hits = new LongAdder();
+
+	/**
+	 * 未命中次数
+	 */
+	private static final LongAdder misses = new LongAdder();
+
+	/**
+	 * 因为空闲淘汰的玩家数量
+	 */
+	private static final LongAdder idleEvictions = new LongAdder();
+
+	/**
+	 * 因为内存预算淘汰的玩家数量
+	 */
+	private static final LongAdder budgetEvictions = new LongAdder();
+
+	/**
+	 * 淘汰前存储失败的次数
+	 */
+	private static final LongAdder failures = new LongAdder();
+
+	/**
+	 * 最大空闲时间 毫秒
+	 */
+	private static volatile long maxIdle = Long.MAX_VALUE;
+
+	/**
+	 * 内存预算 字节
+	 */
+	private static volatile long budget = Long.MAX_VALUE;
+
+	/**
+	 * 上一次检查时估算的内存占用 字节
+	 */
+	private static volatile long estimatedSize;
+
+	/**
+	 * 定时淘汰
+	 */
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 命中缓存
+	 *
+	 * @param player 玩家
+	 */
+	static void hit(IPlayer<?> player) {
+		hits.increment();
+		player.setActiveTime(TimeUtil.currentTimeMillis());
+	}
+
+	/**
+	 * 未命中缓存
+	 */
+	static void miss() {
+		misses.increment();
+	}
+
+	/**
+	 * 淘汰玩家
+	 *
+	 * @return 淘汰的玩家数量
+	 */
+	public static int evict() {
+		long now = TimeUtil.currentTimeMillis();
+		long total = 0;
+		List<IPlayer<?>> candidates = new ArrayList<>();
+		for (IPlayer<?> player : PlayerManager.getPlayers()) {
+			total += player.getEstimatedSize();
+			if (!isPinned(player)) {
+				candidates.add(player);
+			}
+		}
+		candidates.sort(Comparator.comparingLong(IPlayer::getActiveTime));
+		int count = 0;
+		for (IPlayer<?> player : candidates) {
+			boolean idle = now - player.getActiveTime() >= maxIdle;
+			// 按照活跃时间排序，后面的玩家都没有空闲
+			if (!idle && total <= budget) {
+				break;
+			}
+			long size = player.getEstimatedSize();
+			if (evict(player)) {
+				total -= size;
+				count++;
+				(idle ? idleEvictions : budgetEvictions).increment();
+			}
+		}
+		estimatedSize = total;
+		return count;
+	}
+
+	/**
+	 * 存储并淘汰一个玩家
+	 *
+	 * @param player 玩家
+	 * @return 是否淘汰
+	 */
+	private static boolean evict(IPlayer<?> player) {
+		long activeTime = player.getActiveTime();
+		Set<String> dirty = PersistenceService.discard(player.getIdentifier());
+		try {
+			// 开启预写日志时，数据库中的数据可能落后于预写日志，强制存储所有模块
+			player.save(RedissonManager.getWriteAheadLog() != null);
+		} catch (Throwable e) {
+			failures.increment();
+			PersistenceService.markDirty(player, dirty);
+			LogService.error(e, "玩家数据存储失败，不淘汰玩家，玩家ID：" + player.getIdentifier());
+			return false;
+		}
+		// 存储期间被再次访问或者登录的玩家，继续留在缓存中
+		return PlayerManager.evict(player, p -> p.getActiveTime() == activeTime && !isPinned(p));
+	}
+
+	/**
+	 * 玩家是否不能被淘汰
+	 *
+	 * @param player 玩家
+	 * @return {@code true}会话仍然连接中
+	 */
+	private static boolean isPinned(IPlayer<?> player) {
+		Session session = player.getSession();
+		return session != null && session.isConnect();
+	}
+
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	public static long getIdleEvictions() {
+		return idleEvictions.sum();
+	}
+
+	public static long getBudgetEvictions() {
+		return budgetEvictions.sum();
+	}
+
+	public static long getFailures() {
+		return failures.sum();
+	}
+
+	public static long getEstimatedSize() {
+		return estimatedSize;
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		LogService.log(LOG_NAME, "players=" + PlayerManager.getPlayers().size() + ", hits=" + getHits() +
+				", misses=" + getMisses() + ", idleEvictions=" + getIdleEvictions() +
+				", budgetEvictions=" + getBudgetEvictions() + ", failures=" + getFailures() +
+				", estimatedSize=" + getEstimatedSize());
+	}
+
+	/**
+	 * 初始化
+	 *
+	 * @param interval 检查间隔 毫秒 小于等于0则不启动定时淘汰
+	 * @param maxIdle  最大空闲时间 毫秒 小于等于0则不按照空闲时间淘汰
+	 * @param budget   内存预算 字节 小于等于0则不限制
+	 */
+	public static synchronized void init(int interval, long maxIdle, long budget) {
+		PlayerCache.maxIdle = maxIdle <= 0 ? Long.MAX_VALUE : maxIdle;
+		PlayerCache.budget = budget <= 0 ? Long.MAX_VALUE : budget;
+		if (interval <= 0 || scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-CACHE");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				evict();
+			} catch (Throwable e) {
+				LogService.error(e);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 关闭定时淘汰
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			try {
+				scheduler.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			scheduler = null;
+		}
+		dump();
+	}
+}
\ No newline at end of file
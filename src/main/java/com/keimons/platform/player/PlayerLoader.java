@@ -1,45 +1,366 @@
 package com.keimons.platform.player;
 
 import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.Histogram;
+import com.keimons.platform.unit.TimeUtil;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.function.Consumer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
  * 玩家数据加载器
+ * <p>
+ * 读取玩家数据通过数据库的异步接口完成，不占用加载线程，加载线程只负责反序列化，以及执行加载
+ * 完成后的回调。没有实现{@link IAsyncPersistence}的玩家，在加载线程中同步加载。
+ * <p>
+ * 同时执行中的加载最多{@code parallelism}个，超过的加载按照{@link Priority}排队，优先级高的
+ * 加载先执行，同一优先级按照提交的先后顺序执行。重启后大量玩家同时登录时，登录的玩家不会排在
+ * 离线查询和批量任务之后，数据库也不会同时收到所有的读取请求。
+ * <p>
+ * 同一个玩家同时只有一个加载，排队中的加载被更高优先级的请求合并时，提升为更高的优先级。
+ * <p>
+ * 注意：不要在加载线程中同步等待其他玩家加载完成，加载线程耗尽时会导致死锁。
  *
  * @author monkey1993
  * @version 1.0
  * @since 1.8
  **/
-public class PlayerLoader implements Runnable {
+public class PlayerLoader {
 
 	/**
-	 * 正在加载中的队列
+	 * 日志名称
 	 */
-	private static LinkedBlockingDeque<Runnable> loading = new LinkedBlockingDeque<>();
+	public static final String LOG_NAME = "loader";
 
 	/**
-	 * 排队加载玩家数据
+	 * 加载优先级
 	 *
-	 * @param runnable 队列
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
 	 */
-	public static void slowLoad(Runnable runnable) {
-		loading.add(runnable);
+	public enum Priority {
+
+		/**
+		 * 玩家登录
+		 */
+		LOGIN,
+
+		/**
+		 * 查询离线玩家
+		 */
+		LOOKUP,
+
+		/**
+		 * 批量任务
+		 */
+		BATCH
+	}
+
+	/**
+	 * 排队中的加载 按照优先级排列
+	 */
+	private static final List<ArrayDeque<Task>> queues = new ArrayList<>(Priority.values().length);
+
+	/**
+	 * 排队中的加载 Key:玩家唯一标识 Value:加载
+	 */
+	private static final Map<Object, Task> queued = new HashMap<>();
+
+	/**
+	 * 每个优先级的排队时长 毫秒
+	 */
+	private static final Histogram[] waits = new Histogram[Priority.values().length];
+
+	/**
+	 * 每个优先级提交的加载数量
+	 */
+	private static final LongAdder[] submits = new LongAdder[Priority.values().length];
+
+	/**
+	 * 被合并的加载数量
+	 */
+	private static final LongAdder coalesced = new LongAdder();
+
+	static {
+		for (int i = 0; i < Priority.values().length; i++) {
+			queues.add(new ArrayDeque<>());
+			waits[i] = new Histogram();
+			submits[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * 最多同时执行的加载数量
+	 */
+	private static int parallelism = Runtime.getRuntime().availableProcessors() * 8;
+
+	/**
+	 * 执行中的加载数量
+	 */
+	private static int running;
+
+	/**
+	 * 加载线程
+	 */
+	private static volatile ExecutorService executor = create(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * 获取加载线程
+	 *
+	 * @return 加载线程
+	 */
+	public static Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * 提交一个加载
+	 * <p>
+	 * 同一个玩家只能有一个排队中的加载，调用者需要保证这一点
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @param priority   优先级
+	 * @param load       开始加载，返回加载完成
+	 */
+	public static void submit(Object identifier, Priority priority, Supplier<CompletableFuture<?>> load) {
+		Task task = new Task(identifier, priority, load);
+		synchronized (queues) {
+			submits[priority.ordinal()].increment();
+			queued.put(identifier, task);
+			queues.get(priority.ordinal()).add(task);
+		}
+		schedule();
+	}
+
+	/**
+	 * 合并一个加载
+	 * <p>
+	 * 玩家的加载还在排队中时，如果优先级更高，则提升这个加载的优先级
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @param priority   优先级
+	 */
+	public static void coalesce(Object identifier, Priority priority) {
+		synchronized (queues) {
+			coalesced.increment();
+			Task task = queued.get(identifier);
+			if (task != null && priority.ordinal() < task.priority.ordinal()) {
+				// 原队列中的加载在出队时跳过
+				task.priority = priority;
+				queues.get(priority.ordinal()).add(task);
+			}
+		}
+		schedule();
 	}
 
-	@Override
-	public void run() {
+	/**
+	 * 取出排队中的加载交给加载线程执行，直到达到最大执行数量
+	 * <p>
+	 * 只在调用线程中出队，开始加载在加载线程中执行，提交加载的线程不会执行其他玩家的加载
+	 */
+	private static void schedule() {
 		for (; ; ) {
+			Task task;
+			synchronized (queues) {
+				if (running >= parallelism) {
+					return;
+				}
+				task = poll();
+				if (task == null) {
+					return;
+				}
+				running++;
+				queued.remove(task.identifier);
+				waits[task.priority.ordinal()].record(TimeUtil.currentTimeMillis() - task.time);
+			}
 			try {
-				Runnable runnable = loading.take();
-				runnable.run();
-			} catch (Exception e) {
-				LogService.error(e);
+				executor.execute(() -> start(task));
+			} catch (RejectedExecutionException e) {
+				// 加载线程已经关闭，在调用线程中开始，保证加载以完成或者失败结束
+				start(task);
 			}
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * 开始一个加载，加载完成后执行下一个
+	 *
+	 * @param task 加载
+	 */
+	private static void start(Task task) {
+		CompletableFuture<?> future;
+		try {
+			future = task.load.get();
+		} catch (Throwable e) {
+			LogService.error(e, "玩家数据加载失败，玩家ID：" + task.identifier);
+			future = CompletableFuture.completedFuture(null);
+		}
+		future.whenComplete((v, e) -> {
+			synchronized (queues) {
+				running--;
+			}
+			schedule();
+		});
+	}
+
+	/**
+	 * 取出优先级最高的加载
+	 *
+	 * @return 加载 没有排队中的加载时返回{@code null}
+	 */
+	private static Task poll() {
+		for (int i = 0; i < queues.size(); i++) {
+			ArrayDeque<Task> queue = queues.get(i);
+			Task task;
+			while ((task = queue.poll()) != null) {
+				// 已经提升到更高的优先级
+				if (task.priority.ordinal() == i && queued.get(task.identifier) == task) {
+					return task;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 获取排队中的加载数量
+	 *
+	 * @return 排队中的加载数量
+	 */
+	public static int getQueued() {
+		synchronized (queues) {
+			return queued.size();
+		}
+	}
+
+	/**
+	 * 获取执行中的加载数量
+	 *
+	 * @return 执行中的加载数量
+	 */
+	public static int getRunning() {
+		synchronized (queues) {
+			return running;
+		}
+	}
+
+	/**
+	 * 获取被合并的加载数量
+	 *
+	 * @return 被合并的加载数量
+	 */
+	public static long getCoalesced() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * 获取提交的加载数量
+	 *
+	 * @param priority 优先级
+	 * @return 提交的加载数量
+	 */
+	public static long getSubmits(Priority priority) {
+		return submits[priority.ordinal()].sum();
+	}
+
+	/**
+	 * 获取排队时长的统计快照
+	 *
+	 * @param priority 优先级
+	 * @return 排队时长 毫秒
+	 */
+	public static Histogram.Snapshot getWait(Priority priority) {
+		return waits[priority.ordinal()].snapshot();
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("queued=").append(getQueued()).append(", running=").append(getRunning())
+				.append(", coalesced=").append(getCoalesced());
+		for (Priority priority : Priority.values()) {
+			builder.append(", ").append(priority).append("[submits=").append(getSubmits(priority))
+					.append(", wait(ms)=").append(getWait(priority)).append("]");
+		}
+		LogService.log(LOG_NAME, builder.toString());
+	}
+
+	/**
+	 * 初始化
+	 *
+	 * @param threads     加载线程数量
+	 * @param parallelism 最多同时执行的加载数量
+	 */
+	public static void init(int threads, int parallelism) {
+		synchronized (queues) {
+			PlayerLoader.parallelism = Math.max(1, parallelism);
+		}
+		ExecutorService before = executor;
+		executor = create(threads);
+		before.shutdown();
+		schedule();
+	}
+
+	/**
+	 * 关闭
+	 */
+	public static void shutdown() {
+		executor.shutdown();
+		dump();
+	}
+
+	private static ExecutorService create(int threads) {
+		AtomicInteger index = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-LOADER-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * 一个排队中的加载
+	 */
+	private static class Task {
+
+		/**
+		 * 玩家唯一标识
+		 */
+		private final Object identifier;
+
+		/**
+		 * 开始加载
+		 */
+		private final Supplier<CompletableFuture<?>> load;
+
+		/**
+		 * 提交时间
+		 */
+		private final long time = TimeUtil.currentTimeMillis();
+
+		/**
+		 * 优先级
+		 */
+		private Priority priority;
+
+		Task(Object identifier, Priority priority, Supplier<CompletableFuture<?>> load) {
+			this.identifier = identifier;
+			this.priority = priority;
+			this.load = load;
+		}
+	}
+}
@@ -1,20 +1,41 @@
 package com.keimons.platform.player;
 
+import com.keimons.platform.KeimonsConfig;
 import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.BatchWriter;
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.RedisPlayerStore;
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.datebase.SegmentColdStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.datebase.WriteAheadLog;
+import com.keimons.platform.exception.ModuleException;
 import com.keimons.platform.iface.IGameData;
 import com.keimons.platform.log.LogService;
+import com.keimons.platform.module.CompressionService;
 import com.keimons.platform.unit.ClassUtil;
 import com.keimons.platform.unit.TimeUtil;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 
 /**
@@ -34,6 +55,8 @@ public class PlayerManager {
 
 	/**
 	 * 玩家数据模块
+	 * <p>
+	 * 访问模块时通过{@link ModuleRegistry}获取模块的描述，不需要查找这里
 	 */
 	public static Map<String, Class<? extends IPlayerData>> classes = new HashMap<>();
 
@@ -43,21 +66,73 @@ public class PlayerManager {
 	private static ConcurrentHashMap<Object, IPlayer<?>> players = new ConcurrentHashMap<>();
 
 	/**
-	 * 存储所有模块的当前版本号，这个版本号依赖于class文件的变动
-	 * <p>
-	 * 版本自动升级，一旦发现新加载上来的class文件有变动，则升级版本号
+	 * 正在加载中的玩家 Key:玩家唯一标识 Value:加载结果
 	 */
-	private static Map<String, Integer> versions = new HashMap<>();
+	private static final ConcurrentHashMap<Object, CompletableFuture<IPlayer<?>>> loadings = new ConcurrentHashMap<>();
+
+	/**
+	 * 批量存储时每个管道中的写入数量
+	 */
+	private static int saveBatch = Integer.parseInt(KeimonsConfig.DEFAULT_PLAYER_SAVE_BATCH);
+
+	/**
+	 * 批量存储时最多同时执行的管道数量
+	 */
+	private static int saveInflight = Integer.parseInt(KeimonsConfig.DEFAULT_PLAYER_SAVE_INFLIGHT);
+
+	/**
+	 * 批量存储时的分片数量
+	 */
+	private static int saveWorkers = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * 停服存储的最长时间 毫秒
+	 */
+	private static long saveDeadline = Long.parseLong(KeimonsConfig.DEFAULT_PLAYER_SAVE_DEADLINE);
+
+	/**
+	 * 开启预写日志时定期全量存储
+	 */
+	private static ScheduledExecutorService checkpoint;
+
+	/**
+	 * 是否懒加载模块
+	 */
+	private static volatile boolean lazy = Boolean.parseBoolean(KeimonsConfig.DEFAULT_PLAYER_LAZY);
 
 	/**
 	 * 保存所有玩家数据 如果玩家已经下线，则移除玩家
+	 * <p>
+	 * 这里会序列化所有在线玩家的所有模块，日常的存储应该通过{@link IPlayer#markDirty(String)}
+	 * 交给{@link PersistenceService}完成，这里只用于停服等需要完整存储的场景。
+	 * <p>
+	 * 玩家被分配到多个分片中并行序列化，实现了{@link IBatchPersistence}的玩家通过{@link BatchWriter}
+	 * 合并到管道中批量写入，详见{@link SaveEngine}。
 	 *
 	 * @param coercive 是否强制存储
+	 * @see #persistence(boolean, long)
 	 */
 	public void persistence(boolean coercive) {
-		for (IPlayer<?> baseModules : players.values()) {
-			persistence(baseModules, coercive);
+		persistence(coercive, 0);
+	}
+
+	/**
+	 * 在限定时间内保存所有玩家数据
+	 *
+	 * @param coercive 是否强制存储
+	 * @param timeout  最长时间 毫秒 小于等于0则一直等待存储完成
+	 * @return 存储结果
+	 */
+	public static SaveEngine.SaveReport persistence(boolean coercive, long timeout) {
+		WriteAheadLog wal = RedissonManager.getWriteAheadLog();
+		long lsn = wal == null ? 0 : wal.getLastLsn();
+		SaveEngine engine = new SaveEngine(saveWorkers, saveBatch, saveInflight);
+		SaveEngine.SaveReport report = engine.save(players.values(), coercive, timeout);
+		// 所有玩家都强制存储成功后，数据库中包含了存储开始之前记录的所有数据
+		if (wal != null && coercive && report.isSuccess()) {
+			wal.checkpoint(lsn);
 		}
+		return report;
 	}
 
 	/**
@@ -81,7 +156,7 @@ public class PlayerManager {
 	 */
 	@SafeVarargs
 	public static <T, R extends IPlayer<T>> R findPlayer(T identifier, Class<? extends IPlayerData>... modules) {
-		return load(identifier, null, modules, true, null);
+		return load(identifier, null, copy(modules.length, i -> modules[i]), true, null);
 	}
 
 	/**
@@ -96,7 +171,7 @@ public class PlayerManager {
 	 */
 	@SafeVarargs
 	public static <T, R extends IPlayer<T>> R findPlayer(T identifier, Function<T, IPlayer<T>> create, Class<? extends IPlayerData>... modules) {
-		return load(identifier, create, modules, true, null);
+		return load(identifier, create, copy(modules.length, i -> modules[i]), true, null);
 	}
 
 	/**
@@ -111,11 +186,24 @@ public class PlayerManager {
 	 */
 	@SafeVarargs
 	public static <T, R extends IPlayer<T>> void findPlayer(T identifier, Function<T, IPlayer<T>> create, Consumer<R> consumer, Class<? extends IPlayerData>... modules) {
-		load(identifier, create, modules, false, consumer);
+		load(identifier, create, copy(modules.length, i -> modules[i]), false, consumer);
+	}
+
+	/**
+	 * 玩家是否在内存中或者正在加载
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @return 是否在内存中
+	 */
+	static boolean isCached(Object identifier) {
+		return players.containsKey(identifier) || loadings.containsKey(identifier);
 	}
 
 	/**
 	 * 加载玩家到内存
+	 * <p>
+	 * 同步加载时，调用线程等待加载完成，加载失败时返回{@code null}，这个加载以{@link PlayerLoader.Priority#LOGIN}
+	 * 优先级执行。异步加载时，加载完成后在加载线程中执行消耗函数。
 	 *
 	 * @param identifier 主键
 	 * @param fast       快速加载
@@ -130,46 +218,199 @@ public class PlayerManager {
 	public static <T, R extends IPlayer<T>> R load(T identifier, Function<T, IPlayer<T>> create, Class<? extends IPlayerData>[] modules, boolean fast, Consumer<R> consumer) {
 		if (create == null) {
 			R player = (R) players.get(identifier);
-			if (player == null) {
+			if (player == null || !isLoaded(player, modules)) {
+				PlayerCache.miss();
 				return null;
 			}
-			if (modules.length == 0) {
-				return player.isLoaded() ? player : null;
-			}
-			if (player.hasModules(modules)) {
-				return player;
-			}
-			return null;
-		}
-		BiFunction<Object, IPlayer<?>, IPlayer<?>> create0 = (key, player) -> {
-			if (player == null) {
-				player = create.apply(identifier);
-			}
-			player.load(modules);
-			player.loaded();
-			player.setActiveTime(TimeUtil.currentTimeMillis());
-			if (modules.length == 0) {
-				player.setLoaded(true);
-			}
+			PlayerCache.hit(player);
 			return player;
-		};
+		}
+		PlayerLoader.Priority priority = fast ? PlayerLoader.Priority.LOGIN : PlayerLoader.Priority.LOOKUP;
+		CompletableFuture<R> future = loadOrJoin(identifier, priority, create, modules);
 		if (fast) {
-			return (R) players.compute(identifier, create0);
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				LogService.error(e.getCause(), "玩家数据加载失败，玩家ID：" + identifier);
+				return null;
+			}
 		} else {
-			PlayerLoader.slowLoad(() -> {
+			future.whenCompleteAsync((player, e) -> {
+				if (e != null) {
+					LogService.error(e, "玩家数据加载失败，玩家ID：" + identifier);
+					return;
+				}
 				try {
-					R player = (R) players.compute(identifier, create0);
 					if (consumer != null) {
 						consumer.accept(player);
 					}
-				} catch (Exception e) {
-					LogService.error(e);
+				} catch (Exception ex) {
+					LogService.error(ex);
 				}
-			});
+			}, PlayerLoader.getExecutor());
 			return null;
 		}
 	}
 
+	/**
+	 * 异步加载玩家到内存
+	 *
+	 * @param identifier 主键
+	 * @param create     创建函数，如果没有找到这个玩家，则构造这个玩家
+	 * @param modules    需要加载的模块 为空时加载所有模块
+	 * @param <T>        玩家主键类型
+	 * @param <R>        玩家类型
+	 * @return 加载完成的玩家，加载失败时以异常完成
+	 * @see #loadAsync(Object, PlayerLoader.Priority, Function, Class[])
+	 */
+	@SafeVarargs
+	public static <T, R extends IPlayer<T>> CompletableFuture<R> loadAsync(T identifier, Function<T, IPlayer<T>> create, Class<? extends IPlayerData>... modules) {
+		return loadOrJoin(identifier, PlayerLoader.Priority.LOOKUP, create, copy(modules.length, i -> modules[i]));
+	}
+
+	/**
+	 * 异步加载玩家到内存
+	 * <p>
+	 * 玩家已经加载了这些模块时，直接返回。同一个玩家同时只有一次加载，其他的加载等待这次加载完成后
+	 * 重新检查，不会重复读取数据库，排队中的加载会被提升到其中最高的优先级。
+	 * <p>
+	 * 读取数据库和反序列化都在{@link #players}之外完成，加载完成后才放入{@link #players}，不会在
+	 * 持有{@link #players}的锁时等待网络。
+	 *
+	 * @param identifier 主键
+	 * @param priority   优先级
+	 * @param create     创建函数，如果没有找到这个玩家，则构造这个玩家
+	 * @param modules    需要加载的模块 为空时加载所有模块
+	 * @param <T>        玩家主键类型
+	 * @param <R>        玩家类型
+	 * @return 加载完成的玩家，加载失败时以异常完成
+	 */
+	@SafeVarargs
+	public static <T, R extends IPlayer<T>> CompletableFuture<R> loadAsync(T identifier, PlayerLoader.Priority priority, Function<T, IPlayer<T>> create, Class<? extends IPlayerData>... modules) {
+		return loadOrJoin(identifier, priority, create, copy(modules.length, i -> modules[i]));
+	}
+
+	/**
+	 * 异步加载玩家到内存，或者等待同一个玩家正在执行的加载
+	 *
+	 * @param identifier 主键
+	 * @param priority   优先级
+	 * @param create     创建函数，如果没有找到这个玩家，则构造这个玩家
+	 * @param modules    需要加载的模块 为空时加载所有模块
+	 * @param <T>        玩家主键类型
+	 * @param <R>        玩家类型
+	 * @return 加载完成的玩家，加载失败时以异常完成
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T, R extends IPlayer<T>> CompletableFuture<R> loadOrJoin(T identifier, PlayerLoader.Priority priority, Function<T, IPlayer<T>> create, Class<? extends IPlayerData>[] modules) {
+		IPlayer<T> player = (IPlayer<T>) players.get(identifier);
+		if (player != null && isLoaded(player, modules)) {
+			PlayerCache.hit(player);
+			return CompletableFuture.completedFuture((R) player);
+		}
+		PlayerCache.miss();
+		CompletableFuture<IPlayer<?>> future = new CompletableFuture<>();
+		CompletableFuture<IPlayer<?>> previous = loadings.putIfAbsent(identifier, future);
+		if (previous != null) {
+			// 同一个玩家正在加载中，加载完成后重新检查
+			PlayerLoader.coalesce(identifier, priority);
+			return previous.thenCompose(loaded -> loadOrJoin(identifier, priority, create, modules));
+		}
+		PlayerLoader.submit(identifier, priority, () -> {
+			load(identifier, create, modules, future);
+			return future;
+		});
+		return (CompletableFuture<R>) (CompletableFuture<?>) future;
+	}
+
+	/**
+	 * 开始加载玩家
+	 * <p>
+	 * 加载可能排队了一段时间，开始时重新获取内存中的玩家
+	 *
+	 * @param identifier 主键
+	 * @param create     创建函数，如果没有找到这个玩家，则构造这个玩家
+	 * @param modules    需要加载的模块
+	 * @param future     加载完成
+	 * @param <T>        玩家主键类型
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> void load(T identifier, Function<T, IPlayer<T>> create,
+								 Class<? extends IPlayerData>[] modules, CompletableFuture<IPlayer<?>> future) {
+		try {
+			IPlayer<T> player = (IPlayer<T>) players.get(identifier);
+			IPlayer<T> target = player == null ? create.apply(identifier) : player;
+			Executor executor = PlayerLoader.getExecutor();
+			// 长期不活跃的玩家先从冷数据存储写回数据库，在加载线程池中执行
+			CompletableFuture<Void> rehydrating = player == null ?
+					TieringService.rehydrateAsync(identifier, executor) : CompletableFuture.completedFuture(null);
+			CompletableFuture<Void> loading = rehydrating.thenCompose(v -> {
+				if (target instanceof IAsyncPersistence) {
+					return ((IAsyncPersistence) target).loadAsync(modules, executor);
+				}
+				return CompletableFuture.runAsync(() -> target.load(modules), executor);
+			});
+			loading.whenComplete((v, e) -> {
+				if (e != null) {
+					loadings.remove(identifier, future);
+					future.completeExceptionally(e);
+					return;
+				}
+				try {
+					IPlayer<?> current = players.computeIfAbsent(identifier, key -> target);
+					if (current == target) {
+						target.loaded();
+						target.setActiveTime(TimeUtil.currentTimeMillis());
+						TieringService.touch(identifier);
+						if (modules.length == 0) {
+							target.setLoaded(true);
+						}
+					}
+					loadings.remove(identifier, future);
+					future.complete(current);
+				} catch (Throwable t) {
+					loadings.remove(identifier, future);
+					future.completeExceptionally(t);
+				}
+			});
+		} catch (Throwable e) {
+			loadings.remove(identifier, future);
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * 复制可变参数中的模块
+	 * <p>
+	 * 可变参数数组传递给其他方法时，编译器会提示堆污染，这里只逐个读取元素，生成一个新的数组
+	 *
+	 * @param length  模块数量
+	 * @param modules 按照下标读取模块
+	 * @return 模块
+	 */
+	@SuppressWarnings("unchecked")
+	private static Class<? extends IPlayerData>[] copy(int length, IntFunction<Class<? extends IPlayerData>> modules) {
+		if (length == 0) {
+			return (Class<? extends IPlayerData>[]) EMPTY_MODULES;
+		}
+		Class<? extends IPlayerData>[] array = (Class<? extends IPlayerData>[]) new Class<?>[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = modules.apply(i);
+		}
+		return array;
+	}
+
+	/**
+	 * 玩家是否已经加载了这些模块
+	 *
+	 * @param player  玩家
+	 * @param modules 模块 为空时检查是否已经完全加载
+	 * @return 是否已经加载
+	 */
+	private static boolean isLoaded(IPlayer<?> player, Class<? extends IPlayerData>[] modules) {
+		return modules.length == 0 ? player.isLoaded() : player.hasModules(modules);
+	}
+
 	/**
 	 * 移除玩家
 	 *
@@ -182,35 +423,111 @@ public class PlayerManager {
 	 */
 	@SafeVarargs
 	public static <T, R extends IPlayer<T>> R removePlayer(T identifier, Predicate<IPlayer<?>> predicate, Class<? extends IPlayerData>... modules) {
-		return unload(identifier, predicate, modules);
+		return unload(identifier, predicate, copy(modules.length, i -> modules[i]));
 	}
 
 	/**
 	 * 卸载玩家
+	 * <p>
+	 * 开启预写日志时，{@link PersistenceService}只将脏模块写入预写日志，卸载的数据不会参与检查点之前的
+	 * 完整存储，卸载之前先存储到数据库，存储失败时不卸载玩家。
 	 *
 	 * @param identifier 玩家唯一标识符
 	 * @param predicate  移除规则 {@code true} 移除 {@code false} 不移除
-     * @param modules    保留模块
-     * @param <T>        玩家主键类型
-     * @param <R>        玩家类型
-     * @return 被卸载的玩家
+	 * @param modules    保留模块
+	 * @param <T>        玩家主键类型
+	 * @param <R>        玩家类型
+	 * @return 卸载后的玩家，完全移出内存时返回{@code null}
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T, R extends IPlayer<T>> R unload(T identifier, Predicate<IPlayer<?>> predicate, Class<? extends IPlayerData>[] modules) {
-		BiFunction<Object, IPlayer<?>, IPlayer<?>> create = (playerId, player) -> {
-			if (player == null) {
-				return null;
+		IPlayer<?> player = players.get(identifier);
+		if (player == null) {
+			return null;
+		}
+		if (RedissonManager.getWriteAheadLog() != null && predicate.test(player)) {
+			Set<String> dirty = PersistenceService.discard(identifier);
+			try {
+				player.save(true);
+			} catch (Throwable e) {
+				PersistenceService.markDirty(player, dirty);
+				LogService.error(e, "玩家数据存储失败，不卸载玩家，玩家ID：" + identifier);
+				return (R) player;
 			}
-			if (predicate.test(player)) {
+		}
+		// 存储期间被重新加载的玩家没有存储，不卸载
+		BiFunction<Object, IPlayer<?>, IPlayer<?>> create = (playerId, current) -> {
+			if (current == player && predicate.test(current)) {
 				if (modules.length == 0) {
 					return null;
 				} else {
-					player.clearIfNot(modules);
+					current.clearIfNot(modules);
 				}
 			}
-			return player;
+			return current;
 		};
-		return (R) players.compute(identifier, create);
+		return (R) players.computeIfPresent(identifier, create);
+	}
+
+	/**
+	 * 玩家是否是内存中的玩家
+	 * <p>
+	 * 被卸载或者淘汰的玩家不会参与之后的完整存储。
+	 *
+	 * @param player 玩家
+	 * @return 是否在内存中
+	 */
+	static boolean isCurrent(IPlayer<?> player) {
+		return players.get(player.getIdentifier()) == player;
+	}
+
+	/**
+	 * 是否懒加载模块
+	 * <p>
+	 * 懒加载模式下，加载所有模块时只读取模块名称，模块在第一次访问时加载，登录时只需要加载实际
+	 * 用到的模块。
+	 *
+	 * @return 是否懒加载模块
+	 */
+	public static boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * 设置是否懒加载模块
+	 *
+	 * @param lazy 是否懒加载模块
+	 */
+	static void setLazy(boolean lazy) {
+		PlayerManager.lazy = lazy;
+	}
+
+	/**
+	 * 获取内存中的所有玩家
+	 *
+	 * @return 所有玩家
+	 */
+	static Collection<IPlayer<?>> getPlayers() {
+		return players.values();
+	}
+
+	/**
+	 * 将玩家移出内存
+	 *
+	 * @param player    玩家
+	 * @param predicate 移除规则，在持有玩家的锁时检查
+	 * @return 是否移除
+	 */
+	static boolean evict(IPlayer<?> player, Predicate<IPlayer<?>> predicate) {
+		boolean[] removed = new boolean[1];
+		players.computeIfPresent(player.getIdentifier(), (identifier, current) -> {
+			if (current == player && predicate.test(current)) {
+				removed[0] = true;
+				return null;
+			}
+			return current;
+		});
+		return removed[0];
 	}
 
 	/**
@@ -223,18 +540,193 @@ public class PlayerManager {
 		for (Class<IPlayerData> clazz : classes) {
 			APlayerData annotation = clazz.getDeclaredAnnotation(APlayerData.class);
 			PlayerManager.classes.put(annotation.moduleName(), clazz);
+			ModuleRegistry.register(clazz);
 			System.out.println("查找到数据结构：" + annotation.moduleName() +
 					"，是否压缩：" + annotation.isCompress());
 		}
 	}
 
 	public static void init() {
-		Executor single = Executors.newSingleThreadExecutor();
-		single.execute(new PlayerLoader());
+		init(KeimonsConfig.defaultConfig());
 	}
 
+	/**
+	 * 初始化
+	 *
+	 * @param config 配置
+	 */
+	public static void init(KeimonsConfig config) {
+		lazy = config.isPlayerLazy();
+		saveWorkers = config.getPlayerSaveWorkers();
+		saveBatch = config.getPlayerSaveBatch();
+		saveInflight = config.getPlayerSaveInflight();
+		saveDeadline = config.getPlayerSaveDeadline();
+		openStore(config.getPlayerStore(), Paths.get(config.getPlayerStorePath()),
+				config.getPlayerStoreSegment() * 1024L * 1024L);
+		CompressionService.init(config.getPlayerDictionarySize() * 1024);
+		// 预写日志和冷数据都是Redis的补充
+		boolean redis = StoreManager.getStore() instanceof RedisPlayerStore;
+		if (redis && !config.getPlayerWalPath().isEmpty()) {
+			openWriteAheadLog(Paths.get(config.getPlayerWalPath()), config.getPlayerWalSegment() * 1024L * 1024L);
+			startCheckpoint(config.getPlayerWalCheckpoint());
+		}
+		SnapshotService.init(config.getPlayerSnapshotThreads());
+		PlayerLoader.init(config.getPlayerLoadThreads(), config.getPlayerLoadParallelism());
+		PlayerCache.init(config.getPlayerCacheInterval(), config.getPlayerCacheIdle(),
+				config.getPlayerCacheBudget() * 1024L * 1024L);
+		if (redis && config.getPlayerTierDays() > 0) {
+			Path path = Paths.get(config.getPlayerTierPath());
+			try {
+				TieringService.init(new SegmentColdStore(path, config.getPlayerTierSegment() * 1024L * 1024L),
+						config.getPlayerTierDays(), config.getPlayerTierRate(), config.getPlayerTierPattern());
+			} catch (IOException e) {
+				throw new ModuleException("冷数据存储打开失败：" + path + "，" + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * 打开玩家数据存储
+	 *
+	 * @param type        存储类型
+	 * @param path        本地存储目录
+	 * @param segmentSize 本地存储的日志每个分段的最大长度 字节
+	 */
+	private static void openStore(String type, Path path, long segmentSize) {
+		IPlayerStore store;
+		try {
+			store = StoreManager.create(type, path, segmentSize);
+			store.open();
+		} catch (IllegalArgumentException | IOException e) {
+			throw new ModuleException("玩家数据存储打开失败：" + type + "，" + e.getMessage());
+		}
+		StoreManager.setStore(store);
+		LogService.info("玩家数据存储：" + store + "，能力：" + store.getCapabilities());
+		if (!store.hasCapability(IPlayerStore.Capability.DURABLE)) {
+			LogService.warn("玩家数据存储不能持久化，关闭后数据丢失：" + store);
+		}
+	}
+
+	/**
+	 * 打开预写日志
+	 * <p>
+	 * 先把上次进程退出时没有写入数据库的记录重放到数据库，再开始记录新的写入。重放在开放网络之前完成，
+	 * 重放失败时不能启动服务器，否则玩家会加载到旧的数据。
+	 *
+	 * @param path        日志目录
+	 * @param segmentSize 每个分段的最大长度 字节
+	 */
+	private static void openWriteAheadLog(Path path, long segmentSize) {
+		WriteAheadLog wal = new WriteAheadLog(path, segmentSize);
+		// 只有一个执行中的管道，按照记录的顺序写入数据库
+		BatchWriter writer = RedissonManager.createBatchWriter(saveBatch, 1);
+		long lsn;
+		try {
+			lsn = wal.replay(writer::write);
+		} catch (IOException e) {
+			throw new ModuleException("预写日志读取失败：" + path + "，" + e.getMessage());
+		}
+		List<MapWrite> failed = writer.flush().join();
+		if (!failed.isEmpty()) {
+			throw new ModuleException("预写日志重放失败：" + path + "，写入失败：" + failed.size());
+		}
+		try {
+			wal.open();
+		} catch (IOException e) {
+			throw new ModuleException("预写日志打开失败：" + path + "，" + e.getMessage());
+		}
+		wal.checkpoint(lsn);
+		RedissonManager.setWriteAheadLog(wal);
+		LogService.info("预写日志重放完成：" + path + "，写入数量：" + writer.getWritten());
+	}
+
+	/**
+	 * 开启定期全量存储
+	 * <p>
+	 * 开启预写日志时，延迟写入只记录到预写日志，数据库只通过全量存储更新。全量存储成功后删除已经写入
+	 * 数据库的日志分段，没有定期的全量存储，日志会一直增长，启动时的重放时间也会一直增长。
+	 *
+	 * @param interval 间隔 秒 小于等于0则不开启
+	 */
+	private static synchronized void startCheckpoint(int interval) {
+		if (interval <= 0 || checkpoint != null) {
+			return;
+		}
+		checkpoint = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-CHECKPOINT");
+			thread.setDaemon(true);
+			return thread;
+		});
+		checkpoint.scheduleWithFixedDelay(() -> {
+			try {
+				SaveEngine.SaveReport report = persistence(true, saveDeadline);
+				if (report.isSuccess()) {
+					LogService.info("玩家数据全量存储完成：" + report);
+				} else {
+					LogService.error("玩家数据全量存储失败，保留预写日志：" + report);
+				}
+			} catch (Throwable e) {
+				LogService.error(e);
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 停止定期全量存储，等待执行中的全量存储完成
+	 */
+	private static synchronized void stopCheckpoint() {
+		if (checkpoint == null) {
+			return;
+		}
+		checkpoint.shutdown();
+		try {
+			checkpoint.awaitTermination(saveDeadline <= 0 ? Long.MAX_VALUE : saveDeadline, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		checkpoint = null;
+	}
+
+	/**
+	 * 关闭
+	 *
+	 * @return 是否所有玩家都存储成功
+	 * @see #stop()
+	 */
 	public boolean shutdown() {
-		persistence(true);
-		return false;
+		return stop();
+	}
+
+	/**
+	 * 关闭
+	 * <p>
+	 * 停止延迟写入，并在最长时间内存储所有玩家
+	 *
+	 * @return 是否所有玩家都存储成功
+	 */
+	public static boolean stop() {
+		TieringService.shutdown();
+		PlayerCache.shutdown();
+		PersistenceService.shutdown();
+		stopCheckpoint();
+		SaveEngine.SaveReport report = persistence(true, saveDeadline);
+		SnapshotService.shutdown();
+		WriteAheadLog wal = RedissonManager.getWriteAheadLog();
+		if (wal != null) {
+			RedissonManager.setWriteAheadLog(null);
+			wal.close();
+		}
+		PlayerLoader.shutdown();
+		CompressionService.shutdown();
+		StoreManager.getStore().close();
+		MigrationService.dump();
+		LogService.info("玩家数据存储完成：" + report);
+		if (!report.getFailed().isEmpty()) {
+			LogService.error("玩家数据存储失败：" + report.getFailed());
+		}
+		if (!report.getUnfinished().isEmpty()) {
+			LogService.error("玩家数据未完成存储：" + report.getUnfinished());
+		}
+		return report.isSuccess();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,389 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.BatchWriter;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.unit.TimeUtil;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片并行存储
+ * <p>
+ * 停服时需要存储所有在线玩家，逐个序列化和写入的耗时随在线人数线性增长。这里按照玩家唯一标识
+ * 将玩家分配到{@code workers}个分片中，每个分片由一个线程序列化（序列化和压缩是CPU密集的操作），
+ * 并且使用自己的{@link BatchWriter}将写入合并到管道中执行。调用线程定时打印存储进度。
+ * <p>
+ * 指定了最长时间时，超过最长时间不再序列化新的玩家，也不再等待执行中的管道，立即返回结果。
+ * 未开始存储和未确认写入成功的玩家记录在{@link SaveReport#getUnfinished()}中，用于容器在
+ * 有限的终止时间内关闭服务器。
+ * <p>
+ * 开启快照存储时，玩家在安全点生成快照（见{@link SnapshotService}），分片线程只序列化快照，存储期间
+ * 玩家可以继续执行消息。没有开启快照存储时，存储期间玩家数据不应该被修改。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SaveEngine {
+
+	/**
+	 * 存储进度打印间隔 毫秒
+	 */
+	private static final long PROGRESS_INTERVAL = 1000;
+
+	/**
+	 * 未开始存储
+	 */
+	private static final int NONE = 0;
+
+	/**
+	 * 已经提交写入，等待确认
+	 */
+	private static final int SUBMITTED = 1;
+
+	/**
+	 * 存储成功
+	 */
+	private static final int SAVED = 2;
+
+	/**
+	 * 存储失败
+	 */
+	private static final int FAILED = 3;
+
+	/**
+	 * 分片数量
+	 */
+	private final int workers;
+
+	/**
+	 * 每个管道中的写入数量
+	 */
+	private final int batchSize;
+
+	/**
+	 * 每个分片最多同时执行的管道数量
+	 */
+	private final int inflight;
+
+	/**
+	 * 构造方法
+	 *
+	 * @param workers   分片数量
+	 * @param batchSize 每个管道中的写入数量
+	 * @param inflight  每个分片最多同时执行的管道数量
+	 */
+	public SaveEngine(int workers, int batchSize, int inflight) {
+		this.workers = Math.max(1, workers);
+		this.batchSize = batchSize;
+		this.inflight = inflight;
+	}
+
+	/**
+	 * 存储玩家
+	 *
+	 * @param players  玩家
+	 * @param coercive 是否强制存储
+	 * @param timeout  最长时间 毫秒 小于等于0则一直等待存储完成
+	 * @return 存储结果
+	 */
+	public SaveReport save(Collection<? extends IPlayer<?>> players, boolean coercive, long timeout) {
+		long start = TimeUtil.currentTimeMillis();
+		long deadline = timeout > 0 ? start + timeout : Long.MAX_VALUE;
+		List<Entry> entries = new ArrayList<>(players.size());
+		List<List<Entry>> shards = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++) {
+			shards.add(new ArrayList<>());
+		}
+		for (IPlayer<?> player : players) {
+			Entry entry = new Entry(player);
+			entries.add(entry);
+			int index = Math.floorMod(spread(player.getIdentifier().hashCode()), workers);
+			shards.get(index).add(entry);
+		}
+		AtomicInteger index = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-SAVE-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (List<Entry> shard : shards) {
+			if (!shard.isEmpty()) {
+				executor.execute(() -> save(shard, coercive, deadline));
+			}
+		}
+		executor.shutdown();
+		boolean finished = false;
+		try {
+			while (!(finished = executor.awaitTermination(remaining(deadline), TimeUnit.MILLISECONDS))) {
+				if (TimeUtil.currentTimeMillis() >= deadline) {
+					break;
+				}
+				LogService.info("玩家数据存储进度：" + count(entries, SAVED) + "/" + entries.size() +
+						"，失败：" + count(entries, FAILED));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!finished) {
+			executor.shutdownNow();
+		}
+		// 分片线程在截止时间放弃等待后，线程池可能刚好结束，有未完成的玩家同样是超时
+		boolean expired = !finished || count(entries, SAVED) + count(entries, FAILED) < entries.size();
+		SaveReport report = new SaveReport(entries.size(), TimeUtil.currentTimeMillis() - start, expired);
+		for (Entry entry : entries) {
+			switch (entry.state) {
+				case SAVED:
+					report.saved++;
+					break;
+				case FAILED:
+					report.failed.add(entry.player.getIdentifier());
+					break;
+				default:
+					report.unfinished.add(entry.player.getIdentifier());
+					break;
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * 存储一个分片
+	 *
+	 * @param shard    分片中的玩家
+	 * @param coercive 是否强制存储
+	 * @param deadline 截止时间
+	 */
+	private void save(List<Entry> shard, boolean coercive, long deadline) {
+		// 全量存储之后执行检查点，不再记录到预写日志
+		BatchWriter writer = new BatchWriter(StoreManager.getStore().direct(), batchSize, inflight);
+		// 先请求分片中所有玩家的快照，业务线程生成快照的同时，分片线程序列化已经完成的快照
+		if (SnapshotService.isEnabled()) {
+			for (Entry entry : shard) {
+				if (entry.player instanceof ISnapshotPersistence) {
+					entry.snapshot = SnapshotService.capture(entry.player, player -> player.snapshot(coercive));
+				}
+			}
+		}
+		for (Entry entry : shard) {
+			if (TimeUtil.currentTimeMillis() >= deadline || Thread.currentThread().isInterrupted()) {
+				break;
+			}
+			IPlayer<?> player = entry.player;
+			try {
+				if (entry.snapshot != null) {
+					long timeout = Math.max(0, deadline - TimeUtil.currentTimeMillis());
+					IPlayerSnapshot snapshot = entry.snapshot.get(timeout, TimeUnit.MILLISECONDS);
+					List<MapWrite> writes = SnapshotService.serialize(snapshot);
+					entry.submit(writes);
+					writer.write(writes);
+				} else if (player instanceof IBatchPersistence) {
+					List<MapWrite> writes = ((IBatchPersistence) player).serialize(coercive);
+					entry.submit(writes);
+					writer.write(writes);
+				} else {
+					player.save(coercive);
+					entry.state = SAVED;
+				}
+			} catch (InterruptedException e) {
+				// 超过最长时间被中断，未完成的玩家记为未完成
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				entry.state = FAILED;
+				LogService.error(e, "玩家数据存储失败，玩家ID：" + player.getIdentifier());
+			}
+		}
+		try {
+			long timeout = Math.max(0, deadline - TimeUtil.currentTimeMillis());
+			writer.flush().get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException | InterruptedException e) {
+			// 超过最长时间，未确认的玩家记为未完成
+			return;
+		} catch (Exception e) {
+			LogService.error(e);
+		}
+		// 所有管道执行完成后，仍未确认的写入全部失败
+		for (Entry entry : shard) {
+			if (entry.state == SUBMITTED) {
+				entry.state = FAILED;
+				LogService.error("玩家数据写入失败，玩家ID：" + entry.player.getIdentifier());
+			}
+		}
+	}
+
+	/**
+	 * 距离下一次打印进度的等待时长
+	 *
+	 * @param deadline 截止时间
+	 * @return 等待时长 毫秒
+	 */
+	private static long remaining(long deadline) {
+		long remaining = deadline - TimeUtil.currentTimeMillis();
+		return Math.max(0, Math.min(PROGRESS_INTERVAL, remaining));
+	}
+
+	private static int count(List<Entry> entries, int state) {
+		int count = 0;
+		for (Entry entry : entries) {
+			if (entry.state == state) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 打散哈希值，避免连续的数字主键集中在少数分片
+	 */
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16) ^ (hash * 0x9E3779B9);
+	}
+
+	/**
+	 * 一个玩家的存储状态
+	 */
+	private static class Entry {
+
+		/**
+		 * 玩家
+		 */
+		private final IPlayer<?> player;
+
+		/**
+		 * 等待确认的写入数量
+		 */
+		private final AtomicInteger pending = new AtomicInteger();
+
+		/**
+		 * 存储状态
+		 */
+		private volatile int state = NONE;
+
+		/**
+		 * 快照 没有使用快照存储时为{@code null}
+		 */
+		private CompletableFuture<IPlayerSnapshot> snapshot;
+
+		Entry(IPlayer<?> player) {
+			this.player = player;
+		}
+
+		/**
+		 * 提交写入，所有写入成功后存储成功
+		 *
+		 * @param writes 写入操作
+		 */
+		void submit(List<MapWrite> writes) {
+			if (writes.isEmpty()) {
+				state = SAVED;
+				return;
+			}
+			pending.set(writes.size());
+			state = SUBMITTED;
+			for (MapWrite write : writes) {
+				write.onSuccess(() -> {
+					if (pending.decrementAndGet() == 0) {
+						state = SAVED;
+					}
+				});
+			}
+		}
+	}
+
+	/**
+	 * 存储结果
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	public static class SaveReport {
+
+		/**
+		 * 玩家数量
+		 */
+		private final int total;
+
+		/**
+		 * 耗时 毫秒
+		 */
+		private final long elapsed;
+
+		/**
+		 * 是否超过最长时间
+		 */
+		private final boolean timeout;
+
+		/**
+		 * 存储成功的玩家数量
+		 */
+		private int saved;
+
+		/**
+		 * 存储失败的玩家
+		 */
+		private final List<Object> failed = new ArrayList<>();
+
+		/**
+		 * 超过最长时间，未开始存储或未确认写入成功的玩家
+		 */
+		private final List<Object> unfinished = new ArrayList<>();
+
+		SaveReport(int total, long elapsed, boolean timeout) {
+			this.total = total;
+			this.elapsed = elapsed;
+			this.timeout = timeout;
+		}
+
+		/**
+		 * 是否所有玩家都存储成功
+		 *
+		 * @return {@code true}所有玩家都存储成功
+		 */
+		public boolean isSuccess() {
+			return saved == total;
+		}
+
+		public int getTotal() {
+			return total;
+		}
+
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		public boolean isTimeout() {
+			return timeout;
+		}
+
+		public int getSaved() {
+			return saved;
+		}
+
+		public List<Object> getFailed() {
+			return failed;
+		}
+
+		public List<Object> getUnfinished() {
+			return unfinished;
+		}
+
+		@Override
+		public String toString() {
+			return "total=" + total + ", saved=" + saved + ", failed=" + failed.size() +
+					", unfinished=" + unfinished.size() + ", elapsed=" + elapsed + "ms" +
+					(timeout ? ", timeout" : "");
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,307 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.datebase.WriteAheadLog;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.session.Session;
+import com.keimons.platform.unit.Histogram;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 快照存储服务
+ * <p>
+ * 存储线程直接序列化玩家时，业务线程可能同时在修改同一个数据对象，读到的数据可能一半是修改前的，
+ * 一半是修改后的。实现了{@link ISnapshotPersistence}的玩家，先在安全点生成快照，再由存储线程池
+ * 合并、压缩和写入数据库。
+ * <p>
+ * 安全点通过{@link Session#schedule(Runnable)}选择：会话连接中的玩家，生成快照的任务和玩家的消息
+ * 在同一个队列中排队，执行时没有这个玩家的消息正在执行；没有会话的玩家不会有业务线程修改数据，
+ * 直接在调用线程中生成快照。生成快照时只编码数据对象，业务线程只需要为存储付出编码的开销。
+ * <p>
+ * 注意：不要在玩家的业务线程中等待快照完成，快照排在当前消息之后，等待会导致死锁。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SnapshotService {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "snapshot";
+
+	/**
+	 * 生成的快照数量
+	 */
+	private static final LongAdder captures = new LongAdder();
+
+	/**
+	 * 存储失败的次数
+	 */
+	private static final LongAdder failures = new LongAdder();
+
+	/**
+	 * 从提交到开始生成快照的等待时间 毫秒
+	 */
+	private static final Histogram waits = new Histogram();
+
+	/**
+	 * 在安全点生成快照的耗时 微秒
+	 */
+	private static final Histogram captureTimes = new Histogram();
+
+	/**
+	 * 在存储线程中序列化快照的耗时 微秒
+	 */
+	private static final Histogram serializeTimes = new Histogram();
+
+	/**
+	 * 存储线程池 {@code null}则表示没有开启快照存储
+	 */
+	private static volatile ExecutorService executor = create(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * 是否开启快照存储
+	 *
+	 * @return 是否开启
+	 */
+	public static boolean isEnabled() {
+		return executor != null;
+	}
+
+	/**
+	 * 获取存储线程池
+	 *
+	 * @return 存储线程池 {@code null}则表示没有开启快照存储
+	 */
+	public static Executor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * 在玩家的安全点生成快照
+	 *
+	 * @param player   玩家
+	 * @param snapshot 生成快照
+	 * @return 快照
+	 */
+	public static CompletableFuture<IPlayerSnapshot> capture(
+			IPlayer<?> player, Function<ISnapshotPersistence, IPlayerSnapshot> snapshot) {
+		ISnapshotPersistence persistence = (ISnapshotPersistence) player;
+		CompletableFuture<IPlayerSnapshot> future = new CompletableFuture<>();
+		long submitTime = System.nanoTime();
+		Runnable task = () -> {
+			long startTime = System.nanoTime();
+			waits.record(TimeUnit.NANOSECONDS.toMillis(startTime - submitTime));
+			try {
+				future.complete(snapshot.apply(persistence));
+				captures.increment();
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+			captureTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+		};
+		Session session = player.getSession();
+		if (session != null && session.isConnect()) {
+			session.schedule(task);
+		} else {
+			task.run();
+		}
+		return future;
+	}
+
+	/**
+	 * 存储玩家的所有模块
+	 * <p>
+	 * 没有开启快照存储或者玩家不支持快照时，在调用线程中通过{@link IPlayer#save(boolean)}存储。
+	 *
+	 * @param player   玩家
+	 * @param coercive 是否强制存储
+	 * @return 存储完成
+	 */
+	public static CompletableFuture<Void> save(IPlayer<?> player, boolean coercive) {
+		ExecutorService executor = SnapshotService.executor;
+		if (executor == null || !(player instanceof ISnapshotPersistence)) {
+			return run(() -> player.save(coercive));
+		}
+		return capture(player, persistence -> persistence.snapshot(coercive))
+				.thenAcceptAsync(SnapshotService::write, executor);
+	}
+
+	/**
+	 * 存储玩家的部分模块
+	 * <p>
+	 * 没有开启快照存储或者玩家不支持快照时，在调用线程中通过{@link IPlayer#save(Set)}存储。
+	 *
+	 * @param player      玩家
+	 * @param moduleNames 模块名称
+	 * @return 存储完成
+	 */
+	public static CompletableFuture<Void> save(IPlayer<?> player, Set<String> moduleNames) {
+		ExecutorService executor = SnapshotService.executor;
+		if (executor == null || !(player instanceof ISnapshotPersistence)) {
+			return run(() -> player.save(moduleNames));
+		}
+		return capture(player, persistence -> persistence.snapshot(moduleNames))
+				.thenAcceptAsync(SnapshotService::write, executor);
+	}
+
+	/**
+	 * 记录玩家的部分模块到预写日志
+	 * <p>
+	 * 只记录到预写日志，不写入数据库，也不执行写入成功的回调，按元素增量存储的模块依然和数据库中的数据
+	 * 对比。没有开启预写日志、没有开启快照存储或者玩家不支持快照时，通过{@link #save(IPlayer, Set)}存储。
+	 *
+	 * @param player      玩家
+	 * @param moduleNames 模块名称
+	 * @return 记录同步到磁盘后完成
+	 */
+	public static CompletableFuture<Void> journal(IPlayer<?> player, Set<String> moduleNames) {
+		ExecutorService executor = SnapshotService.executor;
+		WriteAheadLog wal = RedissonManager.getWriteAheadLog();
+		if (wal == null || executor == null || !(player instanceof ISnapshotPersistence)) {
+			return save(player, moduleNames);
+		}
+		return capture(player, persistence -> persistence.snapshot(moduleNames))
+				.thenApplyAsync(SnapshotService::serialize, executor)
+				.thenCompose(writes -> wal.append(writes).thenApply(lsn -> (Void) null));
+	}
+
+	/**
+	 * 序列化快照并写入数据库
+	 *
+	 * @param snapshot 快照
+	 */
+	private static void write(IPlayerSnapshot snapshot) {
+		List<MapWrite> writes = serialize(snapshot);
+		try {
+			StoreManager.getStore().write(writes);
+		} catch (RuntimeException e) {
+			failures.increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * 序列化快照
+	 *
+	 * @param snapshot 快照
+	 * @return 写入操作
+	 */
+	public static List<MapWrite> serialize(IPlayerSnapshot snapshot) {
+		long startTime = System.nanoTime();
+		List<MapWrite> writes = snapshot.serialize();
+		serializeTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+		return writes;
+	}
+
+	private static CompletableFuture<Void> run(Runnable runnable) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		try {
+			runnable.run();
+			future.complete(null);
+		} catch (Throwable e) {
+			failures.increment();
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+
+	public static long getCaptures() {
+		return captures.sum();
+	}
+
+	public static long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * 获取等待安全点的统计快照
+	 *
+	 * @return 从提交到开始生成快照的等待时间 毫秒
+	 */
+	public static Histogram.Snapshot getWait() {
+		return waits.snapshot();
+	}
+
+	/**
+	 * 获取生成快照耗时的统计快照
+	 *
+	 * @return 在安全点生成快照的耗时 微秒
+	 */
+	public static Histogram.Snapshot getCaptureTime() {
+		return captureTimes.snapshot();
+	}
+
+	/**
+	 * 获取序列化耗时的统计快照
+	 *
+	 * @return 在存储线程中序列化快照的耗时 微秒
+	 */
+	public static Histogram.Snapshot getSerializeTime() {
+		return serializeTimes.snapshot();
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		LogService.log(LOG_NAME, "enabled=" + isEnabled() + ", captures=" + getCaptures() +
+				", failures=" + getFailures() + ", wait(ms)=" + getWait() +
+				", capture(us)=" + getCaptureTime() + ", serialize(us)=" + getSerializeTime());
+	}
+
+	/**
+	 * 初始化
+	 *
+	 * @param threads 存储线程数量 小于等于0则关闭快照存储
+	 */
+	public static synchronized void init(int threads) {
+		ExecutorService before = executor;
+		executor = threads <= 0 ? null : create(threads);
+		if (before != null) {
+			before.shutdown();
+		}
+	}
+
+	/**
+	 * 关闭
+	 * <p>
+	 * 等待已经提交的存储完成，之后的存储在调用线程中执行
+	 */
+	public static synchronized void shutdown() {
+		ExecutorService executor = SnapshotService.executor;
+		SnapshotService.executor = null;
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		dump();
+	}
+
+	private static ExecutorService create(int threads) {
+		AtomicInteger index = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-SNAPSHOT-" + index.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+}
\ No newline at end of file
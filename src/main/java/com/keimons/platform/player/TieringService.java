@@ -0,0 +1,512 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.datebase.IColdStore;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.log.LogService;
+import com.keimons.platform.module.ElementModuleSerialize;
+import com.keimons.platform.unit.Histogram;
+import com.keimons.platform.unit.TimeUtil;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.StringCodec;
+import org.xerial.snappy.Snappy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 玩家数据分层存储服务
+ * <p>
+ * 数据库中保存着所有玩家的数据，其中大部分是很久没有登录的玩家。玩家每次加载到内存时，在
+ * {@link #ACTIVE_KEY}中记录活跃时间，后台线程每秒最多将{@code rate}个超过{@code inactive}没有活跃
+ * 的玩家从数据库迁移到{@link IColdStore}中：读取玩家数据和所有按元素增量存储的哈希桶，编码并压缩为
+ * 一条记录，写入冷数据存储后删除数据库中的数据。
+ * <p>
+ * {@link PlayerManager}加载不在内存中的玩家之前调用{@link #rehydrateAsync(Object, Executor)}，玩家在冷数据存储中时，
+ * 先写回数据库，再从数据库加载，调用者不需要知道玩家在哪一层。同一个玩家的迁移和写回互斥，内存中和
+ * 加载中的玩家不会被迁移。
+ * <p>
+ * 注意：只支持唯一标识就是数据库中的键的玩家，例如：{@link com.keimons.platform.keimons.DefaultPlayer}。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class TieringService {
+
+	/**
+	 * 日志名称
+	 */
+	public static final String LOG_NAME = "tiering";
+
+	/**
+	 * 记录玩家活跃时间的计分排序集 Value:玩家唯一标识 Score:活跃时间
+	 */
+	public static final String ACTIVE_KEY = "keimons:player:active";
+
+	/**
+	 * 记录的格式 Snappy压缩
+	 */
+	private static final byte FORMAT_SNAPPY = 1;
+
+	/**
+	 * 回填活跃时间时每次扫描的键数量
+	 */
+	private static final int SCAN_COUNT = 1000;
+
+	/**
+	 * 迁移和写回的锁 按照玩家唯一标识分段
+	 */
+	private static final Object[] locks = new Object[64];
+
+	static {
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	/**
+	 * 迁移到冷数据存储的玩家数量
+	 */
+	private static final LongAdder archives = new LongAdder();
+
+	/**
+	 * 写回数据库的玩家数量
+	 */
+	private static final LongAdder rehydrates = new LongAdder();
+
+	/**
+	 * 迁移失败的次数
+	 */
+	private static final LongAdder failures = new LongAdder();
+
+	/**
+	 * 迁移前数据库中的数据大小 字节
+	 */
+	private static final LongAdder rawBytes = new LongAdder();
+
+	/**
+	 * 迁移后冷数据存储中的数据大小 字节
+	 */
+	private static final LongAdder archivedBytes = new LongAdder();
+
+	/**
+	 * 迁移一个玩家的耗时 微秒
+	 */
+	private static final Histogram archiveTimes = new Histogram();
+
+	/**
+	 * 写回一个玩家的耗时 微秒
+	 */
+	private static final Histogram rehydrateTimes = new Histogram();
+
+	/**
+	 * 冷数据存储 {@code null}则表示没有开启分层存储
+	 */
+	private static volatile IColdStore store;
+
+	/**
+	 * 超过这个时间没有活跃的玩家迁移到冷数据存储 毫秒
+	 */
+	private static long inactive;
+
+	/**
+	 * 每秒最多迁移的玩家数量
+	 */
+	private static int rate;
+
+	/**
+	 * 迁移线程
+	 */
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 是否开启分层存储
+	 *
+	 * @return 是否开启
+	 */
+	public static boolean isEnabled() {
+		return store != null;
+	}
+
+	/**
+	 * 记录玩家的活跃时间
+	 * <p>
+	 * 异步执行，不等待结果
+	 *
+	 * @param identifier 玩家唯一标识
+	 */
+	public static void touch(Object identifier) {
+		if (store == null) {
+			return;
+		}
+		RedissonManager.addScoredSortedSetValueAsync(StringCodec.INSTANCE, ACTIVE_KEY,
+				TimeUtil.currentTimeMillis(), String.valueOf(identifier)).whenComplete((v, e) -> {
+			if (e != null) {
+				LogService.error(e, "记录玩家活跃时间失败，玩家ID：" + identifier);
+			}
+		});
+	}
+
+	/**
+	 * 迁移一批不活跃的玩家
+	 *
+	 * @param limit 最多迁移的玩家数量
+	 * @return 迁移的玩家数量
+	 */
+	public static int archive(int limit) {
+		IColdStore store = TieringService.store;
+		if (store == null) {
+			return 0;
+		}
+		long deadline = TimeUtil.currentTimeMillis() - inactive;
+		Collection<String> identifiers = RedissonManager.getScoredSortedSetValues(StringCodec.INSTANCE,
+				ACTIVE_KEY, 0, deadline, 0, limit);
+		int count = 0;
+		for (String identifier : identifiers) {
+			try {
+				if (archive(store, identifier)) {
+					count++;
+				}
+			} catch (IOException | RuntimeException e) {
+				// 冷数据存储或数据库不可用，等待下一次迁移
+				failures.increment();
+				LogService.error(e, "玩家数据迁移到冷数据存储失败，玩家ID：" + identifier);
+				break;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 迁移一个玩家
+	 *
+	 * @param store      冷数据存储
+	 * @param identifier 玩家唯一标识
+	 * @return 是否迁移
+	 * @throws IOException 写入冷数据存储错误
+	 */
+	private static boolean archive(IColdStore store, String identifier) throws IOException {
+		long startTime = System.nanoTime();
+		synchronized (lock(identifier)) {
+			if (PlayerManager.isCached(identifier)) {
+				// 长时间在线的玩家
+				touch(identifier);
+				return false;
+			}
+			Map<String, Map<byte[], byte[]>> hashes = new LinkedHashMap<>();
+			Map<byte[], byte[]> main = RedissonManager.getMapValues(ByteArrayCodec.INSTANCE, identifier);
+			if (!main.isEmpty()) {
+				hashes.put(identifier, main);
+				for (Map.Entry<byte[], byte[]> entry : main.entrySet()) {
+					// 按元素增量存储的模块
+					if (entry.getValue().length == 0) {
+						String moduleName = new String(entry.getKey(), StandardCharsets.UTF_8);
+						String key = ElementModuleSerialize.getKey(identifier, moduleName);
+						hashes.put(key, RedissonManager.getMapValues(ByteArrayCodec.INSTANCE, key));
+					}
+				}
+				byte[] raw = encode(hashes);
+				byte[] value = compress(raw);
+				store.put(identifier, value);
+				RedissonManager.del(hashes.keySet().toArray(new String[0]));
+				rawBytes.add(raw.length);
+				archivedBytes.add(value.length);
+				archives.increment();
+			}
+			RedissonManager.removeScoredSortedSetValue(StringCodec.INSTANCE, ACTIVE_KEY, identifier);
+		}
+		archiveTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+		return true;
+	}
+
+	/**
+	 * 将冷数据存储中的玩家写回数据库
+	 * <p>
+	 * 玩家不在冷数据存储中时直接返回。在锁中检查，迁移中的玩家等待迁移完成后写回，不会读取到
+	 * 迁移了一半的数据库。
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @throws IOException 读取冷数据存储错误
+	 */
+	public static void rehydrate(Object identifier) throws IOException {
+		IColdStore store = TieringService.store;
+		if (store == null) {
+			return;
+		}
+		String key = String.valueOf(identifier);
+		long startTime = System.nanoTime();
+		synchronized (lock(key)) {
+			if (!store.contains(key)) {
+				return;
+			}
+			byte[] value = store.get(key);
+			Map<String, Map<byte[], byte[]>> hashes = decode(decompress(value));
+			List<MapWrite> writes = new ArrayList<>(hashes.size());
+			for (Map.Entry<String, Map<byte[], byte[]>> entry : hashes.entrySet()) {
+				// 删除数据库中残留的同名哈希桶，与写入在同一个管道中执行
+				writes.add(new MapWrite(ByteArrayCodec.INSTANCE, entry.getKey()).clear().putAll(entry.getValue()));
+			}
+			RedissonManager.setMapValues(writes);
+			store.remove(key);
+			touch(key);
+		}
+		rehydrates.increment();
+		rehydrateTimes.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+	}
+
+	/**
+	 * 在线程池中将冷数据存储中的玩家写回数据库
+	 * <p>
+	 * 写回需要读取冷数据存储、解压和写入数据库，迁移中的玩家还要等待迁移完成，不能在提交加载的线程中
+	 * 执行。没有开启分层存储时直接完成。
+	 *
+	 * @param identifier 玩家唯一标识
+	 * @param executor   执行写回的线程池
+	 * @return 写回完成，读取冷数据存储错误时以异常完成
+	 */
+	public static CompletableFuture<Void> rehydrateAsync(Object identifier, Executor executor) {
+		if (store == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return CompletableFuture.runAsync(() -> {
+			try {
+				rehydrate(identifier);
+			} catch (IOException e) {
+				throw new IllegalStateException("玩家数据写回失败，玩家ID：" + identifier, e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * 为没有活跃时间的玩家记录活跃时间
+	 * <p>
+	 * 开启分层存储之前的玩家没有活跃时间，通过{@code SCAN}遍历数据库中所有匹配{@code pattern}的键，
+	 * 以当前时间作为这些玩家的活跃时间，超过{@code inactive}后迁移。已经有活跃时间的玩家不受影响。
+	 *
+	 * @param pattern 玩家数据的键
+	 * @return 记录的玩家数量
+	 */
+	public static int track(String pattern) {
+		long now = TimeUtil.currentTimeMillis();
+		int count = 0;
+		for (String key : RedissonManager.getRedisson().getKeys().getKeysByPattern(pattern, SCAN_COUNT)) {
+			if (key.equals(ACTIVE_KEY) || MigrationService.isElementKey(key)) {
+				continue;
+			}
+			if (RedissonManager.addScoredSortedSetValueIfAbsent(StringCodec.INSTANCE, ACTIVE_KEY, now, key)) {
+				count++;
+			}
+		}
+		LogService.log(LOG_NAME, "回填活跃时间完成：" + pattern + "，玩家数量：" + count);
+		return count;
+	}
+
+	private static Object lock(String identifier) {
+		return locks[(identifier.hashCode() & 0x7FFFFFFF) % locks.length];
+	}
+
+	/**
+	 * 编码玩家的所有哈希桶
+	 *
+	 * @param hashes Key:键 Value:哈希桶
+	 * @return 编码后的数据
+	 * @throws IOException 编码错误
+	 */
+	private static byte[] encode(Map<String, Map<byte[], byte[]>> hashes) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+		DataOutputStream output = new DataOutputStream(buffer);
+		output.writeInt(hashes.size());
+		for (Map.Entry<String, Map<byte[], byte[]>> entry : hashes.entrySet()) {
+			writeBytes(output, entry.getKey().getBytes(StandardCharsets.UTF_8));
+			output.writeInt(entry.getValue().size());
+			for (Map.Entry<byte[], byte[]> field : entry.getValue().entrySet()) {
+				writeBytes(output, field.getKey());
+				writeBytes(output, field.getValue());
+			}
+		}
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * 解码玩家的所有哈希桶
+	 *
+	 * @param bytes 编码后的数据
+	 * @return Key:键 Value:哈希桶
+	 * @throws IOException 解码错误
+	 */
+	private static Map<String, Map<byte[], byte[]>> decode(byte[] bytes) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+		int size = input.readInt();
+		Map<String, Map<byte[], byte[]>> hashes = new LinkedHashMap<>(size * 4 / 3 + 1);
+		for (int i = 0; i < size; i++) {
+			String key = new String(readBytes(input), StandardCharsets.UTF_8);
+			int fields = input.readInt();
+			Map<byte[], byte[]> hash = new LinkedHashMap<>(fields * 4 / 3 + 1);
+			for (int j = 0; j < fields; j++) {
+				hash.put(readBytes(input), readBytes(input));
+			}
+			hashes.put(key, hash);
+		}
+		return hashes;
+	}
+
+	private static byte[] compress(byte[] bytes) throws IOException {
+		byte[] compressed = Snappy.compress(bytes);
+		byte[] value = new byte[compressed.length + 1];
+		value[0] = FORMAT_SNAPPY;
+		System.arraycopy(compressed, 0, value, 1, compressed.length);
+		return value;
+	}
+
+	private static byte[] decompress(byte[] value) throws IOException {
+		if (value[0] != FORMAT_SNAPPY) {
+			throw new IOException("无法识别的冷数据格式：" + value[0]);
+		}
+		byte[] compressed = new byte[value.length - 1];
+		System.arraycopy(value, 1, compressed, 0, compressed.length);
+		return Snappy.uncompress(compressed);
+	}
+
+	private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream input) throws IOException {
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * 获取迁移到冷数据存储的玩家数量
+	 *
+	 * @return 玩家数量
+	 */
+	public static long getArchives() {
+		return archives.sum();
+	}
+
+	/**
+	 * 获取写回数据库的玩家数量
+	 *
+	 * @return 玩家数量
+	 */
+	public static long getRehydrates() {
+		return rehydrates.sum();
+	}
+
+	/**
+	 * 获取迁移失败的次数
+	 *
+	 * @return 失败次数
+	 */
+	public static long getFailures() {
+		return failures.sum();
+	}
+
+	/**
+	 * 获取迁移一个玩家的耗时分布
+	 *
+	 * @return 耗时 微秒
+	 */
+	public static Histogram.Snapshot getArchiveTime() {
+		return archiveTimes.snapshot();
+	}
+
+	/**
+	 * 获取写回一个玩家的耗时分布
+	 *
+	 * @return 耗时 微秒
+	 */
+	public static Histogram.Snapshot getRehydrateTime() {
+		return rehydrateTimes.snapshot();
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		IColdStore store = TieringService.store;
+		LogService.log(LOG_NAME, "enabled=" + (store != null) + ", archives=" + getArchives() +
+				", rehydrates=" + getRehydrates() + ", failures=" + getFailures() +
+				", raw=" + rawBytes.sum() + ", archived=" + archivedBytes.sum() +
+				", archive(us)=" + getArchiveTime() + ", rehydrate(us)=" + getRehydrateTime() +
+				(store == null ? "" : ", store={" + store + "}"));
+	}
+
+	/**
+	 * 初始化
+	 *
+	 * @param store   冷数据存储
+	 * @param days    超过这个天数没有活跃的玩家迁移到冷数据存储
+	 * @param rate    每秒最多迁移的玩家数量
+	 * @param pattern 需要回填活跃时间的玩家数据的键 为空则不回填
+	 * @throws IOException 打开冷数据存储错误
+	 */
+	public static synchronized void init(IColdStore store, int days, int rate, String pattern) throws IOException {
+		store.open();
+		TieringService.inactive = TimeUnit.DAYS.toMillis(days);
+		TieringService.rate = rate;
+		TieringService.store = store;
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PLAYER-TIERING");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (!pattern.isEmpty()) {
+			scheduler.execute(() -> track(pattern));
+		}
+		scheduler.scheduleWithFixedDelay(TieringService::run, 1, 1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 每秒执行一次迁移
+	 */
+	private static void run() {
+		try {
+			archive(TieringService.rate);
+			store.compact();
+		} catch (Throwable e) {
+			LogService.error(e);
+		}
+	}
+
+	/**
+	 * 关闭
+	 * <p>
+	 * 等待执行中的迁移完成，之后不再迁移和写回玩家
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler == null) {
+			return;
+		}
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		scheduler = null;
+		dump();
+		IColdStore store = TieringService.store;
+		TieringService.store = null;
+		store.close();
+	}
+}
\ No newline at end of file
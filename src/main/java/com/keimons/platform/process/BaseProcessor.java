@@ -3,9 +3,9 @@ package com.keimons.platform.process;
 import com.keimons.platform.session.Session;
 import com.keimons.platform.thread.DefaultExecutorConfig;
 import com.keimons.platform.thread.IExecutorConfig;
-import com.keimons.platform.thread.IThreadRoute;
 import com.keimons.platform.thread.KeimonsExecutor;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -71,6 +71,21 @@ public abstract class BaseProcessor<T> implements IHandler<T> {
 	 */
 	private int AND;
 
+	/**
+	 * 运行统计
+	 */
+	protected final ProcessorStat stat;
+
+	/**
+	 * 是否自适应线程等级
+	 */
+	private final boolean auto;
+
+	/**
+	 * 分发描述 注册时生成，没有注册的消息处理器在第一次分发时生成
+	 */
+	private DispatchDescriptor descriptor;
+
 	protected BaseProcessor() {
 		AProcessor annotation = this.getClass().getAnnotation(AProcessor.class);
 		this.msgCode = annotation.MsgCode();
@@ -81,6 +96,21 @@ public abstract class BaseProcessor<T> implements IHandler<T> {
 
 		this.executorTimes = new int[this.sampling];
 		this.AND = this.sampling - 1;
+		this.stat = ProcessorMetrics.register(this.msgCode, this.desc);
+		this.auto = this.executorConfig == DefaultExecutorConfig.AUTO;
+	}
+
+	/**
+	 * 编译消息处理器
+	 * <p>
+	 * 在消息处理器注册时调用，解析执行器和路由规则，生成不可变的分发描述。
+	 *
+	 * @return 分发描述
+	 */
+	DispatchDescriptor compile() {
+		DispatchDescriptor descriptor = DispatchDescriptor.compile(this, EXECUTOR);
+		this.descriptor = descriptor;
+		return descriptor;
 	}
 
 	/**
@@ -90,46 +120,60 @@ public abstract class BaseProcessor<T> implements IHandler<T> {
 	 */
 	@Override
 	public boolean handler(Session session, T packet) {
-		DefaultExecutorConfig config = (DefaultExecutorConfig) this.executorConfig;
-		if (config == DefaultExecutorConfig.AUTO) {
-			int executeTime = executorTime / sampling;
-			if (executeTime < 20) {
-				config = DefaultExecutorConfig.FAST;
-			} else {
-				config = DefaultExecutorConfig.SLOW;
-			}
-		}
+		execute(session, packet, new ProcessorTask(this, session, packet, 1));
+		return true;
+	}
 
-		Runnable runnable = () -> {
-			try {
-				processor(session, packet);
-			} finally {
-				session.finish();
-			}
-		};
-		if (config.isRoute()) {
-			int route = route(session, packet, config.getThreadNumb());
-			EXECUTOR.execute(config, route, runnable);
-		} else {
-			EXECUTOR.execute(config, runnable);
+	/**
+	 * 选择线程并执行任务
+	 * <p>
+	 * 如果线程是自适应等级，则根据历史本消息执行时长，计算出来它应该使用的线程。
+	 *
+	 * @param session 会话
+	 * @param packet  用于路由的消息体
+	 * @param task    任务
+	 */
+	void execute(Session session, T packet, Runnable task) {
+		DispatchDescriptor descriptor = this.descriptor;
+		if (descriptor == null) {
+			// 直接放入HandlerManager#processors中的消息处理器没有经过注册
+			descriptor = compile();
 		}
-		return true;
+		DispatchDescriptor.Target target = descriptor.target;
+		if (descriptor.auto) {
+			target = executorTime / sampling < 20 ? descriptor.fast : descriptor.slow;
+		}
+		target.execute(session, packet, task);
+	}
+
+	/**
+	 * 调用消息处理
+	 *
+	 * @param session 会话
+	 * @param payload 消息体
+	 */
+	@SuppressWarnings("unchecked")
+	void invoke(Session session, Object payload) {
+		processor(session, (T) payload);
 	}
 
 	/**
-	 * 获取旅游线程
+	 * 完成消息执行
+	 * <p>
+	 * 记录运行统计，并释放会话，让会话继续执行下一个消息
 	 *
-	 * @param session  会话
-	 * @param packet   消息体
-	 * @param maxIndex 最大线程ID
-	 * @return 线程index
-	 */
-	public int route(Session session, Object packet, int maxIndex) {
-		if (this instanceof IThreadRoute) {
-			return ((IThreadRoute) this).route(session, packet, maxIndex);
-		} else {
-			return session.getSessionId() % maxIndex;
+	 * @param session    会话
+	 * @param commitTime 提交时间 纳秒
+	 * @param startTime  开始执行时间 纳秒
+	 * @param packets    本次处理的消息数量
+	 */
+	void finish(Session session, long commitTime, long startTime, int packets) {
+		long finishTime = System.nanoTime();
+		stat.record(startTime - commitTime, finishTime - startTime, packets);
+		if (auto) {
+			updateExecuteTime((int) TimeUnit.NANOSECONDS.toMillis(finishTime - startTime));
 		}
+		session.finish();
 	}
 
 	/**
@@ -138,8 +182,7 @@ public abstract class BaseProcessor<T> implements IHandler<T> {
 	 * @param executeTime 消息执行时长
 	 */
 	public void updateExecuteTime(int executeTime) {
-		DefaultExecutorConfig config = (DefaultExecutorConfig) this.executorConfig;
-		if (config == DefaultExecutorConfig.AUTO) {
+		if (auto) {
 			int index = this.index.getAndIncrement() & AND;
 			executorTime -= this.executorTimes[index];
 			this.executorTimes[index] = executeTime;
@@ -161,4 +204,31 @@ public abstract class BaseProcessor<T> implements IHandler<T> {
 	public Enum<? extends IExecutorConfig> getExecutorConfig() {
 		return executorConfig;
 	}
+
+	/**
+	 * 获取运行统计
+	 *
+	 * @return 运行统计
+	 */
+	public ProcessorStat getStat() {
+		return stat;
+	}
+
+	/**
+	 * 获取分发描述
+	 *
+	 * @return 分发描述 {@code null}则表示消息处理器尚未注册
+	 */
+	public DispatchDescriptor getDescriptor() {
+		return descriptor;
+	}
+
+	/**
+	 * 获取消息处理器使用的线程池
+	 *
+	 * @return 线程池
+	 */
+	public static KeimonsExecutor getExecutor() {
+		return EXECUTOR;
+	}
 }
\ No newline at end of file
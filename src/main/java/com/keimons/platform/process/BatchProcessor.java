@@ -0,0 +1,76 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.session.Session;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量消息处理器
+ * <p>
+ * 客户端有时会连续发送大量相同的消息，例如：移动、输入帧等。普通的消息处理器中，每一个消息都
+ * 会单独经过一次分发和执行。继承这个类的消息处理器，在执行时会将会话消息队列中，队首连续的同一
+ * 消息号的消息一并取出，交由{@link #processor(Session, List)}一次处理，业务逻辑可以借此合并
+ * 冗余的更新。
+ * <p>
+ * 消息只在会话空闲时被取出，取出的消息依然按照到达的顺序排列，不会越过其它消息号的消息。
+ *
+ * @param <T> 消息体类型
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public abstract class BatchProcessor<T> extends BaseProcessor<T> {
+
+	/**
+	 * 默认一次处理的最大消息数量
+	 */
+	public static final int DEFAULT_MAX_BATCH = 32;
+
+	/**
+	 * 一次处理的最大消息数量
+	 */
+	protected final int maxBatch;
+
+	protected BatchProcessor() {
+		this(DEFAULT_MAX_BATCH);
+	}
+
+	/**
+	 * 构造方法
+	 *
+	 * @param maxBatch 一次处理的最大消息数量
+	 */
+	protected BatchProcessor(int maxBatch) {
+		this.maxBatch = Math.max(1, maxBatch);
+	}
+
+	@Override
+	public boolean handler(Session session, T packet) {
+		List<T> packets = new ArrayList<>(Math.min(maxBatch, 8));
+		packets.add(packet);
+		session.drain(msgCode, packets, maxBatch);
+		execute(session, packet, new ProcessorTask(this, session, packets, packets.size()));
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	void invoke(Session session, Object payload) {
+		processor(session, (List<T>) payload);
+	}
+
+	@Override
+	public void processor(Session session, T packet) {
+		processor(session, Collections.singletonList(packet));
+	}
+
+	/**
+	 * 批量处理消息
+	 *
+	 * @param session 客户端-服务器 会话
+	 * @param packets 客户端连续发送的同一消息号的消息，按照到达顺序排列，至少包含一个消息
+	 */
+	public abstract void processor(Session session, List<T> packets);
+}
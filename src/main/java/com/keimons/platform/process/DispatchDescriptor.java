@@ -0,0 +1,184 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.exception.ModuleException;
+import com.keimons.platform.session.Session;
+import com.keimons.platform.thread.DefaultExecutorConfig;
+import com.keimons.platform.thread.IExecutorConfig;
+import com.keimons.platform.thread.IThreadRoute;
+import com.keimons.platform.thread.KeimonsExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 消息分发描述
+ * <p>
+ * 消息处理器在注册时被编译为一个不可变的分发描述，包含已经解析好的执行器、路由规则以及是否
+ * 批量处理。消息分发时直接使用这里的字段，不再进行类型转换、{@code instanceof}判断
+ * 以及线程池的查找。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public final class DispatchDescriptor {
+
+	/**
+	 * 默认路由规则 按照会话ID路由
+	 */
+	static final IThreadRoute SESSION_ROUTE = new IThreadRoute() {
+		@Override
+		public <T> int route(Session session, T packet, int maxIndex) {
+			return Math.floorMod(session.getSessionId(), maxIndex);
+		}
+	};
+
+	/**
+	 * 消息号
+	 */
+	final int msgCode;
+
+	/**
+	 * 是否批量处理
+	 */
+	final boolean batch;
+
+	/**
+	 * 是否自适应线程等级
+	 */
+	final boolean auto;
+
+	/**
+	 * 执行目标 自适应线程等级时为{@code null}
+	 */
+	final Target target;
+
+	/**
+	 * 自适应线程等级时 短耗时的执行目标
+	 */
+	final Target fast;
+
+	/**
+	 * 自适应线程等级时 长耗时的执行目标
+	 */
+	final Target slow;
+
+	private DispatchDescriptor(int msgCode, boolean batch, boolean auto, Target target, Target fast, Target slow) {
+		this.msgCode = msgCode;
+		this.batch = batch;
+		this.auto = auto;
+		this.target = target;
+		this.fast = fast;
+		this.slow = slow;
+	}
+
+	/**
+	 * 编译消息处理器
+	 *
+	 * @param processor 消息处理器
+	 * @param executor  线程池
+	 * @return 分发描述
+	 */
+	static DispatchDescriptor compile(BaseProcessor<?> processor, KeimonsExecutor executor) {
+		IThreadRoute router = processor instanceof IThreadRoute ? (IThreadRoute) processor : SESSION_ROUTE;
+		boolean batch = processor instanceof BatchProcessor;
+		Enum<? extends IExecutorConfig> config = processor.executorConfig;
+		if (config == DefaultExecutorConfig.AUTO) {
+			Target fast = Target.resolve(DefaultExecutorConfig.FAST, executor, router);
+			Target slow = Target.resolve(DefaultExecutorConfig.SLOW, executor, router);
+			return new DispatchDescriptor(processor.msgCode, batch, true, null, fast, slow);
+		}
+		Target target = Target.resolve(config, executor, router);
+		return new DispatchDescriptor(processor.msgCode, batch, false, target, null, null);
+	}
+
+	public int getMsgCode() {
+		return msgCode;
+	}
+
+	public boolean isBatch() {
+		return batch;
+	}
+
+	public boolean isAuto() {
+		return auto;
+	}
+
+	/**
+	 * 执行目标
+	 * <p>
+	 * 一个已经解析好的线程池，以及这个线程池的路由规则
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	static final class Target {
+
+		/**
+		 * 线程池类型
+		 */
+		final Enum<? extends IExecutorConfig> config;
+
+		/**
+		 * 可路由线程池的所有线程 不可路由时为{@code null}
+		 */
+		final Executor[] routes;
+
+		/**
+		 * 不可路由的线程池 可路由时为{@code null}
+		 */
+		final Executor executor;
+
+		/**
+		 * 路由规则
+		 */
+		final IThreadRoute router;
+
+		private Target(Enum<? extends IExecutorConfig> config, Executor[] routes, Executor executor, IThreadRoute router) {
+			this.config = config;
+			this.routes = routes;
+			this.executor = executor;
+			this.router = router;
+		}
+
+		/**
+		 * 解析执行目标
+		 *
+		 * @param config   线程池类型
+		 * @param executor 线程池
+		 * @param router   路由规则
+		 * @return 执行目标
+		 */
+		static Target resolve(Enum<? extends IExecutorConfig> config, KeimonsExecutor executor, IThreadRoute router) {
+			IExecutorConfig info = (IExecutorConfig) config;
+			if (info.isRoute()) {
+				Executor[] routes = executor.getRouteExecutors(config);
+				if (routes == null) {
+					throw new ModuleException("线程池未启用：" + config.name());
+				}
+				return new Target(config, routes, null, router);
+			} else {
+				Executor service = executor.getExecutor(config);
+				if (service == null) {
+					throw new ModuleException("线程池未启用：" + config.name());
+				}
+				return new Target(config, null, service, router);
+			}
+		}
+
+		/**
+		 * 执行任务
+		 *
+		 * @param session 会话
+		 * @param packet  用于路由的消息体
+		 * @param task    任务
+		 */
+		void execute(Session session, Object packet, Runnable task) {
+			if (routes == null) {
+				executor.execute(task);
+			} else {
+				routes[router.route(session, packet, routes.length)].execute(task);
+			}
+		}
+	}
+}
@@ -3,10 +3,9 @@ package com.keimons.platform.process;
 import com.keimons.platform.exception.ModuleException;
 import com.keimons.platform.log.LogService;
 import com.keimons.platform.session.Session;
-import com.keimons.platform.thread.DefaultExecutorConfig;
-import com.keimons.platform.thread.KeimonsExecutor;
 import com.keimons.platform.unit.ClassUtil;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,13 +27,23 @@ import java.util.function.Function;
  */
 public class HandlerManager {
 
-	private static KeimonsExecutor executor = new KeimonsExecutor(DefaultExecutorConfig.class);
+	/**
+	 * 使用数组存储的消息号上限
+	 */
+	private static final int TABLE_SIZE = 1 << 16;
 
 	/**
 	 * 消息处理器
 	 */
 	public static Map<Integer, IHandler<?>> processors = new HashMap<>();
 
+	/**
+	 * 按照消息号下标存储的消息处理器
+	 * <p>
+	 * 消息号在[0, {@link #TABLE_SIZE})之间的消息处理器，分发时直接通过下标查找，避免装箱和哈希查找。
+	 */
+	private static IHandler<?>[] table = new IHandler<?>[0];
+
 	/**
 	 * 映射函数
 	 */
@@ -59,11 +68,60 @@ public class HandlerManager {
 		HandlerManager.mapping = mapping;
 	}
 
-	public static <I> boolean handler(Session session, I packet) throws Exception {
-		IHandler<I> info = (IHandler<I>) processors.get(mapping.apply(packet));
+	/**
+	 * 分发消息
+	 *
+	 * @param session 会话
+	 * @param packet  消息体
+	 * @param <I>     消息体类型
+	 * @return 消息是否已经交给线程执行，{@code false}则表示没有对应的消息处理器
+	 */
+	@SuppressWarnings("unchecked")
+	public static <I> boolean handler(Session session, I packet) {
+		Integer code = mapping.apply(packet);
+		if (code == null) {
+			LogService.error("消息号映射失败，消息：" + packet);
+			return false;
+		}
+		int msgCode = code;
+		IHandler<?>[] table = HandlerManager.table;
+		IHandler<I> info = null;
+		if (msgCode >= 0 && msgCode < table.length) {
+			info = (IHandler<I>) table[msgCode];
+		}
+		if (info == null) {
+			info = (IHandler<I>) processors.get(msgCode);
+			if (info == null) {
+				LogService.error("未找到消息处理器，消息号：" + msgCode);
+				return false;
+			}
+		}
 		return info.handler(session, packet);
 	}
 
+	/**
+	 * 注册消息处理器
+	 * <p>
+	 * 将消息处理器编译为分发描述，并放入消息号下标表中
+	 *
+	 * @param processor 消息处理器
+	 */
+	public static synchronized void register(BaseProcessor<?> processor) {
+		processor.compile();
+		int msgCode = processor.msgCode;
+		processors.put(msgCode, processor);
+		if (msgCode >= 0 && msgCode < TABLE_SIZE) {
+			IHandler<?>[] table = HandlerManager.table;
+			if (msgCode >= table.length) {
+				table = Arrays.copyOf(table, Math.min(TABLE_SIZE, Math.max(16, Integer.highestOneBit(msgCode) << 1)));
+			} else {
+				table = table.clone();
+			}
+			table[msgCode] = processor;
+			HandlerManager.table = table;
+		}
+	}
+
 	/**
 	 * 添加消息号
 	 * <p>
@@ -98,7 +156,7 @@ public class HandlerManager {
 			@SuppressWarnings("unchecked")
 			BaseProcessor<I> processor = (BaseProcessor<I>) instance;
 
-			processors.put(info.MsgCode(), processor);
+			register(processor);
 			System.out.println("消息处理器：" + "消息号：" + info.MsgCode() + "，描述：" + info.Desc());
 			System.out.println("成功安装消息处理器：" + clazz.getSimpleName());
 		}
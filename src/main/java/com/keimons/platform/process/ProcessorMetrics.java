@@ -0,0 +1,129 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.log.LogService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息处理器统计中心
+ * <p>
+ * 按照消息号管理所有的{@link ProcessorStat}，提供快照接口，并定期将统计信息输出到日志中。
+ * 统计对象在消息处理器创建时注册，运行过程中只读，所以，注册表本身不会成为热点。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ProcessorMetrics {
+
+	/**
+	 * 统计日志名称
+	 */
+	public static final String LOG_NAME = "processor";
+
+	/**
+	 * 所有消息号的统计
+	 */
+	private static final ConcurrentHashMap<Integer, ProcessorStat> stats = new ConcurrentHashMap<>();
+
+	/**
+	 * 定时输出统计信息
+	 */
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 注册一个消息号的统计
+	 * <p>
+	 * 同一个消息号重复注册时，返回之前的统计对象
+	 *
+	 * @param msgCode 消息号
+	 * @param desc    消息号描述
+	 * @return 统计
+	 */
+	public static ProcessorStat register(int msgCode, String desc) {
+		return stats.computeIfAbsent(msgCode, key -> new ProcessorStat(msgCode, desc));
+	}
+
+	/**
+	 * 获取一个消息号的统计
+	 *
+	 * @param msgCode 消息号
+	 * @return 统计 {@code null}则表示没有这个消息号
+	 */
+	public static ProcessorStat getStat(int msgCode) {
+		return stats.get(msgCode);
+	}
+
+	/**
+	 * 获取所有消息号的统计快照
+	 *
+	 * @return 按照消息号排序的快照
+	 */
+	public static List<ProcessorStat.Snapshot> snapshot() {
+		List<ProcessorStat.Snapshot> snapshots = new ArrayList<>(stats.size());
+		for (ProcessorStat stat : stats.values()) {
+			snapshots.add(stat.snapshot());
+		}
+		snapshots.sort(Comparator.comparingInt(ProcessorStat.Snapshot::getMsgCode));
+		return snapshots;
+	}
+
+	/**
+	 * 重置所有统计
+	 */
+	public static void reset() {
+		for (ProcessorStat stat : stats.values()) {
+			stat.reset();
+		}
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		for (ProcessorStat.Snapshot snapshot : snapshot()) {
+			if (snapshot.getCount() > 0) {
+				LogService.log(LOG_NAME, snapshot.toString());
+			}
+		}
+	}
+
+	/**
+	 * 初始化统计输出
+	 *
+	 * @param interval 输出间隔 秒 小于等于0则不输出
+	 */
+	public static synchronized void init(int interval) {
+		if (interval <= 0 || scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "PROCESSOR-METRICS");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleAtFixedRate(() -> {
+			try {
+				dump();
+			} catch (Throwable e) {
+				LogService.error(e);
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 关闭统计输出
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.unit.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 消息处理器的运行统计
+ * <p>
+ * 每一个消息号对应一个统计，在消息处理器创建时生成，处理器直接持有这个对象，热点路径上不会
+ * 进行任何查找，所有的计数均为无锁的。耗时分为两段：排队耗时，从消息被提交给线程池到开始执行；
+ * 执行耗时，{@link BaseProcessor#processor}本身的耗时。单位均为微秒。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ProcessorStat {
+
+	/**
+	 * 消息号
+	 */
+	private final int msgCode;
+
+	/**
+	 * 消息号描述
+	 */
+	private final String desc;
+
+	/**
+	 * 处理的消息数量
+	 */
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * 执行出错的消息数量
+	 */
+	private final LongAdder errors = new LongAdder();
+
+	/**
+	 * 排队耗时
+	 */
+	private final Histogram waitTime = new Histogram();
+
+	/**
+	 * 执行耗时
+	 */
+	private final Histogram executeTime = new Histogram();
+
+	public ProcessorStat(int msgCode, String desc) {
+		this.msgCode = msgCode;
+		this.desc = desc;
+	}
+
+	/**
+	 * 记录一次执行
+	 *
+	 * @param waitNanos    排队耗时 纳秒
+	 * @param executeNanos 执行耗时 纳秒
+	 * @param packets      本次处理的消息数量
+	 */
+	public void record(long waitNanos, long executeNanos, int packets) {
+		count.add(packets);
+		waitTime.record(waitNanos / 1000);
+		executeTime.record(executeNanos / 1000);
+	}
+
+	/**
+	 * 记录一次错误
+	 */
+	public void error() {
+		errors.increment();
+	}
+
+	/**
+	 * 重置统计
+	 */
+	public void reset() {
+		count.reset();
+		errors.reset();
+		waitTime.reset();
+		executeTime.reset();
+	}
+
+	/**
+	 * 获取统计快照
+	 *
+	 * @return 快照
+	 */
+	public Snapshot snapshot() {
+		return new Snapshot(msgCode, desc, count.sum(), errors.sum(), waitTime.snapshot(), executeTime.snapshot());
+	}
+
+	public int getMsgCode() {
+		return msgCode;
+	}
+
+	public String getDesc() {
+		return desc;
+	}
+
+	/**
+	 * 消息处理器统计快照
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	public static class Snapshot {
+
+		private final int msgCode;
+
+		private final String desc;
+
+		private final long count;
+
+		private final long errors;
+
+		private final Histogram.Snapshot waitTime;
+
+		private final Histogram.Snapshot executeTime;
+
+		Snapshot(int msgCode, String desc, long count, long errors,
+				 Histogram.Snapshot waitTime, Histogram.Snapshot executeTime) {
+			this.msgCode = msgCode;
+			this.desc = desc;
+			this.count = count;
+			this.errors = errors;
+			this.waitTime = waitTime;
+			this.executeTime = executeTime;
+		}
+
+		public int getMsgCode() {
+			return msgCode;
+		}
+
+		public String getDesc() {
+			return desc;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+
+		/**
+		 * 错误率
+		 *
+		 * @return 错误率
+		 */
+		public double getErrorRate() {
+			return count == 0 ? 0 : (double) errors / count;
+		}
+
+		public Histogram.Snapshot getWaitTime() {
+			return waitTime;
+		}
+
+		public Histogram.Snapshot getExecuteTime() {
+			return executeTime;
+		}
+
+		@Override
+		public String toString() {
+			return "消息号：" + msgCode + "，描述：" + desc + "，数量：" + count + "，错误：" + errors +
+					"，排队(us)：[" + waitTime + "]，执行(us)：[" + executeTime + "]";
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.keimons.platform.process;
+
+import com.keimons.platform.session.Session;
+import com.keimons.platform.thread.ExecutorTask;
+
+/**
+ * 消息处理任务
+ * <p>
+ * 每个消息唯一的一次分配。直接继承{@link ExecutorTask}，提交给线程池时不需要额外的包装，
+ * 排队耗时也直接使用线程池记录的提交时间。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+final class ProcessorTask extends ExecutorTask {
+
+	/**
+	 * 消息处理器
+	 */
+	private final BaseProcessor<?> processor;
+
+	/**
+	 * 会话
+	 */
+	private final Session session;
+
+	/**
+	 * 消息体 批量处理时是消息列表
+	 */
+	private final Object payload;
+
+	/**
+	 * 消息数量
+	 */
+	private final int packets;
+
+	ProcessorTask(BaseProcessor<?> processor, Session session, Object payload, int packets) {
+		this.processor = processor;
+		this.session = session;
+		this.payload = payload;
+		this.packets = packets;
+	}
+
+	@Override
+	public void run() {
+		long startTime = System.nanoTime();
+		try {
+			processor.invoke(session, payload);
+		} catch (Throwable e) {
+			processor.stat.error();
+			throw e;
+		} finally {
+			processor.finish(session, getSubmitTime(), startTime, packets);
+		}
+	}
+}
@@ -8,6 +8,7 @@ import com.keimons.platform.unit.TimeUtil;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -92,6 +93,20 @@ public class Session {
 		this.sessionId = sessionIndex.getAndIncrement();
 	}
 
+	/**
+	 * 在会话的安全点执行任务
+	 * <p>
+	 * 任务和消息在同一个队列中排队，排到任务时没有这个会话的消息正在执行，也不会有新的消息开始执行，
+	 * 任务期间读取玩家数据不会和业务线程竞争。任务由取出它的线程直接执行：会话空闲时是提交任务的线程，
+	 * 否则是执行完上一个消息的线程。任务应该尽快完成，耗时的工作交给其他线程。
+	 *
+	 * @param task 任务
+	 */
+	public void schedule(Runnable task) {
+		messages.offer(new SafePoint(task));
+		execute();
+	}
+
 	public void commit(Object packet) {
 		if (packet != null) {
 			messages.offer(packet);
@@ -100,23 +115,52 @@ public class Session {
 	}
 
 	private void execute() {
-		if (!messages.isEmpty()) {
-			if (busy.compareAndSet(false, true)) {
-				Object packet = messages.poll();
-				if (packet == null) {
-					// 没能取到消息，设置当前空闲的
-					busy.set(false);
-				} else {
-					try {
-						if (!HandlerManager.handler(this, packet)) {
-							busy.set(false);
-						}
-					} catch (Exception e) {
-						busy.set(false);
-						e.printStackTrace();
-					}
+		while (!messages.isEmpty() && busy.compareAndSet(false, true)) {
+			Object packet = messages.poll();
+			boolean dispatched = false;
+			if (packet instanceof SafePoint) {
+				((SafePoint) packet).run(sessionId);
+			} else if (packet != null) {
+				try {
+					dispatched = HandlerManager.handler(this, packet);
+				} catch (RuntimeException e) {
+					LogService.error(e, "消息分发失败，会话ID：" + sessionId);
 				}
 			}
+			if (dispatched) {
+				return;
+			}
+			// 没能取到消息或消息被丢弃，设置当前空闲的，并尝试下一个消息
+			busy.set(false);
+		}
+	}
+
+	/**
+	 * 取出消息队列队首连续的同一消息号的消息
+	 * <p>
+	 * 仅允许在会话执行消息期间调用，此时没有其它线程会从队列中取出消息，所以先查看再取出是安全的。
+	 *
+	 * @param msgCode 消息号
+	 * @param packets 取出的消息
+	 * @param maxSize 消息的最大数量
+	 * @param <T>     消息体类型
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void drain(int msgCode, List<T> packets, int maxSize) {
+		while (packets.size() < maxSize) {
+			Object packet = messages.peek();
+			if (packet == null) {
+				return;
+			}
+			if (packet instanceof SafePoint) {
+				return;
+			}
+			Integer code = HandlerManager.mapping.apply(packet);
+			if (code == null || code != msgCode) {
+				return;
+			}
+			messages.poll();
+			packets.add((T) packet);
 		}
 	}
 
@@ -244,4 +288,24 @@ public class Session {
 	public AtomicBoolean getBusy() {
 		return busy;
 	}
+
+	/**
+	 * 在安全点执行的任务
+	 */
+	private static class SafePoint {
+
+		private final Runnable task;
+
+		SafePoint(Runnable task) {
+			this.task = task;
+		}
+
+		void run(int sessionId) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				LogService.error(e, "会话任务执行失败，会话ID：" + sessionId);
+			}
+		}
+	}
 }
\ No newline at end of file
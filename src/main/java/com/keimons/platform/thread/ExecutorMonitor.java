@@ -0,0 +1,141 @@
+package com.keimons.platform.thread;
+
+import com.keimons.platform.log.LogService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池监控
+ * <p>
+ * 定期输出所有任务队列的深度、排队耗时、利用率等信息，并检测卡顿的线程。当一个线程在同一个任务
+ * 上执行的时间超过阈值时，输出这个线程的堆栈。可路由的线程中，一个卡住的任务会阻塞这个线程上
+ * 排队的所有任务，例如，一个公会的长耗时操作会卡住同一个线程上的所有公会。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ExecutorMonitor {
+
+	/**
+	 * 统计日志名称
+	 */
+	public static final String LOG_NAME = "executor";
+
+	/**
+	 * 所有的线程池
+	 */
+	private static final List<KeimonsExecutor> executors = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 定时检测
+	 */
+	private static ScheduledExecutorService scheduler;
+
+	/**
+	 * 注册一个线程池
+	 *
+	 * @param executor 线程池
+	 */
+	static void register(KeimonsExecutor executor) {
+		executors.add(executor);
+	}
+
+	/**
+	 * 获取所有任务队列的统计快照
+	 *
+	 * @return 快照
+	 */
+	public static List<ExecutorStat.Snapshot> snapshot() {
+		List<ExecutorStat.Snapshot> snapshots = new ArrayList<>();
+		for (KeimonsExecutor executor : executors) {
+			for (ExecutorStat stat : executor.getStats()) {
+				snapshots.add(stat.snapshot());
+			}
+		}
+		return snapshots;
+	}
+
+	/**
+	 * 输出统计信息到日志
+	 */
+	public static void dump() {
+		for (ExecutorStat.Snapshot snapshot : snapshot()) {
+			LogService.log(LOG_NAME, snapshot.toString());
+		}
+	}
+
+	/**
+	 * 检测卡顿的线程，并输出线程堆栈
+	 *
+	 * @param threshold 阈值 毫秒
+	 */
+	public static void checkStall(long threshold) {
+		long nanos = TimeUnit.MILLISECONDS.toNanos(threshold);
+		for (KeimonsExecutor executor : executors) {
+			for (ExecutorStat stat : executor.getStats()) {
+				for (ExecutorStat.Worker worker : stat.stalled(nanos)) {
+					StringBuilder info = new StringBuilder();
+					info.append("线程卡顿：").append(stat.getName())
+							.append("，线程：").append(worker.thread.getName())
+							.append("，已执行(ms)：").append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - worker.startTime));
+					for (StackTraceElement element : worker.thread.getStackTrace()) {
+						info.append("\n\tat ").append(element);
+					}
+					LogService.warn(info.toString());
+				}
+			}
+		}
+	}
+
+	/**
+	 * 初始化线程池监控
+	 *
+	 * @param interval  统计输出间隔 秒 小于等于0则不输出
+	 * @param threshold 卡顿阈值 毫秒 小于等于0则不检测
+	 */
+	public static synchronized void init(int interval, int threshold) {
+		if (scheduler != null || (interval <= 0 && threshold <= 0)) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "EXECUTOR-MONITOR");
+			thread.setDaemon(true);
+			return thread;
+		});
+		if (interval > 0) {
+			scheduler.scheduleAtFixedRate(() -> {
+				try {
+					dump();
+				} catch (Throwable e) {
+					LogService.error(e);
+				}
+			}, interval, interval, TimeUnit.SECONDS);
+		}
+		if (threshold > 0) {
+			long period = Math.max(100, threshold / 4);
+			scheduler.scheduleAtFixedRate(() -> {
+				try {
+					checkStall(threshold);
+				} catch (Throwable e) {
+					LogService.error(e);
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * 关闭线程池监控
+	 */
+	public static synchronized void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+}
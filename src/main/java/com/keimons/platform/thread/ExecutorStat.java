@@ -0,0 +1,296 @@
+package com.keimons.platform.thread;
+
+import com.keimons.platform.unit.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 任务队列的运行统计
+ * <p>
+ * 一个统计对应一个任务队列，可路由的线程池中，每个线程拥有自己的队列，所以每个线程对应一个统计；
+ * 不可路由的线程池中，所有线程共享一个队列，所以整个线程池对应一个统计。统计包含队列深度、排队
+ * 耗时、线程利用率以及正在执行的任务耗时，用于发现被某个长耗时任务卡住的线程。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ExecutorStat {
+
+	/**
+	 * 名称
+	 */
+	private final String name;
+
+	/**
+	 * 任务队列
+	 */
+	private final Queue<?> queue;
+
+	/**
+	 * 处理这个队列的线程数量
+	 */
+	private final int threads;
+
+	/**
+	 * 排队耗时 微秒
+	 */
+	private final Histogram waitTime = new Histogram();
+
+	/**
+	 * 执行完成的任务数量
+	 */
+	private final LongAdder tasks = new LongAdder();
+
+	/**
+	 * 线程忙碌的总时长 纳秒
+	 */
+	private final LongAdder busyTime = new LongAdder();
+
+	/**
+	 * 耗时最长的任务 纳秒
+	 */
+	private final AtomicLong longestTask = new AtomicLong();
+
+	/**
+	 * 处理这个队列的所有线程
+	 */
+	private final List<Worker> workers = new CopyOnWriteArrayList<>();
+
+	/**
+	 * 当前线程对应的工作者
+	 */
+	private final ThreadLocal<Worker> worker = new ThreadLocal<>();
+
+	/**
+	 * 上一次快照的时间
+	 */
+	private long lastSnapshotTime = System.nanoTime();
+
+	/**
+	 * 上一次快照时线程忙碌的总时长
+	 */
+	private long lastBusyTime;
+
+	public ExecutorStat(String name, Queue<?> queue, int threads) {
+		this.name = name;
+		this.queue = queue;
+		this.threads = threads;
+	}
+
+	/**
+	 * 任务开始执行
+	 * <p>
+	 * 必须在执行任务的线程中调用
+	 *
+	 * @param task 任务
+	 */
+	void begin(Runnable task) {
+		Worker worker = this.worker.get();
+		if (worker == null) {
+			worker = new Worker(Thread.currentThread());
+			this.worker.set(worker);
+			workers.add(worker);
+		}
+		long now = System.nanoTime();
+		if (task instanceof ExecutorTask) {
+			waitTime.record((now - ((ExecutorTask) task).submitTime) / 1000);
+		}
+		worker.reported = false;
+		worker.startTime = now;
+	}
+
+	/**
+	 * 任务执行完成
+	 * <p>
+	 * 必须在执行任务的线程中调用
+	 */
+	void end() {
+		Worker worker = this.worker.get();
+		if (worker == null || worker.startTime == 0) {
+			return;
+		}
+		long time = System.nanoTime() - worker.startTime;
+		worker.startTime = 0;
+		tasks.increment();
+		busyTime.add(time);
+		long longest = longestTask.get();
+		while (time > longest && !longestTask.compareAndSet(longest, time)) {
+			longest = longestTask.get();
+		}
+	}
+
+	/**
+	 * 检查是否有线程被卡住
+	 * <p>
+	 * 同一个任务只会被报告一次
+	 *
+	 * @param threshold 阈值 纳秒
+	 * @return 被卡住的线程
+	 */
+	List<Worker> stalled(long threshold) {
+		List<Worker> stalled = new ArrayList<>();
+		long now = System.nanoTime();
+		for (Worker worker : workers) {
+			long startTime = worker.startTime;
+			if (startTime != 0 && !worker.reported && now - startTime > threshold) {
+				worker.reported = true;
+				stalled.add(worker);
+			}
+		}
+		return stalled;
+	}
+
+	/**
+	 * 获取统计快照
+	 * <p>
+	 * 线程利用率是从上一次快照到这一次快照之间的利用率
+	 *
+	 * @return 快照
+	 */
+	public synchronized Snapshot snapshot() {
+		long now = System.nanoTime();
+		long busy = busyTime.sum();
+		long elapsed = now - lastSnapshotTime;
+		double utilization = elapsed <= 0 ? 0 : (double) (busy - lastBusyTime) / elapsed / threads;
+		lastSnapshotTime = now;
+		lastBusyTime = busy;
+
+		long running = 0;
+		for (Worker worker : workers) {
+			long startTime = worker.startTime;
+			if (startTime != 0) {
+				running = Math.max(running, now - startTime);
+			}
+		}
+		return new Snapshot(name, threads, queue.size(), tasks.sum(), Math.min(1D, utilization),
+				TimeUnit.NANOSECONDS.toMillis(running), TimeUnit.NANOSECONDS.toMillis(longestTask.get()),
+				waitTime.snapshot());
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * 执行任务的线程
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	static class Worker {
+
+		/**
+		 * 线程
+		 */
+		final Thread thread;
+
+		/**
+		 * 当前任务的开始时间 0则表示空闲
+		 */
+		volatile long startTime;
+
+		/**
+		 * 当前任务是否已经报告过卡顿
+		 */
+		volatile boolean reported;
+
+		Worker(Thread thread) {
+			this.thread = thread;
+		}
+	}
+
+	/**
+	 * 任务队列统计快照
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	public static class Snapshot {
+
+		private final String name;
+
+		private final int threads;
+
+		private final int queueDepth;
+
+		private final long tasks;
+
+		private final double utilization;
+
+		private final long runningTime;
+
+		private final long longestTask;
+
+		private final Histogram.Snapshot waitTime;
+
+		Snapshot(String name, int threads, int queueDepth, long tasks, double utilization,
+				 long runningTime, long longestTask, Histogram.Snapshot waitTime) {
+			this.name = name;
+			this.threads = threads;
+			this.queueDepth = queueDepth;
+			this.tasks = tasks;
+			this.utilization = utilization;
+			this.runningTime = runningTime;
+			this.longestTask = longestTask;
+			this.waitTime = waitTime;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getThreads() {
+			return threads;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public long getTasks() {
+			return tasks;
+		}
+
+		public double getUtilization() {
+			return utilization;
+		}
+
+		/**
+		 * 当前正在执行的任务中，执行时间最长的任务已经执行的时长
+		 *
+		 * @return 毫秒
+		 */
+		public long getRunningTime() {
+			return runningTime;
+		}
+
+		/**
+		 * 执行时间最长的任务
+		 *
+		 * @return 毫秒
+		 */
+		public long getLongestTask() {
+			return longestTask;
+		}
+
+		public Histogram.Snapshot getWaitTime() {
+			return waitTime;
+		}
+
+		@Override
+		public String toString() {
+			return name + "，线程：" + threads + "，队列：" + queueDepth + "，任务：" + tasks +
+					"，利用率：" + String.format("%.2f", utilization) + "，当前任务(ms)：" + runningTime +
+					"，最长任务(ms)：" + longestTask + "，排队(us)：[" + waitTime + "]";
+		}
+	}
+}
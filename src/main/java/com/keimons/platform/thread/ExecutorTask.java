@@ -0,0 +1,71 @@
+package com.keimons.platform.thread;
+
+/**
+ * 线程池中排队的任务
+ * <p>
+ * 任务被提交时记录提交时间，开始执行时以此计算排队耗时。提交给{@link KeimonsExecutor}的普通
+ * {@link Runnable}会被包装成这个对象，直接继承这个类的任务则不需要额外的包装。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class ExecutorTask implements Runnable {
+
+	/**
+	 * 提交时间 纳秒
+	 */
+	long submitTime;
+
+	/**
+	 * 被包装的任务
+	 */
+	private final Runnable runnable;
+
+	/**
+	 * 包装一个任务
+	 *
+	 * @param runnable 任务
+	 */
+	public ExecutorTask(Runnable runnable) {
+		this.runnable = runnable;
+	}
+
+	/**
+	 * 子类直接实现{@link #run()}
+	 */
+	protected ExecutorTask() {
+		this.runnable = null;
+	}
+
+	/**
+	 * 获取提交时间
+	 *
+	 * @return 提交时间 纳秒
+	 */
+	public long getSubmitTime() {
+		return submitTime;
+	}
+
+	@Override
+	public void run() {
+		runnable.run();
+	}
+
+	/**
+	 * 包装一个任务
+	 *
+	 * @param runnable 任务
+	 * @return 可统计排队耗时的任务
+	 */
+	static ExecutorTask wrap(Runnable runnable) {
+		ExecutorTask task;
+		if (runnable instanceof ExecutorTask) {
+			task = (ExecutorTask) runnable;
+		} else {
+			task = new ExecutorTask(runnable);
+		}
+		task.submitTime = System.nanoTime();
+		return task;
+	}
+}
@@ -4,10 +4,9 @@ import com.keimons.platform.log.LogService;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 业务处理线程模型
@@ -22,6 +21,11 @@ public class KeimonsExecutor {
 
 	private final Map<? extends Enum<? extends IExecutorConfig>, Object> executors;
 
+	/**
+	 * 所有任务队列的统计
+	 */
+	private final List<ExecutorStat> stats = new ArrayList<>();
+
 	@SuppressWarnings("unchecked")
 	public <T extends Enum<T>> KeimonsExecutor(Class<T> clazz) {
 		Map<T, Object> executors = new HashMap<>();
@@ -34,27 +38,40 @@ public class KeimonsExecutor {
 					continue;
 				}
 				if (info.isRoute()) {
-					ThreadPoolExecutor service = (ThreadPoolExecutor) Executors.newFixedThreadPool(info.getThreadNumb());
+					ThreadPoolExecutor service = (ThreadPoolExecutor) Executors.newFixedThreadPool(
+							info.getThreadNumb(), new NamedThreadFactory(info.getThreadName())
+					);
 					Executor[] routeExecutors = new Executor[info.getThreadNumb()];
 					for (int i = 0; i < info.getThreadNumb(); i++) {
-						routeExecutors[i] = new Executor();
+						routeExecutors[i] = new Executor(executorInfo.name() + "-" + i);
+						stats.add(routeExecutors[i].stat);
 						service.execute(routeExecutors[i]);
 					}
 					executors.put(executorInfo, routeExecutors);
 				} else {
-					if (info.getThreadNumb() == 1) {
-						ExecutorService service = Executors.newSingleThreadExecutor();
-						executors.put(executorInfo, service);
-					} else {
-						ExecutorService service = Executors.newFixedThreadPool(info.getThreadNumb());
-						executors.put(executorInfo, service);
-					}
+					MonitoredExecutor service = new MonitoredExecutor(
+							executorInfo.name(), info.getThreadNumb(), new NamedThreadFactory(info.getThreadName())
+					);
+					stats.add(service.stat);
+					executors.put(executorInfo, service);
 				}
 			}
 		} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
 			e.printStackTrace();
 		}
 		this.executors = (Map<? extends Enum<? extends IExecutorConfig>, Object>) new EnumMap<>(executors);
+		ExecutorMonitor.register(this);
+	}
+
+	/**
+	 * 获取所有任务队列的统计
+	 * <p>
+	 * 可路由的线程池中，每个线程对应一个统计，不可路由的线程池对应一个统计
+	 *
+	 * @return 统计
+	 */
+	public List<ExecutorStat> getStats() {
+		return stats;
 	}
 
 	/**
@@ -70,7 +87,39 @@ public class KeimonsExecutor {
 
 	public void execute(Enum<? extends IExecutorConfig> type, int route, Runnable runnable) {
 		Executor[] executor = (Executor[]) this.executors.get(type);
-		executor[route].add(runnable);
+		executor[route].add(ExecutorTask.wrap(runnable));
+	}
+
+	/**
+	 * 获取可路由线程池的所有线程
+	 * <p>
+	 * 用于在注册时预先解析执行器，避免每次执行时查找和类型转换
+	 *
+	 * @param type 线程池类型
+	 * @return 按照下标路由的执行器 {@code null}则表示线程池未启用或不可路由
+	 */
+	public java.util.concurrent.Executor[] getRouteExecutors(Enum<? extends IExecutorConfig> type) {
+		Object executor = this.executors.get(type);
+		if (executor instanceof Executor[]) {
+			return ((Executor[]) executor).clone();
+		}
+		return null;
+	}
+
+	/**
+	 * 获取不可路由的线程池
+	 * <p>
+	 * 用于在注册时预先解析执行器，避免每次执行时查找和类型转换
+	 *
+	 * @param type 线程池类型
+	 * @return 线程池 {@code null}则表示线程池未启用或可路由
+	 */
+	public java.util.concurrent.Executor getExecutor(Enum<? extends IExecutorConfig> type) {
+		Object executor = this.executors.get(type);
+		if (executor instanceof ExecutorService) {
+			return (ExecutorService) executor;
+		}
+		return null;
 	}
 
 	/**
@@ -97,20 +146,28 @@ public class KeimonsExecutor {
 	 * @version 1.0
 	 * @since 1.8
 	 **/
-	static class Executor implements Runnable {
+	static class Executor implements Runnable, java.util.concurrent.Executor {
 
 		/**
 		 * 线程安全的阻塞队列
 		 */
 		private final BlockingDeque<Runnable> queue;
 
+		/**
+		 * 运行统计
+		 */
+		private final ExecutorStat stat;
+
 		/**
 		 * 执行器
 		 * <p>
 		 * 消息的真正执行者
+		 *
+		 * @param name 名称
 		 */
-		public Executor() {
+		public Executor(String name) {
 			queue = new LinkedBlockingDeque<>();
+			stat = new ExecutorStat(name, queue, 1);
 		}
 
 		/**
@@ -123,7 +180,12 @@ public class KeimonsExecutor {
 			while (run) {
 				try {
 					Runnable runnable = queue.take();
-					runnable.run();
+					stat.begin(runnable);
+					try {
+						runnable.run();
+					} finally {
+						stat.end();
+					}
 				} catch (Throwable e) {
 					LogService.error(e);
 				}
@@ -139,6 +201,11 @@ public class KeimonsExecutor {
 			queue.add(runnable);
 		}
 
+		@Override
+		public void execute(Runnable runnable) {
+			queue.add(ExecutorTask.wrap(runnable));
+		}
+
 		/**
 		 * 增加一个任务
 		 *
@@ -147,8 +214,76 @@ public class KeimonsExecutor {
 		 */
 		public <T> T offer(Callable<T> callable) throws ExecutionException, InterruptedException {
 			FutureTask<T> task = new FutureTask<>(callable);
-			queue.offer(task);
+			queue.offer(ExecutorTask.wrap(task));
 			return task.get();
 		}
 	}
+
+	/**
+	 * 共享队列的线程池
+	 * <p>
+	 * 在任务执行前后记录统计信息
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 **/
+	static class MonitoredExecutor extends ThreadPoolExecutor {
+
+		/**
+		 * 运行统计
+		 */
+		private final ExecutorStat stat;
+
+		MonitoredExecutor(String name, int threads, ThreadFactory threadFactory) {
+			super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+			stat = new ExecutorStat(name, getQueue(), threads);
+		}
+
+		@Override
+		public void execute(Runnable command) {
+			super.execute(ExecutorTask.wrap(command));
+		}
+
+		@Override
+		protected void beforeExecute(Thread t, Runnable r) {
+			super.beforeExecute(t, r);
+			stat.begin(r);
+		}
+
+		@Override
+		protected void afterExecute(Runnable r, Throwable t) {
+			stat.end();
+			super.afterExecute(r, t);
+		}
+	}
+
+	/**
+	 * 按照线程池配置命名线程
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 **/
+	static class NamedThreadFactory implements ThreadFactory {
+
+		/**
+		 * 线程编号
+		 */
+		private final AtomicInteger index = new AtomicInteger();
+
+		/**
+		 * 线程名前缀
+		 */
+		private final String prefix;
+
+		NamedThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			return new Thread(runnable, prefix + index.getAndIncrement());
+		}
+	}
 }
\ No newline at end of file
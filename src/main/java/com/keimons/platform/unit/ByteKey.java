@@ -0,0 +1,94 @@
+package com.keimons.platform.unit;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 字节数组键
+ * <p>
+ * 字节数组的{@code equals}和{@code hashCode}比较的是引用，不能直接作为{@code HashMap}和
+ * {@code HashSet}的键。这里按照内容比较，用于从数据库中读取的字段名称。
+ * <p>
+ * 注意：包装后不应该再修改字节数组。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public final class ByteKey {
+
+	/**
+	 * 字节数组
+	 */
+	private final byte[] bytes;
+
+	/**
+	 * 缓存的哈希值
+	 */
+	private final int hash;
+
+	private ByteKey(byte[] bytes) {
+		this.bytes = bytes;
+		this.hash = Arrays.hashCode(bytes);
+	}
+
+	/**
+	 * 包装字节数组
+	 *
+	 * @param bytes 字节数组
+	 * @return 字节数组键
+	 */
+	public static ByteKey wrap(byte[] bytes) {
+		return new ByteKey(bytes);
+	}
+
+	/**
+	 * 包装字符串的UTF-8编码
+	 *
+	 * @param value 字符串
+	 * @return 字节数组键
+	 */
+	public static ByteKey of(String value) {
+		return new ByteKey(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * 字节数组的长度
+	 *
+	 * @return 长度
+	 */
+	public int length() {
+		return bytes.length;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ByteKey)) {
+			return false;
+		}
+		ByteKey other = (ByteKey) obj;
+		return hash == other.hash && Arrays.equals(bytes, other.bytes);
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * 按照UTF-8解码
+	 *
+	 * @return 字符串
+	 */
+	@Override
+	public String toString() {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
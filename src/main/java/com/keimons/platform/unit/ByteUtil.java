@@ -61,4 +61,64 @@ public class ByteUtil {
 		buffer.flip();
 		return buffer.getInt();
 	}
+
+	/**
+	 * 按大端序写入整型
+	 *
+	 * @param bytes  字节数组
+	 * @param offset 写入位置
+	 * @param value  整型
+	 */
+	public static void writeInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+
+	/**
+	 * 按大端序读取整型
+	 *
+	 * @param bytes  字节数组
+	 * @param offset 读取位置
+	 * @return 整型
+	 */
+	public static int readInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 |
+				(bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * 写入变长整型
+	 * <p>
+	 * 每个字节的低7位存储数据，最高位表示后面还有字节，和ProtoBuf的varint相同
+	 *
+	 * @param bytes  字节数组
+	 * @param offset 写入位置
+	 * @param value  整型
+	 * @return 写入后的位置
+	 */
+	public static int writeVarint(byte[] bytes, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[offset++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		bytes[offset++] = (byte) value;
+		return offset;
+	}
+
+	/**
+	 * 变长整型的长度
+	 *
+	 * @param value 整型
+	 * @return 字节数
+	 */
+	public static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
 }
\ No newline at end of file
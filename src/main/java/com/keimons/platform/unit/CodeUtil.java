@@ -2,11 +2,12 @@ package com.keimons.platform.unit;
 
 import com.baidu.bjf.remoting.protobuf.Codec;
 import com.baidu.bjf.remoting.protobuf.ProtobufProxy;
+import com.google.protobuf.CodedInputStream;
 import com.keimons.platform.iface.ISerializable;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * POJO转化为byte[]工具
@@ -16,7 +17,7 @@ public class CodeUtil {
 	/**
 	 * 整个jar包中所有的ProtoBuf对象
 	 */
-	private static Map<Class<? extends ISerializable>, Codec<ISerializable>> codecs = new HashMap<>();
+	private static Map<Class<? extends ISerializable>, Codec<ISerializable>> codecs = new ConcurrentHashMap<>();
 
 	/**
 	 * 序列化
@@ -26,9 +27,11 @@ public class CodeUtil {
 	 * @return 序列化后的数据
 	 * @throws IOException 序列化异常
 	 */
+	@SuppressWarnings("unchecked")
 	public static byte[] encode(ISerializable data) throws IOException {
 		data.encode();
-		return codecs.get(data.getClass()).encode(data);
+		Codec<ISerializable> codec = (Codec<ISerializable>) getCodec(data.getClass());
+		return codec.encode(data);
 	}
 
 	/**
@@ -41,8 +44,45 @@ public class CodeUtil {
 	 * @return Java对象
 	 * @throws IOException 反序列化异常
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T extends ISerializable> T decode(Class<T> clazz, byte[] data) throws IOException {
+		T decode = getCodec(clazz).decode(data);
+		if (decode != null) {
+			decode.decode();
+		}
+		return decode;
+	}
+
+	/**
+	 * 反序列化
+	 * 将byte数组中的一段反序列化为Java对象，不复制数据
+	 *
+	 * @param clazz  要被解析的类
+	 * @param data   要被解析的数据
+	 * @param offset 起始位置
+	 * @param length 长度
+	 * @param <T>    泛型类型
+	 * @return Java对象
+	 * @throws IOException 反序列化异常
+	 */
+	public static <T extends ISerializable> T decode(Class<T> clazz, byte[] data, int offset, int length) throws IOException {
+		T decode = getCodec(clazz).readFrom(CodedInputStream.newInstance(data, offset, length));
+		if (decode != null) {
+			decode.decode();
+		}
+		return decode;
+	}
+
+	/**
+	 * 获取编解码器
+	 * <p>
+	 * 第一次使用时创建，编码和解码共用同一个编解码器
+	 *
+	 * @param clazz 要被解析的类
+	 * @param <T>   泛型类型
+	 * @return 编解码器
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T extends ISerializable> Codec<T> getCodec(Class<T> clazz) {
 		Codec<T> codec = (Codec<T>) codecs.get(clazz);
 		if (codec == null) {
 			synchronized (CodeUtil.class) {
@@ -55,10 +95,6 @@ public class CodeUtil {
 				}
 			}
 		}
-		T decode = codec.decode(data);
-		if (decode != null) {
-			decode.decode();
-		}
-		return decode;
+		return codec;
 	}
 }
\ No newline at end of file
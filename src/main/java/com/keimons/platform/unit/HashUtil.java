@@ -0,0 +1,127 @@
+package com.keimons.platform.unit;
+
+/**
+ * 哈希工具类
+ * <p>
+ * 提供非加密的64位哈希算法xxHash64，用于数据比对。与MD5相比，不需要创建{@code MessageDigest}，
+ * 结果是一个{@code long}，不需要转换为字符串就可以直接比较。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class HashUtil {
+
+	private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+
+	private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+
+	private static final long PRIME64_3 = 0x165667B19E3779F9L;
+
+	private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+
+	private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+	/**
+	 * 计算字节数组的xxHash64
+	 *
+	 * @param bytes 字节数组
+	 * @return 哈希值
+	 */
+	public static long xxHash64(byte[] bytes) {
+		return xxHash64(bytes, 0, bytes.length, 0);
+	}
+
+	/**
+	 * 计算字节数组的xxHash64
+	 *
+	 * @param bytes  字节数组
+	 * @param offset 起始位置
+	 * @param length 长度
+	 * @param seed   种子
+	 * @return 哈希值
+	 */
+	public static long xxHash64(byte[] bytes, int offset, int length, long seed) {
+		int index = offset;
+		int end = offset + length;
+		long hash;
+		if (length >= 32) {
+			long v1 = seed + PRIME64_1 + PRIME64_2;
+			long v2 = seed + PRIME64_2;
+			long v3 = seed;
+			long v4 = seed - PRIME64_1;
+			int limit = end - 32;
+			do {
+				v1 = round(v1, getLong(bytes, index));
+				v2 = round(v2, getLong(bytes, index + 8));
+				v3 = round(v3, getLong(bytes, index + 16));
+				v4 = round(v4, getLong(bytes, index + 24));
+				index += 32;
+			} while (index <= limit);
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			hash = merge(hash, v1);
+			hash = merge(hash, v2);
+			hash = merge(hash, v3);
+			hash = merge(hash, v4);
+		} else {
+			hash = seed + PRIME64_5;
+		}
+		hash += length;
+		while (index + 8 <= end) {
+			hash ^= round(0, getLong(bytes, index));
+			hash = Long.rotateLeft(hash, 27) * PRIME64_1 + PRIME64_4;
+			index += 8;
+		}
+		if (index + 4 <= end) {
+			hash ^= (getInt(bytes, index) & 0xFFFFFFFFL) * PRIME64_1;
+			hash = Long.rotateLeft(hash, 23) * PRIME64_2 + PRIME64_3;
+			index += 4;
+		}
+		while (index < end) {
+			hash ^= (bytes[index] & 0xFF) * PRIME64_5;
+			hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+			index++;
+		}
+		hash ^= hash >>> 33;
+		hash *= PRIME64_2;
+		hash ^= hash >>> 29;
+		hash *= PRIME64_3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	private static long round(long acc, long input) {
+		acc += input * PRIME64_2;
+		acc = Long.rotateLeft(acc, 31);
+		return acc * PRIME64_1;
+	}
+
+	private static long merge(long hash, long value) {
+		hash ^= round(0, value);
+		return hash * PRIME64_1 + PRIME64_4;
+	}
+
+	/**
+	 * 按照小端序读取一个{@code long}
+	 */
+	private static long getLong(byte[] bytes, int index) {
+		return (bytes[index] & 0xFFL)
+				| (bytes[index + 1] & 0xFFL) << 8
+				| (bytes[index + 2] & 0xFFL) << 16
+				| (bytes[index + 3] & 0xFFL) << 24
+				| (bytes[index + 4] & 0xFFL) << 32
+				| (bytes[index + 5] & 0xFFL) << 40
+				| (bytes[index + 6] & 0xFFL) << 48
+				| (bytes[index + 7] & 0xFFL) << 56;
+	}
+
+	/**
+	 * 按照小端序读取一个{@code int}
+	 */
+	private static int getInt(byte[] bytes, int index) {
+		return (bytes[index] & 0xFF)
+				| (bytes[index + 1] & 0xFF) << 8
+				| (bytes[index + 2] & 0xFF) << 16
+				| (bytes[index + 3] & 0xFF) << 24;
+	}
+}
\ No newline at end of file
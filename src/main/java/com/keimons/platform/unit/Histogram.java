@@ -0,0 +1,164 @@
+package com.keimons.platform.unit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁直方图
+ * <p>
+ * 按照2的整数次幂划分区间，第{@code i}个桶记录{@code [2^(i-1), 2^i)}之间的值，第0个桶记录0。
+ * 记录操作仅仅是一次数组的原子自增，不会阻塞调用线程，适合放在消息处理等热点路径上。统计得出的
+ * 百分位是桶的上界，精度为2倍，用于观察耗时分布已经足够。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ **/
+public class Histogram {
+
+	/**
+	 * 桶的数量 可以覆盖到 2^62
+	 */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * 每个区间中值的数量
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * 所有值的总和
+	 */
+	private final LongAdder sum = new LongAdder();
+
+	/**
+	 * 最大值
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 记录一个值
+	 *
+	 * @param value 值 负数按照0处理
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+		sum.add(value);
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * 重置直方图
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets.set(i, 0);
+		}
+		sum.reset();
+		max.set(0);
+	}
+
+	/**
+	 * 获取直方图快照
+	 * <p>
+	 * 快照过程中，依然可能有值被写入，所以快照并不是严格一致的。
+	 *
+	 * @return 快照
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+		return new Snapshot(counts, count, sum.sum(), max.get());
+	}
+
+	/**
+	 * 直方图快照
+	 *
+	 * @author monkey1993
+	 * @version 1.0
+	 * @since 1.8
+	 */
+	public static class Snapshot {
+
+		/**
+		 * 每个区间中值的数量
+		 */
+		private final long[] counts;
+
+		/**
+		 * 值的数量
+		 */
+		private final long count;
+
+		/**
+		 * 所有值的总和
+		 */
+		private final long sum;
+
+		/**
+		 * 最大值
+		 */
+		private final long max;
+
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		/**
+		 * 获取百分位
+		 *
+		 * @param percent 百分比 取值范围[0, 1]
+		 * @return 该百分位所在区间的上界
+		 */
+		public long percentile(double percent) {
+			if (count == 0) {
+				return 0;
+			}
+			long target = (long) Math.ceil(count * percent);
+			long total = 0;
+			for (int i = 0; i < counts.length; i++) {
+				total += counts[i];
+				if (total >= target) {
+					return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+				}
+			}
+			return max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getSum() {
+			return sum;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public long getMean() {
+			return count == 0 ? 0 : sum / count;
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + count + ", mean=" + getMean() + ", p50=" + percentile(0.5) +
+					", p99=" + percentile(0.99) + ", max=" + max;
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,278 @@
+package com.keimons.platform.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 长整型键的哈希表
+ * <p>
+ * 使用开放寻址和线性探测，键存储在{@code long[]}中，值存储在{@code Object[]}中，没有节点对象，
+ * 也不装箱键。每个元素只占用两个数组槽位，相比{@link java.util.HashMap}节省大部分的内存，适用于
+ * 大量常驻内存的小集合，例如：玩家的背包。
+ * <p>
+ * 值不能为{@code null}，值为{@code null}的槽位表示空槽位。删除时向前移动后续的元素，不留下删除标记。
+ * <p>
+ * 注意：这个类不是线程安全的。
+ *
+ * @param <V> 值类型
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class LongObjectMap<V> {
+
+	/**
+	 * 默认容量
+	 */
+	private static final int DEFAULT_CAPACITY = 4;
+
+	/**
+	 * 最大装载因子
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * 键
+	 */
+	private long[] keys;
+
+	/**
+	 * 值 {@code null}表示空槽位
+	 */
+	private Object[] values;
+
+	/**
+	 * 元素数量
+	 */
+	private int size;
+
+	/**
+	 * 扩容阈值
+	 */
+	private int threshold;
+
+	public LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 构造方法
+	 *
+	 * @param expected 预期的元素数量
+	 */
+	public LongObjectMap(int expected) {
+		allocate(capacity(expected));
+	}
+
+	/**
+	 * 获取值
+	 *
+	 * @param key 键
+	 * @return 值 不存在时返回{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int mask = values.length - 1;
+		for (int i = index(key, mask); ; i = (i + 1) & mask) {
+			Object value = values[i];
+			if (value == null) {
+				return null;
+			}
+			if (keys[i] == key) {
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 * 是否包含键
+	 *
+	 * @param key 键
+	 * @return 是否包含
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * 放入值
+	 *
+	 * @param key   键
+	 * @param value 值
+	 * @return 之前的值 不存在时返回{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		Objects.requireNonNull(value);
+		int mask = values.length - 1;
+		int i = index(key, mask);
+		for (; values[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				V before = (V) values[i];
+				values[i] = value;
+				return before;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > threshold) {
+			rehash(values.length << 1);
+		}
+		return null;
+	}
+
+	/**
+	 * 移除值
+	 *
+	 * @param key 键
+	 * @return 移除的值 不存在时返回{@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int mask = values.length - 1;
+		for (int i = index(key, mask); ; i = (i + 1) & mask) {
+			Object value = values[i];
+			if (value == null) {
+				return null;
+			}
+			if (keys[i] == key) {
+				shift(i, mask);
+				size--;
+				return (V) value;
+			}
+		}
+	}
+
+	/**
+	 * 删除一个槽位，将后续探测链上的元素向前移动
+	 *
+	 * @param hole 删除的槽位
+	 * @param mask 掩码
+	 */
+	private void shift(int hole, int mask) {
+		for (int i = (hole + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+			int home = index(keys[i], mask);
+			// 元素的初始位置不在(hole, i]之间时，移动到空出的槽位
+			boolean between = hole <= i ? hole < home && home <= i : hole < home || home <= i;
+			if (!between) {
+				keys[hole] = keys[i];
+				values[hole] = values[i];
+				hole = i;
+			}
+		}
+		values[hole] = null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 清空
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * 遍历所有的值
+	 *
+	 * @param action 执行的操作
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(Consumer<? super V> action) {
+		for (Object value : values) {
+			if (value != null) {
+				action.accept((V) value);
+			}
+		}
+	}
+
+	/**
+	 * 所有值的快照
+	 *
+	 * @return 所有值
+	 */
+	public List<V> values() {
+		List<V> result = new ArrayList<>(size);
+		forEach(result::add);
+		return result;
+	}
+
+	/**
+	 * 所有键的快照
+	 *
+	 * @return 所有键
+	 */
+	public long[] keys() {
+		long[] result = new long[size];
+		int index = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				result[index++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = this.keys;
+		Object[] values = this.values;
+		allocate(capacity);
+		int mask = capacity - 1;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				int j = index(keys[i], mask);
+				while (this.values[j] != null) {
+					j = (j + 1) & mask;
+				}
+				this.keys[j] = keys[i];
+				this.values[j] = values[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		threshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	private static int capacity(int expected) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expected) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	/**
+	 * 打散键，连续的数据ID均匀分布在表中
+	 */
+	private static int index(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder("{");
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != null) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				builder.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return builder.append('}').toString();
+	}
+}
\ No newline at end of file
@@ -5,8 +5,11 @@ import com.keimons.platform.module.IModule;
 import com.keimons.platform.module.IModuleSerializable;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 序列化工具
@@ -17,6 +20,11 @@ import java.util.List;
  **/
 public class SerializeUtil {
 
+	/**
+	 * 序列化方案的构造方法 序列化方案有状态，每次序列化创建一个新的对象，只缓存构造方法的查找
+	 */
+	private static final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
 	/**
 	 * 序列化模块
 	 *
@@ -35,7 +43,13 @@ public class SerializeUtil {
 			Class<? extends IModuleSerializable<T>> clazz,
 			IModule<? extends IGameData> module,
 			boolean coercive) throws IOException, IllegalAccessException, InstantiationException, NoSuchMethodException, InvocationTargetException {
-		IModuleSerializable<T> serializable = clazz.getDeclaredConstructor().newInstance();
+		Constructor<?> constructor = constructors.get(clazz);
+		if (constructor == null) {
+			constructor = clazz.getDeclaredConstructor();
+			constructors.put(clazz, constructor);
+		}
+		@SuppressWarnings("unchecked")
+		IModuleSerializable<T> serializable = (IModuleSerializable<T>) constructor.newInstance();
 		return serializable.serialize(module, coercive);
 	}
 
@@ -0,0 +1,44 @@
+package com.keimons.platform;
+
+import com.keimons.platform.datebase.IPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 测试使用的服务器配置
+ * <p>
+ * 每个测试开始前使用临时目录作为日志目录，测试结束后还原之前的{@link KeimonsServer#KeimonsConfig}和
+ * {@link StoreManager#getStore()}，删除临时目录。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class ConfigRule extends TemporaryFolder {
+
+	/**
+	 * 测试之前的服务器配置
+	 */
+	private KeimonsConfig config;
+
+	/**
+	 * 测试之前的存储
+	 */
+	private IPlayerStore store;
+
+	@Override
+	protected void before() throws Throwable {
+		super.before();
+		config = KeimonsServer.KeimonsConfig;
+		store = StoreManager.getStore();
+		KeimonsServer.KeimonsConfig = new KeimonsConfig.KeimonsConfigBuilder()
+				.setLogPath(newFolder("logs").getPath()).build();
+	}
+
+	@Override
+	protected void after() {
+		KeimonsServer.KeimonsConfig = config;
+		StoreManager.setStore(store);
+		super.after();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.keimons.platform.datebase;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可以模拟读写失败的内存存储
+ * <p>
+ * 写入失败时不修改任何数据，也不执行写入成功的回调。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class FailingPlayerStore extends MemoryPlayerStore {
+
+	/**
+	 * 接下来失败的写入次数
+	 */
+	private final AtomicInteger failures = new AtomicInteger();
+
+	/**
+	 * 接下来失败的读取次数
+	 */
+	private final AtomicInteger readFailures = new AtomicInteger();
+
+	/**
+	 * 接下来的几次写入失败
+	 *
+	 * @param times 失败的次数
+	 */
+	public void fail(int times) {
+		failures.set(times);
+	}
+
+	/**
+	 * 接下来的几次读取模块失败
+	 *
+	 * @param times 失败的次数
+	 */
+	public void failReads(int times) {
+		readFailures.set(times);
+	}
+
+	@Override
+	public CompletableFuture<List<byte[]>> getAsync(String key, List<byte[]> fields) {
+		if (readFailures.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+			CompletableFuture<List<byte[]>> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("模拟读取失败"));
+			return future;
+		}
+		return super.getAsync(key, fields);
+	}
+
+	@Override
+	public CompletableFuture<Void> writeAsync(List<MapWrite> writes) {
+		if (failures.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+			CompletableFuture<Void> future = new CompletableFuture<>();
+			future.completeExceptionally(new IllegalStateException("模拟写入失败"));
+			return future;
+		}
+		return super.writeAsync(writes);
+	}
+}
\ No newline at end of file
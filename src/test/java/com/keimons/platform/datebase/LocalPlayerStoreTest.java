@@ -0,0 +1,147 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.ConfigRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LocalPlayerStore}测试
+ * <p>
+ * 写入记录到本地日志，重新打开后重放日志，得到与关闭前相同的数据。日志整理之后数据不变。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class LocalPlayerStoreTest {
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("store").toPath();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		LocalPlayerStore store = open(1024 * 1024);
+		AtomicInteger success = new AtomicInteger();
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, "player:1")
+				.put(bytes("bag"), bytes("bag-1"))
+				.put(bytes("hero"), bytes("hero-1"))
+				.put(bytes("mail"), bytes("mail-1"))
+				.onSuccess(success::incrementAndGet);
+		store.write(Collections.singletonList(write));
+		assertEquals(1, success.get());
+		store.write(Collections.singletonList(new MapWrite(ByteArrayCodec.INSTANCE, "player:1")
+				.put(bytes("hero"), bytes("hero-2"))
+				.remove(bytes("mail"))));
+		store.write(Collections.singletonList(new MapWrite(ByteArrayCodec.INSTANCE, "player:2")
+				.put(bytes("bag"), bytes("bag-2"))));
+		store.write(Collections.singletonList(new MapWrite(ByteArrayCodec.INSTANCE, "player:2")
+				.clear()
+				.put(bytes("hero"), bytes("hero-3"))));
+		store.close();
+
+		LocalPlayerStore reopened = open(1024 * 1024);
+		List<byte[]> values = reopened.get("player:1", Arrays.asList(bytes("bag"), bytes("hero"), bytes("mail")));
+		assertEquals("bag-1", string(values.get(0)));
+		assertEquals("hero-2", string(values.get(1)));
+		assertNull(values.get(2));
+		assertEquals(2, reopened.getFieldsAsync("player:1").join().size());
+		values = reopened.get("player:2", Arrays.asList(bytes("bag"), bytes("hero")));
+		assertNull(values.get(0));
+		assertEquals("hero-3", string(values.get(1)));
+		assertTrue(reopened.getAll("player:3").isEmpty());
+		reopened.close();
+	}
+
+	@Test
+	public void testDelete() throws IOException {
+		LocalPlayerStore store = open(1024 * 1024);
+		for (int i = 0; i < 4; i++) {
+			store.write(Collections.singletonList(new MapWrite(ByteArrayCodec.INSTANCE, "player:" + i)
+					.put(bytes("bag"), bytes("bag-" + i))));
+		}
+		store.delete(Arrays.asList("player:1", "player:3", "player:5"));
+		store.close();
+
+		LocalPlayerStore reopened = open(1024 * 1024);
+		assertEquals(Arrays.asList("player:0", "player:2"), keys(reopened, "player:*"));
+		assertTrue(reopened.getAll("player:1").isEmpty());
+		reopened.close();
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		// 分段很小，多次覆盖同一个字段触发整理
+		LocalPlayerStore store = open(512);
+		for (int i = 0; i < 200; i++) {
+			store.write(Collections.singletonList(new MapWrite(ByteArrayCodec.INSTANCE, "player:" + (i % 4))
+					.put(bytes("bag"), bytes("bag-" + i))));
+		}
+		store.close();
+
+		LocalPlayerStore reopened = open(512);
+		assertEquals(Arrays.asList("player:0", "player:1", "player:2", "player:3"), keys(reopened, "player:*"));
+		for (int i = 0; i < 4; i++) {
+			byte[] value = reopened.get("player:" + i, Collections.singletonList(bytes("bag"))).get(0);
+			assertEquals("bag-" + (196 + i), string(value));
+		}
+		reopened.close();
+	}
+
+	@Test
+	public void testCreate() {
+		IPlayerStore local = StoreManager.create(StoreManager.LOCAL, directory, 1024);
+		assertTrue(local instanceof LocalPlayerStore);
+		assertTrue(local.hasCapability(IPlayerStore.Capability.DURABLE));
+		assertTrue(local.hasCapability(IPlayerStore.Capability.SCAN));
+		IPlayerStore memory = StoreManager.create(StoreManager.MEMORY, directory, 1024);
+		assertFalse(memory.hasCapability(IPlayerStore.Capability.DURABLE));
+		assertTrue(memory.hasCapability(IPlayerStore.Capability.SCAN));
+		try {
+			StoreManager.create("unknown", directory, 1024);
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("unknown"));
+		}
+	}
+
+	private LocalPlayerStore open(long segmentSize) throws IOException {
+		LocalPlayerStore store = new LocalPlayerStore(directory, segmentSize);
+		store.open();
+		return store;
+	}
+
+	private static List<String> keys(IPlayerStore store, String pattern) {
+		List<String> keys = new ArrayList<>();
+		store.keys(pattern).forEach(keys::add);
+		Collections.sort(keys);
+		return keys;
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(byte[] value) {
+		return new String(value, StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
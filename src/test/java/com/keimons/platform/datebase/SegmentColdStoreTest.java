@@ -0,0 +1,159 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.ConfigRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SegmentColdStore}测试
+ * <p>
+ * 重新打开时从分段文件重建索引，整理后有效数据复制到当前分段，旧的分段被删除。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SegmentColdStoreTest {
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("cold").toPath();
+	}
+
+	@Test
+	public void testPutGetRemove() throws IOException {
+		SegmentColdStore store = new SegmentColdStore(directory, 1024 * 1024);
+		store.open();
+		assertNull(store.get("player:1"));
+		store.put("player:1", value(1, 0));
+		store.put("player:2", value(2, 0));
+		store.put("player:1", value(1, 1));
+		assertEquals(2, store.size());
+		assertArrayEquals(value(1, 1), store.get("player:1"));
+		assertArrayEquals(value(2, 0), store.get("player:2"));
+		store.remove("player:2");
+		assertFalse(store.contains("player:2"));
+		assertNull(store.get("player:2"));
+		assertEquals(1, store.size());
+		store.close();
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		SegmentColdStore store = new SegmentColdStore(directory, 256);
+		store.open();
+		for (int i = 0; i < 20; i++) {
+			store.put("player:" + i, value(i, 0));
+		}
+		for (int i = 0; i < 20; i += 2) {
+			store.put("player:" + i, value(i, 1));
+		}
+		for (int i = 0; i < 20; i += 5) {
+			store.remove("player:" + i);
+		}
+		store.close();
+
+		SegmentColdStore reopened = new SegmentColdStore(directory, 256);
+		reopened.open();
+		assertEquals(16, reopened.size());
+		for (int i = 0; i < 20; i++) {
+			if (i % 5 == 0) {
+				assertFalse(reopened.contains("player:" + i));
+			} else {
+				assertArrayEquals(value(i, i % 2 == 0 ? 1 : 0), reopened.get("player:" + i));
+			}
+		}
+		reopened.close();
+	}
+
+	@Test
+	public void testReopenTruncatedTail() throws IOException {
+		SegmentColdStore store = new SegmentColdStore(directory, 1024 * 1024);
+		store.open();
+		store.put("player:1", value(1, 0));
+		store.put("player:2", value(2, 0));
+		store.close();
+
+		// 最后一条记录只写入了一部分
+		Path segment = segments().get(0);
+		long size = Files.size(segment);
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.setLength(size - 3);
+		}
+		SegmentColdStore reopened = new SegmentColdStore(directory, 1024 * 1024);
+		reopened.open();
+		assertEquals(1, reopened.size());
+		assertArrayEquals(value(1, 0), reopened.get("player:1"));
+		assertFalse(reopened.contains("player:2"));
+		reopened.put("player:2", value(2, 1));
+		reopened.close();
+
+		SegmentColdStore again = new SegmentColdStore(directory, 1024 * 1024);
+		again.open();
+		assertArrayEquals(value(2, 1), again.get("player:2"));
+		again.close();
+	}
+
+	@Test
+	public void testCompact() throws IOException {
+		SegmentColdStore store = new SegmentColdStore(directory, 256);
+		store.open();
+		// 覆盖所有的键，旧的分段中只剩下无效数据
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 10; i++) {
+				store.put("player:" + i, value(i, round));
+			}
+		}
+		store.remove("player:9");
+		int before = segments().size();
+		store.compact();
+		int after = segments().size();
+		assertTrue("整理前" + before + "个分段，整理后" + after + "个分段", after < before);
+		assertEquals(9, store.size());
+		for (int i = 0; i < 9; i++) {
+			assertArrayEquals(value(i, 2), store.get("player:" + i));
+		}
+		store.close();
+
+		SegmentColdStore reopened = new SegmentColdStore(directory, 256);
+		reopened.open();
+		assertEquals(9, reopened.size());
+		assertFalse(reopened.contains("player:9"));
+		for (int i = 0; i < 9; i++) {
+			assertArrayEquals(value(i, 2), reopened.get("player:" + i));
+		}
+		reopened.close();
+	}
+
+	private static byte[] value(int index, int round) {
+		byte[] value = new byte[64];
+		Arrays.fill(value, (byte) round);
+		byte[] prefix = ("value:" + index).getBytes(StandardCharsets.UTF_8);
+		System.arraycopy(prefix, 0, value, 0, prefix.length);
+		return value;
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> stream = Files.list(directory)) {
+			return stream.sorted().collect(Collectors.toList());
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,192 @@
+package com.keimons.platform.datebase;
+
+import com.keimons.platform.ConfigRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link WriteAheadLog}测试
+ * <p>
+ * 进程异常退出时最后一条记录可能只写入了一部分，重放时丢弃不完整的记录，之前的记录完整重放，
+ * 打开后从最后一条完整的记录之后继续追加。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class WriteAheadLogTest {
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.newFolder("wal").toPath();
+	}
+
+	@Test
+	public void testReplayTruncatedTail() throws IOException {
+		WriteAheadLog wal = new WriteAheadLog(directory, 1024 * 1024);
+		assertEquals(0, wal.replay(writes -> fail()));
+		wal.open();
+		append(wal, 0, 20);
+		wal.close();
+
+		// 最后一条记录只写入了一部分
+		Path segment = last();
+		long size = Files.size(segment);
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.setLength(size - 3);
+		}
+
+		List<String> keys = new ArrayList<>();
+		WriteAheadLog reopened = new WriteAheadLog(directory, 1024 * 1024);
+		assertEquals(19, reopened.replay(writes -> writes.forEach(write -> keys.add(write.getKey()))));
+		assertEquals(19, keys.size());
+		assertEquals("player:0", keys.get(0));
+		assertEquals("player:18", keys.get(18));
+		// 不完整的记录被截断，新的记录接在最后一条完整的记录之后
+		assertTrue(Files.size(segment) < size - 3);
+		reopened.open();
+		assertEquals(Long.valueOf(20), reopened.append(write(100)).join());
+		reopened.close();
+
+		keys.clear();
+		WriteAheadLog again = new WriteAheadLog(directory, 1024 * 1024);
+		assertEquals(20, again.replay(writes -> writes.forEach(write -> keys.add(write.getKey()))));
+		assertEquals("player:100", keys.get(19));
+	}
+
+	@Test
+	public void testReplayCorruptTail() throws IOException {
+		WriteAheadLog wal = new WriteAheadLog(directory, 1024 * 1024);
+		wal.replay(writes -> fail());
+		wal.open();
+		append(wal, 0, 5);
+		wal.close();
+
+		// 最后一条记录的数据损坏，校验失败
+		Path segment = last();
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			int b = file.read();
+			file.seek(file.length() - 1);
+			file.write(b ^ 0xFF);
+		}
+		List<String> keys = new ArrayList<>();
+		WriteAheadLog reopened = new WriteAheadLog(directory, 1024 * 1024);
+		assertEquals(4, reopened.replay(writes -> writes.forEach(write -> keys.add(write.getKey()))));
+		assertEquals(4, keys.size());
+	}
+
+	@Test
+	public void testReplayWrites() throws IOException {
+		WriteAheadLog wal = new WriteAheadLog(directory, 1024 * 1024);
+		wal.replay(writes -> fail());
+		wal.open();
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, "player:1")
+				.clear()
+				.put(bytes("a"), bytes("1"))
+				.remove(bytes("b"));
+		wal.append(Collections.singletonList(write)).join();
+		wal.append(write(2)).join();
+		wal.close();
+
+		List<MapWrite> replayed = new ArrayList<>();
+		new WriteAheadLog(directory, 1024 * 1024).replay(replayed::addAll);
+		assertEquals(2, replayed.size());
+		MapWrite first = replayed.get(0);
+		assertEquals("player:1", first.getKey());
+		assertTrue(first.isClear());
+		assertArrayEquals(bytes("1"), (byte[]) first.getPuts().get(first.getPuts().keySet().iterator().next()));
+		assertEquals(1, first.getRemoves().size());
+		assertArrayEquals(bytes("b"), (byte[]) first.getRemoves().get(0));
+		assertFalse(replayed.get(1).isClear());
+	}
+
+	@Test
+	public void testCheckpoint() throws IOException {
+		// 每条记录都切换到新的分段
+		WriteAheadLog wal = new WriteAheadLog(directory, 1);
+		wal.replay(writes -> fail());
+		wal.open();
+		append(wal, 0, 10);
+		assertEquals(10, wal.getLastLsn());
+		int before = segments().size();
+		assertTrue(before > 1);
+		wal.checkpoint(5);
+		List<Path> after = segments();
+		assertTrue(after.size() < before);
+		wal.close();
+
+		List<String> keys = new ArrayList<>();
+		new WriteAheadLog(directory, 1).replay(writes -> writes.forEach(write -> keys.add(write.getKey())));
+		// 序号大于5的记录都没有被删除
+		assertTrue(keys.containsAll(Stream.of(5, 6, 7, 8, 9).map(i -> "player:" + i).collect(Collectors.toList())));
+		assertFalse(keys.contains("player:0"));
+	}
+
+	@Test
+	public void testAppendBeforeOpen() throws IOException {
+		WriteAheadLog wal = new WriteAheadLog(directory, 1024);
+		CompletableFuture<Long> future = wal.append(write(1));
+		assertTrue(future.isCompletedExceptionally());
+		assertEquals(1, wal.getFailures());
+
+		// 失败的记录被统计，不影响之后的追加
+		wal.replay(writes -> fail());
+		wal.open();
+		assertEquals(Long.valueOf(1), wal.append(write(2)).join());
+		assertEquals(1, wal.getFailures());
+		wal.close();
+	}
+
+	private static void append(WriteAheadLog wal, int from, int to) {
+		List<CompletableFuture<Long>> futures = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			futures.add(wal.append(write(i)));
+		}
+		for (CompletableFuture<Long> future : futures) {
+			future.join();
+		}
+	}
+
+	private static List<MapWrite> write(int index) {
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, "player:" + index);
+		write.put(bytes("module"), bytes("value:" + index));
+		return Collections.singletonList(write);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> stream = Files.list(directory)) {
+			return stream.sorted().collect(Collectors.toList());
+		}
+	}
+
+	private Path last() throws IOException {
+		List<Path> segments = segments();
+		return segments.get(segments.size() - 1);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.keimons.platform.keimons;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.FailingPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.module.EnvelopeReader;
+import com.keimons.platform.player.IPlayer;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import com.keimons.platform.player.PlayerManager;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link DefaultSingularPlayerData}测试
+ * <p>
+ * 数据没有变化时不存储，写入失败后下次存储重新写入。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class DefaultSingularPlayerDataTest {
+
+	@APlayerData(moduleName = "singular_test_tracked")
+	public static class Tracked extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int value;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+
+		public void add(int value) {
+			this.value += value;
+			modify();
+		}
+
+		@Override
+		protected boolean isModifyTracked() {
+			return true;
+		}
+	}
+
+	@APlayerData(moduleName = "singular_test_fingerprint")
+	public static class Fingerprint extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int value;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private FailingPlayerStore store;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Tracked.class);
+		ModuleRegistry.register(Fingerprint.class);
+	}
+
+	@Before
+	public void setUp() {
+		store = new FailingPlayerStore();
+		StoreManager.setStore(store);
+	}
+
+	@Test
+	public void testTrackedRetry() throws IOException {
+		DefaultPlayer player = PlayerManager.findPlayer("singular:1", DefaultPlayer::new);
+		assertNotNull(player);
+		player.get(Tracked.class).add(1);
+		player.save(false);
+		assertEquals(1, stored("singular:1", Tracked.class).value);
+
+		// 没有变化时不存储
+		assertTrue(player.serialize(false).get(0).isEmpty());
+
+		player.get(Tracked.class).add(2);
+		saveFailed(player);
+		player.save(false);
+		assertEquals(3, stored("singular:1", Tracked.class).value);
+		PlayerManager.removePlayer("singular:1", p -> true);
+	}
+
+	@Test
+	public void testFingerprintRetry() throws IOException {
+		DefaultPlayer player = PlayerManager.findPlayer("singular:2", DefaultPlayer::new);
+		assertNotNull(player);
+		player.get(Fingerprint.class).value = 1;
+		player.save(false);
+		assertEquals(1, stored("singular:2", Fingerprint.class).value);
+		assertTrue(player.serialize(false).get(0).isEmpty());
+
+		player.get(Fingerprint.class).value = 3;
+		saveFailed(player);
+		player.save(false);
+		assertEquals(3, stored("singular:2", Fingerprint.class).value);
+		PlayerManager.removePlayer("singular:2", p -> true);
+	}
+
+	private void saveFailed(DefaultPlayer player) {
+		store.fail(1);
+		try {
+			player.save(false);
+			fail();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	private <T extends DefaultSingularPlayerData> T stored(String identifier, Class<T> clazz) throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(clazz);
+		byte[] value = store.get(identifier, Collections.singletonList(descriptor.getNameBytes())).get(0);
+		List<T> data = new EnvelopeReader(descriptor.getName(), value).deserialize(clazz);
+		assertEquals(1, data.size());
+		return data.get(0);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.keimons.platform.module;
+
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.MemoryPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import com.keimons.platform.player.IPlayer;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link CompressionService}测试
+ * <p>
+ * 根据数据大小选择压缩方式，样本足够后在后台训练字典，之后的数据使用字典压缩，所有压缩方式都可以还原。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class CompressionServiceTest {
+
+	@APlayerData(moduleName = "compression_test_plain")
+	public static class Plain extends DefaultSingularPlayerData {
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@APlayerData(moduleName = "compression_test_codec", isCompress = true)
+	public static class Codec extends DefaultSingularPlayerData {
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@APlayerData(moduleName = "compression_test_dictionary", isCompress = true)
+	public static class Dictionary extends DefaultSingularPlayerData {
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private MemoryPlayerStore store;
+
+	@Before
+	public void setUp() {
+		store = new MemoryPlayerStore();
+		StoreManager.setStore(store);
+	}
+
+	@After
+	public void tearDown() {
+		CompressionService.shutdown();
+	}
+
+	@Test
+	public void testNotCompress() throws IOException {
+		byte[] raw = text(0, 4096);
+		CompressionService.Compressed compressed = CompressionService.compress(ModuleRegistry.register(Plain.class), raw);
+		assertEquals(Compression.NONE, compressed.getCompression());
+		assertSame(raw, compressed.getBytes());
+	}
+
+	@Test
+	public void testSmall() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		byte[] raw = text(0, CompressionService.MIN_SIZE - 1);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, raw, 0, raw.length);
+		assertEquals(Compression.NONE, compressed.getCompression());
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test
+	public void testDeflate() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		// 写入缓冲区的中间，压缩一段数据
+		byte[] raw = text(0, 2048);
+		byte[] buffer = new byte[raw.length + 20];
+		System.arraycopy(raw, 0, buffer, 10, raw.length);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, buffer, 10, raw.length);
+		assertEquals(Compression.DEFLATE, compressed.getCompression());
+		assertTrue(compressed.getLength() < raw.length);
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test
+	public void testSnappy() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		byte[] raw = text(0, CompressionService.DICTIONARY_LIMIT * 4);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, raw);
+		assertEquals(Compression.SNAPPY, compressed.getCompression());
+		assertTrue(compressed.getLength() < raw.length);
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test
+	public void testIncompressible() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		byte[] raw = new byte[1024];
+		new Random(1).nextBytes(raw);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, raw);
+		assertEquals(Compression.NONE, compressed.getCompression());
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorrupt() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, text(0, 2048));
+		byte[] bytes = Arrays.copyOfRange(compressed.getBytes(), compressed.getOffset(), compressed.getOffset() + compressed.getLength() / 2);
+		CompressionService.decompress(descriptor.getName(), Compression.DEFLATE, 0, bytes);
+	}
+
+	@Test
+	public void testDictionary() throws Exception {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Dictionary.class);
+		CompressionService.init(2048);
+		CompressionService.Compressed compressed = null;
+		long deadline = System.currentTimeMillis() + 30000;
+		for (int i = 0; System.currentTimeMillis() < deadline; i++) {
+			byte[] raw = record(i);
+			compressed = CompressionService.compress(descriptor, raw);
+			assertArrayEquals(raw, decompress(descriptor, compressed));
+			if (compressed.getCompression() == Compression.DICTIONARY) {
+				break;
+			}
+			// 样本足够后等待后台训练完成
+			if (i > 1000) {
+				Thread.sleep(10);
+			}
+		}
+		assertNotNull(compressed);
+		assertEquals(Compression.DICTIONARY, compressed.getCompression());
+
+		// 字典和当前字典的ID写入存储，重启后可以解压之前的数据
+		Map<String, String> dictionaries = new HashMap<>();
+		store.getAll(CompressionService.DICTIONARY_KEY).forEach((field, value) ->
+				dictionaries.put(new String(field, StandardCharsets.UTF_8), new String(value, StandardCharsets.UTF_8)));
+		assertEquals(2, dictionaries.size());
+		assertTrue(dictionaries.containsKey(descriptor.getName() + ":" + compressed.getDictionary()));
+		assertEquals(String.valueOf(compressed.getDictionary()),
+				dictionaries.get(descriptor.getName() + ":" + CompressionService.CURRENT));
+
+		byte[] raw = record(-1);
+		compressed = CompressionService.compress(descriptor, raw);
+		assertEquals(Compression.DICTIONARY, compressed.getCompression());
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test
+	public void testRestart() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Dictionary.class);
+		String name = descriptor.getName();
+		// 两个字典，当前字典不是最后写入的字典
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, CompressionService.DICTIONARY_KEY);
+		write.put(field(name + ":12"), dictionary(0));
+		write.put(field(name + ":" + CompressionService.CURRENT), field("12"));
+		write.put(field(name + ":34"), dictionary(100));
+		store.write(Collections.singletonList(write));
+
+		CompressionService.init(0);
+		byte[] raw = record(7);
+		CompressionService.Compressed compressed = CompressionService.compress(descriptor, raw);
+		assertEquals(Compression.DICTIONARY, compressed.getCompression());
+		assertEquals(12, compressed.getDictionary());
+		assertArrayEquals(raw, decompress(descriptor, compressed));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingDictionary() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.register(Codec.class);
+		byte[] bytes = CompressionService.deflate(new byte[64], 0, 64, new byte[]{1, 2, 3});
+		CompressionService.decompress(descriptor.getName(), Compression.DICTIONARY, 12345, bytes);
+	}
+
+	private static byte[] decompress(ModuleDescriptor descriptor, CompressionService.Compressed compressed) throws IOException {
+		return CompressionService.decompress(descriptor.getName(), compressed.getCompression(),
+				compressed.getDictionary(), compressed.getBytes(), compressed.getOffset(), compressed.getLength());
+	}
+
+	private static byte[] field(String field) {
+		return field.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] dictionary(int from) {
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+		for (int i = from; i < from + 20; i++) {
+			byte[] record = record(i);
+			dictionary.write(record, 0, record.length);
+		}
+		return dictionary.toByteArray();
+	}
+
+	private static byte[] text(int seed, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = seed; builder.length() < length; i++) {
+			builder.append("line ").append(i).append(": the quick brown fox jumps over the lazy dog\n");
+		}
+		return Arrays.copyOf(builder.toString().getBytes(StandardCharsets.UTF_8), length);
+	}
+
+	/**
+	 * 结构相似的短数据，单独压缩时效果很差，使用字典后明显改善
+	 */
+	private static byte[] record(int index) {
+		return ("{\"id\":" + index + ",\"title\":\"Daily reward #" + (index % 30) + "\",\"body\":\"Dear adventurer, " +
+				"thank you for playing. Your daily reward of " + (index * 7) + " gold has been delivered to your bag. " +
+				"See you tomorrow!\",\"read\":" + (index % 2 == 0) + "}").getBytes(StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,256 @@
+package com.keimons.platform.module;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.MemoryPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultRepeatedPlayerData;
+import com.keimons.platform.player.IPlayerData;
+import com.keimons.platform.player.MigrationService;
+import com.keimons.platform.player.ModuleDescriptor;
+import com.keimons.platform.player.ModuleRegistry;
+import com.keimons.platform.unit.CodeUtil;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 模块数据信封测试
+ * <p>
+ * {@link EnvelopeWriter}写入的数据由{@link EnvelopeReader}还原，之前存储的{@link BytesModuleSerialize}
+ * 数据依然可以加载，再次存储时写为信封。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class EnvelopeTest {
+
+	@APlayerData(moduleName = "envelope_test_item")
+	public static class Item extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public int count;
+
+		@Protobuf(order = 3)
+		public String name;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+	}
+
+	@APlayerData(moduleName = "envelope_test_mail", isCompress = true)
+	public static class Mail extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public String body;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+	}
+
+	/**
+	 * 版本1的数据中{@link #count}是版本0的十倍
+	 */
+	@APlayerData(moduleName = "envelope_test_coin", version = 1)
+	public static class Coin extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public int count;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private MemoryPlayerStore store;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Item.class);
+		ModuleRegistry.register(Mail.class);
+		ModuleRegistry.register(Coin.class);
+		MigrationService.register(Coin.class, 0, Coin.class, coin -> {
+			coin.count *= 10;
+			return coin;
+		});
+	}
+
+	@Before
+	public void setUp() {
+		store = new MemoryPlayerStore();
+		StoreManager.setStore(store);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Item.class);
+		byte[] value = EnvelopeWriter.write(encode(items(16)), descriptor);
+		assertTrue(EnvelopeReader.isEnvelope(value));
+		assertEquals(Compression.NONE.getId(), value[1]);
+		EnvelopeReader reader = new EnvelopeReader(descriptor.getName(), value);
+		assertEquals(0, reader.getVersion());
+		assertFalse(reader.isOutdated(Item.class));
+		assertItems(items(16), reader.deserialize(Item.class));
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Item.class);
+		byte[] value = EnvelopeWriter.write(Collections.emptyList(), descriptor);
+		assertTrue(EnvelopeReader.isEnvelope(value));
+		assertTrue(new EnvelopeReader(descriptor.getName(), value).deserialize(Item.class).isEmpty());
+	}
+
+	@Test
+	public void testCompressed() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Mail.class);
+		// 少量数据使用Deflate压缩，超过字典压缩的上限使用Snappy压缩
+		for (int size : new int[]{8, 512}) {
+			List<Mail> mails = mails(size);
+			byte[] value = EnvelopeWriter.write(encode(mails), descriptor);
+			assertEquals(size == 8 ? Compression.DEFLATE.getId() : Compression.SNAPPY.getId(), value[1]);
+			List<Mail> result = new EnvelopeReader(descriptor.getName(), value).deserialize(Mail.class);
+			assertEquals(mails.size(), result.size());
+			for (int i = 0; i < mails.size(); i++) {
+				assertEquals(mails.get(i).id, result.get(i).id);
+				assertEquals(mails.get(i).body, result.get(i).body);
+			}
+		}
+	}
+
+	@Test
+	public void testOutdated() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Coin.class);
+		// 版本0的信封
+		EnvelopeWriter writer = new EnvelopeWriter();
+		Coin coin = new Coin();
+		coin.id = 1;
+		coin.count = 5;
+		writer.write(CodeUtil.encode(coin));
+		byte[] value = writer.finish(descriptor);
+		value[2] = 0;
+
+		EnvelopeReader reader = new EnvelopeReader(descriptor.getName(), value);
+		assertEquals(0, reader.getVersion());
+		assertTrue(reader.isOutdated(Coin.class));
+		List<Coin> coins = reader.deserialize(Coin.class);
+		assertEquals(1, coins.size());
+		assertEquals(50, coins.get(0).count);
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Item.class);
+		byte[] value = EnvelopeWriter.write(encode(items(4)), descriptor);
+		byte[] truncated = new byte[value.length - 2];
+		System.arraycopy(value, 0, truncated, 0, truncated.length);
+		new EnvelopeReader(descriptor.getName(), truncated).deserialize(Item.class);
+	}
+
+	@Test
+	public void testLegacy() throws IOException {
+		ModuleDescriptor item = ModuleRegistry.get(Item.class);
+		ModuleDescriptor mail = ModuleRegistry.get(Mail.class);
+		byte[] items = new BytesModuleSerialize().serialize(encode(items(16)), item);
+		byte[] mails = new BytesModuleSerialize().serialize(encode(mails(8)), mail);
+		assertFalse(EnvelopeReader.isEnvelope(items));
+		assertFalse(EnvelopeReader.isEnvelope(mails));
+		MapWrite write = new MapWrite(ByteArrayCodec.INSTANCE, "envelope:1");
+		write.put(item.getNameBytes(), items);
+		write.put(mail.getNameBytes(), mails);
+		store.write(Collections.singletonList(write));
+
+		DefaultPlayer player = new DefaultPlayer("envelope:1");
+		player.load(modules(Item.class, Mail.class));
+		for (Item expected : items(16)) {
+			Item actual = player.get(Item.class, expected.id);
+			assertEquals(expected.count, actual.count);
+			assertEquals(expected.name, actual.name);
+		}
+		assertEquals(mails(8).get(3).body, player.get(Mail.class, 3).body);
+
+		// 再次存储时写为信封
+		player.save(true);
+		byte[] value = store.get("envelope:1", Collections.singletonList(item.getNameBytes())).get(0);
+		assertTrue(EnvelopeReader.isEnvelope(value));
+		DefaultPlayer reloaded = new DefaultPlayer("envelope:1");
+		reloaded.load(modules(Item.class, Mail.class));
+		assertEquals(items(16).get(7).name, reloaded.get(Item.class, 7).name);
+		assertEquals(mails(8).get(5).body, reloaded.get(Mail.class, 5).body);
+	}
+
+	@SafeVarargs
+	private static Class<? extends IPlayerData>[] modules(Class<? extends IPlayerData>... modules) {
+		return modules;
+	}
+
+	private static List<byte[]> encode(List<? extends IGameDataSerialize> elements) throws IOException {
+		List<byte[]> bytes = new ArrayList<>(elements.size());
+		for (IGameDataSerialize element : elements) {
+			bytes.add(element.serialize(true));
+		}
+		return bytes;
+	}
+
+	private static List<Item> items(int size) {
+		List<Item> items = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Item item = new Item();
+			item.id = i;
+			item.count = i * 3;
+			item.name = "item-" + i;
+			items.add(item);
+		}
+		return items;
+	}
+
+	private static List<Mail> mails(int size) {
+		List<Mail> mails = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Mail mail = new Mail();
+			mail.id = i;
+			mail.body = "Dear adventurer, your daily reward of " + i * 7 + " gold has been delivered to your bag.";
+			mails.add(mail);
+		}
+		return mails;
+	}
+
+	private static void assertItems(List<Item> expected, List<Item> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).id, actual.get(i).id);
+			assertEquals(expected.get(i).count, actual.get(i).count);
+			assertEquals(expected.get(i).name, actual.get(i).name);
+		}
+	}
+}
\ No newline at end of file
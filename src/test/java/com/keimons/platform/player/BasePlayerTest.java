@@ -0,0 +1,178 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.FailingPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultRepeatedPlayerData;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link BasePlayer}懒加载测试
+ * <p>
+ * 懒加载模式下只读取模块名称，模块在第一次访问时加载。加载失败时抛出异常，不会新建空的模块覆盖
+ * 数据库中的数据。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class BasePlayerTest {
+
+	@APlayerData(moduleName = "lazy_test_wallet")
+	public static class Wallet extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int gold;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@APlayerData(moduleName = "lazy_test_hero")
+	public static class Hero extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public int level;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+	}
+
+	@APlayerData(moduleName = "lazy_test_bag")
+	public static class Bag extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int size;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private FailingPlayerStore store;
+
+	private boolean lazy;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Wallet.class);
+		ModuleRegistry.register(Hero.class);
+		ModuleRegistry.register(Bag.class);
+	}
+
+	@Before
+	public void setUp() {
+		store = new FailingPlayerStore();
+		StoreManager.setStore(store);
+		lazy = PlayerManager.isLazy();
+		PlayerManager.setLazy(true);
+	}
+
+	@After
+	public void tearDown() {
+		PlayerManager.setLazy(lazy);
+	}
+
+	@Test
+	public void testLazyLoad() {
+		persist("lazy:1");
+		DefaultPlayer player = load("lazy:1");
+		assertFalse(player.hasModules(modules(Wallet.class)));
+		assertFalse(player.hasModules(modules(Hero.class)));
+
+		// 第一次访问时加载
+		assertEquals(5, player.get(Wallet.class).gold);
+		assertTrue(player.hasModules(modules(Wallet.class)));
+		assertFalse(player.hasModules(modules(Hero.class)));
+		assertEquals(3, player.get(Hero.class, 1).level);
+		assertTrue(player.hasModules(modules(Hero.class)));
+
+		// 数据库中没有的模块直接新建
+		assertNotNull(player.get(Bag.class));
+	}
+
+	@Test
+	public void testPrefetch() {
+		persist("lazy:2");
+		DefaultPlayer player = load("lazy:2");
+		player.prefetch(Hero.class, Bag.class).join();
+		assertTrue(player.hasModules(modules(Hero.class)));
+		// 数据库中没有的模块不预加载
+		assertFalse(player.hasModules(modules(Bag.class)));
+		assertEquals(3, player.get(Hero.class, 1).level);
+	}
+
+	@Test
+	public void testLoadFailed() {
+		persist("lazy:3");
+		DefaultPlayer player = load("lazy:3");
+		store.failReads(1);
+		try {
+			player.get(Wallet.class);
+			fail();
+		} catch (RuntimeException e) {
+			assertFalse(player.hasModules(modules(Wallet.class)));
+		}
+		store.failReads(1);
+		Hero hero = new Hero();
+		hero.id = 2;
+		try {
+			player.add(hero);
+			fail();
+		} catch (RuntimeException e) {
+			assertFalse(player.hasModules(modules(Hero.class)));
+		}
+
+		// 没有加载的模块不会写入存储，下次访问重新加载
+		player.save(true);
+		assertEquals(5, player.get(Wallet.class).gold);
+		player.add(hero);
+		assertEquals(3, player.get(Hero.class, 1).level);
+		assertNotNull(player.get(Hero.class, 2));
+	}
+
+	private void persist(String identifier) {
+		PlayerManager.setLazy(false);
+		try {
+			DefaultPlayer player = new DefaultPlayer(identifier);
+			player.get(Wallet.class).gold = 5;
+			Hero hero = new Hero();
+			hero.id = 1;
+			hero.level = 3;
+			player.add(hero);
+			player.save(true);
+		} finally {
+			PlayerManager.setLazy(true);
+		}
+	}
+
+	private static DefaultPlayer load(String identifier) {
+		DefaultPlayer player = new DefaultPlayer(identifier);
+		player.load(modules());
+		return player;
+	}
+
+	@SafeVarargs
+	private static Class<? extends IPlayerData>[] modules(Class<? extends IPlayerData>... modules) {
+		return modules;
+	}
+}
\ No newline at end of file
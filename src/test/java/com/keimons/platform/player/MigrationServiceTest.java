@@ -0,0 +1,94 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.exception.ModuleException;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link MigrationService}测试
+ * <p>
+ * 数据从任意旧版本逐个版本升级到模块的当前版本，没有注册升级方法的版本不修改数据。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class MigrationServiceTest {
+
+	@APlayerData(moduleName = "migration_test", version = 3)
+	public static class Bag extends DefaultSingularPlayerData {
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@APlayerData(moduleName = "migration_test_register")
+	public static class Task extends DefaultSingularPlayerData {
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@BeforeClass
+	public static void setUp() {
+		ModuleRegistry.register(Bag.class);
+		ModuleRegistry.register(Task.class);
+		// 版本1到版本2是兼容的变化，没有升级方法
+		MigrationService.register(Bag.class, 0, bytes -> append(bytes, "v1"));
+		MigrationService.register(Bag.class, 2, bytes -> append(bytes, "v3"));
+	}
+
+	@Test
+	public void testUpgradeChain() throws IOException {
+		assertEquals("v0>v1>v3", string(MigrationService.upgrade(Bag.class, 0, bytes("v0"))));
+		assertEquals("v1>v3", string(MigrationService.upgrade(Bag.class, 1, bytes("v1"))));
+		assertEquals("v2>v3", string(MigrationService.upgrade(Bag.class, 2, bytes("v2"))));
+		// 当前版本的数据不升级
+		assertEquals("v3", string(MigrationService.upgrade(Bag.class, 3, bytes("v3"))));
+	}
+
+	@Test
+	public void testUpgradeWithoutUpgrader() throws IOException {
+		assertEquals("v0", string(MigrationService.upgrade(Task.class, 0, bytes("v0"))));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUpgradeError() throws IOException {
+		MigrationService.upgrade(Bag.class, 2, bytes("error"));
+	}
+
+	@Test(expected = ModuleException.class)
+	public void testRegisterDuplicate() {
+		MigrationService.register(Bag.class, 2, bytes -> bytes);
+	}
+
+	@Test(expected = ModuleException.class)
+	public void testRegisterNegative() {
+		MigrationService.register(Task.class, -1, bytes -> bytes);
+	}
+
+	private static byte[] append(byte[] bytes, String version) throws IOException {
+		String value = string(bytes);
+		if (value.equals("error")) {
+			throw new IOException("无法升级的数据");
+		}
+		return bytes(value + ">" + version);
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(byte[] bytes) {
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
\ No newline at end of file
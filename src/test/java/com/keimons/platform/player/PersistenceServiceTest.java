@@ -0,0 +1,138 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.FailingPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultRepeatedPlayerData;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PersistenceService}测试
+ * <p>
+ * 被标记的模块延迟写入存储，默认数据实现的{@code modify()}自动标记所在的模块，写入失败的模块重新
+ * 标记为脏数据，下次写入时重试。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class PersistenceServiceTest {
+
+	@APlayerData(moduleName = "persistence_test_wallet")
+	public static class Wallet extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int gold;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+
+		public void addGold(int gold) {
+			this.gold += gold;
+			modify();
+		}
+
+		@Override
+		protected boolean isModifyTracked() {
+			return true;
+		}
+	}
+
+	@APlayerData(moduleName = "persistence_test_hero")
+	public static class Hero extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public int level;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+
+		public void levelUp() {
+			level++;
+			modify();
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private FailingPlayerStore store;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Wallet.class);
+		ModuleRegistry.register(Hero.class);
+	}
+
+	@Before
+	public void setUp() {
+		store = new FailingPlayerStore();
+		StoreManager.setStore(store);
+		PersistenceService.flushAll();
+	}
+
+	@Test
+	public void testModifyMarksDirty() {
+		DefaultPlayer player = PlayerManager.findPlayer("persistence:1", DefaultPlayer::new);
+		assertNotNull(player);
+		Hero hero = new Hero();
+		hero.id = 1;
+		player.add(hero);
+		player.get(Wallet.class);
+		PersistenceService.flushAll();
+		assertEquals(0, PersistenceService.getDirtySize());
+
+		player.get(Wallet.class).addGold(100);
+		player.get(Hero.class, 1).levelUp();
+		assertEquals(1, PersistenceService.getDirtySize());
+		PersistenceService.flushAll();
+
+		PlayerManager.removePlayer("persistence:1", p -> true);
+		DefaultPlayer reloaded = PlayerManager.findPlayer("persistence:1", DefaultPlayer::new);
+		assertNotSame(player, reloaded);
+		assertEquals(100, reloaded.get(Wallet.class).gold);
+		assertEquals(1, reloaded.get(Hero.class, 1).level);
+		PlayerManager.removePlayer("persistence:1", p -> true);
+	}
+
+	@Test
+	public void testRetry() {
+		DefaultPlayer player = PlayerManager.findPlayer("persistence:2", DefaultPlayer::new);
+		assertNotNull(player);
+		player.get(Wallet.class).addGold(10);
+		long failures = PersistenceService.getFailures();
+		store.fail(1);
+		assertEquals(1, PersistenceService.flushAll());
+		// 写入失败，重新标记为脏数据
+		assertEquals(failures + 1, PersistenceService.getFailures());
+		assertEquals(1, PersistenceService.getDirtySize());
+		assertTrue(store.getAll("persistence:2").isEmpty());
+
+		// 写入之前的修改合并到这次写入
+		player.get(Wallet.class).addGold(5);
+		assertEquals(1, PersistenceService.getDirtySize());
+		assertEquals(1, PersistenceService.flushAll());
+		assertEquals(0, PersistenceService.getDirtySize());
+		assertEquals(failures + 1, PersistenceService.getFailures());
+
+		PlayerManager.removePlayer("persistence:2", p -> true);
+		DefaultPlayer reloaded = PlayerManager.findPlayer("persistence:2", DefaultPlayer::new);
+		assertEquals(15, reloaded.get(Wallet.class).gold);
+		PlayerManager.removePlayer("persistence:2", p -> true);
+	}
+}
\ No newline at end of file
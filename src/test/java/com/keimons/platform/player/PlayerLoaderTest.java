@@ -0,0 +1,149 @@
+package com.keimons.platform.player;
+
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.datebase.MemoryPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PlayerLoader}测试
+ * <p>
+ * 排队中的加载按照优先级执行，合并时提升为更高的优先级。同一个玩家同时只有一次加载，等待中的请求
+ * 共享加载结果，加载失败后下一次请求重新加载。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class PlayerLoaderTest {
+
+	/**
+	 * 等待{@link #gate}之后才开始加载的玩家
+	 */
+	public static class GatedPlayer extends DefaultPlayer {
+
+		private static final AtomicInteger loads = new AtomicInteger();
+
+		private static volatile CompletableFuture<Void> gate = CompletableFuture.completedFuture(null);
+
+		public GatedPlayer(String identifier) {
+			super(identifier);
+		}
+
+		@Override
+		public CompletableFuture<Void> loadAsync(Class<? extends IPlayerData>[] modules, Executor executor) {
+			loads.incrementAndGet();
+			return gate.thenCompose(v -> super.loadAsync(modules, executor));
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	@Before
+	public void setUp() {
+		StoreManager.setStore(new MemoryPlayerStore());
+		GatedPlayer.loads.set(0);
+	}
+
+	@Test
+	public void testPriority() throws InterruptedException {
+		int processors = Runtime.getRuntime().availableProcessors();
+		PlayerLoader.init(1, 1);
+		try {
+			// 占用唯一的执行位置，之后的加载都在排队
+			CompletableFuture<Void> blocker = new CompletableFuture<>();
+			PlayerLoader.submit("priority:0", PlayerLoader.Priority.BATCH, () -> blocker);
+			assertEquals(1, PlayerLoader.getRunning());
+
+			List<Object> order = Collections.synchronizedList(new ArrayList<>());
+			CountDownLatch latch = new CountDownLatch(3);
+			submit("priority:1", PlayerLoader.Priority.BATCH, order, latch);
+			submit("priority:2", PlayerLoader.Priority.LOOKUP, order, latch);
+			submit("priority:3", PlayerLoader.Priority.LOGIN, order, latch);
+			// 批量任务中的玩家登录，提升到登录的优先级，排在已经排队的登录之后
+			long coalesced = PlayerLoader.getCoalesced();
+			PlayerLoader.coalesce("priority:1", PlayerLoader.Priority.LOGIN);
+			assertEquals(coalesced + 1, PlayerLoader.getCoalesced());
+			assertEquals(3, PlayerLoader.getQueued());
+
+			blocker.complete(null);
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("priority:3", "priority:1", "priority:2"), order);
+		} finally {
+			PlayerLoader.init(processors, processors * 8);
+		}
+	}
+
+	@Test
+	public void testSingleFlight() {
+		CompletableFuture<Void> gate = new CompletableFuture<>();
+		GatedPlayer.gate = gate;
+		CompletableFuture<GatedPlayer> login = PlayerManager.loadAsync("loader:1", PlayerLoader.Priority.LOGIN, GatedPlayer::new);
+		CompletableFuture<GatedPlayer> batch = PlayerManager.loadAsync("loader:1", PlayerLoader.Priority.BATCH, GatedPlayer::new);
+		assertTrue(PlayerManager.isCached("loader:1"));
+		assertFalse(login.isDone());
+		assertFalse(batch.isDone());
+
+		gate.complete(null);
+		assertSame(login.join(), batch.join());
+		assertEquals(1, GatedPlayer.loads.get());
+		// 已经加载的玩家不再加载
+		assertSame(login.join(), PlayerManager.loadAsync("loader:1", GatedPlayer::new).join());
+		assertEquals(1, GatedPlayer.loads.get());
+		PlayerManager.removePlayer("loader:1", p -> true);
+	}
+
+	@Test
+	public void testSingleFlightFailure() {
+		CompletableFuture<Void> gate = new CompletableFuture<>();
+		GatedPlayer.gate = gate;
+		CompletableFuture<GatedPlayer> login = PlayerManager.loadAsync("loader:2", PlayerLoader.Priority.LOGIN, GatedPlayer::new);
+		CompletableFuture<GatedPlayer> lookup = PlayerManager.loadAsync("loader:2", GatedPlayer::new);
+
+		gate.completeExceptionally(new IllegalStateException("模拟读取失败"));
+		assertFailed(login);
+		assertFailed(lookup);
+		assertEquals(1, GatedPlayer.loads.get());
+		// 失败的加载不会留在内存中，下一次请求重新加载
+		assertFalse(PlayerManager.isCached("loader:2"));
+
+		GatedPlayer.gate = CompletableFuture.completedFuture(null);
+		assertNotNull(PlayerManager.loadAsync("loader:2", GatedPlayer::new).join());
+		assertEquals(2, GatedPlayer.loads.get());
+		PlayerManager.removePlayer("loader:2", p -> true);
+	}
+
+	private static void submit(String identifier, PlayerLoader.Priority priority, List<Object> order, CountDownLatch latch) {
+		PlayerLoader.submit(identifier, priority, () -> {
+			order.add(identifier);
+			latch.countDown();
+			return CompletableFuture.completedFuture(null);
+		});
+	}
+
+	private static void assertFailed(CompletableFuture<?> future) {
+		try {
+			future.join();
+			fail();
+		} catch (CompletionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+	}
+}
\ No newline at end of file
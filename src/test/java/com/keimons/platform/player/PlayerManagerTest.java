@@ -0,0 +1,130 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.MemoryPlayerStore;
+import com.keimons.platform.datebase.RedissonManager;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.datebase.WriteAheadLog;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultRepeatedPlayerData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link PlayerManager}测试
+ * <p>
+ * 开启预写日志时，延迟写入只记录到预写日志，卸载的玩家在卸载前存储到数据库，检查点删除日志之后
+ * 数据不会丢失。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class PlayerManagerTest {
+
+	@APlayerData(moduleName = "player_manager_test_item")
+	public static class Item extends DefaultRepeatedPlayerData<Integer> {
+
+		@Protobuf(order = 1)
+		public int id;
+
+		@Protobuf(order = 2)
+		public int count;
+
+		@Override
+		public Integer getDataId() {
+			return id;
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private MemoryPlayerStore store;
+
+	private Path directory;
+
+	private WriteAheadLog wal;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Item.class);
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		store = new MemoryPlayerStore();
+		StoreManager.setStore(store);
+		directory = folder.newFolder("wal").toPath();
+		wal = new WriteAheadLog(directory, 1024);
+		wal.replay(writes -> fail());
+		wal.open();
+		RedissonManager.setWriteAheadLog(wal);
+	}
+
+	@After
+	public void tearDown() {
+		RedissonManager.setWriteAheadLog(null);
+		wal.close();
+	}
+
+	@Test
+	public void testUnloadThenCheckpoint() throws IOException {
+		DefaultPlayer player = PlayerManager.findPlayer("manager:1", DefaultPlayer::new);
+		assertNotNull(player);
+		player.add(item(1, 10));
+		PersistenceService.flushAll();
+		// 延迟写入只记录到预写日志
+		assertTrue(store.getAll("manager:1").isEmpty());
+		assertTrue(segments() > 0);
+
+		assertNull(PlayerManager.removePlayer("manager:1", p -> true));
+		assertFalse(store.getAll("manager:1").isEmpty());
+		assertTrue(PlayerManager.persistence(true, 0).isSuccess());
+
+		DefaultPlayer reloaded = PlayerManager.findPlayer("manager:1", DefaultPlayer::new);
+		assertNotSame(player, reloaded);
+		assertEquals(10, reloaded.get(Item.class, 1).count);
+		PlayerManager.removePlayer("manager:1", p -> true);
+	}
+
+	@Test
+	public void testFlushAfterUnload() {
+		DefaultPlayer player = PlayerManager.findPlayer("manager:2", DefaultPlayer::new);
+		assertNotNull(player);
+		PlayerManager.removePlayer("manager:2", p -> true);
+		// 卸载后仍然持有玩家的修改，直接写入数据库
+		player.add(item(2, 20));
+		PersistenceService.flushAll();
+		assertTrue(PlayerManager.persistence(true, 0).isSuccess());
+
+		DefaultPlayer reloaded = PlayerManager.findPlayer("manager:2", DefaultPlayer::new);
+		assertEquals(20, reloaded.get(Item.class, 2).count);
+		PlayerManager.removePlayer("manager:2", p -> true);
+	}
+
+	private long segments() throws IOException {
+		try (Stream<Path> stream = Files.list(directory)) {
+			return stream.count();
+		}
+	}
+
+	private static Item item(int id, int count) {
+		Item item = new Item();
+		item.id = id;
+		item.count = count;
+		return item;
+	}
+}
\ No newline at end of file
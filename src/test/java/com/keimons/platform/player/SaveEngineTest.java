@@ -0,0 +1,123 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.FailingPlayerStore;
+import com.keimons.platform.datebase.MapWrite;
+import com.keimons.platform.datebase.MemoryPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SaveEngine}测试
+ * <p>
+ * 所有玩家分片存储，存储结果中记录成功的数量、失败的玩家和超过最长时间未完成的玩家。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SaveEngineTest {
+
+	@APlayerData(moduleName = "save_engine_test_wallet")
+	public static class Wallet extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int gold;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Wallet.class);
+	}
+
+	@Test
+	public void testSave() {
+		MemoryPlayerStore store = new MemoryPlayerStore();
+		StoreManager.setStore(store);
+		List<DefaultPlayer> players = players("save:", 64);
+		SaveEngine.SaveReport report = new SaveEngine(4, 8, 2).save(players, true, 0);
+		assertTrue(report.isSuccess());
+		assertFalse(report.isTimeout());
+		assertEquals(64, report.getTotal());
+		assertEquals(64, report.getSaved());
+		assertTrue(report.getFailed().isEmpty());
+		assertTrue(report.getUnfinished().isEmpty());
+		byte[] field = ModuleRegistry.get(Wallet.class).getNameBytes();
+		for (DefaultPlayer player : players) {
+			assertNotNull(store.get(player.getIdentifier(), Collections.singletonList(field)).get(0));
+		}
+	}
+
+	@Test
+	public void testFailed() {
+		FailingPlayerStore store = new FailingPlayerStore();
+		StoreManager.setStore(store);
+		List<DefaultPlayer> players = players("failed:", 4);
+		// 每个管道只有一个写入，只有第一个玩家的写入失败
+		store.fail(1);
+		SaveEngine.SaveReport report = new SaveEngine(1, 1, 1).save(players, true, 0);
+		assertFalse(report.isSuccess());
+		assertFalse(report.isTimeout());
+		assertEquals(3, report.getSaved());
+		assertEquals(Collections.singletonList("failed:0"), report.getFailed());
+		assertTrue(report.getUnfinished().isEmpty());
+	}
+
+	@Test
+	public void testTimeout() {
+		// 写入一直没有完成的存储
+		StoreManager.setStore(new MemoryPlayerStore() {
+			@Override
+			public CompletableFuture<Void> writeAsync(List<MapWrite> writes) {
+				return new CompletableFuture<>();
+			}
+		});
+		List<DefaultPlayer> players = players("timeout:", 8);
+		SaveEngine.SaveReport report = new SaveEngine(2, 64, 1).save(players, true, 200);
+		assertFalse(report.isSuccess());
+		assertTrue(report.isTimeout());
+		assertEquals(0, report.getSaved());
+		assertTrue(report.getFailed().isEmpty());
+		assertEquals(8, report.getUnfinished().size());
+		assertEquals(identifiers(players), new HashSet<>(report.getUnfinished()));
+	}
+
+	private static List<DefaultPlayer> players(String prefix, int size) {
+		List<DefaultPlayer> players = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			DefaultPlayer player = new DefaultPlayer(prefix + i);
+			player.get(Wallet.class).gold = i + 1;
+			players.add(player);
+		}
+		return players;
+	}
+
+	private static HashSet<Object> identifiers(List<DefaultPlayer> players) {
+		HashSet<Object> identifiers = new HashSet<>();
+		for (DefaultPlayer player : players) {
+			identifiers.add(player.getIdentifier());
+		}
+		return identifiers;
+	}
+}
\ No newline at end of file
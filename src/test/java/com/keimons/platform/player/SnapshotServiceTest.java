@@ -0,0 +1,139 @@
+package com.keimons.platform.player;
+
+import com.baidu.bjf.remoting.protobuf.annotation.Protobuf;
+import com.keimons.platform.ConfigRule;
+import com.keimons.platform.annotation.APlayerData;
+import com.keimons.platform.datebase.FailingPlayerStore;
+import com.keimons.platform.datebase.StoreManager;
+import com.keimons.platform.keimons.DefaultPlayer;
+import com.keimons.platform.keimons.DefaultSingularPlayerData;
+import com.keimons.platform.module.EnvelopeReader;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SnapshotService}测试
+ * <p>
+ * 快照在提交时生成，之后的修改不会写入这次存储。存储失败时记录失败次数，下次存储重新写入。没有开启
+ * 快照存储时在调用线程中存储。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class SnapshotServiceTest {
+
+	@APlayerData(moduleName = "snapshot_test_wallet")
+	public static class Wallet extends DefaultSingularPlayerData {
+
+		@Protobuf(order = 1)
+		public int gold;
+
+		@Override
+		public <T extends IPlayer<?>> void init(T player) {
+		}
+	}
+
+	@Rule
+	public ConfigRule folder = new ConfigRule();
+
+	private FailingPlayerStore store;
+
+	@BeforeClass
+	public static void register() {
+		ModuleRegistry.register(Wallet.class);
+	}
+
+	@Before
+	public void setUp() {
+		store = new FailingPlayerStore();
+		StoreManager.setStore(store);
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		int processors = Runtime.getRuntime().availableProcessors();
+		SnapshotService.init(1);
+		try {
+			DefaultPlayer player = new DefaultPlayer("snapshot:1");
+			player.get(Wallet.class).gold = 1;
+			// 占用唯一的存储线程，快照生成之后等待写入
+			CompletableFuture<Void> gate = new CompletableFuture<>();
+			SnapshotService.getExecutor().execute(gate::join);
+			long captures = SnapshotService.getCaptures();
+			CompletableFuture<Void> future = SnapshotService.save(player, true);
+			assertEquals(captures + 1, SnapshotService.getCaptures());
+
+			// 快照之后的修改不会写入这次存储
+			player.get(Wallet.class).gold = 2;
+			gate.complete(null);
+			future.join();
+			assertEquals(1, stored("snapshot:1").gold);
+
+			SnapshotService.save(player, false).join();
+			assertEquals(2, stored("snapshot:1").gold);
+		} finally {
+			SnapshotService.init(processors);
+		}
+	}
+
+	@Test
+	public void testFailure() throws IOException {
+		DefaultPlayer player = new DefaultPlayer("snapshot:2");
+		player.get(Wallet.class).gold = 3;
+		long failures = SnapshotService.getFailures();
+		store.fail(1);
+		try {
+			SnapshotService.save(player, false).join();
+			fail();
+		} catch (CompletionException e) {
+			assertEquals(failures + 1, SnapshotService.getFailures());
+		}
+
+		// 写入失败的模块下次存储重新写入
+		SnapshotService.save(player, false).join();
+		assertEquals(3, stored("snapshot:2").gold);
+	}
+
+	@Test
+	public void testDisabled() throws IOException {
+		int processors = Runtime.getRuntime().availableProcessors();
+		SnapshotService.init(0);
+		try {
+			assertFalse(SnapshotService.isEnabled());
+			DefaultPlayer player = new DefaultPlayer("snapshot:3");
+			player.get(Wallet.class).gold = 4;
+			// 在调用线程中存储，返回时已经完成
+			CompletableFuture<Void> future = SnapshotService.save(player, true);
+			assertTrue(future.isDone());
+			future.join();
+			assertEquals(4, stored("snapshot:3").gold);
+
+			// 没有开启预写日志时直接存储
+			player.get(Wallet.class).gold = 5;
+			future = SnapshotService.journal(player, Collections.singleton("snapshot_test_wallet"));
+			assertTrue(future.isDone());
+			assertEquals(5, stored("snapshot:3").gold);
+		} finally {
+			SnapshotService.init(processors);
+		}
+	}
+
+	private Wallet stored(String identifier) throws IOException {
+		ModuleDescriptor descriptor = ModuleRegistry.get(Wallet.class);
+		byte[] value = store.get(identifier, Collections.singletonList(descriptor.getNameBytes())).get(0);
+		List<Wallet> data = new EnvelopeReader(descriptor.getName(), value).deserialize(Wallet.class);
+		assertEquals(1, data.size());
+		return data.get(0);
+	}
+}
\ No newline at end of file
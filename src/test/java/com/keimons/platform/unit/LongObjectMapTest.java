@@ -0,0 +1,110 @@
+package com.keimons.platform.unit;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link LongObjectMap}测试
+ * <p>
+ * 删除时向前移动探测链上的元素，不留下删除标记，重点验证删除探测链中间的元素之后，链上后续的元素
+ * 依然可以找到。
+ *
+ * @author monkey1993
+ * @version 1.0
+ * @since 1.8
+ */
+public class LongObjectMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		LongObjectMap<String> map = new LongObjectMap<>();
+		assertTrue(map.isEmpty());
+		assertNull(map.put(1, "a"));
+		assertNull(map.put(-1, "b"));
+		assertNull(map.put(Long.MAX_VALUE, "c"));
+		assertEquals("a", map.put(1, "d"));
+		assertEquals(3, map.size());
+		assertEquals("d", map.get(1));
+		assertEquals("b", map.get(-1));
+		assertEquals("c", map.get(Long.MAX_VALUE));
+		assertNull(map.get(2));
+		assertEquals("b", map.remove(-1));
+		assertNull(map.remove(-1));
+		assertFalse(map.containsKey(-1));
+		assertEquals(2, map.size());
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testNullValue() {
+		new LongObjectMap<String>().put(1, null);
+	}
+
+	@Test
+	public void testResize() {
+		LongObjectMap<Long> map = new LongObjectMap<>();
+		for (long i = 0; i < 10000; i++) {
+			map.put(i, i);
+		}
+		assertEquals(10000, map.size());
+		for (long i = 0; i < 10000; i++) {
+			assertEquals(Long.valueOf(i), map.get(i));
+		}
+		long[] keys = map.keys();
+		Arrays.sort(keys);
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(i, keys[i]);
+		}
+		assertEquals(10000, map.values().size());
+	}
+
+	/**
+	 * 容量为16时，键只落在少数几个初始位置，形成跨越数组末尾的长探测链
+	 */
+	@Test
+	public void testRemoveInsideProbeChain() {
+		LongObjectMap<Long> map = new LongObjectMap<>(10);
+		long[] keys = new long[10];
+		for (int i = 0; i < keys.length; i++) {
+			// 间隔为16的倍数的键在打散后依然有大量冲突
+			keys[i] = i * 16L;
+			map.put(keys[i], keys[i]);
+		}
+		for (int i = 0; i < keys.length; i += 2) {
+			assertEquals(Long.valueOf(keys[i]), map.remove(keys[i]));
+			for (int j = 0; j < keys.length; j++) {
+				boolean removed = j % 2 == 0 && j <= i;
+				assertEquals("删除" + keys[i] + "后查找" + keys[j], removed ? null : Long.valueOf(keys[j]), map.get(keys[j]));
+			}
+		}
+		assertEquals(5, map.size());
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(20200101L);
+		LongObjectMap<Integer> map = new LongObjectMap<>();
+		Map<Long, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 200000; i++) {
+			// 较小的键空间，保证大量的覆盖和删除
+			long key = random.nextInt(512) - 256;
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key), map.remove(key));
+			} else {
+				assertEquals(expected.put(key, i), map.put(key, i));
+			}
+			assertEquals(expected.size(), map.size());
+		}
+		for (long key = -300; key < 300; key++) {
+			assertEquals(expected.get(key), map.get(key));
+		}
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get(0));
+	}
+}
\ No newline at end of file